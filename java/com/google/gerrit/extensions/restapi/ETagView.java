@@ -0,0 +1,36 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.extensions.restapi;
+
+/**
+ * A {@link RestReadView} whose response is fully determined by an ETag of the resource.
+ *
+ * <p>Before the view is invoked the ETag is compared to the {@code If-None-Match} header of the
+ * request. If they match, the request is answered with {@code 304 Not Modified} without calling
+ * {@link #apply(RestResource)}. Views should only implement this interface if every piece of
+ * information in their response is covered by the ETag.
+ *
+ * @param <R> type of resource the view reads.
+ */
+public interface ETagView<R extends RestResource> extends RestReadView<R> {
+  /**
+   * Returns the ETag of the response that {@link #apply(RestResource)} would return for the given
+   * resource, or {@code null} if the response cannot be described by an ETag (e.g. because of the
+   * options that were set on the view).
+   *
+   * <p>Called after the options of the view were parsed.
+   */
+  String getETag(R rsrc);
+}
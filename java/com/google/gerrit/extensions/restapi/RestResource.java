@@ -29,4 +29,13 @@ public interface RestResource {
     /** Returns time for the Last-Modified header. HTTP truncates the header value to seconds. */
     Timestamp getLastModified();
   }
+
+  /** A resource with an ETag describing its current state. */
+  public interface HasETag {
+    /**
+     * Returns the value for the ETag header, or {@code null} if the resource state cannot be
+     * described by an ETag.
+     */
+    String getETag();
+  }
 }
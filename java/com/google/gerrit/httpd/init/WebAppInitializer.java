@@ -382,7 +382,7 @@ public class WebAppInitializer extends GuiceServletContextListener implements Fi
             bind(GerritRuntime.class).toInstance(GerritRuntime.DAEMON);
           }
         });
-    modules.add(new GarbageCollectionModule());
+    modules.add(new GarbageCollectionModule(config));
     modules.add(new AttentionSetOwnerAdderModule());
     modules.add(new ChangeCleanupRunnerModule());
     modules.add(new DraftCommentsCleanupRunner.Module());
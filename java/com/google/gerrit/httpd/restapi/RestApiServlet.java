@@ -64,6 +64,7 @@ import com.google.gerrit.extensions.restapi.BadRequestException;
 import com.google.gerrit.extensions.restapi.BinaryResult;
 import com.google.gerrit.extensions.restapi.CacheControl;
 import com.google.gerrit.extensions.restapi.DefaultInput;
+import com.google.gerrit.extensions.restapi.ETagView;
 import com.google.gerrit.extensions.restapi.IdString;
 import com.google.gerrit.extensions.restapi.MethodNotAllowedException;
 import com.google.gerrit.extensions.restapi.NeedsParams;
@@ -212,6 +213,8 @@ public class RestApiServlet extends HttpServlet {
   public static final int SC_CLIENT_CLOSED_REQUEST = 499;
 
   private static final int HEAP_EST_SIZE = 10 * 8 * 1024; // Presize 10 blocks.
+  private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+  private static final int MIN_GZIP_SIZE = 256; // Do not compress very small payloads.
   private static final String PLAIN_TEXT = "text/plain";
   private static final Pattern TYPE_SPLIT_PATTERN = Pattern.compile("[ ,;][ ,;]*");
   private static final long ONE_KB = 1024;
@@ -252,6 +255,7 @@ public class RestApiServlet extends HttpServlet {
     final AclInfoController aclInfoController;
     final ServiceUserClassifier serviceUserClassifier;
     final Provider<TraceContext> requestTraceContext;
+    final boolean streamJsonResponses;
 
     @Inject
     Globals(
@@ -296,6 +300,7 @@ public class RestApiServlet extends HttpServlet {
       this.aclInfoController = aclInfoController;
       this.serviceUserClassifier = serviceUserClassifier;
       this.requestTraceContext = requestTraceContext;
+      this.streamJsonResponses = config.getBoolean("httpd", "streamJsonResponses", false);
     }
   }
 
@@ -532,6 +537,18 @@ public class RestApiServlet extends HttpServlet {
             return;
           }
 
+          String eTag = null;
+          if (viewData.view instanceof ETagView<?> && isRead(req)) {
+            eTag = ((ETagView<RestResource>) viewData.view).getETag(rsrc);
+            if (eTag != null && matchesETag(req.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+              res.setHeader(HttpHeaders.ETAG, quoteETag(eTag));
+              CacheHeaders.setCacheablePrivate(res, 0, TimeUnit.SECONDS, true);
+              logger.atFinest().log("REST call succeeded: %d", SC_NOT_MODIFIED);
+              res.sendError(SC_NOT_MODIFIED);
+              return;
+            }
+          }
+
           if (viewData.view instanceof RestReadView<?> && isRead(req)) {
             response =
                 invokeRestReadViewWithRetry(
@@ -618,6 +635,11 @@ public class RestApiServlet extends HttpServlet {
           statusCode = response.statusCode();
           response.headers().forEach((k, v) -> res.setHeader(k, v));
           configureCaching(req, res, rsrc, response.caching());
+          if (eTag != null
+              && statusCode == SC_OK
+              && response.caching().getType() != CacheControl.Type.NONE) {
+            res.setHeader(HttpHeaders.ETAG, quoteETag(eTag));
+          }
           res.setStatus(statusCode);
           logger.atFinest().log("REST call succeeded: %d", statusCode);
         }
@@ -626,6 +648,8 @@ public class RestApiServlet extends HttpServlet {
           Object value = Response.unwrap(response);
           if (value instanceof BinaryResult) {
             responseBytes = replyBinaryResult(req, res, (BinaryResult) value);
+          } else if (globals.streamJsonResponses && !"HEAD".equals(req.getMethod())) {
+            responseBytes = streamJson(req, res, qp.config(), value);
           } else {
             responseBytes = replyJson(req, res, false, qp.config(), value);
           }
@@ -1004,6 +1028,30 @@ public class RestApiServlet extends HttpServlet {
     return false;
   }
 
+  /**
+   * Whether the value of an {@code If-None-Match} header matches the given ETag.
+   *
+   * <p>Weak comparison is used, as recommended for {@code If-None-Match} by RFC 9110.
+   */
+  private static boolean matchesETag(@Nullable String ifNoneMatch, String eTag) {
+    if (Strings.isNullOrEmpty(ifNoneMatch)) {
+      return false;
+    }
+    for (String candidate : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals(quoteETag(eTag)) || candidate.equals(eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String quoteETag(String eTag) {
+    return '"' + eTag + '"';
+  }
+
   private <R extends RestResource> void configureCaching(
       HttpServletRequest req, HttpServletResponse res, R rsrc, CacheControl cacheControl) {
     setCacheHeaders(req, res, cacheControl);
@@ -1292,6 +1340,103 @@ public class RestApiServlet extends HttpServlet {
         req, res, binaryResult.setContentType(JSON_TYPE).setCharacterEncoding(UTF_8));
   }
 
+  /**
+   * Sends a JSON reply, serializing the result directly to the response.
+   *
+   * <p>Unlike {@link #replyJson(HttpServletRequest, HttpServletResponse, boolean, ListMultimap,
+   * Object)} the serialized JSON is not buffered (and for gzip compressed responses compressed a
+   * second time) on the heap, so that the memory needed for large replies doesn't grow with the
+   * size of the reply. The reply is sent with chunked transfer encoding since its length is not
+   * known upfront. Like for buffered replies, replies that are smaller than {@link
+   * #MIN_GZIP_SIZE} are not compressed.
+   *
+   * @param req the HTTP servlet request
+   * @param res the HTTP servlet response on which the reply should be set
+   * @param config config parameters for the JSON formatting
+   * @param result the object that should be formatted as JSON
+   * @return the length of the response
+   */
+  @CanIgnoreReturnValue
+  static long streamJson(
+      HttpServletRequest req,
+      HttpServletResponse res,
+      ListMultimap<String, String> config,
+      Object result)
+      throws IOException {
+    res.setContentType(JSON_TYPE);
+    res.setCharacterEncoding(UTF_8.name());
+    try (CountingOutputStream dst = new CountingOutputStream(res.getOutputStream())) {
+      OutputStream out = acceptsGzip(req) ? new DeferredGzipOutputStream(res, dst) : dst;
+      try (Writer w =
+          new BufferedWriter(new OutputStreamWriter(out, UTF_8), STREAM_BUFFER_SIZE)) {
+        out.write(JSON_MAGIC);
+        Gson gson = newGson(config);
+        if (result instanceof JsonElement) {
+          gson.toJson((JsonElement) result, w);
+        } else {
+          gson.toJson(result, w);
+        }
+        w.write('\n');
+      }
+      return dst.getCount();
+    }
+  }
+
+  /**
+   * Holds back the first {@link #MIN_GZIP_SIZE} bytes and only starts to compress once the reply
+   * is known to be larger, so that the response headers can still be set at that point.
+   */
+  private static class DeferredGzipOutputStream extends OutputStream {
+    private final HttpServletResponse res;
+    private final OutputStream dst;
+    private final byte[] head = new byte[MIN_GZIP_SIZE];
+    private int headLen;
+    private GZIPOutputStream gzip;
+
+    DeferredGzipOutputStream(HttpServletResponse res, OutputStream dst) {
+      this.res = res;
+      this.dst = dst;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (gzip == null && headLen + len <= head.length) {
+        System.arraycopy(b, off, head, headLen, len);
+        headLen += len;
+        return;
+      }
+      if (gzip == null) {
+        res.setHeader("Content-Encoding", "gzip");
+        gzip = new GZIPOutputStream(dst, STREAM_BUFFER_SIZE);
+        gzip.write(head, 0, headLen);
+      }
+      gzip.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (gzip != null) {
+        gzip.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (gzip != null) {
+        gzip.close();
+      } else {
+        try (OutputStream out = dst) {
+          out.write(head, 0, headLen);
+        }
+      }
+    }
+  }
+
   private static Gson newGson(ListMultimap<String, String> config) {
     GsonBuilder gb = OutputFormat.JSON_COMPACT.newGsonBuilder();
 
@@ -1438,8 +1583,8 @@ public class RestApiServlet extends HttpServlet {
       throws IOException {
     BinaryResult gz;
     long len = src.getContentLength();
-    if (len < 256) {
-      return src; // Do not compress very small payloads.
+    if (len < MIN_GZIP_SIZE) {
+      return src;
     }
     if (len <= (10 << 20)) {
       gz = compress(src);
@@ -163,6 +163,15 @@ public interface Index<K, V> {
     return true;
   }
 
+  /**
+   * Returns whether the index evaluates a disjunction of exact terms on the same field (see {@link
+   * IndexPredicate#isExactTerm()}) as a single set query. Such a disjunction then counts as one
+   * term towards {@code index.maxTerms}. {@code false} by default.
+   */
+  default boolean supportsTermSetQueries() {
+    return false;
+  }
+
   /**
    * An Optional filter that is invoked right after the results are returned from the index, but
    * before any post-filter predicates.
@@ -73,6 +73,18 @@ public class AndSource<T> extends AndPredicate<T> implements DataSource<T> {
     return filteredSource.readRaw();
   }
 
+  /**
+   * Returns the matching results lazily, page by page, if the pagination type supports it.
+   *
+   * @see PaginatingSource#stream()
+   */
+  public ResultSet<T> stream() {
+    if (filteredSource instanceof PaginatingSource) {
+      return ((PaginatingSource<T>) filteredSource).stream();
+    }
+    return filteredSource.read();
+  }
+
   @Override
   public boolean match(T object) {
     if (super.isMatchable() && !super.match(object)) {
@@ -57,6 +57,16 @@ public abstract class IndexPredicate<I> extends OperatorPredicate<I> implements
     return def.getType();
   }
 
+  /**
+   * Returns whether this predicate matches documents whose field contains exactly the value of
+   * this predicate. Index implementations may evaluate a disjunction of such predicates on the same
+   * field as a single set of terms.
+   */
+  public boolean isExactTerm() {
+    return getType() == FieldType.INTEGER
+        || (getType() == FieldType.EXACT && !(this instanceof RegexPredicate));
+  }
+
   /**
    * This method matches documents without calling an index subsystem. For primitive fields (e.g.
    * integer, long) , the matching logic is consistent across this method and all known index
@@ -14,6 +14,9 @@
 
 package com.google.gerrit.index.query;
 
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import com.google.gerrit.exceptions.StorageException;
@@ -21,6 +24,7 @@ import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.PaginationType;
 import com.google.gerrit.index.QueryOptions;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public class PaginatingSource<T> extends FilteredSource<T> {
@@ -92,6 +96,106 @@ public class PaginatingSource<T> extends FilteredSource<T> {
         });
   }
 
+  /**
+   * Returns the matching results lazily.
+   *
+   * <p>Unlike {@link #read()}, the results are not collected into a list. The source is read page
+   * by page as the returned result set is iterated, with the page size of the initial query, so
+   * that only a single page is held in memory. Pages after the first continue from the last result
+   * of the previous page if the pagination type is {@link PaginationType#SEARCH_AFTER}, and from
+   * its offset otherwise. At most as many results as the limit of the query options are returned.
+   *
+   * <p>Streaming is only supported without a start offset. Callers that stop iterating before the
+   * end must {@link ResultSet#close()} the result set to release the page that is being read.
+   */
+  public ResultSet<T> stream() {
+    if (source == null) {
+      throw new StorageException("No DataSource: " + this);
+    }
+    checkState(start == 0, "start is not supported when streaming: %s", start);
+    if (!(source instanceof Paginated)) {
+      return read();
+    }
+    @SuppressWarnings("unchecked")
+    Paginated<T> p = (Paginated<T>) source;
+    return new StreamingResultSet(p, source.read());
+  }
+
+  private class StreamingResultSet extends AbstractIterator<T> implements ResultSet<T> {
+    private final Paginated<T> source;
+    private final int limit;
+    private final int pageSize;
+    private ResultSet<T> page;
+    private Iterator<T> it;
+    private boolean iteratorObtained;
+    private int pageResultSize;
+    private int nextStart;
+    private int returned;
+
+    StreamingResultSet(Paginated<T> source, ResultSet<T> first) {
+      this.source = source;
+      this.limit = source.getOptions().limit();
+      this.pageSize = source.getOptions().pageSize();
+      this.page = first;
+      this.it = buffer(first).iterator();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      checkState(!iteratorObtained, "Results already obtained");
+      iteratorObtained = true;
+      return this;
+    }
+
+    @Override
+    public ImmutableList<T> toList() {
+      return ImmutableList.copyOf(iterator());
+    }
+
+    @Override
+    public void close() {
+      page.close();
+    }
+
+    @Override
+    public Object searchAfter() {
+      return page.searchAfter();
+    }
+
+    @Override
+    protected T computeNext() {
+      try {
+        while (returned < limit) {
+          while (it.hasNext()) {
+            T data = it.next();
+            pageResultSize++;
+            if (!isMatchable() || match(data)) {
+              returned++;
+              return data;
+            }
+          }
+          if (pageResultSize < pageSize) {
+            break;
+          }
+          nextStart += pageResultSize;
+          Object searchAfter = page.searchAfter();
+          page.close();
+          page =
+              indexConfig.paginationType().equals(PaginationType.SEARCH_AFTER)
+                  ? source.restart(searchAfter, pageSize)
+                  : source.restart(nextStart, pageSize);
+          it = buffer(page).iterator();
+          pageResultSize = 0;
+        }
+      } catch (RuntimeException e) {
+        page.close();
+        throw e;
+      }
+      page.close();
+      return endOfData();
+    }
+  }
+
   @Override
   public ResultSet<FieldBundle> readRaw() {
     // TODO(hiesel): Implement
@@ -219,6 +219,75 @@ public abstract class QueryProcessor<T> {
     }
   }
 
+  /**
+   * Query for entities that match a structured query and return them lazily.
+   *
+   * <p>Unlike {@link #query(Predicate)}, the results are not collected into a list. The index is
+   * read in pages of {@code pageSize} entities as the returned result set is iterated, so callers
+   * that process one entity at a time, e.g. to export a large number of them, only need memory for
+   * a single page. With the {@link PaginationType#SEARCH_AFTER} pagination type each page
+   * continues from the last entity of the previous page, without re-reading the entities before
+   * it.
+   *
+   * <p>The result set returns at most {@link #getEffectiveLimit(Predicate)} + 1 entities, so that
+   * callers can tell whether the limit was exceeded. Callers that stop iterating before the end
+   * must close it. {@link #setStart(int)} is not supported.
+   *
+   * @param query the query.
+   * @param pageSize number of entities that are read from the index at once.
+   * @return results of the query, can be iterated only once.
+   */
+  public ResultSet<T> stream(Predicate<T> query, int pageSize) throws QueryParseException {
+    checkState(!used.getAndSet(true), "%s has already been used", getClass().getSimpleName());
+    checkState(start == 0, "start is not supported when streaming: %s", start);
+    if (isDisabled()) {
+      return new ListResultSet<>(ImmutableList.of());
+    }
+
+    try {
+      checkSupportedForQueries(query);
+      int limit = getEffectiveLimit(query);
+      if (limit != getBackendSupportedLimit()) {
+        limit = Ints.saturatedCast((long) limit + 1);
+      }
+      QueryOptions opts =
+          createOptions(
+              indexConfig,
+              0,
+              Math.min(pageSize, limit),
+              1,
+              limit,
+              allowIncompleteResults,
+              getRequestedFields());
+      logger.atFine().log("Streaming query options: %s", opts);
+      Predicate<T> pred;
+      try (TraceTimer ignored = TraceContext.newTimer("rewriteQuery")) {
+        pred = rewriter.rewrite(query, opts);
+      }
+      if (enforceVisibility) {
+        pred = enforceVisibility(pred);
+      }
+      logger.atFine().log(
+          "%s index streaming query:\n%s",
+          schemaDef.getName(), pred instanceof IndexedQuery ? pred.getChild(0) : pred);
+
+      @SuppressWarnings("unchecked")
+      DataSource<T> s = (DataSource<T>) pred;
+      if (indexConfig.paginationType().equals(PaginationType.NONE)) {
+        return s.read();
+      } else if (s instanceof AndSource) {
+        return ((AndSource<T>) s).stream();
+      }
+      return new PaginatingSource<>(s, 0, indexConfig).stream();
+    } catch (StorageException e) {
+      Optional<QueryParseException> qpe = findQueryParseException(e);
+      if (qpe.isPresent()) {
+        throw new QueryParseException(qpe.get().getMessage(), e);
+      }
+      throw e;
+    }
+  }
+
   private List<QueryResult<T>> query(
       @Nullable List<String> queryStrings, List<Predicate<T>> queries) throws QueryParseException {
     long startNanos = System.nanoTime();
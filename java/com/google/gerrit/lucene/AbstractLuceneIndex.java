@@ -114,6 +114,7 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
   private final ReferenceManager<IndexSearcher> searcherManager;
   private final ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
   private final Set<NrtFuture> notDoneNrtFutures;
+  private final SearchResultCache searchResultCache;
   private final AutoFlush autoFlush;
   private ScheduledExecutorService autoCommitExecutor;
   private final Function<V, K> valueToKeyFunction;
@@ -189,6 +190,7 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
               MILLISECONDS);
     }
     searcherManager = new WrappableSearcherManager(writer, true, searcherFactory);
+    searchResultCache = new SearchResultCache(writerConfig.getSearchResultCacheSize());
 
     notDoneNrtFutures = Sets.newConcurrentHashSet();
 
@@ -360,6 +362,16 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
     searcherManager.release(searcher);
   }
 
+  /**
+   * Searches with the given searcher, which must have been {@link #acquire() acquired} from this
+   * index. Repeated searches are answered from the {@link SearchResultCache} until the index is
+   * reopened.
+   */
+  TopFieldDocs search(IndexSearcher searcher, Query query, int limit, Sort sort)
+      throws IOException {
+    return searchResultCache.search(searcher, query, limit, sort);
+  }
+
   Document toDocument(V obj) {
     Document result = new Document();
     for (Values<V> vs : schema.buildFields(obj, skipFields)) {
@@ -547,6 +559,11 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
     return schema;
   }
 
+  @Override
+  public boolean supportsTermSetQueries() {
+    return true;
+  }
+
   @Override
   public boolean snapshot(String id) throws IOException {
     SnapshotDeletionPolicy snapshooter =
@@ -612,7 +629,7 @@ public abstract class AbstractLuceneIndex<K, V> implements Index<K, V> {
         TopFieldDocs docs =
             opts.searchAfter() != null
                 ? searcher.searchAfter((ScoreDoc) opts.searchAfter(), query, realLimit, sort, false)
-                : searcher.search(query, realLimit, sort);
+                : search(searcher, query, realLimit, sort);
         ImmutableList.Builder<T> b = ImmutableList.builderWithExpectedSize(docs.scoreDocs.length);
         StoredFields storedFields = searcher.getIndexReader().storedFields();
         for (int i = opts.start(); i < docs.scoreDocs.length; i++) {
@@ -40,6 +40,7 @@ class GerritIndexWriterConfig {
 
   private final IndexWriterConfig luceneConfig;
   private long commitWithinMs;
+  private final int searchResultCacheSize;
   private final CustomMappingAnalyzer analyzer;
 
   GerritIndexWriterConfig(Config cfg, String name, SitePaths sitePaths)
@@ -84,6 +85,8 @@ class GerritIndexWriterConfig {
       commitWithinMs = cfg.getLong("index", name, "commitWithin", 0);
     }
 
+    searchResultCacheSize = cfg.getInt("index", name, "searchResultCacheSize", 0);
+
     boolean enableLogging = cfg.getBoolean("index", name, "persistInfoStream", false);
     if (enableLogging) {
       luceneConfig.setInfoStream(
@@ -113,4 +116,8 @@ class GerritIndexWriterConfig {
   long getCommitWithinMs() {
     return commitWithinMs;
   }
+
+  int getSearchResultCacheSize() {
+    return searchResultCacheSize;
+  }
 }
@@ -22,10 +22,12 @@ import static com.google.gerrit.server.index.change.ChangeField.NUMERIC_ID_STR_S
 import static com.google.gerrit.server.index.change.ChangeField.PROJECT_SPEC;
 import static com.google.gerrit.server.index.change.ChangeIndexRewriter.CLOSED_STATUSES;
 import static com.google.gerrit.server.index.change.ChangeIndexRewriter.OPEN_STATUSES;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
@@ -33,7 +35,9 @@ import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.Sets;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.Project;
@@ -53,6 +57,7 @@ import com.google.gerrit.proto.Protos;
 import com.google.gerrit.server.change.MergeabilityComputationBehavior;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.WorkQueue;
 import com.google.gerrit.server.index.IndexExecutor;
 import com.google.gerrit.server.index.IndexUtils;
 import com.google.gerrit.server.index.change.ChangeField;
@@ -65,6 +70,7 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.protobuf.MessageLite;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -72,11 +78,17 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.function.Function;
+import java.util.stream.IntStream;
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
@@ -101,6 +113,9 @@ import org.eclipse.jgit.lib.Config;
  * <p>Writes are managed using a single {@link IndexWriter} per process, committed aggressively.
  * Reads use {@link SearcherManager} and periodically refresh, though there may be some lag between
  * a committed write and it showing up to other threads' searchers.
+ *
+ * <p>Open and closed changes are kept in separate sub-indexes. Each of them can be split into
+ * shards by project, see {@code index.changeShards}.
  */
 public class LuceneChangeIndex implements ChangeIndex {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
@@ -112,8 +127,27 @@ public class LuceneChangeIndex implements ChangeIndex {
   private static final String CHANGES = "changes";
   private static final String CHANGES_OPEN = "open";
   private static final String CHANGES_CLOSED = "closed";
+  private static final String SHARDS_FILE = "shards";
+  private static final String SHARD_SEARCH_QUEUE = "ChangeShardSearch";
   private static final String CHANGE_FIELD = ChangeField.CHANGE_SPEC.getName();
 
+  /**
+   * Stored fields that are expensive to decode and are only decoded when the corresponding data of
+   * the {@link ChangeData} is first accessed.
+   */
+  private static final ImmutableMap<String, ChangeData.StoredData> DEFERRED_FIELDS =
+      ImmutableMap.of(
+          ChangeField.PATCH_SET_SPEC.getName(),
+          ChangeData.StoredData.PATCH_SETS,
+          ChangeField.APPROVAL_SPEC.getName(),
+          ChangeData.StoredData.CURRENT_APPROVALS,
+          ChangeField.STORED_SUBMIT_RECORD_STRICT_SPEC.getName(),
+          ChangeData.StoredData.SUBMIT_RECORDS,
+          ChangeField.STORED_SUBMIT_RECORD_LENIENT_SPEC.getName(),
+          ChangeData.StoredData.SUBMIT_RECORDS,
+          ChangeField.STORED_SUBMIT_REQUIREMENTS_SPEC.getName(),
+          ChangeData.StoredData.SUBMIT_REQUIREMENTS);
+
   static Term idTerm(ChangeData cd) {
     return idTerm(cd.virtualId());
   }
@@ -124,87 +158,194 @@ public class LuceneChangeIndex implements ChangeIndex {
 
   private final ListeningExecutorService executor;
   private final ChangeData.Factory changeDataFactory;
+  private final LuceneStoredFieldMetrics storedFieldMetrics;
   private final Schema<ChangeData> schema;
   private final QueryBuilder<ChangeData> queryBuilder;
-  private final ChangeSubIndex openIndex;
-  private final ChangeSubIndex closedIndex;
+  private final ImmutableList<ChangeSubIndex> openIndexes;
+  private final ImmutableList<ChangeSubIndex> closedIndexes;
+  @Nullable private final ExecutorService shardSearchExecutor;
+  @Nullable private final Path dir;
   private final ImmutableSet<String> skipFields;
 
   @Inject
   LuceneChangeIndex(
       @GerritServerConfig Config cfg,
       SitePaths sitePaths,
+      WorkQueue workQueue,
       @IndexExecutor(INTERACTIVE) ListeningExecutorService executor,
       ChangeData.Factory changeDataFactory,
+      LuceneStoredFieldMetrics storedFieldMetrics,
       @Assisted Schema<ChangeData> schema,
       AutoFlush autoFlush)
       throws IOException {
     this.executor = executor;
     this.changeDataFactory = changeDataFactory;
+    this.storedFieldMetrics = storedFieldMetrics;
     this.schema = schema;
     this.skipFields =
         MergeabilityComputationBehavior.fromConfig(cfg).includeInIndex()
             ? ImmutableSet.of()
             : ImmutableSet.of(ChangeField.MERGEABLE_SPEC.getName());
 
-    GerritIndexWriterConfig openConfig =
-        new GerritIndexWriterConfig(cfg, "changes_open", sitePaths);
-    GerritIndexWriterConfig closedConfig =
-        new GerritIndexWriterConfig(cfg, "changes_closed", sitePaths);
+    int shards = Math.max(cfg.getInt("index", null, "changeShards", 1), 1);
+    ImmutableList.Builder<ChangeSubIndex> openShards = ImmutableList.builder();
+    ImmutableList.Builder<ChangeSubIndex> closedShards = ImmutableList.builder();
+    SearcherFactory searcherFactory = new SearcherFactory();
+    Analyzer analyzer = null;
+    dir =
+        LuceneIndexModule.isInMemoryTest(cfg)
+            ? null
+            : LuceneVersionManager.getDir(sitePaths, CHANGES, schema);
+    if (dir != null) {
+      checkShards(dir, shards, schema, autoFlush);
+    }
+    for (int shard = 0; shard < shards; shard++) {
+      // Each IndexWriter needs its own configuration instance.
+      String suffix = shards > 1 ? "_" + shard : "";
+      GerritIndexWriterConfig openConfig =
+          new GerritIndexWriterConfig(cfg, "changes_open", sitePaths);
+      GerritIndexWriterConfig closedConfig =
+          new GerritIndexWriterConfig(cfg, "changes_closed", sitePaths);
+      if (dir == null) {
+        openShards.add(
+            new ChangeSubIndex(
+                schema,
+                sitePaths,
+                new ByteBuffersDirectory(),
+                "ramOpen" + suffix,
+                skipFields,
+                openConfig,
+                searcherFactory,
+                autoFlush));
+        closedShards.add(
+            new ChangeSubIndex(
+                schema,
+                sitePaths,
+                new ByteBuffersDirectory(),
+                "ramClosed" + suffix,
+                skipFields,
+                closedConfig,
+                searcherFactory,
+                autoFlush));
+      } else {
+        openShards.add(
+            new ChangeSubIndex(
+                schema,
+                sitePaths,
+                dir.resolve(CHANGES_OPEN + suffix),
+                skipFields,
+                openConfig,
+                searcherFactory,
+                autoFlush));
+        closedShards.add(
+            new ChangeSubIndex(
+                schema,
+                sitePaths,
+                dir.resolve(CHANGES_CLOSED + suffix),
+                skipFields,
+                closedConfig,
+                searcherFactory,
+                autoFlush));
+      }
+      analyzer = openConfig.getAnalyzer();
+    }
+    queryBuilder = new QueryBuilder<>(schema, analyzer);
+    openIndexes = openShards.build();
+    closedIndexes = closedShards.build();
+    shardSearchExecutor = shards > 1 ? shardSearchExecutor(workQueue) : null;
+  }
 
-    queryBuilder = new QueryBuilder<>(schema, openConfig.getAnalyzer());
+  /**
+   * Returns the queue that searches shards in parallel. The queue is shared by all versions of the
+   * change index, e.g. while an online reindex is running.
+   */
+  private static ScheduledThreadPoolExecutor shardSearchExecutor(WorkQueue workQueue) {
+    synchronized (workQueue) {
+      ScheduledThreadPoolExecutor queue = workQueue.getExecutor(SHARD_SEARCH_QUEUE);
+      if (queue != null) {
+        return queue;
+      }
+      return workQueue.createQueue(
+          Runtime.getRuntime().availableProcessors(), SHARD_SEARCH_QUEUE, true);
+    }
+  }
 
-    SearcherFactory searcherFactory = new SearcherFactory();
-    if (LuceneIndexModule.isInMemoryTest(cfg)) {
-      openIndex =
-          new ChangeSubIndex(
-              schema,
-              sitePaths,
-              new ByteBuffersDirectory(),
-              "ramOpen",
-              skipFields,
-              openConfig,
-              searcherFactory,
-              autoFlush);
-      closedIndex =
-          new ChangeSubIndex(
-              schema,
-              sitePaths,
-              new ByteBuffersDirectory(),
-              "ramClosed",
-              skipFields,
-              closedConfig,
-              searcherFactory,
-              autoFlush);
-    } else {
-      Path dir = LuceneVersionManager.getDir(sitePaths, CHANGES, schema);
-      openIndex =
-          new ChangeSubIndex(
-              schema,
-              sitePaths,
-              dir.resolve(CHANGES_OPEN),
-              skipFields,
-              openConfig,
-              searcherFactory,
-              autoFlush);
-      closedIndex =
-          new ChangeSubIndex(
-              schema,
-              sitePaths,
-              dir.resolve(CHANGES_CLOSED),
-              skipFields,
-              closedConfig,
-              searcherFactory,
-              autoFlush);
+  /**
+   * Checks that the index in {@code dir} was built with the configured number of shards, and
+   * records the number of shards for a new index.
+   *
+   * <p>Changes are looked up in the shard of their project, so an index that was built with a
+   * different number of shards would silently miss changes. Only offline reindexing, which deletes
+   * all documents before it rebuilds the index, may open such an index, see {@link #deleteAll()}.
+   */
+  private static void checkShards(
+      Path dir, int shards, Schema<ChangeData> schema, AutoFlush autoFlush) throws IOException {
+    Optional<Integer> built = readShards(dir);
+    if (built.isEmpty()) {
+      writeShards(dir, shards);
+    } else if (built.get() != shards && autoFlush.equals(AutoFlush.ENABLED)) {
+      throw new StorageException(
+          String.format(
+              "index.changeShards is %d, but version %d of the %s index was built with %d shards;"
+                  + " reindex the %s index offline",
+              shards, schema.getVersion(), CHANGES, built.get(), CHANGES));
+    }
+  }
+
+  /**
+   * Returns the number of shards of the index in {@code dir}, or empty if the index was not built
+   * yet.
+   */
+  private static Optional<Integer> readShards(Path dir) throws IOException {
+    Path file = dir.resolve(SHARDS_FILE);
+    if (Files.exists(file)) {
+      String value = Files.readString(file, UTF_8).trim();
+      try {
+        return Optional.of(Integer.parseInt(value));
+      } catch (NumberFormatException e) {
+        throw new IOException(String.format("invalid number of shards in %s: %s", file, value), e);
+      }
+    }
+    // The number of shards of older indexes follows from their sub-index folders.
+    if (Files.isDirectory(dir.resolve(CHANGES_OPEN))) {
+      return Optional.of(1);
+    }
+    int shards = 0;
+    while (Files.isDirectory(dir.resolve(CHANGES_OPEN + "_" + shards))) {
+      shards++;
+    }
+    return shards > 0 ? Optional.of(shards) : Optional.empty();
+  }
+
+  private static void writeShards(Path dir, int shards) throws IOException {
+    Files.createDirectories(dir);
+    Files.writeString(dir.resolve(SHARDS_FILE), shards + "\n", UTF_8);
+  }
+
+  /** Returns the shard that holds the changes of the given project. */
+  private int shard(Project.NameKey project) {
+    return Math.floorMod(project.get().hashCode(), openIndexes.size());
+  }
+
+  private ImmutableList<ChangeSubIndex> allIndexes() {
+    return ImmutableList.<ChangeSubIndex>builder()
+        .addAll(openIndexes)
+        .addAll(closedIndexes)
+        .build();
+  }
+
+  private static void await(List<? extends ListenableFuture<?>> futures) {
+    try {
+      Futures.allAsList(futures).get();
+    } catch (ExecutionException | InterruptedException e) {
+      throw new StorageException(e);
     }
   }
 
   @Override
   public void close() {
-    try {
-      openIndex.close();
-    } finally {
-      closedIndex.close();
+    for (ChangeSubIndex index : allIndexes()) {
+      index.close();
     }
   }
 
@@ -213,20 +354,24 @@ public class LuceneChangeIndex implements ChangeIndex {
     return schema;
   }
 
+  @Override
+  public boolean supportsTermSetQueries() {
+    return true;
+  }
+
   @Override
   public void replace(ChangeData cd) {
     Term id = LuceneChangeIndex.idTerm(cd);
     // toDocument is essentially static and doesn't depend on the specific
     // sub-index, so just pick one.
-    Document doc = openIndex.toDocument(cd);
-    try {
-      if (cd.change().isNew()) {
-        Futures.allAsList(closedIndex.delete(id), openIndex.replace(id, doc)).get();
-      } else {
-        Futures.allAsList(openIndex.delete(id), closedIndex.replace(id, doc)).get();
-      }
-    } catch (ExecutionException | InterruptedException e) {
-      throw new StorageException(e);
+    Document doc = openIndexes.get(0).toDocument(cd);
+    int shard = shard(cd.project());
+    ChangeSubIndex openIndex = openIndexes.get(shard);
+    ChangeSubIndex closedIndex = closedIndexes.get(shard);
+    if (cd.change().isNew()) {
+      await(ImmutableList.of(closedIndex.delete(id), openIndex.replace(id, doc)));
+    } else {
+      await(ImmutableList.of(openIndex.delete(id), closedIndex.replace(id, doc)));
     }
   }
 
@@ -234,15 +379,12 @@ public class LuceneChangeIndex implements ChangeIndex {
   public void insert(ChangeData cd) {
     // toDocument is essentially static and doesn't depend on the specific
     // sub-index, so just pick one.
-    Document doc = openIndex.toDocument(cd);
-    try {
-      if (cd.change().isNew()) {
-        openIndex.insert(doc).get();
-      } else {
-        closedIndex.insert(doc).get();
-      }
-    } catch (ExecutionException | InterruptedException e) {
-      throw new StorageException(e);
+    Document doc = openIndexes.get(0).toDocument(cd);
+    int shard = shard(cd.project());
+    if (cd.change().isNew()) {
+      await(ImmutableList.of(openIndexes.get(shard).insert(doc)));
+    } else {
+      await(ImmutableList.of(closedIndexes.get(shard).insert(doc)));
     }
   }
 
@@ -254,64 +396,83 @@ public class LuceneChangeIndex implements ChangeIndex {
   @Override
   public void delete(Change.Id changeId) {
     Term idTerm = LuceneChangeIndex.idTerm(changeId);
-    try {
-      Futures.allAsList(openIndex.delete(idTerm), closedIndex.delete(idTerm)).get();
-    } catch (ExecutionException | InterruptedException e) {
-      throw new StorageException(e);
-    }
+    // The project of the change is not known, so it has to be deleted from all shards.
+    await(allIndexes().stream().map(i -> i.delete(idTerm)).collect(toImmutableList()));
   }
 
   @Override
   public void deleteAllForProject(Project.NameKey project) {
     Term allForProject = new Term(ChangeField.PROJECT_SPEC.getName(), project.get());
-    try {
-      Futures.allAsList(openIndex.delete(allForProject), closedIndex.delete(allForProject)).get();
-    } catch (ExecutionException | InterruptedException e) {
-      throw new StorageException(e);
-    }
+    int shard = shard(project);
+    await(
+        ImmutableList.of(
+            openIndexes.get(shard).delete(allForProject),
+            closedIndexes.get(shard).delete(allForProject)));
   }
 
   @Override
   public void deleteAll() {
-    openIndex.deleteAll();
-    closedIndex.deleteAll();
+    for (ChangeSubIndex index : allIndexes()) {
+      index.deleteAll();
+    }
+    if (dir != null) {
+      try {
+        // The index is rebuilt with the configured number of shards.
+        writeShards(dir, openIndexes.size());
+      } catch (IOException e) {
+        throw new StorageException("cannot record number of shards of " + dir, e);
+      }
+    }
   }
 
   @Override
   public int numDocs() {
-    return openIndex.numDocs() + closedIndex.numDocs();
+    return allIndexes().stream().mapToInt(ChangeSubIndex::numDocs).sum();
   }
 
   @Override
   public ChangeDataSource getSource(Predicate<ChangeData> p, QueryOptions opts)
       throws QueryParseException {
     Set<Change.Status> statuses = ChangeIndexRewriter.getPossibleStatus(p);
-    List<ChangeSubIndex> indexes = new ArrayList<>(2);
+    Set<Integer> shards = new TreeSet<>();
+    Optional<Set<Project.NameKey>> projects = ChangeIndexRewriter.getPossibleProjects(p);
+    if (projects.isPresent()) {
+      projects.get().forEach(project -> shards.add(shard(project)));
+    } else {
+      IntStream.range(0, openIndexes.size()).forEach(shards::add);
+    }
+    List<ChangeSubIndex> indexes = new ArrayList<>(2 * shards.size());
     if (!Sets.intersection(statuses, OPEN_STATUSES).isEmpty()) {
-      indexes.add(openIndex);
+      shards.forEach(shard -> indexes.add(openIndexes.get(shard)));
     }
     if (!Sets.intersection(statuses, CLOSED_STATUSES).isEmpty()) {
-      indexes.add(closedIndex);
+      shards.forEach(shard -> indexes.add(closedIndexes.get(shard)));
     }
-    return new QuerySource(indexes, p, opts, getSort(), openIndex::toFieldBundle);
+    return new QuerySource(indexes, p, opts, getSort(), openIndexes.get(0)::toFieldBundle);
   }
 
   @Override
   public void markReady(boolean ready) {
     // Arbitrary done on open index, as ready bit is set
     // per index and not sub index
-    openIndex.markReady(ready);
+    openIndexes.get(0).markReady(ready);
   }
 
   @Override
   public boolean snapshot(String id) throws IOException {
-    return openIndex.snapshot(id) && closedIndex.snapshot(id);
+    for (ChangeSubIndex index : allIndexes()) {
+      if (!index.snapshot(id)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
   public void flushAndCommit() throws IOException {
-    openIndex.flushAndCommit();
-    closedIndex.flushAndCommit();
+    for (ChangeSubIndex index : allIndexes()) {
+      index.flushAndCommit();
+    }
   }
 
   private Sort getSort() {
@@ -438,26 +599,28 @@ public class LuceneChangeIndex implements ChangeIndex {
         List<TopFieldDocs> hits = new ArrayList<>();
         int searchAfterHitsCount = 0;
         for (int i = 0; i < indexes.size(); i++) {
-          ChangeSubIndex subIndex = indexes.get(i);
-          searchers[i] = subIndex.acquire();
-          if (isSearchAfterPagination) {
+          searchers[i] = indexes.get(i).acquire();
+        }
+        if (isSearchAfterPagination) {
+          for (int i = 0; i < indexes.size(); i++) {
+            ChangeSubIndex subIndex = indexes.get(i);
             ScoreDoc searchAfter = getSearchAfter(subIndex);
             int maxRemainingHits = queryLimit - searchAfterHitsCount;
             if (maxRemainingHits > 0) {
               TopFieldDocs subIndexHits =
-                  searchers[i].searchAfter(
-                      searchAfter, query, maxRemainingHits, sort, /* doDocScores= */ false);
+                  searchAfter != null
+                      ? searchers[i].searchAfter(
+                          searchAfter, query, maxRemainingHits, sort, /* doDocScores= */ false)
+                      : subIndex.search(searchers[i], query, maxRemainingHits, sort);
               assignShardIndexValues(subIndexHits, i);
               searchAfterHitsCount += subIndexHits.scoreDocs.length;
               hits.add(subIndexHits);
               searchAfterBySubIndex.put(
                   subIndex, Iterables.getLast(Arrays.asList(subIndexHits.scoreDocs), searchAfter));
             }
-          } else {
-            TopFieldDocs subIndexHits = searchers[i].search(query, queryLimit, sort);
-            assignShardIndexValues(subIndexHits, i);
-            hits.add(subIndexHits);
           }
+        } else {
+          hits.addAll(searchAll(searchers, queryLimit));
         }
         TopDocs docs = TopDocs.merge(sort, queryLimit, hits.stream().toArray(TopFieldDocs[]::new));
 
@@ -482,6 +645,59 @@ public class LuceneChangeIndex implements ChangeIndex {
       }
     }
 
+    /**
+     * Searches all sub-indexes. If the changes are sharded, the sub-indexes are searched in
+     * parallel, with the calling thread searching the first one.
+     */
+    private List<TopFieldDocs> searchAll(IndexSearcher[] searchers, int limit) throws IOException {
+      List<TopFieldDocs> hits = new ArrayList<>(indexes.size());
+      if (shardSearchExecutor == null || indexes.size() <= 1) {
+        for (int i = 0; i < indexes.size(); i++) {
+          hits.add(searchSubIndex(searchers, i, limit));
+        }
+        return hits;
+      }
+
+      List<Future<TopFieldDocs>> futures = new ArrayList<>(indexes.size() - 1);
+      try {
+        for (int i = 1; i < indexes.size(); i++) {
+          int subIndex = i;
+          futures.add(
+              shardSearchExecutor.submit(() -> searchSubIndex(searchers, subIndex, limit)));
+        }
+        hits.add(searchSubIndex(searchers, 0, limit));
+        for (Future<TopFieldDocs> f : futures) {
+          hits.add(f.get());
+        }
+        return hits;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StorageException("interrupted", e);
+      } catch (ExecutionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new StorageException(e.getCause());
+      } finally {
+        // The searchers are released by the caller, so they must not be in use anymore.
+        for (Future<TopFieldDocs> f : futures) {
+          if (!f.isDone()) {
+            try {
+              Uninterruptibles.getUninterruptibly(f);
+            } catch (ExecutionException e) {
+              // Only the first failure is reported.
+            }
+          }
+        }
+      }
+    }
+
+    private TopFieldDocs searchSubIndex(IndexSearcher[] searchers, int i, int limit)
+        throws IOException {
+      TopFieldDocs subIndexHits = indexes.get(i).search(searchers[i], query, limit, sort);
+      assignShardIndexValues(subIndexHits, i);
+      return subIndexHits;
+    }
+
     /**
      * Assign shard index values to the score documents.
      *
@@ -619,9 +835,23 @@ public class LuceneChangeIndex implements ChangeIndex {
     }
 
     for (SchemaField<ChangeData, ?> field : getSchema().getSchemaFields().values()) {
-      if (fields.contains(field.getName())) {
-        @SuppressWarnings("unused")
-        var unused = field.setIfPossible(cd, new LuceneStoredValue(doc.get(field.getName())));
+      String name = field.getName();
+      if (fields.contains(name)) {
+        LuceneStoredValue value = new LuceneStoredValue(doc.get(name));
+        ChangeData.StoredData deferred = DEFERRED_FIELDS.get(name);
+        if (deferred != null) {
+          storedFieldMetrics.deferred.increment(name);
+          cd.deferStoredData(
+              deferred,
+              () -> {
+                storedFieldMetrics.decoded.increment(name);
+                @SuppressWarnings("unused")
+                var unused = field.setIfPossible(cd, value);
+              });
+        } else {
+          @SuppressWarnings("unused")
+          var unused = field.setIfPossible(cd, value);
+        }
       }
     }
     return cd;
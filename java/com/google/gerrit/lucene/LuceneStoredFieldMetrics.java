@@ -0,0 +1,56 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lucene;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/** Metrics for the lazy decoding of stored change fields read from Lucene. */
+@Singleton
+class LuceneStoredFieldMetrics {
+  /** Number of stored fields whose decoding was deferred until first access. */
+  final Counter1<String> deferred;
+
+  /** Number of deferred stored fields that were decoded because their data was accessed. */
+  final Counter1<String> decoded;
+
+  @Inject
+  LuceneStoredFieldMetrics(MetricMaker metrics) {
+    Field<String> fieldName =
+        Field.ofString("field", (metadataBuilder, fieldValue) -> {})
+            .description("The name of the stored field.")
+            .build();
+
+    deferred =
+        metrics.newCounter(
+            "index/lucene/changes/stored_fields_deferred",
+            new Description("Stored change fields read from Lucene whose decoding was deferred")
+                .setRate()
+                .setUnit("fields"),
+            fieldName);
+
+    decoded =
+        metrics.newCounter(
+            "index/lucene/changes/stored_fields_decoded",
+            new Description("Deferred stored change fields that were decoded on first access")
+                .setRate()
+                .setUnit("fields"),
+            fieldName);
+  }
+}
@@ -21,7 +21,10 @@ import static org.apache.lucene.search.BooleanClause.Occur.MUST;
 import static org.apache.lucene.search.BooleanClause.Occur.MUST_NOT;
 import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
 
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Multimaps;
 import com.google.gerrit.index.FieldType;
 import com.google.gerrit.index.Schema;
 import com.google.gerrit.index.query.AndPredicate;
@@ -34,6 +37,7 @@ import com.google.gerrit.index.query.Predicate;
 import com.google.gerrit.index.query.QueryParseException;
 import com.google.gerrit.index.query.RegexPredicate;
 import com.google.gerrit.index.query.TimestampRangePredicate;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.IntPoint;
@@ -45,7 +49,9 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.RegexpQuery;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 
 public class QueryBuilder<V> {
@@ -96,8 +102,21 @@ public class QueryBuilder<V> {
   private Query or(Predicate<V> p) throws QueryParseException {
     try {
       BooleanQuery.Builder q = new BooleanQuery.Builder();
+      // Exact terms on the same field are combined into a single set query, so that queries like
+      // "change:1 OR change:2 OR ..." need one clause per field rather than one clause per term.
+      ListMultimap<String, IndexPredicate<V>> exactTerms =
+          MultimapBuilder.linkedHashKeys().arrayListValues().build();
       for (int i = 0; i < p.getChildCount(); i++) {
-        q.add(toQuery(p.getChild(i)), SHOULD);
+        Predicate<V> c = p.getChild(i);
+        if (c instanceof IndexPredicate && ((IndexPredicate<V>) c).isExactTerm()) {
+          IndexPredicate<V> t = (IndexPredicate<V>) c;
+          exactTerms.put(t.getField().getName(), t);
+        } else {
+          q.add(toQuery(c), SHOULD);
+        }
+      }
+      for (List<IndexPredicate<V>> terms : Multimaps.asMap(exactTerms).values()) {
+        q.add(terms.size() == 1 ? fieldQuery(terms.get(0)) : termSetQuery(terms), SHOULD);
       }
       return q.build();
     } catch (IndexSearcher.TooManyClauses e) {
@@ -168,16 +187,40 @@ public class QueryBuilder<V> {
     }
   }
 
+  private Query termSetQuery(List<IndexPredicate<V>> terms) throws QueryParseException {
+    IndexPredicate<V> first = terms.get(0);
+    checkArgument(
+        schema.hasField(first.getField()),
+        "field not in schema v%s: %s",
+        schema.getVersion(),
+        first.getField().getName());
+    String name = first.getField().getName();
+    if (first.getType() == FieldType.INTEGER) {
+      int[] values = new int[terms.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = intValue(terms.get(i));
+      }
+      return IntPoint.newSetQuery(name, values);
+    }
+    List<BytesRef> values = new ArrayList<>(terms.size());
+    for (IndexPredicate<V> t : terms) {
+      values.add(new BytesRef(t.getValue()));
+    }
+    return new TermInSetQuery(name, values);
+  }
+
   private Query intQuery(IndexPredicate<V> p) throws QueryParseException {
-    int value;
+    return intPoint(p.getField().getName(), intValue(p));
+  }
+
+  private static int intValue(IndexPredicate<?> p) throws QueryParseException {
     try {
       // Can't use IntPredicate because it and IndexPredicate are different
       // subclasses of OperatorPredicate.
-      value = Integer.parseInt(p.getValue());
+      return Integer.parseInt(p.getValue());
     } catch (NumberFormatException e) {
       throw new QueryParseException("not an integer: " + p.getValue(), e);
     }
-    return intPoint(p.getField().getName(), value);
   }
 
   private Query intRangeQuery(IndexPredicate<V> p) throws QueryParseException {
@@ -0,0 +1,80 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.lucene;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gerrit.common.Nullable;
+import java.io.IOException;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopFieldDocs;
+
+/**
+ * Cache of the top hits of sorted searches on one Lucene index.
+ *
+ * <p>Each entry remembers the index reader it was computed with. Once the searcher manager opens a
+ * new reader after the index was updated, entries computed with the old reader no longer match and
+ * are recomputed by the next search. Hence the cache never returns stale results, it only saves
+ * repeating identical searches while the index is unchanged.
+ *
+ * <p>Document numbers in the returned hits are only valid for the reader of the searcher that was
+ * passed to {@link #search(IndexSearcher, Query, int, Sort)}.
+ */
+class SearchResultCache {
+  private record Key(Query query, int limit, Sort sort) {}
+
+  private record Hits(IndexReader.CacheKey reader, TopFieldDocs docs) {}
+
+  @Nullable private final Cache<Key, Hits> cache;
+
+  SearchResultCache(int maxSize) {
+    cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).build() : null;
+  }
+
+  /**
+   * Same as {@link IndexSearcher#search(Query, int, Sort)}, but reuses the hits of an earlier
+   * identical search with the same reader.
+   *
+   * <p>The caller may modify the returned hits.
+   */
+  TopFieldDocs search(IndexSearcher searcher, Query query, int limit, Sort sort)
+      throws IOException {
+    IndexReader.CacheHelper cacheHelper = searcher.getIndexReader().getReaderCacheHelper();
+    if (cache == null || cacheHelper == null) {
+      return searcher.search(query, limit, sort);
+    }
+    Key key = new Key(query, limit, sort);
+    Hits hits = cache.getIfPresent(key);
+    if (hits == null || hits.reader() != cacheHelper.getKey()) {
+      hits = new Hits(cacheHelper.getKey(), searcher.search(query, limit, sort));
+      cache.put(key, hits);
+    }
+    return copy(hits.docs());
+  }
+
+  private static TopFieldDocs copy(TopFieldDocs docs) {
+    ScoreDoc[] scoreDocs = new ScoreDoc[docs.scoreDocs.length];
+    for (int i = 0; i < scoreDocs.length; i++) {
+      FieldDoc d = (FieldDoc) docs.scoreDocs[i];
+      scoreDocs[i] = new FieldDoc(d.doc, d.score, d.fields, d.shardIndex);
+    }
+    return new TopFieldDocs(docs.totalHits, scoreDocs, docs.fields);
+  }
+}
@@ -590,7 +590,7 @@ public class Daemon extends SiteProgram {
             }
           }
         });
-    modules.add(new GarbageCollectionModule());
+    modules.add(new GarbageCollectionModule(config));
     modules.add(new PeriodicIndexScheduler.Module());
     if (!replica) {
       modules.add(new AccountDeactivatorModule());
@@ -65,6 +65,25 @@ class InitJGitConfig implements InitStep {
                 + "gc should be configured in gc config section or run as a separate process.");
       }
 
+      if (!jgitConfig
+              .getNames(ConfigConstants.CONFIG_CORE_SECTION)
+              .contains(ConfigConstants.CONFIG_COMMIT_GRAPH)
+          && !jgitConfig
+              .getNames(ConfigConstants.CONFIG_GC_SECTION)
+              .contains(ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH)) {
+        jgitConfig.setBoolean(
+            ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true);
+        jgitConfig.setBoolean(
+            ConfigConstants.CONFIG_GC_SECTION,
+            null,
+            ConfigConstants.CONFIG_KEY_WRITE_COMMIT_GRAPH,
+            true);
+        jgitConfig.save();
+        ui.message(
+            "Auto-configured \"core.commitGraph = true\" and \"gc.writeCommitGraph = true\" to"
+                + " speed up commit walks.\n");
+      }
+
       if (jgitConfig
           .getNames(ConfigConstants.CONFIG_PROTOCOL_SECTION)
           .contains(ConfigConstants.CONFIG_KEY_VERSION)) {
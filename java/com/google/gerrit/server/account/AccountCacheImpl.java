@@ -27,6 +27,8 @@ import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.RefNames;
 import com.google.gerrit.exceptions.StorageException;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.server.ModuleImpl;
 import com.google.gerrit.server.account.externalids.ExternalId;
 import com.google.gerrit.server.account.externalids.ExternalIdKeyFactory;
@@ -46,8 +48,11 @@ import com.google.inject.Module;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -87,6 +92,7 @@ public class AccountCacheImpl implements AccountCache {
     protected void configure() {
       bind(AccountCacheImpl.class).in(SINGLETON);
       bind(AccountCache.class).to(AccountCacheImpl.class).in(SINGLETON);
+      DynamicSet.bind(binder(), GitBatchRefUpdateListener.class).to(AccountRefVersions.class);
     }
   }
 
@@ -108,6 +114,7 @@ public class AccountCacheImpl implements AccountCache {
   private final AllUsersName allUsersName;
   private final DefaultPreferencesCache defaultPreferenceCache;
   private final ExternalIdKeyFactory externalIdKeyFactory;
+  private final AccountRefVersions refVersions;
 
   @Inject
   AccountCacheImpl(
@@ -117,13 +124,15 @@ public class AccountCacheImpl implements AccountCache {
       GitRepositoryManager repoManager,
       AllUsersName allUsersName,
       DefaultPreferencesCache defaultPreferenceCache,
-      ExternalIdKeyFactory externalIdKeyFactory) {
+      ExternalIdKeyFactory externalIdKeyFactory,
+      AccountRefVersions refVersions) {
     this.externalIds = externalIds;
     this.accountDetailsCache = accountDetailsCache;
     this.repoManager = repoManager;
     this.allUsersName = allUsersName;
     this.defaultPreferenceCache = defaultPreferenceCache;
     this.externalIdKeyFactory = externalIdKeyFactory;
+    this.refVersions = refVersions;
   }
 
   @Override
@@ -156,44 +165,83 @@ public class AccountCacheImpl implements AccountCache {
     try (TraceTimer ignored =
         TraceContext.newTimer(
             "Loading accounts", Metadata.builder().resourceCount(accountIds.size()).build())) {
-      try (Repository allUsers = repoManager.openRepository(allUsersName)) {
-        String[] refNames = new String[accountIds.size()];
-        int i = 0;
-        for (Account.Id id : accountIds) {
-          refNames[i++] = RefNames.refsUsers(id);
+      Map<Account.Id, ObjectId> revisions = readRevisions(accountIds);
+      Set<CachedAccountDetails.Key> keys =
+          Sets.newLinkedHashSetWithExpectedSize(accountIds.size());
+      for (Account.Id id : accountIds) {
+        ObjectId revision = revisions.get(id);
+        if (revision != null) {
+          keys.add(CachedAccountDetails.Key.create(id, revision));
         }
-        Map<String, Ref> refs = allUsers.getRefDatabase().exactRef(refNames);
-        Set<CachedAccountDetails.Key> keys =
-            Sets.newLinkedHashSetWithExpectedSize(accountIds.size());
-        for (Account.Id id : accountIds) {
-          Ref userRef = refs.get(RefNames.refsUsers(id));
-          if (userRef == null || userRef.getObjectId() == null) {
-            continue;
-          }
-          keys.add(CachedAccountDetails.Key.create(id, userRef.getObjectId()));
-        }
-        if (keys.isEmpty()) {
-          return ImmutableMap.of();
-        }
-        CachedPreferences defaultPreferences = defaultPreferenceCache.get();
-        ImmutableSetMultimap<Account.Id, ExternalId> extIdsByAccount = externalIds.allByAccount();
-        ImmutableMap.Builder<Account.Id, AccountState> result =
-            ImmutableMap.builderWithExpectedSize(keys.size());
-        for (Map.Entry<CachedAccountDetails.Key, CachedAccountDetails> account :
-            accountDetailsCache.getAll(keys).entrySet()) {
-          Account.Id id = account.getKey().accountId();
-          result.put(
-              id,
-              AccountState.forCachedAccount(
-                  account.getValue(), defaultPreferences, extIdsByAccount.get(id)));
-        }
-        return result.build();
       }
+      if (keys.isEmpty()) {
+        return ImmutableMap.of();
+      }
+      CachedPreferences defaultPreferences = defaultPreferenceCache.get();
+      ImmutableSetMultimap<Account.Id, ExternalId> extIdsByAccount = externalIds.allByAccount();
+      ImmutableMap.Builder<Account.Id, AccountState> result =
+          ImmutableMap.builderWithExpectedSize(keys.size());
+      for (Map.Entry<CachedAccountDetails.Key, CachedAccountDetails> account :
+          accountDetailsCache.getAll(keys).entrySet()) {
+        Account.Id id = account.getKey().accountId();
+        result.put(
+            id,
+            AccountState.forCachedAccount(
+                account.getValue(), defaultPreferences, extIdsByAccount.get(id)));
+      }
+      return result.build();
     } catch (IOException | ExecutionException e) {
       throw new StorageException(e);
     }
   }
 
+  /**
+   * Drops the remembered revision of the user branch of the given account, so that the next lookup
+   * reads the branch from {@code All-Users}.
+   */
+  public void evictRefVersion(Account.Id accountId) {
+    refVersions.evict(accountId);
+  }
+
+  /**
+   * Returns the revisions of the user branches of the given accounts. Accounts without user branch
+   * are omitted. {@code All-Users} is only opened if a revision is not remembered by {@link
+   * AccountRefVersions}.
+   */
+  private Map<Account.Id, ObjectId> readRevisions(Collection<Account.Id> accountIds)
+      throws IOException {
+    Map<Account.Id, ObjectId> revisions = new HashMap<>();
+    List<String> refNames = new ArrayList<>();
+    Map<Account.Id, Long> generations = new HashMap<>();
+    for (Account.Id id : accountIds) {
+      ObjectId revision = refVersions.get(id);
+      if (revision != null) {
+        revisions.put(id, revision);
+      } else {
+        refNames.add(RefNames.refsUsers(id));
+        generations.put(id, refVersions.generation(id));
+      }
+    }
+    if (refNames.isEmpty()) {
+      return revisions;
+    }
+
+    try (Repository allUsers = repoManager.openRepository(allUsersName)) {
+      Map<String, Ref> refs = allUsers.getRefDatabase().exactRef(refNames.toArray(new String[0]));
+      for (Ref userRef : refs.values()) {
+        Account.Id id = Account.Id.fromRef(userRef.getName());
+        if (id != null && userRef.getObjectId() != null) {
+          revisions.put(id, userRef.getObjectId());
+          Long generation = generations.get(id);
+          if (generation != null) {
+            refVersions.put(id, userRef.getObjectId(), generation);
+          }
+        }
+      }
+    }
+    return revisions;
+  }
+
   @Override
   public Optional<AccountState> getByUsername(String username) {
     try {
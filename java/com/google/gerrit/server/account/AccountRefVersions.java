@@ -0,0 +1,153 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.util.time.TimeUtil;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Remembers the revisions of the {@code refs/users/*} branches that were read from {@code
+ * All-Users}.
+ *
+ * <p>{@link AccountCacheImpl} needs the current revision of a user branch to look up the cached
+ * account details. {@code All-Users} may hold millions of refs, so reading the user branches is the
+ * main cost of an account lookup that is otherwise served from the cache.
+ *
+ * <p>A revision is dropped when this server sees an update of the user branch. An account that was
+ * modified through another server may therefore be served with its previous details until the
+ * revision is older than {@code accounts.refVersionCacheMaxAge}. Remembering revisions is disabled
+ * unless that setting is positive.
+ */
+@Singleton
+public class AccountRefVersions implements GitBatchRefUpdateListener {
+  private record Version(ObjectId id, long readAtMs) {}
+
+  private final AllUsersName allUsersName;
+  private final long maxAgeMs;
+  private final ConcurrentHashMap<Account.Id, Version> versions = new ConcurrentHashMap<>();
+
+  /**
+   * Number of stripes of generations. Updating a user branch only invalidates concurrent reads of
+   * the accounts in the same stripe.
+   */
+  private static final int STRIPES = 64;
+
+  /**
+   * Generations by stripe of account IDs, incremented on every update of a user branch of the
+   * stripe, before the affected revision is dropped.
+   */
+  private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+  @Inject
+  AccountRefVersions(@GerritServerConfig Config cfg, AllUsersName allUsersName) {
+    this(
+        allUsersName,
+        ConfigUtil.getTimeUnit(
+            cfg, "accounts", null, "refVersionCacheMaxAge", 0, TimeUnit.MILLISECONDS));
+  }
+
+  @VisibleForTesting
+  AccountRefVersions(AllUsersName allUsersName, long maxAgeMs) {
+    this.allUsersName = allUsersName;
+    this.maxAgeMs = maxAgeMs;
+  }
+
+  boolean isEnabled() {
+    return maxAgeMs > 0;
+  }
+
+  /**
+   * Returns the generation that must be passed to {@link #put} for a revision of the given account
+   * that is read after this call.
+   */
+  long generation(Account.Id accountId) {
+    return generations.get(stripe(accountId));
+  }
+
+  /** Returns the remembered revision of the user branch, or {@code null} if it must be read. */
+  @Nullable
+  ObjectId get(Account.Id accountId) {
+    if (!isEnabled()) {
+      return null;
+    }
+    Version v = versions.get(accountId);
+    if (v == null) {
+      return null;
+    }
+    if (TimeUtil.nowMs() - v.readAtMs() >= maxAgeMs) {
+      versions.remove(accountId, v);
+      return null;
+    }
+    return v.id();
+  }
+
+  /**
+   * Remembers a revision of a user branch.
+   *
+   * @param accountId the account.
+   * @param id the revision of the user branch of the account.
+   * @param readGeneration the value of {@link #generation(Account.Id)} before the revision was
+   *     read. If the user branch may have been updated since then, the revision may be outdated and
+   *     is not remembered.
+   */
+  void put(Account.Id accountId, ObjectId id, long readGeneration) {
+    if (!isEnabled()) {
+      return;
+    }
+    Version v = new Version(id.copy(), TimeUtil.nowMs());
+    versions.put(accountId, v);
+    if (generation(accountId) != readGeneration) {
+      versions.remove(accountId, v);
+    }
+  }
+
+  void evict(Account.Id accountId) {
+    generations.incrementAndGet(stripe(accountId));
+    versions.remove(accountId);
+  }
+
+  private static int stripe(Account.Id accountId) {
+    return Math.floorMod(accountId.get(), STRIPES);
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(Event event) {
+    if (!isEnabled() || !allUsersName.get().equals(event.getProjectName())) {
+      return;
+    }
+    for (UpdatedRef ref : event.getUpdatedRefs()) {
+      if (RefNames.isRefsUsers(ref.getRefName())) {
+        Account.Id accountId = Account.Id.fromRef(ref.getRefName());
+        if (accountId != null) {
+          evict(accountId);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.AccountGroup;
+import java.util.Arrays;
+
+/**
+ * Immutable set of groups together with all groups that transitively include them as subgroup.
+ *
+ * <p>The groups are stored as a sorted array of interned group IDs, so that membership tests are a
+ * binary search and unions are a merge of two arrays.
+ */
+public final class GroupAncestors {
+  private final GroupUuidInterner interner;
+  private final int[] ids;
+
+  GroupAncestors(GroupUuidInterner interner, int[] sortedIds) {
+    this.interner = interner;
+    this.ids = sortedIds;
+  }
+
+  public boolean contains(AccountGroup.UUID uuid) {
+    int id = interner.idOf(uuid);
+    return id >= 0 && containsId(id);
+  }
+
+  boolean containsId(int id) {
+    return Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  public int size() {
+    return ids.length;
+  }
+
+  public ImmutableSet<AccountGroup.UUID> toSet() {
+    ImmutableSet.Builder<AccountGroup.UUID> b = ImmutableSet.builderWithExpectedSize(ids.length);
+    for (int id : ids) {
+      b.add(interner.uuidOf(id));
+    }
+    return b.build();
+  }
+
+  GroupAncestors union(GroupAncestors other) {
+    if (other.ids.length == 0) {
+      return this;
+    } else if (ids.length == 0) {
+      return other;
+    }
+    int[] r = new int[ids.length + other.ids.length];
+    int i = 0;
+    int j = 0;
+    int n = 0;
+    while (i < ids.length && j < other.ids.length) {
+      if (ids[i] < other.ids[j]) {
+        r[n++] = ids[i++];
+      } else if (ids[i] > other.ids[j]) {
+        r[n++] = other.ids[j++];
+      } else {
+        r[n++] = ids[i++];
+        j++;
+      }
+    }
+    while (i < ids.length) {
+      r[n++] = ids[i++];
+    }
+    while (j < other.ids.length) {
+      r[n++] = other.ids[j++];
+    }
+    return new GroupAncestors(interner, n == r.length ? r : Arrays.copyOf(r, n));
+  }
+}
@@ -47,6 +47,15 @@ public interface GroupIncludeCache {
    */
   Collection<AccountGroup.UUID> parentGroupsOf(Set<UUID> groupId);
 
+  /**
+   * Returns the provided groups together with all groups that transitively include any of them as
+   * subgroup.
+   *
+   * @param groupIds the UUIDs of the groups
+   * @return the provided groups and all their direct and indirect parent groups
+   */
+  GroupAncestors ancestorsOf(Collection<AccountGroup.UUID> groupIds);
+
   /** Returns set of any UUIDs that are not internal groups. */
   Collection<AccountGroup.UUID> allExternalMembers();
 
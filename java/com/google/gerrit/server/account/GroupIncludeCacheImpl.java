@@ -61,6 +61,7 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   private static final String PARENT_GROUPS_NAME = "groups_bysubgroup";
+  private static final String ANCESTORS_NAME = "groups_ancestors";
   private static final String GROUPS_WITH_MEMBER_NAME = "groups_bymember";
   private static final String EXTERNAL_NAME = "groups_external";
   private static final String PERSISTED_EXTERNAL_NAME = "groups_external_persisted";
@@ -83,6 +84,9 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
                 new TypeLiteral<ImmutableSet<AccountGroup.UUID>>() {})
             .loader(ParentGroupsLoader.class);
 
+        cache(ANCESTORS_NAME, AccountGroup.UUID.class, GroupAncestors.class)
+            .loader(AncestorsLoader.class);
+
         /**
          * Splitting the groups external cache into 2 caches: The first one is in memory, used to
          * serve the callers and has a single constant key "EXTERNAL_NAME". The second one is
@@ -112,7 +116,9 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
 
   private final LoadingCache<Account.Id, ImmutableSet<AccountGroup.UUID>> groupsWithMember;
   private final LoadingCache<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parentGroups;
+  private final LoadingCache<AccountGroup.UUID, GroupAncestors> ancestors;
   private final LoadingCache<String, ImmutableList<AccountGroup.UUID>> external;
+  private final GroupUuidInterner interner;
 
   @Inject
   GroupIncludeCacheImpl(
@@ -120,11 +126,15 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
           LoadingCache<Account.Id, ImmutableSet<AccountGroup.UUID>> groupsWithMember,
       @Named(PARENT_GROUPS_NAME)
           LoadingCache<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parentGroups,
+      @Named(ANCESTORS_NAME) LoadingCache<AccountGroup.UUID, GroupAncestors> ancestors,
       @Named(EXTERNAL_NAME) LoadingCache<String, ImmutableList<AccountGroup.UUID>> external,
+      GroupUuidInterner interner,
       IndexConfig indexConfig) {
     this.groupsWithMember = groupsWithMember;
     this.parentGroups = parentGroups;
+    this.ancestors = ancestors;
     this.external = external;
+    this.interner = interner;
     this.indexConfig = indexConfig;
   }
 
@@ -163,6 +173,19 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
     }
   }
 
+  @Override
+  public GroupAncestors ancestorsOf(Collection<AccountGroup.UUID> groupIds) {
+    GroupAncestors result = new GroupAncestors(interner, new int[0]);
+    try {
+      for (GroupAncestors a : ancestors.getAll(groupIds).values()) {
+        result = result.union(a);
+      }
+    } catch (ExecutionException e) {
+      logger.atWarning().withCause(e).log("Cannot load ancestor groups");
+    }
+    return result;
+  }
+
   @Override
   public void evictGroupsWithMember(Account.Id memberId) {
     if (memberId != null) {
@@ -177,6 +200,16 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
       logger.atFine().log("Evict parent groups of %s", groupId.get());
       parentGroups.invalidate(groupId);
 
+      // The ancestors of a group change if the parents of the group itself or of any of its
+      // ancestors change. Only these entries are dropped, the closures of unrelated groups stay.
+      int id = interner.idOf(groupId);
+      if (id >= 0) {
+        ancestors
+            .asMap()
+            .entrySet()
+            .removeIf(e -> e.getKey().equals(groupId) || e.getValue().containsId(id));
+      }
+
       if (!groupId.isInternalGroup()) {
         logger.atFine().log("Evict external group %s", groupId.get());
         /**
@@ -264,6 +297,49 @@ public class GroupIncludeCacheImpl implements GroupIncludeCache {
     }
   }
 
+  static class AncestorsLoader extends CacheLoader<AccountGroup.UUID, GroupAncestors> {
+    private final LoadingCache<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parentGroups;
+    private final GroupUuidInterner interner;
+    private final IndexConfig indexConfig;
+
+    @Inject
+    AncestorsLoader(
+        @Named(PARENT_GROUPS_NAME)
+            LoadingCache<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parentGroups,
+        GroupUuidInterner interner,
+        IndexConfig indexConfig) {
+      this.parentGroups = parentGroups;
+      this.interner = interner;
+      this.indexConfig = indexConfig;
+    }
+
+    @Override
+    public GroupAncestors load(AccountGroup.UUID key) throws ExecutionException {
+      try (TraceTimer timer =
+          TraceContext.newTimer(
+              "Loading ancestor groups", Metadata.builder().groupUuid(key.get()).build())) {
+        Set<AccountGroup.UUID> seen = new HashSet<>();
+        seen.add(key);
+        List<AccountGroup.UUID> pending = ImmutableList.of(key);
+        while (!pending.isEmpty()) {
+          List<AccountGroup.UUID> next = new ArrayList<>();
+          for (List<AccountGroup.UUID> batch : Lists.partition(pending, indexConfig.maxTerms())) {
+            for (ImmutableSet<AccountGroup.UUID> parents : parentGroups.getAll(batch).values()) {
+              for (AccountGroup.UUID p : parents) {
+                if (seen.add(p)) {
+                  next.add(p);
+                }
+              }
+            }
+          }
+          pending = next;
+        }
+        return new GroupAncestors(
+            interner, seen.stream().mapToInt(interner::intern).sorted().toArray());
+      }
+    }
+  }
+
   static class AllExternalInMemoryLoader
       extends CacheLoader<String, ImmutableList<AccountGroup.UUID>> {
     private final Cache<String, ImmutableList<AccountGroup.UUID>> persisted;
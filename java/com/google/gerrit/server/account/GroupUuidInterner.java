@@ -0,0 +1,75 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import com.google.gerrit.entities.AccountGroup;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps group UUIDs to dense int IDs, so that sets of groups can be stored as sorted int arrays.
+ *
+ * <p>IDs are only valid within the running process and are never reused or released. The number of
+ * IDs is bounded by the number of groups that were ever looked up.
+ */
+@Singleton
+class GroupUuidInterner {
+  private final ConcurrentHashMap<AccountGroup.UUID, Integer> ids = new ConcurrentHashMap<>();
+
+  // Slots are written before the ID is published through ids, so that readers which obtained an ID
+  // always see the UUID of it.
+  private volatile AccountGroup.UUID[] uuids = new AccountGroup.UUID[64];
+
+  // Guarded by this.
+  private int size;
+
+  @Inject
+  GroupUuidInterner() {}
+
+  /** Returns the ID of the given group, assigning a new ID if the group has none yet. */
+  int intern(AccountGroup.UUID uuid) {
+    Integer id = ids.get(uuid);
+    if (id != null) {
+      return id;
+    }
+    synchronized (this) {
+      id = ids.get(uuid);
+      if (id != null) {
+        return id;
+      }
+      AccountGroup.UUID[] a = uuids;
+      if (size == a.length) {
+        a = Arrays.copyOf(a, size * 2);
+      }
+      a[size] = uuid;
+      uuids = a;
+      ids.put(uuid, size);
+      return size++;
+    }
+  }
+
+  /** Returns the ID of the given group, or {@code -1} if the group was never interned. */
+  int idOf(AccountGroup.UUID uuid) {
+    Integer id = ids.get(uuid);
+    return id != null ? id : -1;
+  }
+
+  /** Returns the UUID of a group ID that was returned by {@link #intern(AccountGroup.UUID)}. */
+  AccountGroup.UUID uuidOf(int id) {
+    return uuids[id];
+  }
+}
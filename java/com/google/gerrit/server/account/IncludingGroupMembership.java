@@ -32,9 +32,11 @@ import java.util.concurrent.ConcurrentHashMap;
  * Determines membership in the internal group system for a given user.
  *
  * <p>Groups the user is directly a member of are pulled from the in-memory AccountCache by way of
- * the IdentifiedUser. Transitive group memberhips are resolved on demand starting from the
- * requested group and looking for a path to a group the user is a member of. Other group backends
- * are supported by recursively invoking the universal GroupMembership.
+ * the IdentifiedUser. Transitive memberships through internal groups are looked up in the
+ * precomputed ancestors of these groups, see {@link GroupIncludeCache#ancestorsOf}. Any remaining
+ * transitive group memberhips are resolved on demand starting from the requested group and looking
+ * for a path to a group the user is a member of. Other group backends are supported by recursively
+ * invoking the universal GroupMembership.
  */
 public class IncludingGroupMembership implements GroupMembership {
   public interface Factory {
@@ -46,6 +48,7 @@ public class IncludingGroupMembership implements GroupMembership {
   private final CurrentUser user;
   private final Map<AccountGroup.UUID, Boolean> memberOf;
   private ImmutableSet<AccountGroup.UUID> knownGroups;
+  private volatile GroupAncestors directAncestors;
 
   @Inject
   IncludingGroupMembership(
@@ -79,6 +82,16 @@ public class IncludingGroupMembership implements GroupMembership {
       }
     }
 
+    if (tryExpanding && user.isIdentifiedUser()) {
+      GroupAncestors ancestors = getDirectAncestors();
+      for (AccountGroup.UUID id : queryIds) {
+        if (ancestors.contains(id)) {
+          memberOf.put(id, true);
+          return true;
+        }
+      }
+    }
+
     if (tryExpanding) {
       Set<AccountGroup.UUID> queryIdsSet = new HashSet<>();
       queryIds.forEach(i -> queryIdsSet.add(i));
@@ -119,6 +132,19 @@ public class IncludingGroupMembership implements GroupMembership {
     return r;
   }
 
+  /**
+   * Returns the internal groups the user is a direct member of, together with all groups that
+   * transitively include them.
+   */
+  private GroupAncestors getDirectAncestors() {
+    GroupAncestors a = directAncestors;
+    if (a == null) {
+      a = includeCache.ancestorsOf(includeCache.getGroupsWithMember(user.getAccountId()));
+      directAncestors = a;
+    }
+    return a;
+  }
+
   private boolean search(Iterable<AccountGroup.UUID> ids) {
     return user.getEffectiveGroups().containsAnyOf(ids);
   }
@@ -133,24 +159,15 @@ public class IncludingGroupMembership implements GroupMembership {
     Set<AccountGroup.UUID> r = Sets.newHashSet(direct);
     r.remove(null);
 
-    Set<AccountGroup.UUID> q = Sets.newHashSet(r);
     for (AccountGroup.UUID g : membership.intersection(includeCache.allExternalMembers())) {
-      if (g != null && r.add(g)) {
-        q.add(g);
+      if (g != null) {
+        r.add(g);
       }
     }
 
-    while (!q.isEmpty()) {
-      Collection<AccountGroup.UUID> parents = includeCache.parentGroupsOf(q);
-      q.clear();
-      for (AccountGroup.UUID g : parents) {
-        if (r.add(g)) {
-          q.add(g);
-          memberOf.put(g, true);
-        }
-      }
-    }
-    return ImmutableSet.copyOf(r);
+    ImmutableSet<AccountGroup.UUID> ancestors = includeCache.ancestorsOf(r).toSet();
+    ancestors.forEach(g -> memberOf.put(g, true));
+    return ancestors;
   }
 
   @Override
@@ -94,9 +94,51 @@ public class CacheMetrics {
                 .setUnit("requests"),
             F_NAME);
 
+    CallbackMetric1<String, Long> offHeapEnt =
+        metrics.newCallbackMetric(
+            "caches/off_heap_cached",
+            Long.class,
+            new Description("Off-heap entries of persistent cache").setGauge().setUnit("entries"),
+            F_NAME);
+    CallbackMetric1<String, Long> offHeapBytes =
+        metrics.newCallbackMetric(
+            "caches/off_heap_bytes",
+            Long.class,
+            new Description("Off-heap memory used by persistent cache")
+                .setGauge()
+                .setUnit(Description.Units.BYTES),
+            F_NAME);
+    CallbackMetric1<String, Double> offHeapHit =
+        metrics.newCallbackMetric(
+            "caches/off_heap_hit_ratio",
+            Double.class,
+            new Description("Off-heap hit ratio for persistent cache")
+                .setGauge()
+                .setUnit("percent"),
+            F_NAME);
+    CallbackMetric1<String, Long> offHeapEvict =
+        metrics.newCallbackMetric(
+            "caches/off_heap_eviction_count",
+            Long.class,
+            new Description("Off-heap eviction count for persistent cache")
+                .setGauge()
+                .setUnit("evicted entries"),
+            F_NAME);
+
     ImmutableSet<CallbackMetric<?>> cacheMetrics =
         ImmutableSet.of(
-            memEnt, memHit, memEvict, memReq, perDiskEnt, perDiskHit, perDiskInvalid, perDiskReq);
+            memEnt,
+            memHit,
+            memEvict,
+            memReq,
+            perDiskEnt,
+            perDiskHit,
+            perDiskInvalid,
+            perDiskReq,
+            offHeapEnt,
+            offHeapBytes,
+            offHeapHit,
+            offHeapEvict);
 
     metrics.newTrigger(
         cacheMetrics,
@@ -113,20 +155,29 @@ public class CacheMetrics {
                 && config.getBoolean("cache", "enableDiskStatMetrics", false)) {
               PersistentCache.DiskStats d = ((PersistentCache) c).diskStats();
               perDiskEnt.set(name, d.size());
-              perDiskHit.set(name, hitRatio(d));
+              perDiskHit.set(name, hitRatio(d.hitCount(), d.requestCount()));
               perDiskInvalid.set(name, d.invalidatedCount());
               perDiskReq.set(name, d.requestCount());
             }
+            if (c instanceof PersistentCache) {
+              PersistentCache.OffHeapStats o = ((PersistentCache) c).offHeapStats();
+              if (o != null) {
+                offHeapEnt.set(name, o.size());
+                offHeapBytes.set(name, o.bytes());
+                offHeapHit.set(name, hitRatio(o.hitCount(), o.requestCount()));
+                offHeapEvict.set(name, o.evictionCount());
+              }
+            }
           }
           cacheMetrics.forEach(CallbackMetric::prune);
         });
   }
 
-  private static double hitRatio(PersistentCache.DiskStats d) {
-    if (d.requestCount() <= 0) {
+  private static double hitRatio(long hitCount, long requestCount) {
+    if (requestCount <= 0) {
       return 100;
     }
-    return ((double) d.hitCount() / d.requestCount() * 100);
+    return ((double) hitCount / requestCount * 100);
   }
 
   private static String metricNameOf(Extension<Cache<?, ?>> e) {
@@ -14,10 +14,18 @@
 
 package com.google.gerrit.server.cache;
 
+import com.google.gerrit.common.Nullable;
+
 public interface PersistentCache {
 
   DiskStats diskStats();
 
+  /** Returns the statistics of the off-heap tier, or {@code null} if the cache has none. */
+  @Nullable
+  default OffHeapStats offHeapStats() {
+    return null;
+  }
+
   class DiskStats {
     private final long size;
     private final long space;
@@ -53,4 +61,40 @@ public interface PersistentCache {
       return invalidatedCount;
     }
   }
+
+  class OffHeapStats {
+    private final long size;
+    private final long bytes;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public OffHeapStats(long size, long bytes, long hitCount, long missCount, long evictionCount) {
+      this.size = size;
+      this.bytes = bytes;
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+    }
+
+    public long size() {
+      return size;
+    }
+
+    public long bytes() {
+      return bytes;
+    }
+
+    public long hitCount() {
+      return hitCount;
+    }
+
+    public long requestCount() {
+      return hitCount + missCount;
+    }
+
+    public long evictionCount() {
+      return evictionCount;
+    }
+  }
 }
@@ -189,7 +189,11 @@ class H2CacheFactory extends PersistentCacheBaseFactory implements LifecycleList
     SqlStore<K, V> store = newSqlStore(def, limit);
     H2CacheImpl<K, V> cache =
         new H2CacheImpl<>(
-            executor, store, def.keyType(), (Cache<K, ValueHolder<V>>) memCacheFactory.build(def));
+            executor,
+            store,
+            newOffHeapStore(def),
+            def.keyType(),
+            (Cache<K, ValueHolder<V>>) memCacheFactory.build(def));
     synchronized (caches) {
       caches.add(cache);
     }
@@ -202,11 +206,13 @@ class H2CacheFactory extends PersistentCacheBaseFactory implements LifecycleList
       PersistentCacheDef<K, V> in, CacheLoader<K, V> loader, long limit) {
     H2CacheDefProxy<K, V> def = new H2CacheDefProxy<>(in);
     SqlStore<K, V> store = newSqlStore(def, limit);
+    OffHeapStore<K, V> offHeap = newOffHeapStore(def);
     Cache<K, ValueHolder<V>> mem =
         (Cache<K, ValueHolder<V>>)
             memCacheFactory.build(
-                def, (CacheLoader<K, V>) new H2CacheImpl.Loader<>(executor, store, loader));
-    H2CacheImpl<K, V> cache = new H2CacheImpl<>(executor, store, def.keyType(), mem);
+                def,
+                (CacheLoader<K, V>) new H2CacheImpl.Loader<>(executor, store, offHeap, loader));
+    H2CacheImpl<K, V> cache = new H2CacheImpl<>(executor, store, offHeap, def.keyType(), mem);
     synchronized (caches) {
       caches.add(cache);
     }
@@ -247,14 +253,6 @@ class H2CacheFactory extends PersistentCacheBaseFactory implements LifecycleList
         refreshAfterWrite = Duration.ofSeconds(refreshAfterWriteInSec);
       }
     }
-    Duration expireAfterWrite = def.expireAfterWrite();
-    if (has(def.configKey(), "maxAge")) {
-      long expireAfterWriteInsec =
-          ConfigUtil.getTimeUnit(config, "cache", def.configKey(), "maxAge", 0, SECONDS);
-      if (expireAfterWriteInsec != 0) {
-        expireAfterWrite = Duration.ofSeconds(expireAfterWriteInsec);
-      }
-    }
     return new SqlStore<>(
         url.toString(),
         def.keyType(),
@@ -263,13 +261,41 @@ class H2CacheFactory extends PersistentCacheBaseFactory implements LifecycleList
         def.version(),
         maxSize,
         config.getInt("cache", "h2MaxInvalidated", 25),
-        expireAfterWrite,
+        expireAfterWrite(def),
         refreshAfterWrite,
         options.contains(CacheOptions.BUILD_BLOOM_FILTER),
         options.contains(CacheOptions.TRACK_LAST_ACCESS),
         isDiskCacheReadOnly,
         preWarmForBloomFilter,
-        cacheDir.resolve(cacheName + ".mv.db"));
+        cacheDir.resolve(cacheName + ".mv.db"),
+        config.getBoolean("cache", def.configKey(), "countingBloomFilter", false),
+        config.getBoolean("cache", def.configKey(), "persistBloomFilter", false)
+            ? cacheDir.resolve(cacheName + ".bloom")
+            : null);
+  }
+
+  @Nullable
+  private <K, V> OffHeapStore<K, V> newOffHeapStore(PersistentCacheDef<K, V> def) {
+    long offHeapLimit = config.getLong("cache", def.configKey(), "offHeapLimit", 0);
+    if (offHeapLimit <= 0) {
+      return null;
+    }
+    logger.atInfo().log(
+        "Enabling off-heap tier of %d bytes for cache %s", offHeapLimit, def.name());
+    return new OffHeapStore<>(def.valueSerializer(), offHeapLimit, expireAfterWrite(def));
+  }
+
+  @Nullable
+  private Duration expireAfterWrite(PersistentCacheDef<?, ?> def) {
+    Duration expireAfterWrite = def.expireAfterWrite();
+    if (has(def.configKey(), "maxAge")) {
+      long expireAfterWriteInsec =
+          ConfigUtil.getTimeUnit(config, "cache", def.configKey(), "maxAge", 0, SECONDS);
+      if (expireAfterWriteInsec != 0) {
+        expireAfterWrite = Duration.ofSeconds(expireAfterWriteInsec);
+      }
+    }
+    return expireAfterWrite;
   }
 
   private boolean has(String name, String var) {
@@ -37,11 +37,16 @@ import com.google.gerrit.server.logging.TraceContext.TraceTimer;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.gerrit.util.concurrent.ConcurrentBloomFilter;
 import com.google.inject.TypeLiteral;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -71,6 +76,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * construct the item. This is mostly useful for CacheLoaders that are computationally intensive,
  * such as the PatchListCache.
  *
+ * <p>If {@code cache.<name>.offHeapLimit} is set, an {@link OffHeapStore} between the in-memory
+ * cache and the database keeps serialized values outside of the Java heap. It is checked before
+ * the database, and values that are written to or read from the database are also stored in it.
+ *
  * <p>Cache stores and invalidations are performed on a background thread, hiding the latency
  * associated with serializing the key and value pairs and writing them to the database log.
  *
@@ -91,6 +100,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
 
   private final Executor executor;
   private final SqlStore<K, V> store;
+  @Nullable private final OffHeapStore<K, V> offHeap;
   private final TypeLiteral<K> keyType;
   private final Cache<K, ValueHolder<V>> mem;
   private final String cacheName;
@@ -100,8 +110,18 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
       SqlStore<K, V> store,
       TypeLiteral<K> keyType,
       Cache<K, ValueHolder<V>> mem) {
+    this(executor, store, null, keyType, mem);
+  }
+
+  H2CacheImpl(
+      Executor executor,
+      SqlStore<K, V> store,
+      @Nullable OffHeapStore<K, V> offHeap,
+      TypeLiteral<K> keyType,
+      Cache<K, ValueHolder<V>> mem) {
     this.executor = executor;
     this.store = store;
+    this.offHeap = offHeap;
     this.keyType = keyType;
     this.mem = mem;
     this.cacheName = store.url.substring(store.url.lastIndexOf('/') + 1);
@@ -119,7 +139,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
 
     ValueHolder<V> h = mem.getIfPresent(key);
     if (h == null) {
-      h = store.getIfPresent(key);
+      h = getFromLowerTiers(offHeap, store, key);
       if (h == null) {
         return null;
       }
@@ -163,11 +183,11 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
     return mem.get(
             key,
             () -> {
-              ValueHolder<V> h = store.getIfPresent(key);
+              ValueHolder<V> h = getFromLowerTiers(offHeap, store, key);
               if (h == null) {
                 h = new ValueHolder<>(valueLoader.call(), TimeUtil.now());
                 ValueHolder<V> fh = h;
-                executor.execute(() -> store.put(key, fh));
+                executor.execute(() -> putToLowerTiers(offHeap, store, key, fh));
               }
               return h;
             })
@@ -178,14 +198,21 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
   public void put(K key, V val) {
     final ValueHolder<V> h = new ValueHolder<>(val, TimeUtil.now());
     mem.put(key, h);
-    executor.execute(() -> store.put(key, h));
+    executor.execute(() -> putToLowerTiers(offHeap, store, key, h));
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public void invalidate(Object key) {
-    if (keyType.getRawType().isInstance(key) && store.mightContain((K) key)) {
-      store.invalidate((K) key);
+    if (keyType.getRawType().isInstance(key)) {
+      if (store.mightContain((K) key)) {
+        store.invalidate((K) key);
+      }
+      // Invalidated after the database, so that concurrent reads of the old value from the
+      // database are not copied into the off-heap tier.
+      if (offHeap != null) {
+        offHeap.invalidate((K) key);
+      }
     }
     mem.invalidate(key);
   }
@@ -193,6 +220,9 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
   @Override
   public void invalidateAll() {
     store.invalidateAll();
+    if (offHeap != null) {
+      offHeap.invalidateAll();
+    }
     mem.invalidateAll();
   }
 
@@ -211,6 +241,12 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
     return store.diskStats();
   }
 
+  @Nullable
+  @Override
+  public OffHeapStats offHeapStats() {
+    return offHeap != null ? offHeap.stats() : null;
+  }
+
   void start() {
     logger.atFine().log("Opening disk cache %s...", cacheName);
     store.open();
@@ -237,6 +273,40 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
     return cacheName;
   }
 
+  /** Looks up a value that is not in memory, first in the off-heap tier, then in the database. */
+  @Nullable
+  private static <K, V> ValueHolder<V> getFromLowerTiers(
+      @Nullable OffHeapStore<K, V> offHeap, SqlStore<K, V> store, K key) {
+    if (offHeap == null) {
+      return store.getIfPresent(key);
+    }
+    ValueHolder<V> h = offHeap.getIfPresent(key);
+    if (h != null) {
+      return h;
+    }
+
+    // The generation is read before the database, so that a value that is invalidated while it is
+    // read is not copied into the off-heap tier. The serialized value is copied as is.
+    long generation = offHeap.generation(key);
+    StoredValue v = store.getStoredIfPresent(key);
+    if (v == null) {
+      return null;
+    }
+    offHeap.putIfNotInvalidated(key, v.data(), v.created(), generation);
+    return store.deserialize(v);
+  }
+
+  private static <K, V> void putToLowerTiers(
+      @Nullable OffHeapStore<K, V> offHeap, SqlStore<K, V> store, K key, ValueHolder<V> h) {
+    if (offHeap != null) {
+      offHeap.put(key, h);
+    }
+    store.put(key, h);
+  }
+
+  /** A value as it is stored in the database. */
+  record StoredValue(byte[] data, Instant created) {}
+
   static class ValueHolder<V> {
     final V value;
     final Instant created;
@@ -251,11 +321,21 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
   static class Loader<K, V> extends CacheLoader<K, ValueHolder<V>> {
     private final Executor executor;
     private final SqlStore<K, V> store;
+    @Nullable private final OffHeapStore<K, V> offHeap;
     private final CacheLoader<K, V> loader;
 
     Loader(Executor executor, SqlStore<K, V> store, CacheLoader<K, V> loader) {
+      this(executor, store, null, loader);
+    }
+
+    Loader(
+        Executor executor,
+        SqlStore<K, V> store,
+        @Nullable OffHeapStore<K, V> offHeap,
+        CacheLoader<K, V> loader) {
       this.executor = executor;
       this.store = store;
+      this.offHeap = offHeap;
       this.loader = loader;
     }
 
@@ -264,11 +344,11 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
       try (TraceTimer timer =
           TraceContext.newTimer(
               "Loading value from cache", Metadata.builder().cacheKey(key.toString()).build())) {
-        ValueHolder<V> h = store.getIfPresent(key);
+        ValueHolder<V> h = getFromLowerTiers(offHeap, store, key);
         if (h == null) {
           h = new ValueHolder<>(loader.load(key), TimeUtil.now());
           ValueHolder<V> fh = h;
-          executor.execute(() -> store.put(key, fh));
+          executor.execute(() -> putToLowerTiers(offHeap, store, key, fh));
         }
         return h;
       }
@@ -280,7 +360,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
         List<K> notInMemory = new ArrayList<>();
         Map<K, ValueHolder<V>> result = new HashMap<>();
         for (K key : keys) {
-          ValueHolder<V> h = store.getIfPresent(key);
+          ValueHolder<V> h = getFromLowerTiers(offHeap, store, key);
           if (h == null) {
             notInMemory.add(key);
             continue;
@@ -313,7 +393,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
           new FutureCallback<V>() {
             @Override
             public void onSuccess(V result) {
-              store.put(key, new ValueHolder<>(result, TimeUtil.now()));
+              putToLowerTiers(offHeap, store, key, new ValueHolder<>(result, TimeUtil.now()));
             }
 
             @Override
@@ -330,7 +410,8 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
       executor.execute(
           () -> {
             for (Map.Entry<K, V> entry : entries.entrySet()) {
-              store.put(entry.getKey(), new ValueHolder<>(entry.getValue(), instant));
+              putToLowerTiers(
+                  offHeap, store, entry.getKey(), new ValueHolder<>(entry.getValue(), instant));
             }
           });
     }
@@ -354,6 +435,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
     private volatile boolean ensuredSchemaCreation;
     private final Path cacheFilePath;
     private final boolean preWarmForBloomFilter;
+    @Nullable private final Path bloomFilterPath;
 
     SqlStore(
         String jdbcUrl,
@@ -369,7 +451,9 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
         boolean trackLastAccess,
         AtomicBoolean isDiskCacheReadOnly,
         boolean preWarmForBloomFilter,
-        Path cacheFilePath) {
+        Path cacheFilePath,
+        boolean countingBloomFilter,
+        @Nullable Path bloomFilterPath) {
       this.url = jdbcUrl;
       this.keyType = createKeyType(keyType, keySerializer);
       this.valueSerializer = valueSerializer;
@@ -382,6 +466,7 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
       this.isDiskCacheReadOnly = isDiskCacheReadOnly;
       this.cacheFilePath = cacheFilePath;
       this.preWarmForBloomFilter = preWarmForBloomFilter;
+      this.bloomFilterPath = cacheFilePath != null && buildBloomFilter ? bloomFilterPath : null;
 
       int cores = Runtime.getRuntime().availableProcessors();
       int keep = Math.min(cores, 16);
@@ -390,7 +475,8 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
           new ConcurrentBloomFilter<>(
               this.keyType.funnel(),
               buildBloomFilter ? this::buildBloomFilter : () -> {},
-              maxInvalidated);
+              maxInvalidated,
+              countingBloomFilter);
     }
 
     @SuppressWarnings("unchecked")
@@ -453,7 +539,9 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
     }
 
     void open() {
-      bloomFilter.initIfNeeded();
+      if (!loadBloomFilter()) {
+        bloomFilter.initIfNeeded();
+      }
     }
 
     void close() {
@@ -462,6 +550,69 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
         h.close();
       }
       shutdown();
+      saveBloomFilter();
+    }
+
+    /**
+     * Restores the BloomFilter saved by the last clean shutdown, avoiding the full table scan. The
+     * file is deleted once read, so that after a crash the filter is rebuilt from the database.
+     */
+    private boolean loadBloomFilter() {
+      if (bloomFilterPath == null || !Files.exists(bloomFilterPath)) {
+        return false;
+      }
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(bloomFilterPath)))) {
+        if (in.readInt() != version
+            || in.readLong() != Files.size(cacheFilePath)
+            || in.readLong() != Files.getLastModifiedTime(cacheFilePath).toMillis()) {
+          logger.atInfo().log("Saved BloomFilter for %s is stale, rebuilding", url);
+          return false;
+        }
+        if (!bloomFilter.readFrom(in)) {
+          logger.atInfo().log("Saved BloomFilter for %s has a different type, rebuilding", url);
+          return false;
+        }
+        logger.atFine().log("Loaded BloomFilter for %s from %s", url, bloomFilterPath);
+        return true;
+      } catch (IOException e) {
+        logger.atWarning().log("Cannot load BloomFilter for %s: %s", url, e.getMessage());
+        return false;
+      } finally {
+        try {
+          Files.deleteIfExists(bloomFilterPath);
+        } catch (IOException e) {
+          logger.atWarning().log("Cannot delete %s: %s", bloomFilterPath, e.getMessage());
+        }
+      }
+    }
+
+    private void saveBloomFilter() {
+      if (bloomFilterPath == null || !Files.exists(cacheFilePath)) {
+        return;
+      }
+      Path tmp = bloomFilterPath.resolveSibling(bloomFilterPath.getFileName() + ".tmp");
+      try {
+        boolean written;
+        try (DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+          out.writeInt(version);
+          out.writeLong(Files.size(cacheFilePath));
+          out.writeLong(Files.getLastModifiedTime(cacheFilePath).toMillis());
+          written = bloomFilter.writeTo(out);
+        }
+        if (written) {
+          Files.move(
+              tmp,
+              bloomFilterPath,
+              StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } else {
+          Files.delete(tmp);
+        }
+      } catch (IOException e) {
+        logger.atWarning().log("Cannot save BloomFilter for %s: %s", url, e.getMessage());
+      }
     }
 
     private void shutdown() {
@@ -540,6 +691,19 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
 
     @Nullable
     ValueHolder<V> getIfPresent(K key) {
+      StoredValue v = getStoredIfPresent(key);
+      return v != null ? deserialize(v) : null;
+    }
+
+    ValueHolder<V> deserialize(StoredValue v) {
+      ValueHolder<V> h = new ValueHolder<>(valueSerializer.deserialize(v.data()), v.created());
+      h.clean = true;
+      return h;
+    }
+
+    /** Returns the serialized value of the key, if it is stored in the database. */
+    @Nullable
+    StoredValue getStoredIfPresent(K key) {
       if (!mightContain(key)) {
         return null;
       }
@@ -569,14 +733,12 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
             return null;
           }
 
-          V val = valueSerializer.deserialize(r.getBytes(1));
-          ValueHolder<V> h = new ValueHolder<>(val, created.toInstant());
-          h.clean = true;
+          StoredValue v = new StoredValue(r.getBytes(1), created.toInstant());
           hitCount.incrementAndGet();
           if (trackLastAccess) {
             touch(c, key);
           }
-          return h;
+          return v;
         } finally {
           c.get.clearParameters();
         }
@@ -690,7 +852,10 @@ public class H2CacheImpl<K, V> extends AbstractLoadingCache<K, V> implements Per
       try {
         keyType.set(c.invalidate, 1, key);
         c.invalidate.setInt(2, version);
-        c.invalidate.executeUpdate();
+        if (c.invalidate.executeUpdate() == 0) {
+          // Nothing was stored under this key, so the BloomFilter is still accurate for it.
+          return;
+        }
       } finally {
         c.invalidate.clearParameters();
       }
@@ -0,0 +1,224 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache.h2;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.server.cache.PersistentCache.OffHeapStats;
+import com.google.gerrit.server.cache.h2.H2CacheImpl.ValueHolder;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.util.time.TimeUtil;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tier of a persistent cache that keeps serialized values outside of the Java heap.
+ *
+ * <p>The tier sits between the in-memory cache, which holds deserialized values on the heap, and
+ * the H2 database on disk. Values are serialized with the value serializer of the cache and stored
+ * in direct byte buffers, so that large caches don't increase the heap size and garbage collection
+ * pauses. Only the keys and the buffer references are kept on the heap.
+ *
+ * <p>The tier holds at most {@code cache.<name>.offHeapLimit} bytes of serialized values. It is
+ * split into up to 16 segments by key hash, each with an equal share of the limit and its own lock,
+ * so that concurrent lookups of different keys rarely wait for each other. A segment evicts its
+ * least recently used entries when its share is exceeded. The memory of evicted values
+ * is released when their buffers are garbage collected, hence the JVM's {@code
+ * -XX:MaxDirectMemorySize} must leave room for the limits of all caches.
+ */
+class OffHeapStore<K, V> {
+  /** Bytes of the creation time that is stored in front of each serialized value. */
+  private static final int HEADER_SIZE = Long.BYTES;
+
+  /** Maximum number of segments; each is locked on its own, so that lookups rarely contend. */
+  private static final int MAX_SEGMENTS = 16;
+
+  /** Minimum limit of a segment, so that striping doesn't reject values of moderate size. */
+  private static final long MIN_SEGMENT_BYTES = 1 << 20;
+
+  private final CacheSerializer<V> valueSerializer;
+  @Nullable private final Duration expireAfterWrite;
+  private final Segment<K>[] segments;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  OffHeapStore(
+      CacheSerializer<V> valueSerializer, long maxBytes, @Nullable Duration expireAfterWrite) {
+    this(
+        valueSerializer,
+        maxBytes,
+        expireAfterWrite,
+        (int) Math.max(1, Math.min(MAX_SEGMENTS, maxBytes / MIN_SEGMENT_BYTES)));
+  }
+
+  @VisibleForTesting
+  @SuppressWarnings("unchecked")
+  OffHeapStore(
+      CacheSerializer<V> valueSerializer,
+      long maxBytes,
+      @Nullable Duration expireAfterWrite,
+      int segmentCount) {
+    this.valueSerializer = valueSerializer;
+    this.expireAfterWrite = expireAfterWrite;
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment<>(maxBytes / segmentCount);
+    }
+  }
+
+  @Nullable
+  ValueHolder<V> getIfPresent(K key) {
+    Segment<K> segment = segmentFor(key);
+    ByteBuffer buf;
+    synchronized (segment) {
+      buf = segment.entries.get(key);
+    }
+    if (buf == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+
+    // Evicted buffers are not freed explicitly, so reading them outside the lock is safe.
+    Instant created = Instant.ofEpochMilli(buf.getLong(0));
+    if (expired(created)) {
+      invalidate(key);
+      missCount.incrementAndGet();
+      return null;
+    }
+    byte[] data = new byte[buf.capacity() - HEADER_SIZE];
+    buf.get(HEADER_SIZE, data);
+    ValueHolder<V> h = new ValueHolder<>(valueSerializer.deserialize(data), created);
+    h.clean = true;
+    hitCount.incrementAndGet();
+    return h;
+  }
+
+  void put(K key, ValueHolder<V> h) {
+    Segment<K> segment = segmentFor(key);
+    put(segment, key, valueSerializer.serialize(h.value), h.created, segment.generation());
+  }
+
+  /**
+   * Returns the generation of the entry for the given key, which changes whenever the entry is
+   * invalidated. Pass it to {@link #putIfNotInvalidated} to store a value that was read from a
+   * lower tier before the read started.
+   */
+  long generation(K key) {
+    return segmentFor(key).generation();
+  }
+
+  /**
+   * Stores an already serialized value, unless the entry was invalidated since {@code generation}
+   * was obtained from {@link #generation}. Values read from a lower tier concurrently with an
+   * invalidation are therefore not written back.
+   */
+  void putIfNotInvalidated(K key, byte[] data, Instant created, long generation) {
+    put(segmentFor(key), key, data, created, generation);
+  }
+
+  private void put(Segment<K> segment, K key, byte[] data, Instant created, long generation) {
+    int size = HEADER_SIZE + data.length;
+    if (size > segment.maxBytes) {
+      return;
+    }
+    ByteBuffer buf = ByteBuffer.allocateDirect(size);
+    buf.putLong(0, created.toEpochMilli());
+    buf.put(HEADER_SIZE, data);
+
+    synchronized (segment) {
+      if (segment.generation != generation) {
+        return;
+      }
+      ByteBuffer old = segment.entries.put(key, buf);
+      if (old != null) {
+        segment.bytes -= old.capacity();
+      }
+      segment.bytes += size;
+      // The new entry is the most recently used one and fits, so it is never evicted here.
+      Iterator<ByteBuffer> it = segment.entries.values().iterator();
+      while (segment.bytes > segment.maxBytes && it.hasNext()) {
+        segment.bytes -= it.next().capacity();
+        it.remove();
+        segment.evictionCount++;
+      }
+    }
+  }
+
+  void invalidate(K key) {
+    Segment<K> segment = segmentFor(key);
+    synchronized (segment) {
+      segment.generation++;
+      ByteBuffer old = segment.entries.remove(key);
+      if (old != null) {
+        segment.bytes -= old.capacity();
+      }
+    }
+  }
+
+  void invalidateAll() {
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        segment.generation++;
+        segment.entries.clear();
+        segment.bytes = 0;
+      }
+    }
+  }
+
+  OffHeapStats stats() {
+    long size = 0;
+    long bytes = 0;
+    long evictionCount = 0;
+    for (Segment<K> segment : segments) {
+      synchronized (segment) {
+        size += segment.entries.size();
+        bytes += segment.bytes;
+        evictionCount += segment.evictionCount;
+      }
+    }
+    return new OffHeapStats(size, bytes, hitCount.get(), missCount.get(), evictionCount);
+  }
+
+  private Segment<K> segmentFor(K key) {
+    // Spread the high bits, as HashMap does, so that keys with similar hashes use all segments.
+    int h = key.hashCode();
+    return segments[Math.floorMod(h ^ (h >>> 16), segments.length)];
+  }
+
+  private boolean expired(Instant created) {
+    return expireAfterWrite != null && created.isBefore(TimeUtil.now().minus(expireAfterWrite));
+  }
+
+  /** Entries of a range of keys, evicted in least recently used order within its own limit. */
+  private static class Segment<K> {
+    final long maxBytes;
+    final LinkedHashMap<K, ByteBuffer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    long bytes;
+    long evictionCount;
+    long generation;
+
+    Segment(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    synchronized long generation() {
+      return generation;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.change;
+
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.annotations.ExtensionPoint;
+
+/**
+ * Allows plugins to contribute a value to the change ETag.
+ *
+ * <p>Plugins that add information to change responses (e.g. through {@link
+ * ChangePluginDefinedInfoFactory}) must implement this interface, so that clients do not keep
+ * serving cached responses after the plugin information changed.
+ *
+ * <p>The ETag is computed on every request for a change that supports ETags, hence implementations
+ * must be fast.
+ */
+@ExtensionPoint
+public interface ChangeETagComputation {
+  /**
+   * Computes an ETag contribution for the given change.
+   *
+   * @param projectName the name of the project that contains the change
+   * @param changeId ID of the change
+   * @return the ETag contribution, {@code null} if the plugin doesn't contribute to the ETag of
+   *     this change
+   */
+  @Nullable
+  String getETag(Project.NameKey projectName, Change.Id changeId);
+}
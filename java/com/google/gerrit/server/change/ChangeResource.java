@@ -14,20 +14,60 @@
 
 package com.google.gerrit.server.change;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.AccountGroup;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.ChangeMessage;
+import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.restapi.RestResource;
+import com.google.gerrit.extensions.restapi.RestResource.HasETag;
 import com.google.gerrit.extensions.restapi.RestView;
 import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.StarredChangesReader;
+import com.google.gerrit.server.account.AccountCache;
+import com.google.gerrit.server.account.AccountState;
+import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.logging.Metadata;
+import com.google.gerrit.server.logging.TraceContext;
+import com.google.gerrit.server.logging.TraceContext.TraceTimer;
 import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.permissions.PermissionBackend;
+import com.google.gerrit.server.plugincontext.PluginSetContext;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.project.ProjectState;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.inject.TypeLiteral;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+public class ChangeResource implements RestResource, HasETag {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /**
+   * JSON format version number for ETag computations.
+   *
+   * <p>Should be bumped on any JSON format change (new fields, etc.) so that otherwise unmodified
+   * changes get new ETags.
+   */
+  public static final int JSON_FORMAT_VERSION = 1;
 
-public class ChangeResource implements RestResource {
   public static final TypeLiteral<RestView<ChangeResource>> CHANGE_KIND = new TypeLiteral<>() {};
 
   public interface Factory {
@@ -36,16 +76,31 @@ public class ChangeResource implements RestResource {
     ChangeResource create(ChangeData changeData, CurrentUser user);
   }
 
+  private final AccountCache accountCache;
+  private final ProjectCache projectCache;
+  private final StarredChangesReader starredChangesReader;
+  private final GitRepositoryManager repoManager;
+  private final PluginSetContext<ChangeETagComputation> changeETagComputation;
   private final PermissionBackend permissionBackend;
   private final ChangeData changeData;
   private final CurrentUser user;
 
   @AssistedInject
   ChangeResource(
+      AccountCache accountCache,
+      ProjectCache projectCache,
+      StarredChangesReader starredChangesReader,
+      GitRepositoryManager repoManager,
+      PluginSetContext<ChangeETagComputation> changeETagComputation,
       PermissionBackend permissionBackend,
       ChangeData.Factory changeDataFactory,
       @Assisted ChangeNotes notes,
       @Assisted CurrentUser user) {
+    this.accountCache = accountCache;
+    this.projectCache = projectCache;
+    this.starredChangesReader = starredChangesReader;
+    this.repoManager = repoManager;
+    this.changeETagComputation = changeETagComputation;
     this.permissionBackend = permissionBackend;
     this.changeData = changeDataFactory.create(notes);
     this.user = user;
@@ -53,9 +108,19 @@ public class ChangeResource implements RestResource {
 
   @AssistedInject
   ChangeResource(
+      AccountCache accountCache,
+      ProjectCache projectCache,
+      StarredChangesReader starredChangesReader,
+      GitRepositoryManager repoManager,
+      PluginSetContext<ChangeETagComputation> changeETagComputation,
       PermissionBackend permissionBackend,
       @Assisted ChangeData changeData,
       @Assisted CurrentUser user) {
+    this.accountCache = accountCache;
+    this.projectCache = projectCache;
+    this.starredChangesReader = starredChangesReader;
+    this.repoManager = repoManager;
+    this.changeETagComputation = changeETagComputation;
     this.permissionBackend = permissionBackend;
     this.changeData = changeData;
     this.user = user;
@@ -98,4 +163,127 @@ public class ChangeResource implements RestResource {
   public Change.Id getVirtualId() {
     return getChangeData().virtualId();
   }
+
+  /**
+   * Returns an ETag for the current state of the change as seen by the calling user.
+   *
+   * <p>The ETag covers the NoteDb meta ref of the change, the account states of the calling user
+   * and of all accounts that are shown on the change, the tip of the destination branch of open
+   * changes (which the mergeability is computed against), the config revisions of the project and
+   * its parents, and the contributions of {@link ChangeETagComputation} plugins.
+   *
+   * <p>Returns {@code null} if the ETag cannot be computed, in which case the response must not be
+   * cached.
+   */
+  @Override
+  @Nullable
+  public String getETag() {
+    try (TraceTimer timer =
+        TraceContext.newTimer(
+            "Compute change ETag",
+            Metadata.builder()
+                .changeId(changeData.getId().get())
+                .projectName(getProject().get())
+                .build())) {
+      Hasher h = Hashing.murmur3_128().newHasher();
+      if (!prepareETag(h, user)) {
+        return null;
+      }
+      return h.hash().toString();
+    } catch (StorageException e) {
+      logger.atWarning().withCause(e).log("Cannot compute ETag for change %s", getId());
+      return null;
+    }
+  }
+
+  /**
+   * Adds the state of the change as seen by {@code user} to the given hasher.
+   *
+   * @return whether the state could be determined
+   */
+  private boolean prepareETag(Hasher h, CurrentUser user) {
+    ChangeNotes notes = getNotes();
+    ObjectId metaId = notes.getRevision();
+    if (metaId == null) {
+      return false;
+    }
+    h.putInt(JSON_FORMAT_VERSION);
+    hashObjectId(h, metaId);
+
+    if (user.isIdentifiedUser()) {
+      Account.Id accountId = user.getAccountId();
+      h.putInt(accountId.get());
+      h.putBoolean(starredChangesReader.isStarred(accountId, getVirtualId()));
+      hashAccount(h, accountId);
+      Set<String> groups = new TreeSet<>();
+      for (AccountGroup.UUID uuid : user.getEffectiveGroups().getKnownGroups()) {
+        groups.add(uuid.get());
+      }
+      groups.forEach(g -> h.putString(g, UTF_8));
+    } else {
+      h.putInt(0);
+    }
+
+    // Accounts of the owner, uploaders, reviewers and message authors are rendered into the change
+    // response, hence changes to their account states (e.g. a new display name) must invalidate
+    // the ETag.
+    Set<Account.Id> accounts = new TreeSet<>();
+    accounts.add(getChange().getOwner());
+    for (PatchSet ps : notes.getPatchSets().values()) {
+      accounts.add(ps.uploader());
+    }
+    accounts.addAll(notes.getReviewers().all());
+    for (ChangeMessage m : notes.getChangeMessages()) {
+      if (m.getAuthor() != null) {
+        accounts.add(m.getAuthor());
+      }
+    }
+    for (Account.Id accountId : accounts) {
+      hashAccount(h, accountId);
+    }
+
+    if (getChange().isNew()) {
+      // The mergeability of open changes is computed against the tip of the destination branch.
+      try (Repository repo = repoManager.openRepository(getProject())) {
+        Ref dest = repo.exactRef(getChange().getDest().branch());
+        hashObjectId(h, dest != null ? dest.getObjectId() : null);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log(
+            "Cannot read destination branch of change %s", getId());
+        return false;
+      }
+    }
+
+    Optional<ProjectState> projectState = projectCache.get(getProject());
+    if (projectState.isEmpty()) {
+      return false;
+    }
+    for (ProjectState p : projectState.get().tree()) {
+      hashObjectId(h, p.getConfig().getRevision().orElse(null));
+    }
+
+    changeETagComputation.runEach(
+        c -> {
+          String pluginETag = c.getETag(getProject(), getId());
+          if (pluginETag != null) {
+            h.putString(pluginETag, UTF_8);
+          }
+        });
+    return true;
+  }
+
+  private void hashAccount(Hasher h, Account.Id accountId) {
+    h.putInt(accountId.get());
+    Optional<AccountState> accountState = accountCache.get(accountId);
+    if (accountState.isPresent()) {
+      String metaId = accountState.get().account().metaId();
+      h.putString(metaId != null ? metaId : ObjectId.zeroId().name(), UTF_8);
+    }
+  }
+
+  private static void hashObjectId(Hasher h, @Nullable ObjectId id) {
+    byte[] buf = new byte[Constants.OBJECT_ID_LENGTH];
+    MoreObjects.firstNonNull(id, ObjectId.zeroId()).copyRawTo(buf, 0);
+    h.putBytes(buf);
+  }
 }
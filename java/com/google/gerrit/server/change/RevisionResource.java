@@ -14,11 +14,13 @@
 
 package com.google.gerrit.server.change;
 
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.restapi.RestResource;
+import com.google.gerrit.extensions.restapi.RestResource.HasETag;
 import com.google.gerrit.extensions.restapi.RestView;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.edit.ChangeEdit;
@@ -27,7 +29,7 @@ import com.google.gerrit.server.permissions.PermissionBackend;
 import com.google.inject.TypeLiteral;
 import java.util.Optional;
 
-public class RevisionResource implements RestResource {
+public class RevisionResource implements RestResource, HasETag {
   public static final TypeLiteral<RestView<RevisionResource>> REVISION_KIND =
       new TypeLiteral<>() {};
 
@@ -96,6 +98,26 @@ public class RevisionResource implements RestResource {
     return edit;
   }
 
+  /**
+   * Returns an ETag for the revision, or {@code null} if the revision is a change edit or is not
+   * cacheable.
+   *
+   * <p>Conservatively, the ETag of the revision changes whenever the ETag of its change changes, so
+   * that it's not needed to check whether a modification of the change affected this revision.
+   */
+  @Override
+  @Nullable
+  public String getETag() {
+    if (!cacheable || edit.isPresent()) {
+      return null;
+    }
+    String changeETag = changeResource.getETag();
+    if (changeETag == null) {
+      return null;
+    }
+    return changeETag + "-" + ps.id().get();
+  }
+
   @Override
   public String toString() {
     String s = ps.id().toString();
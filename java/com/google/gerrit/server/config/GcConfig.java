@@ -25,11 +25,26 @@ import org.eclipse.jgit.lib.ConfigConstants;
 public class GcConfig {
   private final Optional<Schedule> schedule;
   private final boolean aggressive;
+  private final boolean adaptive;
+  private final int threads;
+  private final long looseObjectsThreshold;
+  private final long packFilesThreshold;
+  private final long objectsSinceBitmapThreshold;
+  private final long looseRefsThreshold;
+  private final long maxBytesPerRun;
 
   @Inject
-  GcConfig(@GerritServerConfig Config cfg) {
-    schedule = ScheduleConfig.createSchedule(cfg, ConfigConstants.CONFIG_GC_SECTION);
-    aggressive = cfg.getBoolean(ConfigConstants.CONFIG_GC_SECTION, "aggressive", false);
+  public GcConfig(@GerritServerConfig Config cfg) {
+    String section = ConfigConstants.CONFIG_GC_SECTION;
+    schedule = ScheduleConfig.createSchedule(cfg, section);
+    aggressive = cfg.getBoolean(section, "aggressive", false);
+    adaptive = cfg.getBoolean(section, "adaptive", false);
+    threads = Math.max(1, cfg.getInt(section, "threads", 1));
+    looseObjectsThreshold = cfg.getLong(section, "looseObjectsThreshold", 6700);
+    packFilesThreshold = cfg.getLong(section, "packFilesThreshold", 50);
+    objectsSinceBitmapThreshold = cfg.getLong(section, "objectsSinceBitmapThreshold", 100_000);
+    looseRefsThreshold = cfg.getLong(section, "looseRefsThreshold", 1000);
+    maxBytesPerRun = cfg.getLong(section, "maxBytesPerRun", 0);
   }
 
   public Optional<Schedule> getSchedule() {
@@ -39,4 +54,48 @@ public class GcConfig {
   public boolean isAggressive() {
     return aggressive;
   }
+
+  /**
+   * Whether scheduled runs should decide per repository which maintenance is needed, rather than
+   * running a full GC on every repository.
+   */
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
+  /** Number of repositories that are maintained concurrently by adaptive runs. */
+  public int getThreads() {
+    return threads;
+  }
+
+  /** Number of loose objects from which on adaptive runs collect the garbage of a repository. */
+  public long getLooseObjectsThreshold() {
+    return looseObjectsThreshold;
+  }
+
+  /** Number of pack files from which on adaptive runs collect the garbage of a repository. */
+  public long getPackFilesThreshold() {
+    return packFilesThreshold;
+  }
+
+  /**
+   * Number of objects not covered by the reachability bitmaps from which on adaptive runs collect
+   * the garbage of a repository.
+   */
+  public long getObjectsSinceBitmapThreshold() {
+    return objectsSinceBitmapThreshold;
+  }
+
+  /** Number of loose refs from which on adaptive runs pack the refs of a repository. */
+  public long getLooseRefsThreshold() {
+    return looseRefsThreshold;
+  }
+
+  /**
+   * Maximum total size in bytes of the repositories that an adaptive run collects the garbage of,
+   * 0 if unlimited.
+   */
+  public long getMaxBytesPerRun() {
+    return maxBytesPerRun;
+  }
 }
@@ -14,9 +14,23 @@
 
 package com.google.gerrit.server.git;
 
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.server.config.GerritServerConfig;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
 
 public class GarbageCollectionModule extends LifecycleModule {
+  private final boolean adaptive;
+
+  /**
+   * @param cfg the {@link GerritServerConfig}; ref updates are only counted for adaptive
+   *     maintenance if {@code gc.adaptive} is enabled.
+   */
+  public GarbageCollectionModule(Config cfg) {
+    this.adaptive = cfg.getBoolean(ConfigConstants.CONFIG_GC_SECTION, "adaptive", false);
+  }
 
   @Override
   protected void configure() {
@@ -26,5 +40,8 @@ public class GarbageCollectionModule extends LifecycleModule {
     bind(GarbageCollectionQueue.class);
     factory(GarbageCollection.Factory.class);
     listener().to(GarbageCollectionRunner.Lifecycle.class);
+    if (adaptive) {
+      DynamicSet.bind(binder(), GitBatchRefUpdateListener.class).to(RepositoryMaintenance.class);
+    }
   }
 }
@@ -20,6 +20,7 @@ import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.server.config.GcConfig;
 import com.google.gerrit.server.project.ProjectCache;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 
 /** Runnable to enable scheduling gc to run periodically */
 public class GarbageCollectionRunner implements Runnable {
@@ -49,17 +50,29 @@ public class GarbageCollectionRunner implements Runnable {
   }
 
   private final GarbageCollection.Factory garbageCollectionFactory;
+  private final Provider<RepositoryMaintenance> repositoryMaintenance;
   private final ProjectCache projectCache;
+  private final GcConfig gcConfig;
 
   @Inject
   GarbageCollectionRunner(
-      GarbageCollection.Factory garbageCollectionFactory, ProjectCache projectCache) {
+      GarbageCollection.Factory garbageCollectionFactory,
+      Provider<RepositoryMaintenance> repositoryMaintenance,
+      ProjectCache projectCache,
+      GcConfig gcConfig) {
     this.garbageCollectionFactory = garbageCollectionFactory;
+    this.repositoryMaintenance = repositoryMaintenance;
     this.projectCache = projectCache;
+    this.gcConfig = gcConfig;
   }
 
   @Override
   public void run() {
+    if (gcConfig.isAdaptive()) {
+      logger.atInfo().log("Triggering maintenance on all repositories");
+      repositoryMaintenance.get().run(projectCache.all());
+      return;
+    }
     logger.atInfo().log("Triggering gc on all repositories");
     garbageCollectionFactory.create().run(Lists.newArrayList(projectCache.all()));
   }
@@ -0,0 +1,314 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import static java.util.Comparator.comparingDouble;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.data.GarbageCollectionResult;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.gerrit.server.config.GcConfig;
+import com.google.gerrit.server.logging.Metadata;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Cost-based maintenance of repositories.
+ *
+ * <p>Instead of running a full GC on every repository, the statistics of each repository (loose
+ * objects, pack files, objects not covered by bitmaps, loose refs) and the number of ref updates
+ * since its last maintenance are used to decide which maintenance, if any, the repository needs.
+ * Repositories that need maintenance most urgently are handled first, by a bounded number of
+ * threads ({@code gc.threads}), and repositories that would exceed the I/O budget of a run ({@code
+ * gc.maxBytesPerRun}) are deferred to the next run.
+ */
+@Singleton
+public class RepositoryMaintenance implements GitBatchRefUpdateListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Maintenance that is done on a repository. */
+  public enum Action {
+    /** The repository doesn't need maintenance. */
+    SKIP,
+
+    /** The loose refs of the repository are packed. */
+    PACK_REFS,
+
+    /**
+     * The garbage of the repository is collected, which repacks the objects, packs the refs and
+     * writes bitmaps and, if {@code gc.writeCommitGraph} is set in the JGit config, a commit-graph.
+     */
+    GC,
+
+    /** Maintenance was needed, but is postponed to the next run due to the I/O budget. */
+    DEFERRED
+  }
+
+  /** Statistics of a repository which are relevant to decide about its maintenance. */
+  @VisibleForTesting
+  record Statistics(
+      long looseObjects,
+      long packFiles,
+      long objectsSinceBitmap,
+      long looseRefs,
+      long sizeOfLooseObjects,
+      long sizeOfPackedObjects) {
+    static Statistics fromProperties(Properties p) {
+      return new Statistics(
+          getLong(p, "numberOfLooseObjects"),
+          getLong(p, "numberOfPackFiles"),
+          getLong(p, "numberOfObjectsSinceBitmap"),
+          getLong(p, "numberOfLooseRefs"),
+          getLong(p, "sizeOfLooseObjects"),
+          getLong(p, "sizeOfPackedObjects"));
+    }
+
+    private static long getLong(Properties p, String key) {
+      Object value = p.get(key);
+      return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    long size() {
+      return sizeOfLooseObjects + sizeOfPackedObjects;
+    }
+  }
+
+  @Singleton
+  static class Metrics {
+    final Counter1<Action> actions;
+    final Timer1<Action> latency;
+
+    @Inject
+    Metrics(MetricMaker metricMaker) {
+      Field<Action> actionField =
+          Field.ofEnum(Action.class, "action", Metadata.Builder::gitOperation)
+              .description("The maintenance action.")
+              .build();
+      actions =
+          metricMaker.newCounter(
+              "git/maintenance/actions",
+              new Description("Number of maintenance actions").setRate().setUnit("actions"),
+              actionField);
+      latency =
+          metricMaker.newTimer(
+              "git/maintenance/latency",
+              new Description("Latency of maintenance actions")
+                  .setCumulative()
+                  .setUnit(Units.MILLISECONDS),
+              actionField);
+    }
+  }
+
+  private record Candidate(
+      Project.NameKey project, Action action, double score, long size, long refUpdates) {}
+
+  private final GitRepositoryManager repoManager;
+  private final GarbageCollection.Factory garbageCollectionFactory;
+  private final WorkQueue workQueue;
+  private final GcConfig gcConfig;
+  private final Metrics metrics;
+  private final ConcurrentMap<Project.NameKey, Long> refUpdates = new ConcurrentHashMap<>();
+
+  private ExecutorService executor;
+
+  @Inject
+  RepositoryMaintenance(
+      GitRepositoryManager repoManager,
+      GarbageCollection.Factory garbageCollectionFactory,
+      WorkQueue workQueue,
+      GcConfig gcConfig,
+      Metrics metrics) {
+    this.repoManager = repoManager;
+    this.garbageCollectionFactory = garbageCollectionFactory;
+    this.workQueue = workQueue;
+    this.gcConfig = gcConfig;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(Event event) {
+    refUpdates.merge(
+        Project.nameKey(event.getProjectName()), (long) event.getUpdatedRefs().size(), Long::sum);
+  }
+
+  /** Maintains the given repositories, most urgent first, and waits until all are done. */
+  public void run(Collection<Project.NameKey> projects) {
+    List<Candidate> candidates = new ArrayList<>();
+    for (Project.NameKey p : projects) {
+      Statistics statistics;
+      try {
+        statistics = getStatistics(p);
+      } catch (Exception e) {
+        logger.atWarning().withCause(e).log("[%s] Cannot read repository statistics", p.get());
+        continue;
+      }
+      long updates = getRefUpdates(p);
+      Action action = chooseAction(statistics, updates, gcConfig);
+      if (action == Action.SKIP) {
+        metrics.actions.increment(action);
+        continue;
+      }
+      candidates.add(
+          new Candidate(
+              p, action, score(statistics, updates, gcConfig), statistics.size(), updates));
+    }
+    candidates.sort(comparingDouble(Candidate::score).reversed());
+
+    long maxBytes = gcConfig.getMaxBytesPerRun();
+    long bytes = 0;
+    List<Future<?>> futures = new ArrayList<>(candidates.size());
+    for (Candidate c : candidates) {
+      if (c.action() == Action.GC) {
+        if (maxBytes > 0 && bytes > 0 && bytes + c.size() > maxBytes) {
+          logger.atInfo().log(
+              "[%s] Deferring gc, the I/O budget of this run is used up", c.project().get());
+          metrics.actions.increment(Action.DEFERRED);
+          continue;
+        }
+        bytes += c.size();
+      }
+      futures.add(getExecutor().submit(() -> maintain(c)));
+    }
+    for (Future<?> f : futures) {
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futures.forEach(other -> other.cancel(false));
+        return;
+      } catch (ExecutionException e) {
+        logger.atSevere().withCause(e).log("Repository maintenance failed");
+      }
+    }
+  }
+
+  /**
+   * Decides which maintenance a repository needs.
+   *
+   * <p>A GC is only done if objects accumulated beyond one of the thresholds, as it rewrites all
+   * packs of the repository. Otherwise refs are packed if there are too many loose refs or the
+   * refs were updated often since the last maintenance, which is cheap and keeps ref lookups fast.
+   */
+  @VisibleForTesting
+  static Action chooseAction(Statistics statistics, long refUpdates, GcConfig cfg) {
+    if (exceeds(statistics.looseObjects(), cfg.getLooseObjectsThreshold())
+        || exceeds(statistics.packFiles(), cfg.getPackFilesThreshold())
+        || exceeds(statistics.objectsSinceBitmap(), cfg.getObjectsSinceBitmapThreshold())) {
+      return Action.GC;
+    }
+    if (statistics.looseRefs() > 0
+        && (exceeds(statistics.looseRefs(), cfg.getLooseRefsThreshold())
+            || exceeds(refUpdates, cfg.getLooseRefsThreshold()))) {
+      return Action.PACK_REFS;
+    }
+    return Action.SKIP;
+  }
+
+  /**
+   * Benefit of maintaining a repository, relative to the thresholds. Repositories that see many
+   * ref updates are favored, as their fetches and pushes are slowed down most by missing
+   * maintenance.
+   */
+  @VisibleForTesting
+  static double score(Statistics statistics, long refUpdates, GcConfig cfg) {
+    double score =
+        ratio(statistics.looseObjects(), cfg.getLooseObjectsThreshold())
+            + ratio(statistics.packFiles(), cfg.getPackFilesThreshold())
+            + ratio(statistics.objectsSinceBitmap(), cfg.getObjectsSinceBitmapThreshold())
+            + ratio(statistics.looseRefs(), cfg.getLooseRefsThreshold());
+    return score * (1 + Math.log1p(refUpdates));
+  }
+
+  private static boolean exceeds(long value, long threshold) {
+    return threshold > 0 && value >= threshold;
+  }
+
+  private static double ratio(long value, long threshold) {
+    return threshold > 0 ? (double) value / threshold : 0;
+  }
+
+  private long getRefUpdates(Project.NameKey p) {
+    return refUpdates.getOrDefault(p, 0L);
+  }
+
+  private Statistics getStatistics(Project.NameKey p) throws Exception {
+    try (Repository repo = repoManager.openRepository(p)) {
+      return Statistics.fromProperties(Git.wrap(unwrap(repo)).gc().getStatistics());
+    }
+  }
+
+  private void maintain(Candidate c) {
+    Project.NameKey p = c.project();
+    Action action = c.action();
+    try (Timer1.Context<Action> ignored = metrics.latency.start(action)) {
+      switch (action) {
+        case GC -> {
+          GarbageCollectionResult result =
+              garbageCollectionFactory.create().run(ImmutableList.of(p));
+          if (result.hasErrors()) {
+            return;
+          }
+        }
+        case PACK_REFS -> {
+          try (Repository repo = repoManager.openRepository(p)) {
+            Git.wrap(unwrap(repo)).packRefs().setAll(true).call();
+          }
+        }
+        case SKIP, DEFERRED -> {
+          return;
+        }
+      }
+      // Only forget the ref updates that were seen when choosing the action, updates that happened
+      // since then count towards the next run.
+      refUpdates.computeIfPresent(
+          p, (k, updates) -> updates > c.refUpdates() ? updates - c.refUpdates() : null);
+      logger.atFine().log("[%s] Repository maintenance %s done", p.get(), action);
+      metrics.actions.increment(action);
+    } catch (Exception e) {
+      logger.atSevere().withCause(e).log("[%s] Repository maintenance %s failed", p.get(), action);
+    }
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = workQueue.createQueue(gcConfig.getThreads(), "RepositoryMaintenance", true);
+    }
+    return executor;
+  }
+
+  private static Repository unwrap(Repository repo) {
+    return repo instanceof DelegateRepository ? ((DelegateRepository) repo).delegate() : repo;
+  }
+}
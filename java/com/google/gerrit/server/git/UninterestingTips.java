@@ -0,0 +1,156 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.BitmapIndex;
+import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.BitmapWalker;
+import org.eclipse.jgit.revwalk.ObjectWalk;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Marks a set of branch tips as uninteresting in a {@link RevWalk}.
+ *
+ * <p>Walks that compute the commits which are new relative to the branches of a repository
+ * traditionally mark every branch tip as uninteresting. On repositories with thousands of branches,
+ * or with branches that moved far ahead of the start commits, this makes the walk visit and parse a
+ * large part of the history, only to find the (usually small) set of commits that are not
+ * reachable from any tip.
+ *
+ * <p>If the repository has a reachability bitmap index, the tips are instead resolved into a
+ * single bitmap of reachable objects and only the boundary commits, i.e. the first commits reached
+ * from the start commits that are contained in that bitmap, are marked as uninteresting. This
+ * yields exactly the same walk result as marking all tips, but the walk stops right at the
+ * boundary. Commit parsing during the walk benefits from a commit-graph file, if one was written
+ * (see {@code core.commitGraph} and {@code gc.writeCommitGraph} in {@code jgit.config}).
+ */
+public class UninterestingTips {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /**
+   * Maximum number of commits that are inspected while searching for the boundary. If the start
+   * commits are not connected to the tips within this many commits (e.g. because a whole new
+   * history is pushed), all tips are marked uninteresting instead.
+   */
+  @VisibleForTesting static final int MAX_BOUNDARY_COMMITS = 10_000;
+
+  /**
+   * Marks the given tips as uninteresting in the given walk.
+   *
+   * @param rw the walk in which the tips should be marked uninteresting.
+   * @param starts the commits from which the walk will start; these must have been parsed by
+   *     {@code rw}.
+   * @param tips the branch tips that should be marked uninteresting.
+   * @return the number of commits that have been marked uninteresting.
+   */
+  public static int mark(
+      RevWalk rw, Collection<RevCommit> starts, Collection<? extends ObjectId> tips)
+      throws IOException {
+    if (!starts.isEmpty()) {
+      List<RevCommit> boundary = findBoundary(rw, starts, tips);
+      if (boundary != null) {
+        for (RevCommit c : boundary) {
+          rw.markUninteresting(c);
+        }
+        logger.atFine().log(
+            "Marked %d boundary commits instead of %d tips as uninteresting",
+            boundary.size(), tips.size());
+        return boundary.size();
+      }
+    }
+    return markAll(rw, tips);
+  }
+
+  private static int markAll(RevWalk rw, Collection<? extends ObjectId> tips) throws IOException {
+    int n = 0;
+    for (ObjectId tip : tips) {
+      try {
+        rw.markUninteresting(rw.parseCommit(tip));
+        n++;
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Invalid tip %s", tip.name());
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Returns the boundary commits between {@code starts} and the history reachable from {@code
+   * tips}, or {@code null} if the boundary cannot be computed cheaply.
+   */
+  @VisibleForTesting
+  static List<RevCommit> findBoundary(
+      RevWalk rw, Collection<RevCommit> starts, Collection<? extends ObjectId> tips)
+      throws IOException {
+    ObjectReader reader = rw.getObjectReader();
+    BitmapIndex bitmapIndex = reader.getBitmapIndex();
+    if (bitmapIndex == null) {
+      return null;
+    }
+
+    BitmapBuilder reachable;
+    try (ObjectWalk ow = new ObjectWalk(reader)) {
+      reachable =
+          new BitmapWalker(ow, bitmapIndex, NullProgressMonitor.INSTANCE)
+              .findObjects(tips, null, /* ignoreMissing= */ true);
+    } catch (MissingObjectException e) {
+      logger.atWarning().withCause(e).log("Cannot compute reachability bitmap for tips");
+      return null;
+    }
+
+    List<RevCommit> boundary = new ArrayList<>();
+    Set<ObjectId> seen = new HashSet<>();
+    Deque<RevCommit> pending = new ArrayDeque<>();
+    for (RevCommit c : starts) {
+      if (seen.add(c)) {
+        pending.add(c);
+      }
+    }
+    while (!pending.isEmpty()) {
+      if (seen.size() > MAX_BOUNDARY_COMMITS) {
+        return null;
+      }
+      RevCommit c = pending.remove();
+      if (reachable.contains(c)) {
+        boundary.add(c);
+        continue;
+      }
+      rw.parseHeaders(c);
+      for (RevCommit p : c.getParents()) {
+        if (seen.add(p)) {
+          pending.add(p);
+        }
+      }
+    }
+    return boundary;
+  }
+
+  private UninterestingTips() {}
+}
@@ -0,0 +1,144 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git.receive;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Immutable index from commit SHA-1s to the patch sets whose refs point to them.
+ *
+ * <p>The index is stored in a few primitive arrays sorted by SHA-1, which takes about 32 bytes per
+ * patch set, and answers lookups by binary search. A second array orders the entries by change, so
+ * that the patch sets of a change can be found as well.
+ */
+public class PatchSetRefIndex {
+  private static final int INTS_PER_ID = Constants.OBJECT_ID_LENGTH / Integer.BYTES;
+
+  public static final PatchSetRefIndex EMPTY = new Builder().build();
+
+  /** Builder for {@link PatchSetRefIndex}. */
+  public static class Builder {
+    private record Entry(ObjectId id, PatchSet.Id psId) {}
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public Builder add(PatchSet.Id psId, AnyObjectId id) {
+      entries.add(new Entry(id.copy(), psId));
+      return this;
+    }
+
+    public PatchSetRefIndex build() {
+      entries.sort(
+          Comparator.comparing(Entry::id)
+              .thenComparing(e -> e.psId().changeId().get())
+              .thenComparing(e -> e.psId().get()));
+      int n = entries.size();
+      int[] ids = new int[n * INTS_PER_ID];
+      int[] changes = new int[n];
+      int[] patchSets = new int[n];
+      for (int i = 0; i < n; i++) {
+        Entry e = entries.get(i);
+        e.id().copyRawTo(ids, i * INTS_PER_ID);
+        changes[i] = e.psId().changeId().get();
+        patchSets[i] = e.psId().get();
+      }
+      int[] byChange =
+          IntStream.range(0, n)
+              .boxed()
+              .sorted(
+                  Comparator.<Integer>comparingInt(i -> changes[i])
+                      .thenComparingInt(i -> patchSets[i]))
+              .mapToInt(Integer::intValue)
+              .toArray();
+      return new PatchSetRefIndex(ids, changes, patchSets, byChange);
+    }
+  }
+
+  private final int[] ids;
+  private final int[] changes;
+  private final int[] patchSets;
+  private final int[] byChange;
+
+  private PatchSetRefIndex(int[] ids, int[] changes, int[] patchSets, int[] byChange) {
+    this.ids = ids;
+    this.changes = changes;
+    this.patchSets = patchSets;
+    this.byChange = byChange;
+  }
+
+  /** Returns the number of patch sets in the index. */
+  public int size() {
+    return changes.length;
+  }
+
+  /** Returns the patch sets whose refs point to the given commit. */
+  public ImmutableList<PatchSet.Id> get(AnyObjectId id) {
+    int lo = 0;
+    int hi = size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (id.compareTo(ids, mid * INTS_PER_ID) > 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    ImmutableList.Builder<PatchSet.Id> result = ImmutableList.builder();
+    for (int i = lo; i < size() && id.compareTo(ids, i * INTS_PER_ID) == 0; i++) {
+      result.add(patchSetId(i));
+    }
+    return result.build();
+  }
+
+  /** Returns the patch sets of the given change, ordered by patch set number. */
+  public ImmutableList<PatchSet.Id> get(Change.Id changeId) {
+    int lo = 0;
+    int hi = size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (changes[byChange[mid]] < changeId.get()) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    ImmutableList.Builder<PatchSet.Id> result = ImmutableList.builder();
+    for (int i = lo; i < size() && changes[byChange[i]] == changeId.get(); i++) {
+      result.add(patchSetId(byChange[i]));
+    }
+    return result.build();
+  }
+
+  /** Calls {@code consumer} for every patch set in the index. */
+  public void forEach(BiConsumer<PatchSet.Id, ObjectId> consumer) {
+    for (int i = 0; i < size(); i++) {
+      consumer.accept(patchSetId(i), ObjectId.fromRaw(ids, i * INTS_PER_ID));
+    }
+  }
+
+  private PatchSet.Id patchSetId(int i) {
+    return PatchSet.id(Change.id(changes[i]), patchSets[i]);
+  }
+}
@@ -0,0 +1,211 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git.receive;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.git.receive.ReceivePackRefCache.PatchSetLookup;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Keeps a {@link PatchSetRefIndex} per project, so that pushes can look up the patch sets of a
+ * commit without building maps over all refs of the repository.
+ *
+ * <p>The index of a project is built by scanning {@code refs/changes/} on first use and afterwards
+ * kept up to date from ref update events. Patch sets that were deleted are never returned, as
+ * lookups are checked against the refs advertised to the push (see {@link ReceivePackRefCache}).
+ * Patch sets created through another server, however, are missing from the index until it is
+ * rebuilt, {@code receive.patchSetIndexMaxAge} after it was built; until then, pushes of their
+ * commits to this server don't recognize them as existing patch sets.
+ */
+@Singleton
+public class PatchSetRefIndexCache implements GitBatchRefUpdateListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  @Nullable private final Cache<Project.NameKey, ProjectIndex> indexes;
+
+  @Inject
+  PatchSetRefIndexCache(@GerritServerConfig Config cfg) {
+    long maxAgeMs =
+        ConfigUtil.getTimeUnit(
+            cfg, "receive", null, "patchSetIndexMaxAge", 0, TimeUnit.MILLISECONDS);
+    if (maxAgeMs > 0) {
+      indexes =
+          CacheBuilder.newBuilder()
+              .maximumSize(cfg.getInt("receive", "patchSetIndexProjects", 16))
+              .expireAfterWrite(maxAgeMs, TimeUnit.MILLISECONDS)
+              .build();
+    } else {
+      indexes = null;
+    }
+  }
+
+  /**
+   * Returns the index of the given project, or {@code null} if indexing patch sets is disabled or
+   * the index cannot be built.
+   */
+  @Nullable
+  public PatchSetLookup get(Project.NameKey project, Repository repo) {
+    if (indexes == null) {
+      return null;
+    }
+    try {
+      ProjectIndex index = indexes.get(project, ProjectIndex::new);
+      index.load(repo);
+      return index;
+    } catch (IOException | ExecutionException e) {
+      logger.atWarning().withCause(e).log("Cannot index patch sets of project %s", project);
+      indexes.invalidate(project);
+      return null;
+    }
+  }
+
+  @Override
+  public void onGitBatchRefUpdate(Event event) {
+    if (indexes == null) {
+      return;
+    }
+    ProjectIndex index = indexes.getIfPresent(Project.nameKey(event.getProjectName()));
+    if (index == null) {
+      return;
+    }
+    for (UpdatedRef ref : event.getUpdatedRefs()) {
+      PatchSet.Id psId = PatchSet.Id.fromRef(ref.getRefName());
+      if (psId != null) {
+        index.update(psId, ref.isDelete() ? null : ObjectId.fromString(ref.getNewObjectId()));
+      }
+    }
+  }
+
+  /**
+   * The index of one project: an immutable {@link PatchSetRefIndex} plus the updates that happened
+   * since it was built.
+   *
+   * <p>The instance is registered before {@code refs/changes/} is scanned, so that updates done
+   * while scanning are recorded as well.
+   */
+  @VisibleForTesting
+  static class ProjectIndex implements PatchSetLookup {
+    private PatchSetRefIndex base;
+    private final Map<PatchSet.Id, ObjectId> added = new HashMap<>();
+    private final ListMultimap<ObjectId, PatchSet.Id> addedByObjectId =
+        MultimapBuilder.hashKeys().arrayListValues(1).build();
+    private final Set<PatchSet.Id> removed = new HashSet<>();
+
+    synchronized void load(Repository repo) throws IOException {
+      if (base != null) {
+        return;
+      }
+      PatchSetRefIndex.Builder b = new PatchSetRefIndex.Builder();
+      for (Ref ref : repo.getRefDatabase().getRefsByPrefix(RefNames.REFS_CHANGES)) {
+        PatchSet.Id psId = PatchSet.Id.fromRef(ref.getName());
+        if (psId != null && ref.getObjectId() != null) {
+          b.add(psId, ref.getObjectId());
+        }
+      }
+      base = b.build();
+    }
+
+    synchronized void update(PatchSet.Id psId, @Nullable ObjectId id) {
+      ObjectId old = id != null ? added.put(psId, id) : added.remove(psId);
+      if (old != null) {
+        addedByObjectId.remove(old, psId);
+      }
+      if (id == null) {
+        removed.add(psId);
+      } else {
+        removed.remove(psId);
+        addedByObjectId.put(id, psId);
+      }
+      if (base != null && added.size() + removed.size() > Math.max(1000, base.size() / 8)) {
+        compact();
+      }
+    }
+
+    @Override
+    public synchronized ImmutableList<PatchSet.Id> byObjectId(ObjectId id) {
+      ImmutableSet.Builder<PatchSet.Id> result = ImmutableSet.builder();
+      for (PatchSet.Id psId : base().get(id)) {
+        if (!removed.contains(psId) && !added.containsKey(psId)) {
+          result.add(psId);
+        }
+      }
+      result.addAll(addedByObjectId.get(id));
+      return result.build().asList();
+    }
+
+    @Override
+    public synchronized ImmutableList<PatchSet.Id> byChange(Change.Id changeId) {
+      ImmutableSet.Builder<PatchSet.Id> result = ImmutableSet.builder();
+      for (PatchSet.Id psId : base().get(changeId)) {
+        if (!removed.contains(psId)) {
+          result.add(psId);
+        }
+      }
+      for (PatchSet.Id psId : added.keySet()) {
+        if (psId.changeId().equals(changeId)) {
+          result.add(psId);
+        }
+      }
+      return result.build().asList();
+    }
+
+    private PatchSetRefIndex base() {
+      return base != null ? base : PatchSetRefIndex.EMPTY;
+    }
+
+    /** Merges the recorded updates into a new {@link PatchSetRefIndex}. */
+    private void compact() {
+      PatchSetRefIndex.Builder b = new PatchSetRefIndex.Builder();
+      base.forEach(
+          (psId, id) -> {
+            if (!removed.contains(psId) && !added.containsKey(psId)) {
+              b.add(psId, id);
+            }
+          });
+      added.forEach(b::add);
+      base = b.build();
+      added.clear();
+      addedByObjectId.clear();
+      removed.clear();
+    }
+  }
+}
@@ -147,6 +147,7 @@ import com.google.gerrit.server.git.MultiProgressMonitor;
 import com.google.gerrit.server.git.MultiProgressMonitor.Task;
 import com.google.gerrit.server.git.ReceivePackInitializer;
 import com.google.gerrit.server.git.TagCache;
+import com.google.gerrit.server.git.UninterestingTips;
 import com.google.gerrit.server.git.ValidationError;
 import com.google.gerrit.server.git.receive.RejectionReason.MetricBucket;
 import com.google.gerrit.server.git.validators.CommentCountValidator;
@@ -520,6 +521,7 @@ class ReceiveCommits {
       MergedByPushOp.Factory mergedByPushOpFactory,
       Metrics metrics,
       PatchSetInfoFactory patchSetInfoFactory,
+      PatchSetRefIndexCache patchSetRefIndexCache,
       PatchSetUtil psUtil,
       DynamicSet<PerformanceLogger> performanceLoggers,
       PermissionBackend permissionBackend,
@@ -648,7 +650,9 @@ class ReceiveCommits {
     boolean useRefCache = config.getBoolean("receive", "enableInMemoryRefCache", true);
     receivePackRefCache =
         useRefCache
-            ? ReceivePackRefCache.withAdvertisedRefs(() -> allRefsWatcher.getAllRefs())
+            ? ReceivePackRefCache.withAdvertisedRefs(
+                () -> allRefsWatcher.getAllRefs(),
+                () -> patchSetRefIndexCache.get(project.getNameKey(), repo))
             : ReceivePackRefCache.noCache(receivePack.getRepository().getRefDatabase());
     this.transitionalPluginOptions =
         ImmutableList.copyOf(config.getStringList("plugins", null, "transitionalPushOptions"));
@@ -2962,7 +2966,7 @@ class ReceiveCommits {
         }
       } else {
         markHeadsAsUninteresting(
-            globalRevWalk, magicBranch.dest != null ? magicBranch.dest.branch() : null);
+            globalRevWalk, start, magicBranch.dest != null ? magicBranch.dest.branch() : null);
       }
       return start;
     }
@@ -3033,26 +3037,21 @@ class ReceiveCommits {
 
   // Mark all branch tips as uninteresting in the given revwalk,
   // so we get only the new commits when walking rw.
-  private void markHeadsAsUninteresting(RevWalk globalRevWalk, @Nullable String forRef)
-      throws IOException {
+  private void markHeadsAsUninteresting(
+      RevWalk globalRevWalk, RevCommit start, @Nullable String forRef) throws IOException {
     try (TraceTimer traceTimer =
         newTimer("markHeadsAsUninteresting", Metadata.builder().branchName(forRef))) {
-      int i = 0;
+      Set<ObjectId> tips = new HashSet<>();
       for (Ref ref :
           Iterables.concat(
               receivePackRefCache.byPrefix(R_HEADS),
               Collections.singletonList(receivePackRefCache.exactRef(forRef)))) {
         if (ref != null && ref.getObjectId() != null) {
-          try {
-            globalRevWalk.markUninteresting(globalRevWalk.parseCommit(ref.getObjectId()));
-            i++;
-          } catch (IOException e) {
-            logger.atWarning().withCause(e).log(
-                "Invalid ref %s in %s", ref.getName(), project.getName());
-          }
+          tips.add(ref.getObjectId());
         }
       }
-      logger.atFine().log("Marked %d heads as uninteresting", i);
+      int i = UninterestingTips.mark(globalRevWalk, ImmutableList.of(start), tips);
+      logger.atFine().log("Marked %d commits for %d heads as uninteresting", i, tips.size());
     }
   }
 
@@ -3354,12 +3353,10 @@ class ReceiveCommits {
         revCommit = null;
       }
       revisions = HashBiMap.create();
-      for (Ref ref : receivePackRefCache.byPrefix(RefNames.changeRefPrefix(toChange))) {
+      for (Ref ref : receivePackRefCache.patchSetRefs(toChange)) {
         try {
           PatchSet.Id psId = PatchSet.Id.fromRef(ref.getName());
-          if (psId != null) {
-            revisions.forcePut(globalRevWalk.parseCommit(ref.getObjectId()), psId);
-          }
+          revisions.forcePut(globalRevWalk.parseCommit(ref.getObjectId()), psId);
         } catch (IOException err) {
           logger.atWarning().withCause(err).log(
               "Project %s contains invalid change ref %s", project.getName(), ref.getName());
@@ -3869,7 +3866,7 @@ class ReceiveCommits {
           return;
         }
         globalRevWalk.markStart((RevCommit) parsedObject);
-        markHeadsAsUninteresting(globalRevWalk, cmd.getRefName());
+        markHeadsAsUninteresting(globalRevWalk, (RevCommit) parsedObject, cmd.getRefName());
         int limit = receiveConfig.maxBatchCommits;
         int n = 0;
         for (RevCommit c; (c = globalRevWalk.next()) != null; ) {
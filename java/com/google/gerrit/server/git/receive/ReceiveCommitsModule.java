@@ -15,11 +15,14 @@
 package com.google.gerrit.server.git.receive;
 
 import com.google.gerrit.extensions.config.FactoryModule;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
 
 public class ReceiveCommitsModule extends FactoryModule {
   @Override
   protected void configure() {
     bind(ReceiveConfig.class);
     factory(ReplaceOp.Factory.class);
+    DynamicSet.bind(binder(), GitBatchRefUpdateListener.class).to(PatchSetRefIndexCache.class);
   }
 }
@@ -57,7 +57,33 @@ public interface ReceivePackRefCache {
    * ObjectId} to name) lookups.
    */
   static ReceivePackRefCache withAdvertisedRefs(Supplier<Map<String, Ref>> allRefsSupplier) {
-    return new WithAdvertisedRefs(allRefsSupplier);
+    return new WithAdvertisedRefs(allRefsSupplier, () -> null);
+  }
+
+  /**
+   * Same as {@link #withAdvertisedRefs(Supplier)}, but answers lookups of patch sets from the given
+   * {@link PatchSetLookup} instead of building maps over all advertised refs. Results of the lookup
+   * are only returned if the advertised refs agree with them.
+   *
+   * @param allRefsSupplier supplies the advertised refs.
+   * @param patchSetLookupSupplier supplies the lookup, or {@code null} if no lookup is available.
+   */
+  static ReceivePackRefCache withAdvertisedRefs(
+      Supplier<Map<String, Ref>> allRefsSupplier,
+      Supplier<PatchSetLookup> patchSetLookupSupplier) {
+    return new WithAdvertisedRefs(allRefsSupplier, patchSetLookupSupplier);
+  }
+
+  /**
+   * Lookup of patch sets that is maintained independently of a single push, e.g. a {@link
+   * PatchSetRefIndex}. The lookup may be slightly outdated.
+   */
+  interface PatchSetLookup {
+    /** Returns the patch sets whose refs point to {@code id}. */
+    ImmutableList<PatchSet.Id> byObjectId(ObjectId id);
+
+    /** Returns the patch sets of the given change. */
+    ImmutableList<PatchSet.Id> byChange(Change.Id changeId);
   }
 
   /** Returns a list of {@link com.google.gerrit.entities.PatchSet.Id}s that point to {@code id}. */
@@ -66,6 +92,13 @@ public interface ReceivePackRefCache {
   /** Returns all refs whose name starts with {@code prefix}. */
   ImmutableList<Ref> byPrefix(String prefix) throws IOException;
 
+  /** Returns the patch set refs of the given change. */
+  default ImmutableList<Ref> patchSetRefs(Change.Id changeId) throws IOException {
+    return byPrefix(RefNames.changeRefPrefix(changeId)).stream()
+        .filter(r -> PatchSet.Id.fromRef(r.getName()) != null)
+        .collect(toImmutableList());
+  }
+
   /** Returns a ref whose name matches {@code ref} or {@code null} if such a ref does not exist. */
   @Nullable
   Ref exactRef(String ref) throws IOException;
@@ -102,22 +135,35 @@ public interface ReceivePackRefCache {
     private static final int ESTIMATED_NUMBER_OF_REFS_PER_CHANGE = 5;
 
     private final Supplier<Map<String, Ref>> allRefsSupplier;
+    private final Supplier<PatchSetLookup> patchSetLookupSupplier;
 
     // Collections lazily populated during processing.
     private Map<String, Ref> allRefs;
 
+    @Nullable private PatchSetLookup patchSetLookup;
+    private boolean patchSetLookupLoaded;
+
     /** Contains only patch set refs. */
     private ListMultimap<Change.Id, Ref> refsByChange;
 
     /** Contains all refs. */
     private ListMultimap<ObjectId, Ref> refsByObjectId;
 
-    private WithAdvertisedRefs(Supplier<Map<String, Ref>> allRefsSupplier) {
+    private WithAdvertisedRefs(
+        Supplier<Map<String, Ref>> allRefsSupplier,
+        Supplier<PatchSetLookup> patchSetLookupSupplier) {
       this.allRefsSupplier = allRefsSupplier;
+      this.patchSetLookupSupplier = patchSetLookupSupplier;
     }
 
     @Override
     public ImmutableList<PatchSet.Id> patchSetIdsFromObjectId(ObjectId id) {
+      PatchSetLookup lookup = patchSetLookup();
+      if (lookup != null) {
+        return lookup.byObjectId(id).stream()
+            .filter(psId -> isAdvertised(psId, id))
+            .collect(toImmutableList());
+      }
       lazilyInitRefMaps();
       return refsByObjectId.get(id).stream()
           .map(r -> PatchSet.Id.fromRef(r.getName()))
@@ -141,12 +187,40 @@ public interface ReceivePackRefCache {
           .collect(toImmutableList());
     }
 
+    @Override
+    public ImmutableList<Ref> patchSetRefs(Change.Id changeId) {
+      PatchSetLookup lookup = patchSetLookup();
+      if (lookup != null) {
+        return lookup.byChange(changeId).stream()
+            .map(psId -> allRefs().get(psId.toRefName()))
+            .filter(Objects::nonNull)
+            .collect(toImmutableList());
+      }
+      return byPrefix(RefNames.changeRefPrefix(changeId)).stream()
+          .filter(r -> PatchSet.Id.fromRef(r.getName()) != null)
+          .collect(toImmutableList());
+    }
+
     @Override
     @Nullable
     public Ref exactRef(String name) {
       return allRefs().get(name);
     }
 
+    @Nullable
+    private PatchSetLookup patchSetLookup() {
+      if (!patchSetLookupLoaded) {
+        patchSetLookup = patchSetLookupSupplier.get();
+        patchSetLookupLoaded = true;
+      }
+      return patchSetLookup;
+    }
+
+    private boolean isAdvertised(PatchSet.Id psId, ObjectId id) {
+      Ref ref = allRefs().get(psId.toRefName());
+      return ref != null && id.equals(ref.getObjectId());
+    }
+
     private Map<String, Ref> allRefs() {
       if (allRefs == null) {
         allRefs = allRefsSupplier.get();
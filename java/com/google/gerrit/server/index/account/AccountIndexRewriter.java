@@ -20,12 +20,15 @@ import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.IndexRewriter;
 import com.google.gerrit.index.QueryOptions;
 import com.google.gerrit.index.query.IndexPredicate;
+import com.google.gerrit.index.query.OrPredicate;
 import com.google.gerrit.index.query.Predicate;
 import com.google.gerrit.index.query.QueryParseException;
 import com.google.gerrit.index.query.TooManyTermsInQueryException;
 import com.google.gerrit.server.account.AccountState;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.HashSet;
+import java.util.Set;
 import org.eclipse.jgit.util.MutableInteger;
 
 /** Rewriter for the account index. See {@link IndexRewriter} for details. */
@@ -57,20 +60,32 @@ public class AccountIndexRewriter implements IndexRewriter<AccountState> {
    */
   public void validateMaxTermsInQuery(Predicate<AccountState> predicate)
       throws QueryParseException {
+    AccountIndex index = indexes.getSearchIndex();
     MutableInteger leafTerms = new MutableInteger();
-    countLeafTerms(predicate, leafTerms);
+    countLeafTerms(predicate, index != null && index.supportsTermSetQueries(), leafTerms);
     if (leafTerms.value > config.maxTerms()) {
       throw new TooManyTermsInQueryException(leafTerms.value, config.maxTerms());
     }
   }
 
-  private void countLeafTerms(Predicate<AccountState> predicate, MutableInteger leafTerms) {
+  private void countLeafTerms(
+      Predicate<AccountState> predicate, boolean termSetQueries, MutableInteger leafTerms) {
     if (predicate instanceof IndexPredicate) {
       ++leafTerms.value;
     }
 
+    // Exact terms on the same field are queried as one set of terms by indexes that support it.
+    Set<String> exactTermFields =
+        termSetQueries && predicate instanceof OrPredicate ? new HashSet<>() : null;
     for (Predicate<AccountState> childPredicate : predicate.getChildren()) {
-      countLeafTerms(childPredicate, leafTerms);
+      if (exactTermFields != null
+          && childPredicate instanceof IndexPredicate
+          && ((IndexPredicate<AccountState>) childPredicate).isExactTerm()
+          && !exactTermFields.add(
+              ((IndexPredicate<AccountState>) childPredicate).getField().getName())) {
+        continue;
+      }
+      countLeafTerms(childPredicate, termSetQueries, leafTerms);
     }
   }
 }
@@ -84,6 +84,9 @@ public class AccountIndexerImpl implements AccountIndexer {
 
   @Override
   public void index(Account.Id id) {
+    // Accounts may be reindexed before the listener that tracks updates of the user branches is
+    // notified, hence read the user branch from the repository.
+    byIdNoteDbCache.evictRefVersion(id);
     Optional<AccountState> accountState = byIdNoteDbCache.get(id);
 
     if (accountState.isPresent()) {
@@ -23,6 +23,7 @@ import com.google.common.collect.Sets;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.Change.Status;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.IndexRewriter;
 import com.google.gerrit.index.QueryOptions;
@@ -51,6 +52,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.BitSet;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -135,6 +137,49 @@ public class ChangeIndexRewriter implements IndexRewriter<ChangeData> {
     return null;
   }
 
+  /**
+   * Returns the projects that changes matching the given predicate can belong to, or an empty
+   * optional if the predicate doesn't restrict the project.
+   */
+  public static Optional<Set<Project.NameKey>> getPossibleProjects(Predicate<ChangeData> in) {
+    return Optional.ofNullable(extractProjects(in));
+  }
+
+  @Nullable
+  private static Set<Project.NameKey> extractProjects(Predicate<ChangeData> in) {
+    if (in instanceof IndexPredicate) {
+      IndexPredicate<ChangeData> p = (IndexPredicate<ChangeData>) in;
+      if (p.isExactTerm() && p.getField().getName().equals(ChangeField.PROJECT_SPEC.getName())) {
+        return Sets.newHashSet(Project.nameKey(p.getValue()));
+      }
+    } else if (in instanceof OrPredicate) {
+      Set<Project.NameKey> r = new HashSet<>();
+      for (int i = 0; i < in.getChildCount(); i++) {
+        Set<Project.NameKey> c = extractProjects(in.getChild(i));
+        if (c == null) {
+          // A child that doesn't restrict the project lifts the restriction of the others.
+          return null;
+        }
+        r.addAll(c);
+      }
+      return r;
+    } else if (in instanceof AndPredicate) {
+      Set<Project.NameKey> r = null;
+      for (int i = 0; i < in.getChildCount(); i++) {
+        Set<Project.NameKey> c = extractProjects(in.getChild(i));
+        if (c != null) {
+          if (r == null) {
+            r = c;
+          } else {
+            r.retainAll(c);
+          }
+        }
+      }
+      return r;
+    }
+    return null;
+  }
+
   private final ChangeIndexCollection indexes;
   private final IndexConfig config;
 
@@ -223,9 +268,18 @@ public class ChangeIndexRewriter implements IndexRewriter<ChangeData> {
     BitSet rewritten = new BitSet(n);
     BitSet changeSource = new BitSet(n);
     List<Predicate<ChangeData>> newChildren = Lists.newArrayListWithCapacity(n);
+    Set<String> exactTermFields =
+        index.supportsTermSetQueries() && in instanceof OrPredicate ? new HashSet<>() : null;
     for (int i = 0; i < n; i++) {
       Predicate<ChangeData> c = in.getChild(i);
       Predicate<ChangeData> nc = rewriteImpl(c, index, opts, leafTerms);
+      if (exactTermFields != null
+          && isSameInstance(nc, c)
+          && isExactTerm(c)
+          && !exactTermFields.add(((IndexPredicate<ChangeData>) c).getField().getName())) {
+        // Exact terms on the same field are queried as one set of terms by the index.
+        --leafTerms.value;
+      }
       if (isSameInstance(nc, c)) {
         isIndexed.set(i);
         newChildren.add(c);
@@ -278,6 +332,10 @@ public class ChangeIndexRewriter implements IndexRewriter<ChangeData> {
     return schema.hasField(field);
   }
 
+  private static boolean isExactTerm(Predicate<ChangeData> in) {
+    return in instanceof IndexPredicate && ((IndexPredicate<ChangeData>) in).isExactTerm();
+  }
+
   private Predicate<ChangeData> partitionChildren(
       Predicate<ChangeData> in,
       List<Predicate<ChangeData>> newChildren,
@@ -0,0 +1,126 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static java.util.Comparator.comparing;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.OneOffRequestContext;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.eclipse.jgit.lib.Config;
+
+/**
+ * Computes the mergeability of open changes in the background after their destination branch was
+ * updated.
+ *
+ * <p>The results are written to the persistent {@link
+ * com.google.gerrit.server.change.MergeabilityCache}, so that reindexing the changes afterwards and
+ * the {@code Mergeable} REST endpoint find them there instead of doing the test merges themselves.
+ * The number of concurrent test merges is bounded by {@code change.mergeabilityPrecomputeThreads};
+ * the precomputation is disabled if it is 0.
+ *
+ * <p>A change is queued at most once. If its branch is updated again before its computation
+ * started, the queued computation already uses the new branch tip.
+ */
+@Singleton
+class MergeabilityPrecomputer {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final OneOffRequestContext requestContext;
+  private final ChangeData.Factory changeDataFactory;
+  @Nullable private final ExecutorService executor;
+  private final Set<Change.Id> pending = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  MergeabilityPrecomputer(
+      @GerritServerConfig Config cfg,
+      WorkQueue workQueue,
+      OneOffRequestContext requestContext,
+      ChangeData.Factory changeDataFactory) {
+    this(requestContext, changeDataFactory, createExecutor(cfg, workQueue));
+  }
+
+  @VisibleForTesting
+  MergeabilityPrecomputer(
+      OneOffRequestContext requestContext,
+      ChangeData.Factory changeDataFactory,
+      @Nullable ExecutorService executor) {
+    this.requestContext = requestContext;
+    this.changeDataFactory = changeDataFactory;
+    this.executor = executor;
+  }
+
+  @Nullable
+  private static ExecutorService createExecutor(Config cfg, WorkQueue workQueue) {
+    int threads = cfg.getInt("change", null, "mergeabilityPrecomputeThreads", 0);
+    return threads > 0 ? workQueue.createQueue(threads, "MergeabilityPrecompute", true) : null;
+  }
+
+  boolean isEnabled() {
+    return executor != null;
+  }
+
+  /**
+   * Computes the mergeability of the given changes, most recently updated changes first.
+   *
+   * @param changes open changes whose destination branch was updated.
+   * @param done called for each change once its mergeability is cached, also if computing it
+   *     failed. Not called for changes whose computation is already queued, as the queued
+   *     computation calls the {@code done} callback it was queued with.
+   */
+  void precompute(Collection<Change> changes, Consumer<Change> done) {
+    List<Change> sorted = new ArrayList<>(changes);
+    sorted.sort(comparing(Change::getLastUpdatedOn).reversed());
+    for (Change change : sorted) {
+      if (!pending.add(change.getId())) {
+        continue;
+      }
+      @SuppressWarnings("unused")
+      Future<?> possiblyIgnoredError = executor.submit(() -> compute(change, done));
+    }
+  }
+
+  private void compute(Change change, Consumer<Change> done) {
+    // Removed before computing, so that branch updates during the computation queue the change
+    // again.
+    pending.remove(change.getId());
+    try (ManualRequestContext ctx = requestContext.open()) {
+      @SuppressWarnings("unused")
+      var unused = changeDataFactory.create(change).isMergeable();
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log(
+          "Cannot compute mergeability of change %d in project %s",
+          change.getChangeId(), change.getProject());
+    } finally {
+      done.accept(change);
+    }
+  }
+}
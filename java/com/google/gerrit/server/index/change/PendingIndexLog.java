@@ -0,0 +1,235 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import com.google.gerrit.server.index.change.PendingIndexUpdate.Intent;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Append-only log of change-index intents of one process.
+ *
+ * <p>Each line of the log is a JSON {@link Record}. An intent record is written before the NoteDb
+ * update of a change and a completion record for the same thread and change once the index write
+ * succeeded. Intents without a completion record are outstanding and have to be recovered.
+ *
+ * <p>Appending a record is a single write to a shared file channel. Making intents durable is done
+ * by {@link #sync()}, which uses group commit: while one thread forces the log to disk, other
+ * threads keep appending and then share the next force, so the number of fsyncs does not grow
+ * with the number of concurrently indexing threads. Completion records are never synced, as a lost
+ * completion only causes a redundant reindex on recovery.
+ */
+final class PendingIndexLog {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final Gson GSON = new Gson();
+
+  static final String COMPLETED = "completed";
+
+  /** Size after which the log is truncated, once it has no outstanding intents. */
+  @VisibleForTesting static final long MAX_SIZE_WITHOUT_OUTSTANDING_INTENTS = 16 << 20;
+
+  /** A line in the log: an {@link Intent} or a completion record written by a thread. */
+  record Record(long threadId, String project, int changeId, String operation) {
+    Intent intent() {
+      return new Intent(project, changeId, operation);
+    }
+
+    Key key() {
+      return new Key(threadId, project, changeId);
+    }
+  }
+
+  record Key(long threadId, String project, int changeId) {}
+
+  private final Path file;
+
+  // Guarded by this.
+  private FileChannel channel;
+  private final Map<Key, Intent> outstanding = new LinkedHashMap<>();
+  private long written;
+  private long synced;
+  private boolean syncing;
+
+  PendingIndexLog(Path file) {
+    this.file = file;
+  }
+
+  Path file() {
+    return file;
+  }
+
+  /** Appends an intent record; the record is durable only after a subsequent {@link #sync()}. */
+  void append(long threadId, Intent intent) throws IOException {
+    Record r = new Record(threadId, intent.project(), intent.changeId(), intent.operation());
+    synchronized (this) {
+      outstanding.put(r.key(), intent);
+      write(r);
+    }
+  }
+
+  /** Appends a completion record for an intent written earlier by the same thread. */
+  void complete(long threadId, String project, int changeId) throws IOException {
+    Record r = new Record(threadId, project, changeId, COMPLETED);
+    synchronized (this) {
+      if (outstanding.remove(r.key()) == null) {
+        return;
+      }
+      write(r);
+      truncateIfIdle();
+    }
+  }
+
+  /** Forces all records appended so far to disk, sharing the force with concurrent callers. */
+  void sync() throws IOException {
+    long target;
+    FileChannel ch;
+    synchronized (this) {
+      long end = written;
+      while (synced < end && syncing) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while syncing " + file);
+        }
+      }
+      if (synced >= end) {
+        return;
+      }
+      syncing = true;
+      target = written;
+      ch = channel;
+    }
+
+    boolean ok = false;
+    try {
+      ch.force(false);
+      ok = true;
+    } finally {
+      synchronized (this) {
+        syncing = false;
+        if (ok) {
+          synced = Math.max(synced, target);
+        }
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns the outstanding intents of threads that are no longer alive and marks them as
+   * completed.
+   */
+  ImmutableList<Intent> takeIntentsOfDeadThreads(LongPredicate isThreadDead) throws IOException {
+    ImmutableList.Builder<Intent> r = ImmutableList.builder();
+    synchronized (this) {
+      for (Map.Entry<Key, Intent> e : ImmutableList.copyOf(outstanding.entrySet())) {
+        if (isThreadDead.test(e.getKey().threadId())) {
+          r.add(e.getValue());
+          complete(e.getKey().threadId(), e.getKey().project(), e.getKey().changeId());
+        }
+      }
+    }
+    return r.build();
+  }
+
+  synchronized int outstandingCount() {
+    return outstanding.size();
+  }
+
+  synchronized void close() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Failed to close %s", file);
+      }
+      channel = null;
+    }
+  }
+
+  private void write(Record r) throws IOException {
+    if (channel == null) {
+      Files.createDirectories(file.getParent());
+      channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      written = channel.size();
+      synced = written;
+    }
+    ByteBuffer buf = ByteBuffer.wrap((GSON.toJson(r) + "\n").getBytes(UTF_8));
+    while (buf.hasRemaining()) {
+      written += channel.write(buf);
+    }
+  }
+
+  private void truncateIfIdle() throws IOException {
+    if (outstanding.isEmpty() && !syncing && written > MAX_SIZE_WITHOUT_OUTSTANDING_INTENTS) {
+      channel.truncate(0);
+      written = 0;
+      synced = 0;
+    }
+  }
+
+  /**
+   * Reads the log of another process and returns its outstanding intents, in the order they were
+   * written. Malformed lines, e.g. a partially written last line, are skipped.
+   */
+  static Collection<Intent> readOutstanding(Path file) throws IOException {
+    Map<Key, Intent> outstanding = new LinkedHashMap<>();
+    try (BufferedReader in = Files.newBufferedReader(file, UTF_8)) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        Record r;
+        try {
+          r = GSON.fromJson(line, Record.class);
+        } catch (JsonParseException e) {
+          logger.atWarning().log("Skipping malformed record in %s: %s", file, line);
+          continue;
+        }
+        if (r == null || r.project() == null || r.operation() == null || r.changeId() <= 0) {
+          logger.atWarning().log("Skipping malformed record in %s: %s", file, line);
+          continue;
+        }
+        if (COMPLETED.equals(r.operation())) {
+          outstanding.remove(r.key());
+        } else {
+          outstanding.put(r.key(), r.intent());
+        }
+      }
+    }
+    return outstanding.values();
+  }
+}
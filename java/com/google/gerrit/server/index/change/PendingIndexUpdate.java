@@ -16,6 +16,7 @@ package com.google.gerrit.server.index.change;
 
 import com.google.common.flogger.FluentLogger;
 import com.google.common.hash.Hashing;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Change;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.config.GerritServerConfig;
@@ -33,18 +34,34 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.function.LongPredicate;
 import org.eclipse.jgit.lib.Config;
 
 /**
  * Manages the change-index write-ahead intent files under {@code $site_dir/data/pending-index/}.
  *
- * <p>Each intent is a file at {@code <data_dir>/<pid>_<start_time>/<threadId>/sha(project, change)}
- * with the JSON content of {@link Intent}.
+ * <p>With the {@link Storage#FILE} storage, each intent is a file at {@code
+ * <data_dir>/<pid>_<start_time>/<threadId>/sha(project, change)} with the JSON content of {@link
+ * Intent}.
+ *
+ * <p>With the {@link Storage#LOG} storage, all intents of the process are appended to the single
+ * file {@code <data_dir>/<pid>_<start_time>.log}, see {@link PendingIndexLog}.
  */
 @Singleton
 public final class PendingIndexUpdate {
   record Intent(String project, int changeId, String operation) {}
 
+  /** How intents are stored on disk. */
+  public enum Storage {
+    /** One file per intent, deleted when the index write is done. */
+    FILE,
+
+    /** One append-only log per process, with completion records for done index writes. */
+    LOG
+  }
+
+  static final String LOG_SUFFIX = ".log";
+
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final String PROCESS_MARKER =
       ProcessHandle.current().pid() + "_" + ManagementFactory.getRuntimeMXBean().getStartTime();
@@ -54,6 +71,7 @@ public final class PendingIndexUpdate {
   final Path intentDir;
   final Path buildingDir;
   final Path runningDir;
+  @Nullable private final PendingIndexLog log;
 
   @Inject
   public PendingIndexUpdate(
@@ -63,6 +81,11 @@ public final class PendingIndexUpdate {
     runningDir = intentDir.resolve(PROCESS_MARKER);
     this.indexer = indexer;
     this.enabled = computeEnabled(cfg);
+    Storage storage = cfg.getEnum("index", null, "staleChangeRecoveryStorage", Storage.FILE);
+    this.log =
+        enabled && storage == Storage.LOG
+            ? new PendingIndexLog(intentDir.resolve(PROCESS_MARKER + LOG_SUFFIX))
+            : null;
   }
 
   /** Returns {@code true} if stale change recovery is active for this process. */
@@ -93,6 +116,21 @@ public final class PendingIndexUpdate {
     return true;
   }
 
+  /** Returns {@code true} if intents are appended to a per-process log. */
+  public boolean usesLog() {
+    return log != null;
+  }
+
+  /** Returns {@code true} if {@code path} is the intent log of a process. */
+  boolean isLogFile(Path path) {
+    return path.getFileName().toString().endsWith(LOG_SUFFIX) && Files.isRegularFile(path);
+  }
+
+  /** Returns {@code true} if {@code path} is the intent log of the current process. */
+  boolean isOwnLogFile(Path path) {
+    return log != null && log.file().equals(path);
+  }
+
   /** Returns the per-thread intent directory for {@code threadId}. */
   public Path threadDir(long threadId) {
     return runningDir.resolve(String.valueOf(threadId));
@@ -114,23 +152,43 @@ public final class PendingIndexUpdate {
     }
   }
 
-  /** Writes an intent file for the given change under the thread's pending directory. */
+  /**
+   * Writes an intent for the given change.
+   *
+   * <p>With the {@link Storage#LOG} storage the intent is only appended to the log; call {@link
+   * #sync()} after writing all intents of an update to make them durable.
+   */
   public void write(long threadId, Project.NameKey project, Change.Id changeId, boolean delete)
       throws IOException {
+    Intent intent = new Intent(project.get(), changeId.get(), delete ? "delete" : "index");
+    if (log != null) {
+      log.append(threadId, intent);
+      return;
+    }
+
     Files.createDirectories(buildingDir);
     Path tmp =
-        Files.writeString(
-            Files.createTempFile(buildingDir, null, null),
-            GSON.toJson(new Intent(project.get(), changeId.get(), delete ? "delete" : "index")));
+        Files.writeString(Files.createTempFile(buildingDir, null, null), GSON.toJson(intent));
 
     Path dir = threadDir(threadId);
     Files.createDirectories(dir);
     Files.move(tmp, dir.resolve(filename(project, changeId)), StandardCopyOption.ATOMIC_MOVE);
   }
 
-  /** Deletes the intent file for {@code changeId} under the thread's pending directory. */
+  /** Makes all intents written so far durable. */
+  public void sync() throws IOException {
+    if (log != null) {
+      log.sync();
+    }
+  }
+
+  /** Deletes or completes the intent for {@code changeId} written by the thread. */
   public void delete(long threadId, Project.NameKey project, Change.Id changeId) {
     try {
+      if (log != null) {
+        log.complete(threadId, project.get(), changeId.get());
+        return;
+      }
       Path threadDir = threadDir(threadId);
       Files.deleteIfExists(threadDir.resolve(filename(project, changeId)));
       cleanIfEmpty(threadDir);
@@ -140,6 +198,24 @@ public final class PendingIndexUpdate {
     }
   }
 
+  /** Applies the outstanding intents in the log of the current process of dead threads. */
+  void recoverDeadThreadIntents(LongPredicate isThreadDead) throws IOException {
+    if (log == null) {
+      return;
+    }
+    for (Intent intent : log.takeIntentsOfDeadThreads(isThreadDead)) {
+      apply(intent);
+    }
+  }
+
+  /** Applies the outstanding intents in the log of a previous process, then deletes the log. */
+  void recoverLog(Path logFile) throws IOException {
+    for (Intent intent : PendingIndexLog.readOutstanding(logFile)) {
+      apply(intent);
+    }
+    Files.deleteIfExists(logFile);
+  }
+
   /** Reads the intent file, applies the index operation, then deletes the file. */
   public void recover(Path file) throws IOException {
     Intent intent;
@@ -159,6 +235,11 @@ public final class PendingIndexUpdate {
       Files.deleteIfExists(file);
       return;
     }
+    apply(intent);
+    Files.deleteIfExists(file);
+  }
+
+  private void apply(Intent intent) {
     Project.NameKey project = Project.nameKey(intent.project());
     try {
       switch (intent.operation()) {
@@ -174,6 +255,5 @@ public final class PendingIndexUpdate {
       // catch all indexing exceptions to not propagate further.
       logger.atSevere().withCause(e).log("Exception while recovering index intent: %s", intent);
     }
-    Files.deleteIfExists(file);
   }
 }
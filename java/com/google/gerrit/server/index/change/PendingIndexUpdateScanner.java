@@ -94,7 +94,18 @@ public final class PendingIndexUpdateScanner implements Runnable, LifecycleListe
                   try (DirectoryStream<Path> pidDirs = Files.newDirectoryStream(intentDir)) {
                     for (Path pidDir : pidDirs) {
                       if (pendingIndexUpdate.runningDir.equals(pidDir)
-                          || pendingIndexUpdate.buildingDir.equals(pidDir)) {
+                          || pendingIndexUpdate.buildingDir.equals(pidDir)
+                          || pendingIndexUpdate.isOwnLogFile(pidDir)) {
+                        continue;
+                      }
+
+                      if (pendingIndexUpdate.isLogFile(pidDir)) {
+                        try {
+                          pendingIndexUpdate.recoverLog(pidDir);
+                        } catch (IOException e) {
+                          logger.atWarning().withCause(e).log(
+                              "Failed to recover pending index log %s", pidDir.getFileName());
+                        }
                         continue;
                       }
 
@@ -120,6 +131,8 @@ public final class PendingIndexUpdateScanner implements Runnable, LifecycleListe
   @Override
   public void run() {
     try {
+      pendingIndexUpdate.recoverDeadThreadIntents(PendingIndexUpdateScanner::isThreadDead);
+
       Path runningDir = pendingIndexUpdate.runningDir;
       if (!Files.isDirectory(runningDir)) {
         // no intents written yet.
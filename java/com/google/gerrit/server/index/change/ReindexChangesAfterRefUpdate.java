@@ -58,6 +58,7 @@ public class ReindexChangesAfterRefUpdate implements GitBatchRefUpdateListener {
   private final ChangeIndexCollection changeIndexes;
   private final AllUsersName allUsersName;
   private final ListeningExecutorService executor;
+  private final MergeabilityPrecomputer mergeabilityPrecomputer;
   private final boolean enabled;
 
   @Inject
@@ -68,13 +69,15 @@ public class ReindexChangesAfterRefUpdate implements GitBatchRefUpdateListener {
       ChangeIndexer.Factory changeIndexerFactory,
       ChangeIndexCollection changeIndexes,
       AllUsersName allUsersName,
-      @IndexExecutor(QueueType.BATCH) ListeningExecutorService executor) {
+      @IndexExecutor(QueueType.BATCH) ListeningExecutorService executor,
+      MergeabilityPrecomputer mergeabilityPrecomputer) {
     this.requestContext = requestContext;
     this.queryProvider = queryProvider;
     this.changeIndexerFactory = changeIndexerFactory;
     this.changeIndexes = changeIndexes;
     this.allUsersName = allUsersName;
     this.executor = executor;
+    this.mergeabilityPrecomputer = mergeabilityPrecomputer;
     this.enabled = MergeabilityComputationBehavior.fromConfig(cfg).includeInIndex();
   }
 
@@ -101,12 +104,15 @@ public class ReindexChangesAfterRefUpdate implements GitBatchRefUpdateListener {
           new FutureCallback<>() {
             @Override
             public void onSuccess(List<Change> changes) {
+              if (mergeabilityPrecomputer.isEnabled()) {
+                // Reindex each change once its mergeability was computed, so that indexing finds
+                // it in the cache.
+                mergeabilityPrecomputer.precompute(
+                    changes, ReindexChangesAfterRefUpdate.this::reindex);
+                return;
+              }
               for (Change c : changes) {
-                @SuppressWarnings("unused")
-                Future<?> possiblyIgnoredError =
-                    changeIndexerFactory
-                        .create(executor, changeIndexes)
-                        .indexAsync(c.getProject(), c.getId());
+                reindex(c);
               }
             }
 
@@ -119,6 +125,12 @@ public class ReindexChangesAfterRefUpdate implements GitBatchRefUpdateListener {
     }
   }
 
+  private void reindex(Change c) {
+    @SuppressWarnings("unused")
+    Future<?> possiblyIgnoredError =
+        changeIndexerFactory.create(executor, changeIndexes).indexAsync(c.getProject(), c.getId());
+  }
+
   private abstract class Task<V> implements Callable<V> {
     protected UpdatedRef updatedRef;
 
@@ -31,22 +31,26 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.util.concurrent.Runnables;
+import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.RefNames;
 import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.config.FactoryModule;
 import com.google.gerrit.git.LockFailureException;
 import com.google.gerrit.git.RefUpdateUtil;
+import com.google.gerrit.metrics.Timer1;
 import com.google.gerrit.server.Sequence;
 import com.google.gerrit.server.config.AllProjectsName;
 import com.google.gerrit.server.config.AllUsersName;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
 import com.google.gerrit.server.git.GitRepositoryManager;
+import com.google.gerrit.server.git.WorkQueue;
 import com.google.gerrit.server.update.context.RefUpdateContext;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import java.io.IOException;
 import java.io.Serial;
@@ -54,7 +58,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.eclipse.jgit.lib.Config;
@@ -73,6 +81,11 @@ import org.eclipse.jgit.revwalk.RevWalk;
  * processes can increment the counter by a larger number and hand out numbers from that range in
  * memory until they run out. This means concurrent processes will hand out somewhat non-monotonic
  * numbers.
+ *
+ * <p>If a prefetch threshold is configured, the next range is reserved by a background thread as
+ * soon as the number of IDs left in the current range drops to the threshold. IDs are then handed
+ * out from the current range without taking a lock, and callers only need to wait for a ref update
+ * if the IDs are consumed faster than the next range can be reserved.
  */
 public class RepoSequence implements Sequence {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
@@ -88,56 +101,111 @@ public class RepoSequence implements Sequence {
   public static class RepoSequenceModule extends FactoryModule {
     public static final String SECTION_NOTE_DB = "noteDb";
     public static final String KEY_SEQUENCE_BATCH_SIZE = "sequenceBatchSize";
+    public static final String KEY_SEQUENCE_PREFETCH_THRESHOLD = "sequencePrefetchThreshold";
     public static final int DEFAULT_ACCOUNTS_SEQUENCE_BATCH_SIZE = 1;
     public static final int DEFAULT_GROUPS_SEQUENCE_BATCH_SIZE = 1;
     public static final int DEFAULT_CHANGES_SEQUENCE_BATCH_SIZE = 20;
 
     @Provides
+    @Singleton
     @Named(NAME_ACCOUNTS)
     Sequence getAccountSequence(
         @GerritServerConfig Config cfg,
         GitRepositoryManager repoManager,
         AllUsersName allUsers,
-        GitReferenceUpdated gitReferenceUpdated) {
+        GitReferenceUpdated gitReferenceUpdated,
+        RepoSequenceMetrics metrics,
+        WorkQueue workQueue) {
       int accountBatchSize =
           cfg.getInt(
               SECTION_NOTE_DB,
               NAME_ACCOUNTS,
               KEY_SEQUENCE_BATCH_SIZE,
               DEFAULT_ACCOUNTS_SEQUENCE_BATCH_SIZE);
+      int prefetchThreshold = prefetchThreshold(cfg, NAME_ACCOUNTS, accountBatchSize);
       return new RepoSequence(
-          repoManager, gitReferenceUpdated, allUsers, NAME_ACCOUNTS, accountBatchSize);
+          repoManager,
+          gitReferenceUpdated,
+          allUsers,
+          NAME_ACCOUNTS,
+          accountBatchSize,
+          prefetchThreshold,
+          prefetchExecutor(workQueue, NAME_ACCOUNTS, prefetchThreshold),
+          metrics);
     }
 
     @Provides
+    @Singleton
     @Named(NAME_GROUPS)
     Sequence getGroupSequence(
         GitRepositoryManager repoManager,
         AllUsersName allUsers,
-        GitReferenceUpdated gitReferenceUpdated) {
+        GitReferenceUpdated gitReferenceUpdated,
+        RepoSequenceMetrics metrics) {
       return new RepoSequence(
           repoManager,
           gitReferenceUpdated,
           allUsers,
           NAME_GROUPS,
-          DEFAULT_GROUPS_SEQUENCE_BATCH_SIZE);
+          DEFAULT_GROUPS_SEQUENCE_BATCH_SIZE,
+          0,
+          null,
+          metrics);
     }
 
     @Provides
+    @Singleton
     @Named(NAME_CHANGES)
     Sequence getChangesSequence(
         @GerritServerConfig Config cfg,
         GitRepositoryManager repoManager,
         AllProjectsName allProjects,
-        GitReferenceUpdated gitReferenceUpdated) {
+        GitReferenceUpdated gitReferenceUpdated,
+        RepoSequenceMetrics metrics,
+        WorkQueue workQueue) {
       int changeBatchSize =
           cfg.getInt(
               SECTION_NOTE_DB,
               NAME_CHANGES,
               KEY_SEQUENCE_BATCH_SIZE,
               DEFAULT_CHANGES_SEQUENCE_BATCH_SIZE);
+      int prefetchThreshold = prefetchThreshold(cfg, NAME_CHANGES, changeBatchSize);
       return new RepoSequence(
-          repoManager, gitReferenceUpdated, allProjects, NAME_CHANGES, changeBatchSize);
+          repoManager,
+          gitReferenceUpdated,
+          allProjects,
+          NAME_CHANGES,
+          changeBatchSize,
+          prefetchThreshold,
+          prefetchExecutor(workQueue, NAME_CHANGES, prefetchThreshold),
+          metrics);
+    }
+
+    @Nullable
+    private static ExecutorService prefetchExecutor(
+        WorkQueue workQueue, String name, int prefetchThreshold) {
+      if (prefetchThreshold <= 0) {
+        return null;
+      }
+      return workQueue.createQueue(1, "SequencePrefetch-" + name, true);
+    }
+
+    private static int prefetchThreshold(Config cfg, String name, int batchSize) {
+      int threshold = cfg.getInt(SECTION_NOTE_DB, name, KEY_SEQUENCE_PREFETCH_THRESHOLD, 0);
+      if (threshold < 0 || threshold >= batchSize) {
+        logger.atWarning().log(
+            "Ignoring %s.%s.%s = %d, it must be less than %s.%s.%s = %d",
+            SECTION_NOTE_DB,
+            name,
+            KEY_SEQUENCE_PREFETCH_THRESHOLD,
+            threshold,
+            SECTION_NOTE_DB,
+            name,
+            KEY_SEQUENCE_BATCH_SIZE,
+            batchSize);
+        return 0;
+      }
+      return threshold;
     }
   }
 
@@ -186,11 +254,15 @@ public class RepoSequence implements Sequence {
   private final GitRepositoryManager repoManager;
   private final GitReferenceUpdated gitRefUpdated;
   private final Project.NameKey projectName;
+  private final String name;
   private final String refName;
   private final int floor;
   private final int batchSize;
   private final Runnable afterReadRef;
   private final Retryer<ImmutableList<Integer>> retryer;
+  private final int prefetchThreshold;
+  private final RepoSequenceMetrics metrics;
+  @Nullable private final ExecutorService prefetchExecutor;
 
   // Protects all non-final fields.
   private final Lock counterLock;
@@ -199,7 +271,13 @@ public class RepoSequence implements Sequence {
   private int counter;
   private volatile Integer lastStoredSequence;
 
-  @VisibleForTesting int acquireCount;
+  // Only used if prefetching is enabled. IDs are handed out from currentBlock without holding the
+  // counterLock, replacing currentBlock and pendingBlock requires the counterLock.
+  private final AtomicReference<Block> currentBlock = new AtomicReference<>(Block.EMPTY);
+  private final AtomicInteger lastHandedOut = new AtomicInteger();
+  @Nullable private Future<Block> pendingBlock;
+
+  @VisibleForTesting final AtomicInteger acquireCount = new AtomicInteger();
 
   public RepoSequence(
       GitRepositoryManager repoManager,
@@ -207,6 +285,35 @@ public class RepoSequence implements Sequence {
       Project.NameKey projectName,
       String name,
       int batchSize) {
+    this(
+        repoManager,
+        gitRefUpdated,
+        projectName,
+        name,
+        batchSize,
+        0,
+        null,
+        RepoSequenceMetrics.DISABLED);
+  }
+
+  /**
+   * Creates a sequence that reserves the next range of IDs in the background.
+   *
+   * @param prefetchThreshold number of IDs left in the current range at which the next range is
+   *     reserved in the background, {@code 0} to only reserve a new range when the current one is
+   *     exhausted.
+   * @param prefetchExecutor executor on which the next range is reserved, required if {@code
+   *     prefetchThreshold} is positive. The caller owns the executor and must shut it down.
+   */
+  public RepoSequence(
+      GitRepositoryManager repoManager,
+      GitReferenceUpdated gitRefUpdated,
+      Project.NameKey projectName,
+      String name,
+      int batchSize,
+      int prefetchThreshold,
+      @Nullable ExecutorService prefetchExecutor,
+      RepoSequenceMetrics metrics) {
     this(
         repoManager,
         gitRefUpdated,
@@ -215,7 +322,10 @@ public class RepoSequence implements Sequence {
         batchSize,
         Runnables.doNothing(),
         RETRYER,
-        0);
+        0,
+        prefetchThreshold,
+        prefetchExecutor,
+        metrics);
   }
 
   @VisibleForTesting
@@ -227,7 +337,43 @@ public class RepoSequence implements Sequence {
       int batchSize,
       Runnable afterReadRef,
       Retryer<ImmutableList<Integer>> retryer) {
-    this(repoManager, gitRefUpdated, projectName, name, batchSize, afterReadRef, retryer, 0);
+    this(
+        repoManager,
+        gitRefUpdated,
+        projectName,
+        name,
+        batchSize,
+        afterReadRef,
+        retryer,
+        0,
+        0,
+        null,
+        RepoSequenceMetrics.DISABLED);
+  }
+
+  @VisibleForTesting
+  RepoSequence(
+      GitRepositoryManager repoManager,
+      GitReferenceUpdated gitRefUpdated,
+      Project.NameKey projectName,
+      String name,
+      int batchSize,
+      Runnable afterReadRef,
+      Retryer<ImmutableList<Integer>> retryer,
+      int prefetchThreshold,
+      ExecutorService prefetchExecutor) {
+    this(
+        repoManager,
+        gitRefUpdated,
+        projectName,
+        name,
+        batchSize,
+        afterReadRef,
+        retryer,
+        0,
+        prefetchThreshold,
+        prefetchExecutor,
+        RepoSequenceMetrics.DISABLED);
   }
 
   private RepoSequence(
@@ -238,7 +384,10 @@ public class RepoSequence implements Sequence {
       int batchSize,
       Runnable afterReadRef,
       Retryer<ImmutableList<Integer>> retryer,
-      int floor) {
+      int floor,
+      int prefetchThreshold,
+      @Nullable ExecutorService prefetchExecutor,
+      RepoSequenceMetrics metrics) {
     this.repoManager = requireNonNull(repoManager, "repoManager");
     this.gitRefUpdated = requireNonNull(gitRefUpdated, "gitRefUpdated");
     this.projectName = requireNonNull(projectName, "projectName");
@@ -249,6 +398,7 @@ public class RepoSequence implements Sequence {
             && !name.startsWith(REFS_SEQUENCES.substring(REFS.length())),
         "name should be a suffix to follow \"refs/sequences/\", got: %s",
         name);
+    this.name = name;
     this.refName = RefNames.REFS_SEQUENCES + name;
 
     this.floor = floor;
@@ -258,7 +408,20 @@ public class RepoSequence implements Sequence {
     this.afterReadRef = requireNonNull(afterReadRef, "afterReadRef");
     this.retryer = requireNonNull(retryer, "retryer");
 
-    logger.atFine().log("sequence batch size for %s is %s", name, batchSize);
+    checkArgument(
+        prefetchThreshold >= 0 && prefetchThreshold < batchSize,
+        "expected 0 <= prefetchThreshold < batchSize, got: %s",
+        prefetchThreshold);
+    this.prefetchThreshold = prefetchThreshold;
+    this.metrics = requireNonNull(metrics, "metrics");
+    checkArgument(
+        prefetchThreshold == 0 || prefetchExecutor != null,
+        "prefetchExecutor is required if prefetchThreshold is set");
+    this.prefetchExecutor = prefetchThreshold > 0 ? prefetchExecutor : null;
+
+    logger.atFine().log(
+        "sequence batch size for %s is %s, prefetch threshold is %s",
+        name, batchSize, prefetchThreshold);
     counterLock = new ReentrantLock(true);
   }
 
@@ -288,6 +451,9 @@ public class RepoSequence implements Sequence {
       return ImmutableList.of();
     }
     checkArgument(count > 0, "count is negative: %s", count);
+    if (prefetchExecutor != null) {
+      return nextFromBlocks(count);
+    }
 
     try {
       return retryer.call(
@@ -296,6 +462,7 @@ public class RepoSequence implements Sequence {
             try {
               if (count == 1) {
                 if (counter >= limit) {
+                  metrics.refillStalls.increment(name);
                   acquire(batchSize);
                 }
                 return ImmutableList.of(counter++);
@@ -308,6 +475,7 @@ public class RepoSequence implements Sequence {
                   return ImmutableList.copyOf(ids);
                 }
               }
+              metrics.refillStalls.increment(name);
               acquire(Math.max(count - ids.size(), batchSize));
               while (ids.size() < count) {
                 ids.add(counter++);
@@ -318,16 +486,106 @@ public class RepoSequence implements Sequence {
             }
           });
     } catch (ExecutionException | RetryException e) {
-      if (e.getCause() != null) {
-        if (Throwables.getRootCause(e) instanceof NonIncrementingSequenceException) {
-          logger.atWarning().log(
-              "Sequence %s will be deleted as it contains a non-incrementing value", refName);
-          deleteSequenceRef();
+      throw handleAcquireFailure(e);
+    }
+  }
+
+  private ImmutableList<Integer> nextFromBlocks(int count) {
+    Block block = currentBlock.get();
+    int first = block.take(count);
+    if (first < 0) {
+      counterLock.lock();
+      try {
+        block = currentBlock.get();
+        first = block.take(count);
+        while (first < 0) {
+          // IDs that are left in the exhausted block are skipped.
+          block = nextBlock(count);
+          currentBlock.set(block);
+          first = block.take(count);
         }
-        Throwables.throwIfInstanceOf(e.getCause(), StorageException.class);
+      } finally {
+        counterLock.unlock();
+      }
+    }
+    lastHandedOut.accumulateAndGet(first + count - 1, Math::max);
+    if (block.remaining() <= prefetchThreshold) {
+      prefetch(block);
+    }
+
+    ImmutableList.Builder<Integer> ids = ImmutableList.builderWithExpectedSize(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(first + i);
+    }
+    return ids.build();
+  }
+
+  /**
+   * Returns the block that should replace the exhausted current block. Uses the prefetched block if
+   * there is one that is large enough, otherwise reserves a new block synchronously.
+   *
+   * <p><strong>Note:</strong> Callers are required to acquire the {@link #counterLock} before
+   * calling this method.
+   */
+  private Block nextBlock(int count) {
+    Future<Block> pending = pendingBlock;
+    pendingBlock = null;
+    if (pending == null || !pending.isDone()) {
+      metrics.refillStalls.increment(name);
+    }
+    if (pending != null) {
+      try {
+        Block prefetched = pending.get();
+        if (prefetched.remaining() >= count) {
+          return prefetched;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new StorageException("Interrupted while waiting for prefetched IDs", e);
+      } catch (ExecutionException e) {
+        logger.atWarning().withCause(e.getCause()).log(
+            "Prefetching IDs for %s failed, reserving IDs synchronously", refName);
+      }
+    }
+    return reserveBlock(Math.max(count, batchSize));
+  }
+
+  private void prefetch(Block block) {
+    if (!counterLock.tryLock()) {
+      // Another thread is replacing the current block or scheduling the prefetch.
+      return;
+    }
+    try {
+      if (pendingBlock == null && currentBlock.get() == block) {
+        pendingBlock = prefetchExecutor.submit(() -> reserveBlock(batchSize));
+      }
+    } finally {
+      counterLock.unlock();
+    }
+  }
+
+  private Block reserveBlock(int count) {
+    try {
+      int first =
+          Iterables.getOnlyElement(retryer.call(() -> ImmutableList.of(acquireRange(count))));
+      return new Block(first, first + count);
+    } catch (ExecutionException | RetryException e) {
+      throw handleAcquireFailure(e);
+    }
+  }
+
+  private StorageException handleAcquireFailure(Exception e) {
+    if (e.getCause() != null) {
+      if (Throwables.getRootCause(e) instanceof NonIncrementingSequenceException) {
+        logger.atWarning().log(
+            "Sequence %s will be deleted as it contains a non-incrementing value", refName);
+        deleteSequenceRef();
+      }
+      if (e.getCause() instanceof StorageException) {
+        return (StorageException) e.getCause();
       }
-      throw new StorageException(e);
     }
+    return new StorageException(e);
   }
 
   /**
@@ -342,7 +600,19 @@ public class RepoSequence implements Sequence {
    * @param count the number of sequence numbers which should be retrieved
    */
   private void acquire(int count) {
-    try (RefUpdateContext ctx = RefUpdateContext.open(REPO_SEQ)) {
+    counter = acquireRange(count);
+    limit = counter + count;
+  }
+
+  /**
+   * Reserves the next {@code count} sequence numbers by updating the sequence ref.
+   *
+   * @param count the number of sequence numbers which should be reserved
+   * @return the first reserved sequence number
+   */
+  private int acquireRange(int count) {
+    try (RefUpdateContext ctx = RefUpdateContext.open(REPO_SEQ);
+        Timer1.Context<String> timer = metrics.refillLatency.start(name)) {
       try (Repository repo = repoManager.openRepository(projectName);
           RevWalk rw = new RevWalk(repo)) {
         logger.atFine().log("acquire %d ids on %s in %s", count, refName, projectName);
@@ -362,9 +632,8 @@ public class RepoSequence implements Sequence {
         checkIsIncremental(next + count);
         store(repo, rw, oldId, next + count);
 
-        counter = next;
-        limit = counter + count;
-        acquireCount++;
+        acquireCount.incrementAndGet();
+        return next;
       } catch (IOException | NonIncrementingSequenceException e) {
         throw new StorageException(e);
       }
@@ -391,7 +660,14 @@ public class RepoSequence implements Sequence {
 
         counter = value;
         limit = counter + batchSize;
-        acquireCount++;
+        if (prefetchExecutor != null) {
+          currentBlock.set(new Block(value, value + batchSize));
+          if (pendingBlock != null) {
+            pendingBlock.cancel(false);
+            pendingBlock = null;
+          }
+        }
+        acquireCount.incrementAndGet();
       } catch (IOException e) {
         throw new StorageException(e);
       } finally {
@@ -426,6 +702,13 @@ public class RepoSequence implements Sequence {
    */
   @Override
   public int last() {
+    if (prefetchExecutor != null) {
+      if (lastHandedOut.get() == 0) {
+        @SuppressWarnings("unused")
+        var unused = next();
+      }
+      return lastHandedOut.get();
+    }
     if (counter == 0) {
       @SuppressWarnings("unused")
       var unused = next();
@@ -480,4 +763,34 @@ public class RepoSequence implements Sequence {
             + " by setting the sequence to an appropriate value using the sequence set command",
         refName);
   }
+
+  /** Range of reserved IDs that are handed out without locking. */
+  private static class Block {
+    static final Block EMPTY = new Block(0, 0);
+
+    private final AtomicInteger next;
+    private final int limit;
+
+    Block(int first, int limit) {
+      this.next = new AtomicInteger(first);
+      this.limit = limit;
+    }
+
+    /** Returns the first of {@code count} consecutive IDs, or -1 if the block has too few left. */
+    int take(int count) {
+      while (true) {
+        int first = next.get();
+        if (limit - first < count) {
+          return -1;
+        }
+        if (next.compareAndSet(first, first + count)) {
+          return first;
+        }
+      }
+    }
+
+    int remaining() {
+      return Math.max(0, limit - next.get());
+    }
+  }
 }
@@ -0,0 +1,64 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.notedb;
+
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
+import com.google.gerrit.server.logging.Metadata;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/** Metrics for refilling the in-memory ID ranges of {@link RepoSequence}s. */
+@Singleton
+public class RepoSequenceMetrics {
+  public static final RepoSequenceMetrics DISABLED =
+      new RepoSequenceMetrics(new DisabledMetricMaker());
+
+  /** Latency of reserving a new range of IDs by updating the sequence ref. */
+  final Timer1<String> refillLatency;
+
+  /** Number of times a caller had to wait for a refill before it could be handed out an ID. */
+  final Counter1<String> refillStalls;
+
+  @Inject
+  RepoSequenceMetrics(MetricMaker metrics) {
+    Field<String> sequenceField =
+        Field.ofString("sequence", Metadata.Builder::noteDbSequenceType)
+            .description("The name of the sequence.")
+            .build();
+
+    refillLatency =
+        metrics.newTimer(
+            "sequence/refill_latency",
+            new Description("Latency of reserving a range of IDs in a repo sequence")
+                .setCumulative()
+                .setUnit(Units.MILLISECONDS),
+            sequenceField);
+
+    refillStalls =
+        metrics.newCounter(
+            "sequence/refill_stalls",
+            new Description(
+                    "Number of requests for IDs that had to wait until a range of IDs was reserved")
+                .setRate()
+                .setUnit("stalls"),
+            sequenceField);
+  }
+}
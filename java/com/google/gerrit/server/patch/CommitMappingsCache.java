@@ -0,0 +1,309 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.gerrit.server.patch.DiffUtil.stringSize;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.proto.Protos;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.cache.proto.Cache.CommitMappingsKeyProto;
+import com.google.gerrit.server.cache.proto.Cache.CommitMappingsProto;
+import com.google.gerrit.server.cache.proto.Cache.CommitMappingsProto.MappingProto;
+import com.google.gerrit.server.cache.proto.Cache.CommitMappingsProto.RangeMappingProto;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.cache.serialize.ObjectIdConverter;
+import com.google.gerrit.server.logging.Metadata;
+import com.google.gerrit.server.logging.TraceContext;
+import com.google.gerrit.server.logging.TraceContext.TraceTimer;
+import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Range;
+import com.google.gerrit.server.patch.GitPositionTransformer.RangeMapping;
+import com.google.gerrit.server.patch.filediff.FileDiffOutput;
+import com.google.gerrit.server.patch.filediff.FileEdits;
+import com.google.gerrit.server.patch.filediff.TaggedEdit;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Cache for the {@link Mapping}s between two commits, i.e. how the files and lines of one commit
+ * map to the files and lines of another commit.
+ *
+ * <p>The mappings are used by {@link GitPositionTransformer} to port comments from the patch set
+ * on which they were left to later patch sets. Computing them requires the diffs of all modified
+ * files between the two commits. Since commits are immutable, the mappings never change and the
+ * cache is persisted, so that the diffs don't have to be looked up again each time the ported
+ * comments of a patch set are requested.
+ */
+@Singleton
+public class CommitMappingsCache {
+  private static final String CACHE_NAME = "commit_mappings";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        persist(CACHE_NAME, Key.class, new TypeLiteral<ImmutableSet<Mapping>>() {})
+            .keySerializer(Key.Serializer.INSTANCE)
+            .valueSerializer(ValueSerializer.INSTANCE)
+            .maximumWeight(10 << 20)
+            .weigher(MappingsWeigher.class)
+            .version(2)
+            .loader(Loader.class);
+      }
+    };
+  }
+
+  private final LoadingCache<Key, ImmutableSet<Mapping>> cache;
+
+  @Inject
+  public CommitMappingsCache(@Named(CACHE_NAME) LoadingCache<Key, ImmutableSet<Mapping>> cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the mappings from {@code originalCommit} to {@code targetCommit}, computed with the
+   * default diff algorithm and whitespace setting.
+   *
+   * @param project the project that contains both commits
+   * @param originalCommit the commit from which positions should be mapped
+   * @param targetCommit the commit to which positions should be mapped
+   */
+  public ImmutableSet<Mapping> get(
+      Project.NameKey project, ObjectId originalCommit, ObjectId targetCommit)
+      throws DiffNotAvailableException {
+    return get(Key.create(project, originalCommit, targetCommit));
+  }
+
+  /** Returns the mappings for the commits and diff settings of the given key. */
+  public ImmutableSet<Mapping> get(Key key) throws DiffNotAvailableException {
+    try {
+      return cache.get(key);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof DiffNotAvailableException) {
+        throw (DiffNotAvailableException) e.getCause();
+      }
+      throw new DiffNotAvailableException(e);
+    }
+  }
+
+  /**
+   * Key of the cache. Besides the commits, it contains all settings that the computed diffs
+   * depend on, so that mappings computed with one setting are never returned for another one.
+   */
+  @AutoValue
+  public abstract static class Key {
+    private static final DiffOptions DEFAULT_DIFF_OPTIONS =
+        DiffOptions.builder().skipFilesWithAllEditsDueToRebase(false).build();
+
+    public abstract Project.NameKey project();
+
+    public abstract ObjectId originalCommit();
+
+    public abstract ObjectId targetCommit();
+
+    public abstract DiffOptions diffOptions();
+
+    public abstract DiffAlgorithm diffAlgorithm();
+
+    public abstract Whitespace whitespace();
+
+    public static Key create(
+        Project.NameKey project, ObjectId originalCommit, ObjectId targetCommit) {
+      return create(
+          project,
+          originalCommit,
+          targetCommit,
+          DEFAULT_DIFF_OPTIONS,
+          DiffOperationsImpl.DEFAULT_DIFF_ALGORITHM,
+          DiffOperationsImpl.DEFAULT_WHITESPACE);
+    }
+
+    public static Key create(
+        Project.NameKey project,
+        ObjectId originalCommit,
+        ObjectId targetCommit,
+        DiffOptions diffOptions,
+        DiffAlgorithm diffAlgorithm,
+        Whitespace whitespace) {
+      return new AutoValue_CommitMappingsCache_Key(
+          project,
+          originalCommit.copy(),
+          targetCommit.copy(),
+          diffOptions,
+          diffAlgorithm,
+          whitespace);
+    }
+
+    /** Returns the size of the object in bytes */
+    int weight() {
+      return stringSize(project().get()) // project
+          + 20 * 2 // originalCommit and targetCommit
+          + 2 // diffOptions
+          + 4 // diffAlgorithm
+          + 4; // whitespace
+    }
+
+    enum Serializer implements CacheSerializer<Key> {
+      INSTANCE;
+
+      @Override
+      public byte[] serialize(Key key) {
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        return Protos.toByteArray(
+            CommitMappingsKeyProto.newBuilder()
+                .setProject(key.project().get())
+                .setOriginalCommit(idConverter.toByteString(key.originalCommit()))
+                .setTargetCommit(idConverter.toByteString(key.targetCommit()))
+                .setDiffAlgorithm(key.diffAlgorithm().name())
+                .setWhitespace(key.whitespace().name())
+                .setSkipFilesWithAllEditsDueToRebase(
+                    key.diffOptions().skipFilesWithAllEditsDueToRebase())
+                .setSkipRebaseFiltering(key.diffOptions().skipRebaseFiltering())
+                .build());
+      }
+
+      @Override
+      public Key deserialize(byte[] in) {
+        CommitMappingsKeyProto proto = Protos.parseUnchecked(CommitMappingsKeyProto.parser(), in);
+        ObjectIdConverter idConverter = ObjectIdConverter.create();
+        return create(
+            Project.nameKey(proto.getProject()),
+            idConverter.fromByteString(proto.getOriginalCommit()),
+            idConverter.fromByteString(proto.getTargetCommit()),
+            DiffOptions.builder()
+                .skipFilesWithAllEditsDueToRebase(proto.getSkipFilesWithAllEditsDueToRebase())
+                .skipRebaseFiltering(proto.getSkipRebaseFiltering())
+                .build(),
+            DiffAlgorithm.valueOf(proto.getDiffAlgorithm()),
+            Whitespace.valueOf(proto.getWhitespace()));
+      }
+    }
+  }
+
+  public static class Loader extends CacheLoader<Key, ImmutableSet<Mapping>> {
+    private final DiffOperations diffOperations;
+
+    @Inject
+    public Loader(DiffOperations diffOperations) {
+      this.diffOperations = diffOperations;
+    }
+
+    @Override
+    public ImmutableSet<Mapping> load(Key key) throws DiffNotAvailableException {
+      try (TraceTimer ignored =
+          TraceContext.newTimer(
+              "Computing diffs", Metadata.builder().commit(key.originalCommit().name()).build())) {
+        Map<String, FileDiffOutput> modifiedFiles =
+            diffOperations.listModifiedFiles(
+                key.project(),
+                key.originalCommit(),
+                key.targetCommit(),
+                key.diffOptions(),
+                key.diffAlgorithm(),
+                key.whitespace());
+        return modifiedFiles.values().stream()
+            .map(Loader::getFileEdits)
+            .map(DiffMappings::toMapping)
+            .collect(toImmutableSet());
+      }
+    }
+
+    private static FileEdits getFileEdits(FileDiffOutput fileDiffOutput) {
+      return FileEdits.create(
+          fileDiffOutput.edits().stream().map(TaggedEdit::edit).collect(toImmutableList()),
+          fileDiffOutput.oldPath(),
+          fileDiffOutput.newPath());
+    }
+  }
+
+  static class MappingsWeigher implements Weigher<Key, ImmutableSet<Mapping>> {
+    @Override
+    public int weigh(Key key, ImmutableSet<Mapping> mappings) {
+      int weight = key.weight();
+      for (Mapping mapping : mappings) {
+        weight += stringSize(mapping.file().oldPath().orElse(null));
+        weight += stringSize(mapping.file().newPath().orElse(null));
+        weight += mapping.ranges().size() * 16; // four ints per range mapping
+      }
+      return weight;
+    }
+  }
+
+  enum ValueSerializer implements CacheSerializer<ImmutableSet<Mapping>> {
+    INSTANCE;
+
+    @Override
+    public byte[] serialize(ImmutableSet<Mapping> mappings) {
+      CommitMappingsProto.Builder builder = CommitMappingsProto.newBuilder();
+      for (Mapping mapping : mappings) {
+        MappingProto.Builder mappingProto =
+            MappingProto.newBuilder()
+                .setOldPath(mapping.file().oldPath().orElse(""))
+                .setNewPath(mapping.file().newPath().orElse(""));
+        for (RangeMapping range : mapping.ranges()) {
+          mappingProto.addRanges(
+              RangeMappingProto.newBuilder()
+                  .setOldStart(range.oldLineRange().start())
+                  .setOldEnd(range.oldLineRange().end())
+                  .setNewStart(range.newLineRange().start())
+                  .setNewEnd(range.newLineRange().end()));
+        }
+        builder.addMappings(mappingProto);
+      }
+      return Protos.toByteArray(builder.build());
+    }
+
+    @Override
+    public ImmutableSet<Mapping> deserialize(byte[] in) {
+      CommitMappingsProto proto = Protos.parseUnchecked(CommitMappingsProto.parser(), in);
+      return proto.getMappingsList().stream()
+          .map(
+              m ->
+                  Mapping.create(
+                      FileMapping.forFile(toPath(m.getOldPath()), toPath(m.getNewPath())),
+                      m.getRangesList().stream()
+                          .map(
+                              r ->
+                                  RangeMapping.create(
+                                      Range.create(r.getOldStart(), r.getOldEnd()),
+                                      Range.create(r.getNewStart(), r.getNewEnd())))
+                          .collect(toImmutableSet())))
+          .collect(toImmutableSet());
+    }
+
+    private static Optional<String> toPath(String path) {
+      return path.isEmpty() ? Optional.empty() : Optional.of(path);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.google.gerrit.extensions.client.DiffPreferencesInfo;
 import com.google.gerrit.server.git.InMemoryInserter;
 import com.google.gerrit.server.patch.filediff.FileDiffOutput;
 import com.google.gerrit.server.patch.gitdiff.ModifiedFile;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
 import com.google.gerrit.server.update.RepoView;
 import java.util.Map;
 import org.eclipse.jgit.lib.Config;
@@ -133,6 +134,19 @@ public interface DiffOperations {
       Project.NameKey project, ObjectId oldCommit, ObjectId newCommit, DiffOptions diffOptions)
       throws DiffNotAvailableException;
 
+  /**
+   * Same as {@link #listModifiedFiles(NameKey, ObjectId, ObjectId, DiffOptions)}, but computes the
+   * file diffs with the given diff algorithm and whitespace setting instead of the defaults.
+   */
+  Map<String, FileDiffOutput> listModifiedFiles(
+      Project.NameKey project,
+      ObjectId oldCommit,
+      ObjectId newCommit,
+      DiffOptions diffOptions,
+      DiffAlgorithm diffAlgorithm,
+      DiffPreferencesInfo.Whitespace whitespace)
+      throws DiffNotAvailableException;
+
   /**
    * This method is similar to {@link #listModifiedFilesAgainstParent(NameKey, ObjectId, int,
    * DiffOptions)} but it loads the modified files directly if the modified files are not cached yet
@@ -76,9 +76,8 @@ public class DiffOperationsImpl implements DiffOperations {
 
   @VisibleForTesting static final int RENAME_SCORE = 60;
 
-  private static final DiffAlgorithm DEFAULT_DIFF_ALGORITHM =
-      DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS;
-  private static final Whitespace DEFAULT_WHITESPACE = Whitespace.IGNORE_NONE;
+  static final DiffAlgorithm DEFAULT_DIFF_ALGORITHM = DiffAlgorithm.HISTOGRAM_WITH_FALLBACK_MYERS;
+  static final Whitespace DEFAULT_WHITESPACE = Whitespace.IGNORE_NONE;
 
   private final GitRepositoryManager repoManager;
   private final ModifiedFilesCache modifiedFilesCache;
@@ -97,6 +96,7 @@ public class DiffOperationsImpl implements DiffOperations {
         install(ModifiedFilesCacheImpl.module());
         install(GitFileDiffCacheImpl.module());
         install(FileDiffCacheImpl.module());
+        install(CommitMappingsCache.module());
       }
     };
   }
@@ -152,8 +152,18 @@ public class DiffOperationsImpl implements DiffOperations {
 
   private ImmutableMap<String, FileDiffOutput> getModifiedFiles(
       DiffParameters diffParams, DiffOptions diffOptions) throws DiffNotAvailableException {
+    return getModifiedFiles(diffParams, diffOptions, DEFAULT_DIFF_ALGORITHM, null);
+  }
+
+  private ImmutableMap<String, FileDiffOutput> getModifiedFiles(
+      DiffParameters diffParams,
+      DiffOptions diffOptions,
+      DiffAlgorithm diffAlgorithm,
+      @Nullable Whitespace whitespace)
+      throws DiffNotAvailableException {
     logger.atFine().log(
-        "getModifiedFiles (diffParams: %s, diffOptions: %s)", diffParams, diffOptions);
+        "getModifiedFiles (diffParams: %s, diffOptions: %s, diffAlgorithm: %s, whitespace: %s)",
+        diffParams, diffOptions, diffAlgorithm, whitespace);
     try {
       Project.NameKey project = diffParams.project();
       ObjectId newCommit = diffParams.newCommit();
@@ -186,9 +196,9 @@ public class DiffOperationsImpl implements DiffOperations {
               oldCommit,
               newCommit,
               COMMIT_MSG,
-              DEFAULT_DIFF_ALGORITHM,
+              diffAlgorithm,
               useTimeout,
-              /* whitespace= */ null));
+              whitespace));
 
       if (cmp.isAgainstAutoMerge() || isMergeAgainstParent(cmp, project, newCommit)) {
         fileCacheKeys.add(
@@ -197,9 +207,9 @@ public class DiffOperationsImpl implements DiffOperations {
                 oldCommit,
                 newCommit,
                 MERGE_LIST,
-                DEFAULT_DIFF_ALGORITHM,
+                diffAlgorithm,
                 useTimeout,
-                /* whitespace= */ null));
+                whitespace));
       }
 
       if (diffParams.skipFiles() == null) {
@@ -213,9 +223,9 @@ public class DiffOperationsImpl implements DiffOperations {
                         entity.newPath().isPresent()
                             ? entity.newPath().get()
                             : entity.oldPath().get(),
-                        DEFAULT_DIFF_ALGORITHM,
+                        diffAlgorithm,
                         useTimeout,
-                        /* whitespace= */ null))
+                        whitespace))
             .forEach(fileCacheKeys::add);
       }
       return getModifiedFilesForKeys(fileCacheKeys, diffOptions);
@@ -282,6 +292,25 @@ public class DiffOperationsImpl implements DiffOperations {
     return getModifiedFiles(params, diffOptions);
   }
 
+  @Override
+  public Map<String, FileDiffOutput> listModifiedFiles(
+      Project.NameKey project,
+      ObjectId oldCommit,
+      ObjectId newCommit,
+      DiffOptions diffOptions,
+      DiffAlgorithm diffAlgorithm,
+      Whitespace whitespace)
+      throws DiffNotAvailableException {
+    DiffParameters params =
+        DiffParameters.builder()
+            .project(project)
+            .newCommit(newCommit)
+            .baseCommit(oldCommit)
+            .comparisonType(ComparisonType.againstOtherPatchSet())
+            .build();
+    return getModifiedFiles(params, diffOptions, diffAlgorithm, whitespace);
+  }
+
   @Override
   public Map<String, ModifiedFile> loadModifiedFilesIfNecessary(
       Project.NameKey project,
@@ -95,6 +95,7 @@ public class DefaultRefFilter {
   private final ChangesByProjectCache changesByProjectCache;
   private final ChangeData.Factory changeDataFactory;
   private final Metrics metrics;
+  private final VisibleRefsCache visibleRefsCache;
   private final boolean skipFullRefEvaluationIfAllRefsAreVisible;
 
   @Inject
@@ -106,12 +107,14 @@ public class DefaultRefFilter {
       Metrics metrics,
       ChangesByProjectCache changesByProjectCache,
       ChangeData.Factory changeDataFactory,
+      VisibleRefsCache visibleRefsCache,
       @Assisted ProjectControl projectControl) {
     this.tagCache = tagCache;
     this.permissionBackend = permissionBackend;
     this.refVisibilityControl = refVisibilityControl;
     this.changesByProjectCache = changesByProjectCache;
     this.changeDataFactory = changeDataFactory;
+    this.visibleRefsCache = visibleRefsCache;
     this.skipFullRefEvaluationIfAllRefsAreVisible =
         config.getBoolean("auth", "skipFullRefEvaluationIfAllRefsAreVisible", true);
     this.projectControl = projectControl;
@@ -123,9 +126,21 @@ public class DefaultRefFilter {
     this.metrics = metrics;
   }
 
-  /** Filters given refs and tags by visibility. */
+  /**
+   * Filters given refs and tags by visibility.
+   *
+   * <p>Results for many refs are shared for a short time between identical requests, see {@link
+   * VisibleRefsCache}.
+   */
   ImmutableList<Ref> filter(Collection<Ref> refs, Repository repo, RefFilterOptions opts)
       throws PermissionBackendException {
+    return visibleRefsCache.get(
+        projectState, user, refs, opts, () -> filterUncached(refs, repo, opts));
+  }
+
+  private ImmutableList<Ref> filterUncached(
+      Collection<Ref> refs, Repository repo, RefFilterOptions opts)
+      throws PermissionBackendException {
     logger.atFinest().log(
         "Filter refs for repository %s by visibility (options = %s, refs = %s)",
         projectState.getNameKey(), opts, refs);
@@ -21,6 +21,8 @@ import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.AccessSection;
@@ -29,24 +31,28 @@ import com.google.gerrit.entities.Permission;
 import com.google.gerrit.entities.PermissionRule;
 import com.google.gerrit.entities.PermissionRule.Action;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.metrics.Counter0;
 import com.google.gerrit.metrics.Description;
 import com.google.gerrit.metrics.Description.Units;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.metrics.Timer0;
 import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.project.CompiledSectionMatchers;
 import com.google.gerrit.server.project.RefPattern;
 import com.google.gerrit.server.project.RefPatternMatcher.ExpandParameters;
 import com.google.gerrit.server.project.SectionMatcher;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import org.eclipse.jgit.lib.Config;
 
 /**
  * Effective permissions applied to a reference in a project.
@@ -61,9 +67,23 @@ public class PermissionCollection {
     private final SectionSortCache sorter;
     // TODO(hiesel): Remove this once we got production data
     private final Timer0 filterLatency;
+    private final Counter0 sharedHits;
+    private final Counter0 sharedMisses;
+
+    /**
+     * Collections that are not user specific, shared across requests. The outer cache is keyed by
+     * the identity of the compiled sections of a project hierarchy, which are replaced whenever the
+     * configuration of the project or one of its parents changes, and holds them weakly so that
+     * the collections of outdated hierarchies are dropped together with them.
+     */
+    @Nullable
+    private final Cache<CompiledSectionMatchers, Cache<String, PermissionCollection>> shared;
+
+    private final long sharedSizePerProject;
 
     @Inject
-    Factory(SectionSortCache sorter, MetricMaker metricMaker) {
+    Factory(
+        SectionSortCache sorter, MetricMaker metricMaker, @GerritServerConfig Config config) {
       this.sorter = sorter;
       this.filterLatency =
           metricMaker.newTimer(
@@ -71,6 +91,20 @@ public class PermissionCollection {
               new Description("Latency for access filter computations in PermissionCollection")
                   .setCumulative()
                   .setUnit(Units.NANOSECONDS));
+      this.sharedHits =
+          metricMaker.newCounter(
+              "permissions/permission_collection/shared_hit_count",
+              new Description("Rate of access filter computations answered by a shared collection")
+                  .setRate());
+      this.sharedMisses =
+          metricMaker.newCounter(
+              "permissions/permission_collection/shared_miss_count",
+              new Description("Rate of access filter computations without a shared collection")
+                  .setRate());
+      this.sharedSizePerProject =
+          config.getLong("permissions", null, "sharedCollectionsPerProject", 0);
+      this.shared =
+          sharedSizePerProject > 0 ? CacheBuilder.newBuilder().weakKeys().build() : null;
     }
 
     /**
@@ -120,16 +154,41 @@ public class PermissionCollection {
      * Get all permissions that apply to a reference. The user is only used for per-user ref names,
      * so the return value may include permissions for groups the user is not part of.
      *
-     * @param matcherList collection of sections that should be considered, in priority order
-     *     (project specific definitions must appear before inherited ones).
+     * @param matchers compiled sections that should be considered, in priority order (project
+     *     specific definitions must appear before inherited ones).
      * @param ref reference being accessed.
      * @param user if the reference is a per-user reference, e.g. access sections using the
      *     parameter variable "${username}" will have each username inserted into them to see if
      *     they apply to the reference named by {@code ref}.
      * @return map of permissions that apply to this reference, keyed by permission name.
      */
-    PermissionCollection filter(
-        Iterable<SectionMatcher> matcherList, String ref, CurrentUser user) {
+    PermissionCollection filter(CompiledSectionMatchers matchers, String ref, CurrentUser user) {
+      if (shared == null) {
+        return compute(matchers, ref, user);
+      }
+      Cache<String, PermissionCollection> forProject =
+          shared
+              .asMap()
+              .computeIfAbsent(
+                  matchers,
+                  k -> CacheBuilder.newBuilder().maximumSize(sharedSizePerProject).build());
+      PermissionCollection result = forProject.getIfPresent(ref);
+      if (result != null) {
+        sharedHits.increment();
+        return result;
+      }
+      sharedMisses.increment();
+      result = compute(matchers, ref, user);
+      if (!result.isUserSpecific()) {
+        // The user is only used to expand per-user ref patterns, so the collection applies to all
+        // users.
+        forProject.put(ref, result);
+      }
+      return result;
+    }
+
+    private PermissionCollection compute(
+        CompiledSectionMatchers matchers, String ref, CurrentUser user) {
       try (Timer0.Context ignored = filterLatency.start()) {
         if (isRE(ref)) {
           if (!containsParameters(ref)) {
@@ -141,7 +200,8 @@ public class PermissionCollection {
 
         // LinkedHashMap to maintain input ordering.
         Map<AccessSection, Project.NameKey> sectionToProject = new LinkedHashMap<>();
-        boolean perUser = filterRefMatchingSections(matcherList, ref, user, sectionToProject);
+        boolean perUser =
+            filterRefMatchingSections(matchers.candidates(ref), ref, user, sectionToProject);
         List<AccessSection> sections = Lists.newArrayList(sectionToProject.keySet());
 
         // Sort by ref pattern specificity. For equally specific patterns, the sections from the
@@ -275,9 +335,10 @@ public class PermissionCollection {
     return result;
   }
 
-  private List<List<AccessSection>> accessSectionsPerProjectDownward;
-  private List<AccessSection> accessSectionsUpward;
+  private final List<List<AccessSection>> accessSectionsPerProjectDownward;
+  private final List<AccessSection> accessSectionsUpward;
 
+  // Concurrent, as collections may be shared across requests.
   private final Map<String, List<PermissionRule>> rulesByPermission;
   private final Map<String, List<List<Permission>>> blockPerProjectByPermission;
   private final boolean perUser;
@@ -288,8 +349,8 @@ public class PermissionCollection {
       boolean perUser) {
     this.accessSectionsPerProjectDownward = accessSectionsDownward;
     this.accessSectionsUpward = accessSectionsUpward;
-    this.rulesByPermission = new HashMap<>();
-    this.blockPerProjectByPermission = new HashMap<>();
+    this.rulesByPermission = new ConcurrentHashMap<>();
+    this.blockPerProjectByPermission = new ConcurrentHashMap<>();
     this.perUser = perUser;
   }
 
@@ -53,6 +53,7 @@ import com.google.gerrit.server.permissions.PermissionBackend.ForChange;
 import com.google.gerrit.server.permissions.PermissionBackend.ForProject;
 import com.google.gerrit.server.permissions.PermissionBackend.ForRef;
 import com.google.gerrit.server.permissions.PermissionBackend.RefFilterOptions;
+import com.google.gerrit.server.project.CompiledSectionMatchers;
 import com.google.gerrit.server.project.ProjectState;
 import com.google.gerrit.server.project.SectionMatcher;
 import com.google.gerrit.server.query.change.ChangeData;
@@ -86,7 +87,7 @@ public class ProjectControl {
   private final RefControl.Factory refControlFactory;
   private final ChangeControl.Factory changeControlFactory;
 
-  private List<SectionMatcher> allSections;
+  private CompiledSectionMatchers allSections;
   private Map<String, RefControl> refControls;
   private Boolean declaredOwner;
   private Config cfg;
@@ -140,7 +141,8 @@ public class ProjectControl {
     }
     RefControl ctl = refControls.get(refName);
     if (ctl == null) {
-      PermissionCollection relevant = permissionFilter.filter(access(), refName, user);
+      PermissionCollection relevant =
+          permissionFilter.filter(compiledAccess(), refName, user);
       ctl = refControlFactory.create(this, refName, relevant);
       refControls.put(refName, ctl);
     }
@@ -351,8 +353,12 @@ public class ProjectControl {
   }
 
   private List<SectionMatcher> access() {
+    return compiledAccess().getMatchers();
+  }
+
+  private CompiledSectionMatchers compiledAccess() {
     if (allSections == null) {
-      allSections = state.getAllSections();
+      allSections = state.getCompiledSections();
     }
     return allSections;
   }
@@ -0,0 +1,190 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.permissions;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.AnonymousUser;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.logging.TraceContext;
+import com.google.gerrit.server.logging.TraceContext.TraceTimer;
+import com.google.gerrit.server.permissions.PermissionBackend.RefFilterOptions;
+import com.google.gerrit.server.project.ProjectState;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * Caches the refs of a project that are visible to a user for a short time.
+ *
+ * <p>When many clients fetch the same repository at the same time, e.g. CI agents right after a
+ * change was merged, each of them filters the same refs by visibility. Requests with the same
+ * refs, the same user (or anonymous user), the same group memberships and the same access rights
+ * share one result, and concurrent identical requests wait for a single computation.
+ *
+ * <p>Only the groups that the group backends can enumerate ({@link
+ * com.google.gerrit.server.account.GroupMembership#getKnownGroups()}) are part of the key. Changes
+ * of memberships that aren't enumerable, e.g. in nested groups of external group backends like
+ * LDAP, as well as changes to visibility that don't show in the filtered refs themselves (e.g. the
+ * reachability of tags from refs that were not requested) are therefore only picked up once the
+ * entries expire, after 10 seconds by default ({@code cache.visible_refs.maxAge}). The hit ratio is
+ * reported by the metrics of the {@code visible_refs} cache.
+ */
+@Singleton
+public class VisibleRefsCache {
+  private static final String CACHE_NAME = "visible_refs";
+
+  /**
+   * Minimum number of refs for which the result is cached, so that lookups of individual refs
+   * don't displace ref advertisements from the cache.
+   */
+  static final int MIN_REFS = 100;
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        cache(CACHE_NAME, Key.class, new TypeLiteral<ImmutableList<Ref>>() {})
+            .maximumWeight(1 << 20)
+            .expireAfterWrite(Duration.ofSeconds(10))
+            .weigher(RefsWeigher.class);
+        bind(VisibleRefsCache.class);
+      }
+    };
+  }
+
+  /** Identifies the state on which the visibility of a list of refs depends. */
+  public record Key(Project.NameKey project, HashCode state) {}
+
+  static class RefsWeigher implements Weigher<Key, ImmutableList<Ref>> {
+    @Override
+    public int weigh(Key key, ImmutableList<Ref> refs) {
+      return 1 + refs.size();
+    }
+  }
+
+  private final Cache<Key, ImmutableList<Ref>> cache;
+
+  @Inject
+  VisibleRefsCache(@Named(CACHE_NAME) Cache<Key, ImmutableList<Ref>> cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the visible refs, which are computed by {@code filter} if they are not cached.
+   *
+   * @param projectState the project to which the refs belong.
+   * @param user the user for whom the refs are filtered.
+   * @param refs the refs that are filtered.
+   * @param opts the options of the filtering.
+   * @param filter computes the visible refs.
+   */
+  ImmutableList<Ref> get(
+      ProjectState projectState,
+      CurrentUser user,
+      Collection<Ref> refs,
+      RefFilterOptions opts,
+      Callable<ImmutableList<Ref>> filter)
+      throws PermissionBackendException {
+    Key key = key(projectState, user, refs, opts);
+    try {
+      if (key == null) {
+        return filter.call();
+      }
+      return cache.get(key, filter);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), PermissionBackendException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new PermissionBackendException("Cannot filter refs", e.getCause());
+    } catch (Exception e) {
+      Throwables.throwIfInstanceOf(e, PermissionBackendException.class);
+      Throwables.throwIfUnchecked(e);
+      throw new PermissionBackendException("Cannot filter refs", e);
+    }
+  }
+
+  /** Returns the key for the given refs, or {@code null} if the result should not be cached. */
+  @Nullable
+  static Key key(
+      ProjectState projectState, CurrentUser user, Collection<Ref> refs, RefFilterOptions opts) {
+    if (refs.size() < MIN_REFS) {
+      return null;
+    }
+    try (TraceTimer ignored = TraceContext.newTimer("Compute visible refs cache key")) {
+      Hasher h = Hashing.murmur3_128().newHasher();
+      if (user.isIdentifiedUser()) {
+        h.putInt(user.getAccountId().get());
+        // Known groups are sorted by UUID, so that the same memberships always yield the same key.
+        user.getEffectiveGroups().getKnownGroups().stream()
+            .map(AccountGroup.UUID::get)
+            .sorted()
+            .forEach(uuid -> h.putUnencodedChars(uuid).putByte((byte) 0));
+      } else if (user instanceof AnonymousUser) {
+        h.putInt(0);
+      } else {
+        // Internal users and plugin users see refs in ways that are not worth caching.
+        return null;
+      }
+
+      // Access rights are inherited, hence all projects up to All-Projects are relevant.
+      for (ProjectState p : projectState.tree()) {
+        putObjectId(h, p.getConfig().getRevision().orElse(null));
+      }
+
+      h.putBoolean(opts.filterMeta());
+      for (String prefix : opts.prefixes()) {
+        h.putUnencodedChars(prefix).putByte((byte) 0);
+      }
+
+      for (Ref ref : refs) {
+        h.putUnencodedChars(ref.getName()).putByte((byte) 0);
+        if (ref.isSymbolic()) {
+          h.putUnencodedChars(ref.getTarget().getName()).putByte((byte) 0);
+        }
+        putObjectId(h, ref.getObjectId());
+      }
+      return new Key(projectState.getNameKey(), h.hash());
+    }
+  }
+
+  private static void putObjectId(Hasher h, @Nullable ObjectId id) {
+    if (id == null) {
+      h.putByte((byte) 0);
+      return;
+    }
+    byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+    id.copyRawTo(raw, 0);
+    h.putByte((byte) 1).putBytes(raw);
+  }
+}
@@ -18,6 +18,7 @@ import static com.google.gerrit.extensions.webui.JavaScriptPlugin.STATIC_INIT_JS
 import static com.google.gerrit.server.plugins.AutoRegisterUtil.calculateBindAnnotation;
 import static com.google.gerrit.server.plugins.PluginGuiceEnvironment.is;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.flogger.FluentLogger;
@@ -36,7 +37,6 @@ import com.google.inject.TypeLiteral;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +44,10 @@ import java.util.Set;
 class AutoRegisterModules {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /** Annotations of classes that are registered automatically. */
+  static final ImmutableList<Class<? extends Annotation>> ANNOTATIONS =
+      ImmutableList.of(Export.class, Listen.class);
+
   private final String pluginName;
   private final PluginGuiceEnvironment env;
   private final PluginContentScanner scanner;
@@ -117,7 +121,7 @@ class AutoRegisterModules {
 
   private void scan() throws InvalidPluginException {
     Map<Class<? extends Annotation>, Iterable<ExtensionMetaData>> extensions =
-        scanner.scan(pluginName, Arrays.asList(Export.class, Listen.class));
+        scanner.scan(pluginName, ANNOTATIONS);
     for (ExtensionMetaData export : extensions.get(Export.class)) {
       export(export);
     }
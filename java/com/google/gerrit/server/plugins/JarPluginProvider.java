@@ -48,13 +48,16 @@ public class JarPluginProvider implements ServerPluginProvider {
 
   private final Path tmpDir;
   private final PluginConfigFactory configFactory;
+  private final JarScanCache scanCache;
 
   private ClassLoader pluginApiClassLoader = PluginUtil.parentFor(ApiType.PLUGIN);
 
   @Inject
-  JarPluginProvider(SitePaths sitePaths, PluginConfigFactory configFactory) {
+  JarPluginProvider(
+      SitePaths sitePaths, PluginConfigFactory configFactory, JarScanCache scanCache) {
     this.tmpDir = sitePaths.tmp_dir;
     this.configFactory = configFactory;
+    this.scanCache = scanCache;
   }
 
   @Override
@@ -181,7 +184,7 @@ public class JarPluginProvider implements ServerPluginProvider {
 
   private JarScanner createJarScanner(Path srcJar) throws InvalidPluginException {
     try {
-      return new JarScanner(srcJar);
+      return new JarScanner(srcJar, scanCache);
     } catch (IOException e) {
       throw new InvalidPluginException("Cannot scan plugin file " + srcJar, e);
     }
@@ -0,0 +1,140 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.plugins;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.google.gerrit.common.Nullable;
+import com.google.gerrit.proto.Protos;
+import com.google.gerrit.server.cache.CacheModule;
+import com.google.gerrit.server.cache.proto.Cache.PluginScanProto;
+import com.google.gerrit.server.cache.proto.Cache.PluginScanProto.ScannedClassProto;
+import com.google.gerrit.server.cache.serialize.CacheSerializer;
+import com.google.gerrit.server.cache.serialize.StringCacheSerializer;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache of the annotated classes that {@link JarScanner} found in a plugin jar.
+ *
+ * <p>Scanning reads every class file of a jar, which makes up a large part of the time needed to
+ * load a plugin. The cache is persisted and keyed by a hash of the jar content, so that plugins
+ * that did not change are not scanned again when the server is restarted.
+ */
+@Singleton
+public class JarScanCache {
+  private static final String CACHE_NAME = "plugin_scan";
+
+  public static Module module() {
+    return new CacheModule() {
+      @Override
+      protected void configure() {
+        persist(CACHE_NAME, String.class, new TypeLiteral<ImmutableList<ScannedClass>>() {})
+            .keySerializer(StringCacheSerializer.INSTANCE)
+            .valueSerializer(Serializer.INSTANCE)
+            .maximumWeight(1024)
+            .version(1);
+        bind(JarScanCache.class);
+      }
+    };
+  }
+
+  /** A concrete class of a plugin that is annotated with one of the scanned annotations. */
+  public record ScannedClass(
+      String annotation, String className, @Nullable String annotationValue) {}
+
+  private final Cache<String, ImmutableList<ScannedClass>> cache;
+
+  @Inject
+  JarScanCache(@Named(CACHE_NAME) Cache<String, ImmutableList<ScannedClass>> cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Returns the classes found by an earlier scan of a jar with the same content, or scans the jar
+   * with {@code scan}.
+   *
+   * @param jar the jar to scan.
+   * @param annotations descriptors of the annotations the scan looks for.
+   * @param scan scans the jar.
+   */
+  ImmutableList<ScannedClass> get(
+      Path jar, Collection<String> annotations, Callable<ImmutableList<ScannedClass>> scan)
+      throws IOException, ExecutionException {
+    return cache.get(key(jar, annotations), scan);
+  }
+
+  /**
+   * Scans the given plugin jar, so that loading the plugin later on finds the scan result in the
+   * cache.
+   */
+  void prefetch(String pluginName, Path jar) throws IOException, InvalidPluginException {
+    try (JarScanner scanner = new JarScanner(jar, this)) {
+      var unused = scanner.scan(pluginName, AutoRegisterModules.ANNOTATIONS);
+    }
+  }
+
+  private static String key(Path jar, Collection<String> annotations) throws IOException {
+    return MoreFiles.asByteSource(jar).hash(Hashing.sha256())
+        + ":"
+        + annotations.stream().sorted().collect(joining(","));
+  }
+
+  @VisibleForTesting
+  enum Serializer implements CacheSerializer<ImmutableList<ScannedClass>> {
+    INSTANCE;
+
+    @Override
+    public byte[] serialize(ImmutableList<ScannedClass> classes) {
+      PluginScanProto.Builder proto = PluginScanProto.newBuilder();
+      for (ScannedClass c : classes) {
+        proto.addClasses(
+            ScannedClassProto.newBuilder()
+                .setAnnotation(c.annotation())
+                .setClassName(c.className())
+                .setAnnotationValue(Strings.nullToEmpty(c.annotationValue())));
+      }
+      return Protos.toByteArray(proto.build());
+    }
+
+    @Override
+    public ImmutableList<ScannedClass> deserialize(byte[] in) {
+      PluginScanProto proto = Protos.parseUnchecked(PluginScanProto.parser(), in);
+      return proto.getClassesList().stream()
+          .map(
+              c ->
+                  new ScannedClass(
+                      c.getAnnotation(),
+                      c.getClassName(),
+                      Strings.emptyToNull(c.getAnnotationValue())))
+          .collect(toImmutableList());
+    }
+  }
+}
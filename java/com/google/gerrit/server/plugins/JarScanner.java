@@ -19,13 +19,16 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterables.transform;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.MultimapBuilder;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.gerrit.common.Nullable;
+import com.google.gerrit.server.plugins.JarScanCache.ScannedClass;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
@@ -39,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -60,9 +64,19 @@ public class JarScanner implements PluginContentScanner, AutoCloseable {
   private static final int SKIP_ALL =
       ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
   private final JarFile jarFile;
+  @Nullable private final JarScanCache scanCache;
 
   public JarScanner(Path src) throws IOException {
+    this(src, null);
+  }
+
+  /**
+   * Creates a scanner that looks up the results of {@link #scan(String, Iterable)} in the given
+   * cache before scanning the jar.
+   */
+  public JarScanner(Path src, @Nullable JarScanCache scanCache) throws IOException {
     this.jarFile = new JarFile(src.toFile());
+    this.scanCache = scanCache;
   }
 
   @Override
@@ -70,8 +84,6 @@ public class JarScanner implements PluginContentScanner, AutoCloseable {
       String pluginName, Iterable<Class<? extends Annotation>> annotations)
       throws InvalidPluginException {
     Set<String> descriptors = new HashSet<>();
-    ListMultimap<String, JarScanner.ClassData> rawMap =
-        MultimapBuilder.hashKeys().arrayListValues().build();
     Map<Class<? extends Annotation>, String> classObjToClassDescr = new HashMap<>();
 
     for (Class<? extends Annotation> annotation : annotations) {
@@ -80,6 +92,47 @@ public class JarScanner implements PluginContentScanner, AutoCloseable {
       classObjToClassDescr.put(annotation, descriptor);
     }
 
+    ListMultimap<String, ScannedClass> rawMap =
+        MultimapBuilder.hashKeys().arrayListValues().build();
+    for (ScannedClass c : scanClasses(pluginName, descriptors)) {
+      rawMap.put(c.annotation(), c);
+    }
+
+    ImmutableMap.Builder<Class<? extends Annotation>, Iterable<ExtensionMetaData>> result =
+        ImmutableMap.builder();
+
+    for (Class<? extends Annotation> annotoation : annotations) {
+      String descr = classObjToClassDescr.get(annotoation);
+      List<ScannedClass> discoverdData = rawMap.get(descr);
+      Collection<ScannedClass> values = firstNonNull(discoverdData, Collections.emptySet());
+
+      result.put(
+          annotoation,
+          transform(values, cd -> new ExtensionMetaData(cd.className(), cd.annotationValue())));
+    }
+
+    return result.build();
+  }
+
+  private ImmutableList<ScannedClass> scanClasses(String pluginName, Set<String> descriptors)
+      throws InvalidPluginException {
+    if (scanCache == null) {
+      return readClasses(pluginName, descriptors);
+    }
+    try {
+      return scanCache.get(
+          Path.of(jarFile.getName()), descriptors, () -> readClasses(pluginName, descriptors));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), InvalidPluginException.class);
+      throw new InvalidPluginException("Cannot auto-register", e.getCause());
+    } catch (IOException e) {
+      throw new InvalidPluginException("Cannot auto-register", e);
+    }
+  }
+
+  private ImmutableList<ScannedClass> readClasses(String pluginName, Set<String> descriptors)
+      throws InvalidPluginException {
+    ImmutableList.Builder<ScannedClass> classes = ImmutableList.builder();
     for (JarEntry entry : entriesOf(jarFile)) {
       if (skip(entry)) {
         continue;
@@ -99,7 +152,7 @@ public class JarScanner implements PluginContentScanner, AutoCloseable {
 
       if (!Strings.isNullOrEmpty(def.annotationName)) {
         if (def.isConcrete()) {
-          rawMap.put(def.annotationName, def);
+          classes.add(new ScannedClass(def.annotationName, def.className, def.annotationValue));
         } else {
           logger.atWarning().log(
               "Plugin %s tries to @%s(\"%s\") abstract class %s",
@@ -107,21 +160,7 @@ public class JarScanner implements PluginContentScanner, AutoCloseable {
         }
       }
     }
-
-    ImmutableMap.Builder<Class<? extends Annotation>, Iterable<ExtensionMetaData>> result =
-        ImmutableMap.builder();
-
-    for (Class<? extends Annotation> annotoation : annotations) {
-      String descr = classObjToClassDescr.get(annotoation);
-      List<ClassData> discoverdData = rawMap.get(descr);
-      Collection<ClassData> values = firstNonNull(discoverdData, Collections.emptySet());
-
-      result.put(
-          annotoation,
-          transform(values, cd -> new ExtensionMetaData(cd.className, cd.annotationValue)));
-    }
-
-    return result.build();
+    return classes.build();
   }
 
   public List<String> findSubClassesOf(Class<?> superClass) throws IOException {
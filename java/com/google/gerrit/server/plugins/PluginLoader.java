@@ -31,6 +31,11 @@ import com.google.gerrit.common.Nullable;
 import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.extensions.restapi.MethodNotAllowedException;
 import com.google.gerrit.extensions.systemstatus.ServerInformation;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Description.Units;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.gerrit.metrics.Timer1;
 import com.google.gerrit.server.PluginUser;
 import com.google.gerrit.server.cache.PersistentCacheFactory;
 import com.google.gerrit.server.config.CanonicalWebUrl;
@@ -38,6 +43,8 @@ import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.GerritRuntime;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gerrit.server.config.SitePaths;
+import com.google.gerrit.server.git.WorkQueue;
+import com.google.gerrit.server.logging.Metadata;
 import com.google.gerrit.server.plugins.ServerPluginProvider.PluginDescription;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -53,12 +60,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.eclipse.jgit.internal.storage.file.FileSnapshot;
 import org.eclipse.jgit.lib.Config;
@@ -91,6 +103,11 @@ public class PluginLoader implements LifecycleListener {
   private final UniversalServerPluginProvider serverPluginFactory;
   private final GerritRuntime gerritRuntime;
   private final PluginOrderComparator pluginOrderComparator;
+  private final JarScanCache scanCache;
+  private final int scanThreads;
+  private final WorkQueue workQueue;
+  private ScheduledThreadPoolExecutor scanExecutor;
+  private final Timer1<String> loadLatency;
 
   @Inject
   public PluginLoader(
@@ -104,7 +121,10 @@ public class PluginLoader implements LifecycleListener {
       PersistentCacheFactory cacheFactory,
       UniversalServerPluginProvider pluginFactory,
       MandatoryPluginsCollection mpc,
-      GerritRuntime gerritRuntime) {
+      GerritRuntime gerritRuntime,
+      JarScanCache scanCache,
+      WorkQueue workQueue,
+      MetricMaker metricMaker) {
     pluginsDir = sitePaths.plugins_dir;
     dataDir = sitePaths.data_dir;
     tempDir = sitePaths.tmp_dir;
@@ -119,6 +139,19 @@ public class PluginLoader implements LifecycleListener {
     remoteAdmin = cfg.getBoolean("plugins", null, "allowRemoteAdmin", false);
     mandatoryPlugins = mpc;
     this.gerritRuntime = gerritRuntime;
+    this.scanCache = scanCache;
+    this.workQueue = workQueue;
+    scanThreads =
+        cfg.getInt("plugins", null, "scanThreads", Runtime.getRuntime().availableProcessors());
+    loadLatency =
+        metricMaker.newTimer(
+            "plugin/load_latency",
+            new Description("Latency for loading and starting a plugin")
+                .setCumulative()
+                .setUnit(Units.MILLISECONDS),
+            Field.ofString("plugin_name", Metadata.Builder::pluginName)
+                .description("The name of the plugin.")
+                .build());
 
     ImmutableList<String> pluginOrderOverrides =
         ImmutableList.copyOf(cfg.getStringList("plugins", null, "loadPriority"));
@@ -415,7 +448,9 @@ public class PluginLoader implements LifecycleListener {
       syncDisabledPlugins(pluginsFiles);
 
       Map<String, Path> activePlugins = filterDisabled(pluginsFiles);
-      for (Map.Entry<String, Path> entry : jarsApiFirstSortedPluginsSet(activePlugins)) {
+      TreeSet<Map.Entry<String, Path>> sortedPlugins = jarsApiFirstSortedPluginsSet(activePlugins);
+      prefetchJarScans(sortedPlugins);
+      for (Map.Entry<String, Path> entry : sortedPlugins) {
         String name = entry.getKey();
         Path path = entry.getValue();
         String fileName = path.getFileName().toString();
@@ -465,6 +500,74 @@ public class PluginLoader implements LifecycleListener {
     cleanInBackground();
   }
 
+  private boolean needsLoad(String name, Path path) {
+    FileSnapshot brokenTime = broken.get(name);
+    if (brokenTime != null && !brokenTime.isModified(path.toFile())) {
+      return false;
+    }
+    Plugin active = running.get(name);
+    return active == null || active.isModified(path);
+  }
+
+  /**
+   * Scans the jars of the plugins that are about to be (re)loaded in parallel, so that loading
+   * them, which must happen one after another, finds the scan results in {@link JarScanCache}.
+   */
+  private void prefetchJarScans(Collection<Map.Entry<String, Path>> plugins) {
+    List<Map.Entry<String, Path>> jars = new ArrayList<>();
+    for (Map.Entry<String, Path> entry : plugins) {
+      if (entry.getValue().getFileName().toString().endsWith(".jar")
+          && needsLoad(entry.getKey(), entry.getValue())) {
+        jars.add(entry);
+      }
+    }
+    if (scanThreads <= 1 || jars.size() <= 1) {
+      return;
+    }
+
+    ExecutorService executor = getScanExecutor();
+    Map<String, Future<?>> scans = new LinkedHashMap<>();
+    try {
+      for (Map.Entry<String, Path> jar : jars) {
+        scans.put(
+            jar.getKey(),
+            executor.submit(
+                () -> {
+                  scanCache.prefetch(jar.getKey(), jar.getValue());
+                  return null;
+                }));
+      }
+      for (Map.Entry<String, Future<?>> scan : scans.entrySet()) {
+        try {
+          scan.getValue().get();
+        } catch (ExecutionException e) {
+          // Loading the plugin reports the error, if the jar is not readable.
+          logger.atWarning().withCause(e.getCause()).log(
+              "Cannot scan plugin %s in advance", scan.getKey());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    } finally {
+      // Don't keep scanning if loading was interrupted.
+      scans.values().forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Returns the queue that scans plugin jars. Its threads time out, since the jars are mostly
+   * scanned only on startup.
+   */
+  private synchronized ExecutorService getScanExecutor() {
+    if (scanExecutor == null) {
+      scanExecutor = workQueue.createQueue(scanThreads, "PluginScanner", true);
+      scanExecutor.setKeepAliveTime(1, TimeUnit.MINUTES);
+      scanExecutor.allowCoreThreadTimeOut(true);
+    }
+    return scanExecutor;
+  }
+
   private void addAllEntries(Map<String, Path> from, TreeSet<Map.Entry<String, Path>> to) {
     Iterator<Map.Entry<String, Path>> it = from.entrySet().iterator();
     while (it.hasNext()) {
@@ -490,7 +593,7 @@ public class PluginLoader implements LifecycleListener {
   private Plugin runPlugin(String name, Path plugin, Plugin oldPlugin)
       throws PluginInstallException {
     FileSnapshot snapshot = FileSnapshot.save(plugin.toFile());
-    try {
+    try (Timer1.Context<String> ignored = loadLatency.start(name)) {
       boolean restartRequired = oldPlugin != null && !oldPlugin.canReload();
       if (restartRequired && mandatoryPlugins.contains(name)) {
         logger.atWarning().log("Restarting mandatory plugin %s not allowed", name);
@@ -38,6 +38,7 @@ public class PluginModule extends LifecycleModule {
 
     DynamicSet.setOf(binder(), ServerPluginProvider.class);
     DynamicSet.bind(binder(), ServerPluginProvider.class).to(JarPluginProvider.class);
+    install(JarScanCache.module());
     bind(UniversalServerPluginProvider.class);
   }
 }
@@ -0,0 +1,105 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.project;
+
+import static com.google.gerrit.server.project.RefPattern.isRE;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link SectionMatcher}s of a project hierarchy, indexed by the literal prefix of their ref
+ * patterns.
+ *
+ * <p>Finding the access sections that apply to a ref used to test every section of the hierarchy
+ * against the ref. Here, the matchers are stored in a prefix trie keyed by the prefix that every
+ * matching ref must start with: the full name for exact patterns, the prefix for {@code refs/x/*}
+ * patterns and the literal prefix for regular expressions. Walking the trie along a ref once yields
+ * the candidates that may match it, which still need to be confirmed by {@link
+ * SectionMatcher#match}. Matchers without a known prefix, e.g. the ones of parameterized sections,
+ * are candidates for every ref.
+ */
+public class CompiledSectionMatchers {
+  public static CompiledSectionMatchers compile(List<SectionMatcher> matchers) {
+    return new CompiledSectionMatchers(ImmutableList.copyOf(matchers));
+  }
+
+  private final ImmutableList<SectionMatcher> matchers;
+  private final Node root = new Node();
+
+  private CompiledSectionMatchers(ImmutableList<SectionMatcher> matchers) {
+    this.matchers = matchers;
+    for (int i = 0; i < matchers.size(); i++) {
+      Node n = root;
+      for (char c : matchers.get(i).getMatcher().requiredPrefix().toCharArray()) {
+        n = n.children.computeIfAbsent(c, k -> new Node());
+      }
+      n.matchers.add(i);
+    }
+  }
+
+  /** Returns all matchers, in the order in which they were compiled. */
+  public ImmutableList<SectionMatcher> getMatchers() {
+    return matchers;
+  }
+
+  /**
+   * Returns the matchers that may match the given ref, in the order in which they were compiled.
+   * Matchers that are not returned are guaranteed to not match the ref.
+   */
+  public List<SectionMatcher> candidates(String ref) {
+    if (isRE(ref)) {
+      // Regular expressions are matched against the patterns themselves, not by prefix.
+      return matchers;
+    }
+
+    BitSet found = new BitSet(matchers.size());
+    Node n = root;
+    for (int i = 0; n != null; i++) {
+      n.matchers.forEach(found::set);
+      n = i < ref.length() ? n.children.get(ref.charAt(i)) : null;
+    }
+
+    List<SectionMatcher> result = new ArrayList<>(found.cardinality());
+    for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+      result.add(matchers.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Whether this instance was compiled from exactly the given matcher instances, in the same order.
+   */
+  boolean isCompiledFrom(List<SectionMatcher> other) {
+    if (other.size() != matchers.size()) {
+      return false;
+    }
+    for (int i = 0; i < matchers.size(); i++) {
+      if (other.get(i) != matchers.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static class Node {
+    final Map<Character, Node> children = new HashMap<>();
+    final List<Integer> matchers = new ArrayList<>();
+  }
+}
@@ -94,6 +94,9 @@ public class ProjectState {
   /** Local access sections, wrapped in SectionMatchers for faster evaluation. */
   private volatile List<SectionMatcher> localAccessSections;
 
+  /** All local and inherited access sections, compiled for faster matching. */
+  private volatile CompiledSectionMatchers compiledSections;
+
   /** If this is all projects, the capabilities used by the server. */
   private final CapabilityCollection capabilities;
 
@@ -315,6 +318,20 @@ public class ProjectState {
     return all;
   }
 
+  /**
+   * Obtain all local and inherited sections, compiled for selecting the sections that apply to a
+   * ref. The result is reused until the sections of this project or one of its parents change.
+   */
+  public CompiledSectionMatchers getCompiledSections() {
+    List<SectionMatcher> all = getAllSections();
+    CompiledSectionMatchers compiled = compiledSections;
+    if (compiled == null || !compiled.isCompiledFrom(all)) {
+      compiled = CompiledSectionMatchers.compile(all);
+      compiledSections = compiled;
+    }
+    return compiled;
+  }
+
   /**
    * Returns all {@link AccountGroup}'s to which the owner privilege for 'refs/*' is assigned for
    * this project (the local owners), if there are no local owners the local owners of the nearest
@@ -18,6 +18,7 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.gerrit.server.project.RefPattern.containsParameters;
 import static com.google.gerrit.server.project.RefPattern.isRE;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Streams;
@@ -52,8 +53,43 @@ public abstract class RefPatternMatcher {
     }
   }
 
+  /** Characters that end the literal prefix of a regular expression. */
+  private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
+
+  /** Quantifiers that make the preceding character of a literal prefix optional or repeated. */
+  private static final String REGEX_QUANTIFIERS = "*+?{";
+
   public abstract boolean match(String ref, CurrentUser user);
 
+  /**
+   * Returns a prefix that every ref matched by this matcher starts with, or an empty string if no
+   * such prefix is known. Used to select candidate matchers without evaluating them.
+   */
+  String requiredPrefix() {
+    return "";
+  }
+
+  /**
+   * Returns the literal prefix of a regular expression, i.e. the characters every matching string
+   * starts with. The result is conservative: it is empty if the expression uses alternation and it
+   * ends before the first character that has a special meaning in {@link Pattern}.
+   */
+  @VisibleForTesting
+  static String literalPrefix(String re) {
+    if (re.indexOf('|') >= 0) {
+      return "";
+    }
+    int start = isRE(re) ? 1 : 0;
+    int end = start;
+    while (end < re.length() && REGEX_META_CHARS.indexOf(re.charAt(end)) < 0) {
+      end++;
+    }
+    if (end > start && end < re.length() && REGEX_QUANTIFIERS.indexOf(re.charAt(end)) >= 0) {
+      end--;
+    }
+    return re.substring(start, end);
+  }
+
   private static class Exact extends RefPatternMatcher {
     private final String expect;
 
@@ -65,6 +101,11 @@ public abstract class RefPatternMatcher {
     public boolean match(String ref, CurrentUser user) {
       return expect.equals(ref);
     }
+
+    @Override
+    String requiredPrefix() {
+      return expect;
+    }
   }
 
   private static class Prefix extends RefPatternMatcher {
@@ -78,6 +119,11 @@ public abstract class RefPatternMatcher {
     public boolean match(String ref, CurrentUser user) {
       return ref.startsWith(prefix);
     }
+
+    @Override
+    String requiredPrefix() {
+      return prefix;
+    }
   }
 
   private static class Regexp extends RefPatternMatcher {
@@ -95,6 +141,11 @@ public abstract class RefPatternMatcher {
     public boolean match(String ref, CurrentUser user) {
       return pattern.matcher(ref).matches() || (isRE(ref) && pattern.pattern().equals(ref));
     }
+
+    @Override
+    String requiredPrefix() {
+      return literalPrefix(pattern.pattern());
+    }
   }
 
   public static class ExpandParameters extends RefPatternMatcher {
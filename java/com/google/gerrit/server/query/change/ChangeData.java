@@ -34,6 +34,7 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.MultimapBuilder;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Table;
 import com.google.common.flogger.FluentLogger;
@@ -114,6 +115,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -158,6 +160,14 @@ public class ChangeData {
     NOTEDB_ONLY
   }
 
+  /** Data that can be populated from stored index fields when it is first accessed. */
+  public enum StoredData {
+    PATCH_SETS,
+    CURRENT_APPROVALS,
+    SUBMIT_RECORDS,
+    SUBMIT_REQUIREMENTS
+  }
+
   public static List<Change> asChanges(List<ChangeData> changeDatas) {
     List<Change> result = new ArrayList<>(changeDatas.size());
     for (ChangeData cd : changeDatas) {
@@ -176,6 +186,7 @@ public class ChangeData {
       return;
     }
 
+    loadNotes(changes, cd -> cd.change == null);
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.change();
@@ -188,6 +199,7 @@ public class ChangeData {
       return;
     }
 
+    loadNotes(changes, ChangeData::needsPatchSetsFromNotes);
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.patchSets();
@@ -200,6 +212,9 @@ public class ChangeData {
       return;
     }
 
+    loadNotes(
+        changes,
+        cd -> cd.currentPatchSet == null && (cd.change == null || cd.needsPatchSetsFromNotes()));
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.currentPatchSet();
@@ -212,6 +227,12 @@ public class ChangeData {
       return;
     }
 
+    loadNotes(
+        changes,
+        cd -> {
+          cd.decodeStoredData(StoredData.CURRENT_APPROVALS);
+          return cd.currentApprovals == null;
+        });
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.currentApprovals();
@@ -224,6 +245,7 @@ public class ChangeData {
       return;
     }
 
+    loadNotes(changes, cd -> cd.messages == null);
     for (ChangeData cd : changes) {
       @SuppressWarnings("unused")
       var unused = cd.messages();
@@ -247,6 +269,71 @@ public class ChangeData {
     }
   }
 
+  /**
+   * Loads the change notes of all given changes that match {@code needsNotes} and whose notes have
+   * not been loaded yet.
+   *
+   * <p>Changes are grouped by project, so that each repository is opened only once and the meta
+   * refs of all changes of a project are read with a single ref lookup. Changes whose meta ref
+   * cannot be found are skipped here; loading them lazily reports the error as before.
+   */
+  private static void loadNotes(
+      Iterable<ChangeData> changes, java.util.function.Predicate<ChangeData> needsNotes) {
+    ListMultimap<Project.NameKey, ChangeData> byProject =
+        MultimapBuilder.linkedHashKeys().arrayListValues().build();
+    for (ChangeData cd : changes) {
+      if (cd.notes == null && cd.lazyload() && needsNotes.test(cd)) {
+        byProject.put(cd.project(), cd);
+      }
+    }
+
+    for (Map.Entry<Project.NameKey, Collection<ChangeData>> e : byProject.asMap().entrySet()) {
+      Collection<ChangeData> pending = e.getValue();
+      if (pending.size() < 2) {
+        // Nothing to gain over loading the notes lazily.
+        continue;
+      }
+      ChangeData first = pending.iterator().next();
+      try (TraceTimer timer =
+              TraceContext.newTimer(
+                  "Bulk load change notes",
+                  Metadata.builder()
+                      .projectName(e.getKey().get())
+                      .resourceCount(pending.size())
+                      .build());
+          Repository repo = first.repoManager.openRepository(e.getKey())) {
+        Map<String, Ref> metaRefs =
+            repo.getRefDatabase()
+                .exactRef(
+                    pending.stream()
+                        .filter(cd -> cd.metaRevision == null)
+                        .map(cd -> RefNames.changeMetaRef(cd.getId()))
+                        .toArray(String[]::new));
+        for (ChangeData cd : pending) {
+          ObjectId metaRevision = cd.metaRevision;
+          if (metaRevision == null) {
+            Ref ref = metaRefs.get(RefNames.changeMetaRef(cd.getId()));
+            if (ref == null) {
+              continue;
+            }
+            metaRevision = ref.getObjectId();
+          }
+          cd.notes = first.notesFactory.createChecked(repo, cd.project(), cd.getId(), metaRevision);
+          cd.change = cd.notes.getChange();
+          cd.changeServerId = cd.notes.getServerId();
+          cd.metaRevision = null;
+        }
+      } catch (IOException ex) {
+        throw new StorageException("Unable to load changes of project " + e.getKey(), ex);
+      }
+    }
+  }
+
+  private boolean needsPatchSetsFromNotes() {
+    decodeStoredData(StoredData.PATCH_SETS);
+    return patchSets == null;
+  }
+
   public static class Factory {
     private final AssistedFactory assistedFactory;
 
@@ -438,6 +525,13 @@ public class ChangeData {
 
   // Lazily populated fields, including optional assisted injected fields.
 
+  /**
+   * Decoders for stored index fields that were not applied yet. They are run when the data they
+   * populate is first accessed, so that stored fields which the caller does not need are never
+   * decoded.
+   */
+  private EnumMap<StoredData, List<Runnable>> storedDataDecoders;
+
   private final Map<SubmitRuleOptions, List<SubmitRecord>> submitRecords =
       Maps.newLinkedHashMapWithExpectedSize(1);
 
@@ -858,6 +952,7 @@ public class ChangeData {
 
   @CanIgnoreReturnValue
   public Change reloadChange() {
+    storedDataDecoders = null;
     metaRevision = null;
     setPatchSets(null);
     messages = null;
@@ -939,6 +1034,7 @@ public class ChangeData {
   }
 
   public List<PatchSetApproval> currentApprovals() {
+    decodeStoredData(StoredData.CURRENT_APPROVALS);
     if (currentApprovals == null) {
       if (!lazyload()) {
         return Collections.emptyList();
@@ -963,6 +1059,7 @@ public class ChangeData {
   }
 
   public void setCurrentApprovals(List<PatchSetApproval> approvals) {
+    discardStoredData(StoredData.CURRENT_APPROVALS);
     currentApprovals = approvals;
   }
 
@@ -1081,6 +1178,7 @@ public class ChangeData {
 
   /** Returns patches for the change, in patch set ID order. */
   public Collection<PatchSet> patchSets() {
+    decodeStoredData(StoredData.PATCH_SETS);
     if (patchSets == null) {
       patchSets = psUtil.byChange(notes());
     }
@@ -1088,6 +1186,7 @@ public class ChangeData {
   }
 
   public void setPatchSets(Collection<PatchSet> patchSets) {
+    discardStoredData(StoredData.PATCH_SETS);
     this.currentPatchSet = null;
     this.patchSets = patchSets;
   }
@@ -1368,6 +1467,7 @@ public class ChangeData {
    * com.google.gerrit.server.index.change.ChangeField#STORED_SUBMIT_REQUIREMENTS_FIELD}.
    */
   public Map<SubmitRequirement, SubmitRequirementResult> submitRequirements() {
+    decodeStoredData(StoredData.SUBMIT_REQUIREMENTS);
     if (submitRequirements == null) {
       if (!lazyload()) {
         return Collections.emptyMap();
@@ -1401,6 +1501,7 @@ public class ChangeData {
 
   public void setSubmitRequirements(
       Map<SubmitRequirement, SubmitRequirementResult> submitRequirements) {
+    discardStoredData(StoredData.SUBMIT_REQUIREMENTS);
     this.submitRequirements = submitRequirements;
   }
 
@@ -1409,6 +1510,7 @@ public class ChangeData {
     // change is submitted, SubmitRecord requested with 'strict' will contain just a single entry
     // that with status=CLOSED. The latter is cheap to evaluate as we don't have to run any actual
     // evaluation.
+    decodeStoredData(StoredData.SUBMIT_RECORDS);
     List<SubmitRecord> records = submitRecords.get(options);
     if (records == null) {
       if (storageConstraint != StorageConstraint.NOTEDB_ONLY) {
@@ -1437,9 +1539,40 @@ public class ChangeData {
   }
 
   public void setSubmitRecords(SubmitRuleOptions options, List<SubmitRecord> records) {
+    // Records for other options may still be pending, apply them before overriding these.
+    decodeStoredData(StoredData.SUBMIT_RECORDS);
     submitRecords.put(options, records);
   }
 
+  /**
+   * Defers populating {@code data} from a stored index field until the data is first accessed.
+   *
+   * @param data the data that is populated by {@code decoder}
+   * @param decoder decodes the stored field and passes the result to the setter of this instance
+   *     that corresponds to {@code data}
+   */
+  public void deferStoredData(StoredData data, Runnable decoder) {
+    if (storedDataDecoders == null) {
+      storedDataDecoders = new EnumMap<>(StoredData.class);
+    }
+    storedDataDecoders.computeIfAbsent(data, d -> new ArrayList<>(2)).add(decoder);
+  }
+
+  private void decodeStoredData(StoredData data) {
+    if (storedDataDecoders != null) {
+      List<Runnable> decoders = storedDataDecoders.remove(data);
+      if (decoders != null) {
+        decoders.forEach(Runnable::run);
+      }
+    }
+  }
+
+  private void discardStoredData(StoredData data) {
+    if (storedDataDecoders != null) {
+      storedDataDecoders.remove(data);
+    }
+  }
+
   public SubmitTypeRecord submitTypeRecord() {
     if (submitTypeRecord == null) {
       submitTypeRecord =
@@ -14,9 +14,11 @@
 
 package com.google.gerrit.server.query.change;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.Lists;
@@ -26,9 +28,12 @@ import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.common.PluginDefinedInfo;
+import com.google.gerrit.index.query.Predicate;
 import com.google.gerrit.index.query.QueryParseException;
 import com.google.gerrit.index.query.QueryResult;
+import com.google.gerrit.index.query.ResultSet;
 import com.google.gerrit.server.DynamicOptions;
+import com.google.gerrit.server.FanOutExecutor;
 import com.google.gerrit.server.account.AccountAttributeLoader;
 import com.google.gerrit.server.cancellation.RequestCancelledException;
 import com.google.gerrit.server.cancellation.RequestStateProvider;
@@ -59,6 +64,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.eclipse.jgit.attributes.AttributesNodeProvider;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -85,6 +94,12 @@ public class OutputStreamQuery {
 
   public static final Gson GSON = new Gson();
 
+  /**
+   * Default number of changes that are read from the index at once and, when streaming, the maximum
+   * number of changes for which attributes are built before they are written.
+   */
+  public static final int DEFAULT_STREAM_BATCH_SIZE = 100;
+
   private final GitRepositoryManager repoManager;
   private final ChangeQueryBuilder queryBuilder;
   private final ChangeQueryProcessor queryProcessor;
@@ -92,6 +107,7 @@ public class OutputStreamQuery {
   private final TrackingFooters trackingFooters;
   private final SubmitRuleEvaluator.Factory submitRuleEvaluatorFactory;
   private final AccountAttributeLoader.Factory accountAttributeLoaderFactory;
+  private final ExecutorService fanOutExecutor;
 
   private OutputFormat outputFormat = OutputFormat.TEXT;
   private boolean includePatchSets;
@@ -103,6 +119,9 @@ public class OutputStreamQuery {
   private boolean includeDependencies;
   private boolean includeSubmitRecords;
   private boolean includeAllReviewers;
+  private boolean stream;
+  private boolean parallel;
+  private int streamBatchSize = DEFAULT_STREAM_BATCH_SIZE;
 
   private OutputStream outputStream = DisabledOutputStream.INSTANCE;
   private PrintWriter out;
@@ -117,7 +136,8 @@ public class OutputStreamQuery {
       EventFactory eventFactory,
       TrackingFooters trackingFooters,
       SubmitRuleEvaluator.Factory submitRuleEvaluatorFactory,
-      AccountAttributeLoader.Factory accountAttributeLoaderFactory) {
+      AccountAttributeLoader.Factory accountAttributeLoaderFactory,
+      @FanOutExecutor ExecutorService fanOutExecutor) {
     this.repoManager = repoManager;
     this.queryBuilder = queryBuilder;
     this.queryProcessor = queryProcessor;
@@ -125,6 +145,7 @@ public class OutputStreamQuery {
     this.trackingFooters = trackingFooters;
     this.submitRuleEvaluatorFactory = submitRuleEvaluatorFactory;
     this.accountAttributeLoaderFactory = accountAttributeLoaderFactory;
+    this.fanOutExecutor = fanOutExecutor;
   }
 
   void setLimit(int n) {
@@ -139,6 +160,34 @@ public class OutputStreamQuery {
     queryProcessor.setStart(n);
   }
 
+  /**
+   * Whether changes should be written as soon as their attributes are built, instead of after all
+   * results were collected. The index is then read in pages, so that the memory needed doesn't
+   * grow with the number of results. Not supported together with {@link #setStart(int)}.
+   */
+  public void setStream(boolean on) {
+    stream = on;
+  }
+
+  public boolean getStream() {
+    return stream;
+  }
+
+  /** Whether the attributes of streamed changes should be built in parallel. */
+  public void setParallel(boolean on) {
+    parallel = on;
+  }
+
+  public boolean getParallel() {
+    return parallel;
+  }
+
+  /** Number of changes that are read from the index and written at once when streaming. */
+  public void setStreamBatchSize(int batchSize) {
+    checkArgument(batchSize > 0, "batch size must be positive: %s", batchSize);
+    streamBatchSize = batchSize;
+  }
+
   public void setIncludePatchSets(boolean on) {
     includePatchSets = on;
   }
@@ -217,6 +266,13 @@ public class OutputStreamQuery {
         final QueryStatsAttribute stats = new QueryStatsAttribute();
         stats.runTimeMilliseconds = TimeUtil.nowMs();
 
+        if (stream) {
+          streamQuery(queryBuilder.parse(queryString), stats);
+          stats.runTimeMilliseconds = TimeUtil.nowMs() - stats.runTimeMilliseconds;
+          show(stats);
+          return;
+        }
+
         Map<Project.NameKey, Repository> repos = new HashMap<>();
         Map<Project.NameKey, RevWalk> revWalks = new HashMap<>();
         Map<Project.NameKey, AttributesNodeProvider> attributesNodeProviders = new HashMap<>();
@@ -226,10 +282,7 @@ public class OutputStreamQuery {
           AccountAttributeLoader accountLoader = accountAttributeLoaderFactory.create();
           List<ChangeAttribute> changeAttributes = new ArrayList<>();
           for (ChangeData d : results.entities()) {
-            if (Thread.currentThread().isInterrupted()) {
-              throw new RequestCancelledException(
-                  RequestStateProvider.Reason.CLIENT_CLOSED_REQUEST, null);
-            }
+            checkCancelled();
             changeAttributes.add(
                 buildChangeAttribute(d, repos, revWalks, accountLoader, attributesNodeProviders));
           }
@@ -264,6 +317,123 @@ public class OutputStreamQuery {
     }
   }
 
+  /**
+   * Writes the results of the query in batches of {@link #setStreamBatchSize(int)} changes, each as
+   * soon as the attributes of its changes are built.
+   */
+  private void streamQuery(Predicate<ChangeData> query, QueryStatsAttribute stats)
+      throws QueryParseException, IOException {
+    int limit = queryProcessor.getEffectiveLimit(query);
+    Map<Project.NameKey, Repository> repos = new HashMap<>();
+    Map<Project.NameKey, RevWalk> revWalks = new HashMap<>();
+    Map<Project.NameKey, AttributesNodeProvider> attributesNodeProviders = new HashMap<>();
+    List<ChangeData> batch = new ArrayList<>(streamBatchSize);
+    ResultSet<ChangeData> results = queryProcessor.stream(query, streamBatchSize);
+    try {
+      for (ChangeData d : results) {
+        if (stats.rowCount == limit) {
+          stats.moreChanges = true;
+          break;
+        }
+        batch.add(d);
+        stats.rowCount++;
+        if (batch.size() == streamBatchSize) {
+          showBatch(batch, repos, revWalks, attributesNodeProviders);
+          batch.clear();
+        }
+      }
+      showBatch(batch, repos, revWalks, attributesNodeProviders);
+    } finally {
+      results.close();
+      closeAll(revWalks.values(), repos.values());
+    }
+  }
+
+  private void showBatch(
+      List<ChangeData> batch,
+      Map<Project.NameKey, Repository> repos,
+      Map<Project.NameKey, RevWalk> revWalks,
+      Map<Project.NameKey, AttributesNodeProvider> attributesNodeProviders)
+      throws IOException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    pluginInfosByChange = queryProcessor.createPluginDefinedInfos(batch);
+    AccountAttributeLoader accountLoader = accountAttributeLoaderFactory.create();
+    List<ChangeAttribute> changeAttributes;
+    if (parallel && batch.size() > 1) {
+      changeAttributes = buildChangeAttributesInParallel(batch, accountLoader);
+    } else {
+      changeAttributes = new ArrayList<>(batch.size());
+      for (ChangeData d : batch) {
+        checkCancelled();
+        changeAttributes.add(
+            buildChangeAttribute(d, repos, revWalks, accountLoader, attributesNodeProviders));
+      }
+    }
+    accountLoader.fill();
+    changeAttributes.forEach(c -> show(c));
+    out.flush();
+  }
+
+  /**
+   * Builds the attributes of the given changes on the fan-out executor. As {@link RevWalk}s can't
+   * be shared between threads, each change uses its own repository and walk.
+   *
+   * <p>Changes that the executor didn't start yet are handled by the calling thread, so that
+   * waiting for the results can't block on a saturated executor.
+   */
+  private List<ChangeAttribute> buildChangeAttributesInParallel(
+      List<ChangeData> batch, AccountAttributeLoader accountLoader) {
+    List<Callable<ChangeAttribute>> tasks = new ArrayList<>(batch.size());
+    for (ChangeData d : batch) {
+      tasks.add(
+          () -> {
+            Map<Project.NameKey, Repository> repos = new HashMap<>();
+            Map<Project.NameKey, RevWalk> revWalks = new HashMap<>();
+            try {
+              return buildChangeAttribute(d, repos, revWalks, accountLoader, new HashMap<>());
+            } finally {
+              closeAll(revWalks.values(), repos.values());
+            }
+          });
+    }
+    List<Future<ChangeAttribute>> futures = new ArrayList<>(tasks.size());
+    for (Callable<ChangeAttribute> task : tasks) {
+      futures.add(fanOutExecutor.submit(task));
+    }
+
+    List<ChangeAttribute> changeAttributes = new ArrayList<>(tasks.size());
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        checkCancelled();
+        if (futures.get(i).cancel(false)) {
+          changeAttributes.add(tasks.get(i).call());
+        } else {
+          changeAttributes.add(futures.get(i).get());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RequestCancelledException(RequestStateProvider.Reason.CLIENT_CLOSED_REQUEST, null);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new StorageException("Failed to build change attributes", e.getCause());
+    } catch (Exception e) {
+      Throwables.throwIfUnchecked(e);
+      throw new StorageException("Failed to build change attributes", e);
+    } finally {
+      futures.forEach(f -> f.cancel(false));
+    }
+    return changeAttributes;
+  }
+
+  private static void checkCancelled() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new RequestCancelledException(RequestStateProvider.Reason.CLIENT_CLOSED_REQUEST, null);
+    }
+  }
+
   private ChangeAttribute buildChangeAttribute(
       ChangeData d,
       Map<Project.NameKey, Repository> repos,
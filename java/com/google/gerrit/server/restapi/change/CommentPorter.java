@@ -19,6 +19,7 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static java.util.stream.Collectors.groupingBy;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -29,32 +30,34 @@ import com.google.gerrit.entities.HumanComment;
 import com.google.gerrit.entities.Patch;
 import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.metrics.Counter0;
 import com.google.gerrit.metrics.Description;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.server.CommentsUtil;
+import com.google.gerrit.server.FanOutExecutor;
 import com.google.gerrit.server.logging.Metadata;
 import com.google.gerrit.server.logging.TraceContext;
 import com.google.gerrit.server.logging.TraceContext.TraceTimer;
 import com.google.gerrit.server.notedb.ChangeNotes;
-import com.google.gerrit.server.patch.DiffMappings;
+import com.google.gerrit.server.patch.CommitMappingsCache;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
-import com.google.gerrit.server.patch.DiffOperations;
-import com.google.gerrit.server.patch.DiffOptions;
 import com.google.gerrit.server.patch.GitPositionTransformer;
 import com.google.gerrit.server.patch.GitPositionTransformer.BestPositionOnConflict;
 import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
 import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
 import com.google.gerrit.server.patch.GitPositionTransformer.Position;
 import com.google.gerrit.server.patch.GitPositionTransformer.PositionedEntity;
-import com.google.gerrit.server.patch.filediff.FileDiffOutput;
-import com.google.gerrit.server.patch.filediff.FileEdits;
-import com.google.gerrit.server.patch.filediff.TaggedEdit;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import org.eclipse.jgit.lib.ObjectId;
@@ -102,17 +105,23 @@ public class CommentPorter {
     }
   }
 
-  private final DiffOperations diffOperations;
+  private final CommitMappingsCache commitMappingsCache;
   private final GitPositionTransformer positionTransformer =
       new GitPositionTransformer(BestPositionOnConflict.INSTANCE);
   private final CommentsUtil commentsUtil;
   private final Metrics metrics;
+  private final ExecutorService fanOutExecutor;
 
   @Inject
-  public CommentPorter(DiffOperations diffOperations, CommentsUtil commentsUtil, Metrics metrics) {
-    this.diffOperations = diffOperations;
+  public CommentPorter(
+      CommitMappingsCache commitMappingsCache,
+      CommentsUtil commentsUtil,
+      Metrics metrics,
+      @FanOutExecutor ExecutorService fanOutExecutor) {
+    this.commitMappingsCache = commitMappingsCache;
     this.commentsUtil = commentsUtil;
     this.metrics = metrics;
+    this.fanOutExecutor = fanOutExecutor;
   }
 
   /**
@@ -178,20 +187,20 @@ public class CommentPorter {
     Map<Integer, ImmutableList<HumanComment>> commentsPerPatchset =
         comments.stream().collect(groupingBy(comment -> comment.key.patchSetId, toImmutableList()));
 
-    ImmutableList.Builder<HumanComment> portedComments =
-        ImmutableList.builderWithExpectedSize(comments.size());
+    List<Callable<ImmutableList<HumanComment>>> portings = new ArrayList<>();
     for (Integer originalPatchsetId : commentsPerPatchset.keySet()) {
       ImmutableList<HumanComment> patchsetComments = commentsPerPatchset.get(originalPatchsetId);
       PatchSet originalPatchset =
           notes.getPatchSets().get(PatchSet.id(notes.getChangeId(), originalPatchsetId));
       if (originalPatchset != null) {
-        portedComments.addAll(
-            portSamePatchset(
-                notes.getProjectName(),
-                notes.getChange(),
-                originalPatchset,
-                targetPatchset,
-                patchsetComments));
+        portings.add(
+            () ->
+                portSamePatchset(
+                    notes.getProjectName(),
+                    notes.getChange(),
+                    originalPatchset,
+                    targetPatchset,
+                    patchsetComments));
       } else {
         logger.atWarning().log(
             "Some comments which should be ported refer to the non-existent patchset %s of"
@@ -199,9 +208,55 @@ public class CommentPorter {
             originalPatchsetId, notes.getChangeId().get(), patchsetComments.size());
       }
     }
+
+    ImmutableList.Builder<HumanComment> portedComments =
+        ImmutableList.builderWithExpectedSize(comments.size());
+    for (ImmutableList<HumanComment> ported : runInParallel(portings)) {
+      portedComments.addAll(ported);
+    }
     return portedComments.build();
   }
 
+  /**
+   * Runs the given portings on the fan-out executor, as the comments of different patchsets are
+   * ported based on different diffs which can be computed independently of each other.
+   *
+   * <p>Portings that the executor didn't start yet are run by the calling thread, so that waiting
+   * for the results can't block on a saturated executor.
+   */
+  private List<ImmutableList<HumanComment>> runInParallel(
+      List<Callable<ImmutableList<HumanComment>>> portings) {
+    List<Future<ImmutableList<HumanComment>>> futures = new ArrayList<>(portings.size());
+    if (portings.size() > 1) {
+      for (Callable<ImmutableList<HumanComment>> porting : portings) {
+        futures.add(fanOutExecutor.submit(porting));
+      }
+    }
+
+    List<ImmutableList<HumanComment>> results = new ArrayList<>(portings.size());
+    try {
+      for (int i = 0; i < portings.size(); i++) {
+        if (futures.isEmpty() || futures.get(i).cancel(false)) {
+          results.add(portings.get(i).call());
+        } else {
+          results.add(futures.get(i).get());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StorageException("Interrupted while porting comments", e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new StorageException("Failed to port comments", e.getCause());
+    } catch (Exception e) {
+      Throwables.throwIfUnchecked(e);
+      throw new StorageException("Failed to port comments", e);
+    } finally {
+      futures.forEach(f -> f.cancel(false));
+    }
+    return results;
+  }
+
   private ImmutableList<HumanComment> portSamePatchset(
       Project.NameKey project,
       Change change,
@@ -293,7 +348,7 @@ public class CommentPorter {
                 .build())) {
       ObjectId originalCommit = determineCommitId(change, originalPatchset, side);
       ObjectId targetCommit = determineCommitId(change, targetPatchset, side);
-      return loadCommitMappings(project, originalCommit, targetCommit);
+      return commitMappingsCache.get(project, originalCommit, targetCommit);
     }
   }
 
@@ -308,32 +363,6 @@ public class CommentPorter {
                         change.getId().get(), patchset.id().get(), side)));
   }
 
-  private ImmutableSet<Mapping> loadCommitMappings(
-      Project.NameKey project, ObjectId originalCommit, ObjectId targetCommit)
-      throws DiffNotAvailableException {
-    try (TraceTimer ignored =
-        TraceContext.newTimer(
-            "Computing diffs", Metadata.builder().commit(originalCommit.name()).build())) {
-      Map<String, FileDiffOutput> modifiedFiles =
-          diffOperations.listModifiedFiles(
-              project,
-              originalCommit,
-              targetCommit,
-              DiffOptions.builder().skipFilesWithAllEditsDueToRebase(false).build());
-      return modifiedFiles.values().stream()
-          .map(CommentPorter::getFileEdits)
-          .map(DiffMappings::toMapping)
-          .collect(toImmutableSet());
-    }
-  }
-
-  private static FileEdits getFileEdits(FileDiffOutput fileDiffOutput) {
-    return FileEdits.create(
-        fileDiffOutput.edits().stream().map(TaggedEdit::edit).collect(toImmutableList()),
-        fileDiffOutput.oldPath(),
-        fileDiffOutput.newPath());
-  }
-
   private ImmutableSet<Mapping> getFallbackMappings(List<HumanComment> comments) {
     // Consider all files as deleted. -> Comments will be ported to the fallback destination, which
     // currently are patchset-level comments.
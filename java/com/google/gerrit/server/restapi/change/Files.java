@@ -29,10 +29,10 @@ import com.google.gerrit.extensions.restapi.AuthException;
 import com.google.gerrit.extensions.restapi.BadRequestException;
 import com.google.gerrit.extensions.restapi.CacheControl;
 import com.google.gerrit.extensions.restapi.ChildCollection;
+import com.google.gerrit.extensions.restapi.ETagView;
 import com.google.gerrit.extensions.restapi.IdString;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
-import com.google.gerrit.extensions.restapi.RestReadView;
 import com.google.gerrit.extensions.restapi.RestView;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.PatchSetUtil;
@@ -97,7 +97,7 @@ public class Files implements ChildCollection<RevisionResource, FileResource> {
     return new FileResource(rev, id.get());
   }
 
-  public static final class ListFiles implements RestReadView<RevisionResource> {
+  public static final class ListFiles implements ETagView<RevisionResource> {
     private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
     @Option(name = "--base", metaVar = "revision-id")
@@ -146,6 +146,15 @@ public class Files implements ChildCollection<RevisionResource, FileResource> {
       return this;
     }
 
+    @Override
+    public String getETag(RevisionResource resource) {
+      if (reviewed || query != null) {
+        // The reviewed flags and the query results are not covered by the revision ETag.
+        return null;
+      }
+      return resource.getETag();
+    }
+
     @Override
     public Response<?> apply(RevisionResource resource)
         throws RestApiException,
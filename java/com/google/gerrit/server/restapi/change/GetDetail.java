@@ -17,16 +17,16 @@ package com.google.gerrit.server.restapi.change;
 import com.google.gerrit.extensions.client.ListChangesOption;
 import com.google.gerrit.extensions.common.ChangeInfo;
 import com.google.gerrit.extensions.restapi.BadRequestException;
+import com.google.gerrit.extensions.restapi.ETagView;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.extensions.restapi.RestApiException;
-import com.google.gerrit.extensions.restapi.RestReadView;
 import com.google.gerrit.server.DynamicOptions;
 import com.google.gerrit.server.DynamicOptions.DynamicBean;
 import com.google.gerrit.server.change.ChangeResource;
 import com.google.inject.Inject;
 import org.kohsuke.args4j.Option;
 
-public class GetDetail implements RestReadView<ChangeResource>, DynamicOptions.BeanReceiver {
+public class GetDetail implements ETagView<ChangeResource>, DynamicOptions.BeanReceiver {
   private final GetChange delegate;
 
   @Option(name = "-o", usage = "Output options")
@@ -59,6 +59,11 @@ public class GetDetail implements RestReadView<ChangeResource>, DynamicOptions.B
     return delegate.getExportedBeanReceiver();
   }
 
+  @Override
+  public String getETag(ChangeResource rsrc) {
+    return rsrc.getETag();
+  }
+
   @Override
   public Response<ChangeInfo> apply(ChangeResource rsrc) throws RestApiException {
     return delegate.apply(rsrc);
@@ -185,8 +185,8 @@ public class Mergeable implements RestReadView<RevisionResource> {
       Repository git,
       Boolean old) {
     boolean mergeable = cache.get(commit, ref, type, strategy, change.getDest(), git);
-    // TODO(dborowitz): Include something else in the change ETag that it's possible to bump here,
-    // such as cache or secondary index update time.
+    // The change ETag covers the tip of the destination branch, which all mergeability changes
+    // of an open change are caused by.
     if (!Objects.equals(mergeable, old)
         && MergeabilityComputationBehavior.fromConfig(cfg).includeInIndex()) {
       @SuppressWarnings("unused")
@@ -17,6 +17,7 @@ package com.google.gerrit.server.rules.prolog;
 import com.google.gerrit.extensions.annotations.Exports;
 import com.google.gerrit.extensions.config.FactoryModule;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.lifecycle.LifecycleModule;
 import com.google.gerrit.server.rules.PrologSubmitRuleUtil;
 import com.google.gerrit.server.rules.SubmitRule;
 import com.google.gerrit.server.rules.prolog.RulesCache.RulesCacheModule;
@@ -34,6 +35,13 @@ public class PrologModule extends FactoryModule {
     install(new EnvironmentModule());
     install(new RulesCacheModule(config));
     bind(RulesCache.class);
+    install(
+        new LifecycleModule() {
+          @Override
+          protected void configure() {
+            listener().to(RulesCacheWarmer.class);
+          }
+        });
     bind(PrologEnvironment.Args.class);
     factory(PrologRuleEvaluator.Factory.class);
 
@@ -142,10 +142,13 @@ public class RulesCache {
   /**
    * Locate a cached Prolog machine state, or create one if not available.
    *
+   * <p>Concurrent callers asking for the same rules wait for a single load, while rules of
+   * different projects are loaded in parallel.
+   *
    * @return a Prolog machine, after loading the specified rules.
    * @throws CompileException the machine cannot be created.
    */
-  public synchronized PrologMachineCopy loadMachine(
+  public PrologMachineCopy loadMachine(
       @Nullable Project.NameKey project, @Nullable ObjectId rulesId) throws CompileException {
     if (!enableProjectRules || project == null || rulesId == null) {
       return defaultMachine;
@@ -0,0 +1,117 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.rules.prolog;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.entities.CachedProjectConfig;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.logging.LoggingContextAwareExecutorService;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.project.ProjectState;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlecode.prolog_cafe.exceptions.CompileException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Loads the Prolog rules of all projects that have a {@code rules.pl} into the {@link RulesCache}
+ * during server startup, so that the first submit record computations after a restart do not have
+ * to consult the rules on the request path.
+ *
+ * <p>Rules that were precompiled with {@code gerrit rulec} are loaded from their jar in {@code
+ * cache/rules}; all other rules are consulted. Projects are processed concurrently.
+ */
+@Singleton
+public class RulesCacheWarmer implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final Config config;
+  private final ProjectCache projectCache;
+  private final RulesCache rulesCache;
+
+  @Inject
+  RulesCacheWarmer(
+      @GerritServerConfig Config config, ProjectCache projectCache, RulesCache rulesCache) {
+    this.config = config;
+    this.projectCache = projectCache;
+    this.rulesCache = rulesCache;
+  }
+
+  @Override
+  public void start() {
+    if (!rulesCache.isProjectRulesEnabled()
+        || !config.getBoolean("cache", RulesCache.CACHE_NAME, "loadOnStartup", false)) {
+      return;
+    }
+
+    int cpus = Runtime.getRuntime().availableProcessors();
+    Thread scheduler =
+        new Thread(
+            () -> {
+              AtomicInteger loaded = new AtomicInteger();
+              try (ExecutorService pool =
+                  new LoggingContextAwareExecutorService(
+                      new ScheduledThreadPoolExecutor(
+                          config.getInt("cache", RulesCache.CACHE_NAME, "loadThreads", cpus),
+                          new ThreadFactoryBuilder()
+                              .setNameFormat("PrologRulesCacheLoader-%d")
+                              .build()))) {
+                for (Project.NameKey name : projectCache.all()) {
+                  pool.execute(
+                      () -> {
+                        if (load(name)) {
+                          loaded.incrementAndGet();
+                        }
+                      });
+                }
+              }
+              logger.atInfo().log("Loaded Prolog rules of %d projects", loaded.get());
+            });
+    scheduler.setName("PrologRulesCacheWarmer");
+    scheduler.setDaemon(true);
+
+    logger.atInfo().log("Loading Prolog rules cache");
+    scheduler.start();
+  }
+
+  private boolean load(Project.NameKey name) {
+    Optional<ObjectId> rulesId =
+        projectCache
+            .get(name)
+            .map(ProjectState::getConfig)
+            .flatMap(CachedProjectConfig::getRulesId);
+    if (!rulesId.isPresent()) {
+      return false;
+    }
+    try {
+      rulesCache.loadMachine(name, rulesId.get());
+      return true;
+    } catch (CompileException e) {
+      logger.atWarning().withCause(e).log("Cannot load Prolog rules of %s", name);
+      return false;
+    }
+  }
+
+  @Override
+  public void stop() {}
+}
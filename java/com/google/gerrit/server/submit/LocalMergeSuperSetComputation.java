@@ -34,6 +34,7 @@ import com.google.gerrit.extensions.client.SubmitType;
 import com.google.gerrit.extensions.registration.DynamicItem;
 import com.google.gerrit.server.CurrentUser;
 import com.google.gerrit.server.config.GerritServerConfig;
+import com.google.gerrit.server.git.UninterestingTips;
 import com.google.gerrit.server.project.NoSuchProjectException;
 import com.google.gerrit.server.query.change.ChangeData;
 import com.google.gerrit.server.query.change.ChangeIsVisibleToPredicate;
@@ -283,8 +284,8 @@ public class LocalMergeSuperSetComputation implements MergeSuperSetComputation {
       int limit)
       throws IOException {
     Set<String> destHashes = new HashSet<>();
+    List<RevCommit> starts = new ArrayList<>();
     or.rw.reset();
-    markHeadUninteresting(or, b);
     for (RevCommit c : sourceCommits) {
       String name = c.name();
       if (ignoreHashes.contains(name)) {
@@ -296,7 +297,9 @@ public class LocalMergeSuperSetComputation implements MergeSuperSetComputation {
         break;
       }
       or.rw.markStart(c);
+      starts.add(c);
     }
+    markHeadUninteresting(or, b, starts);
     for (RevCommit c : or.rw) {
       String name = c.name();
       if (ignoreHashes.contains(name)) {
@@ -312,7 +315,8 @@ public class LocalMergeSuperSetComputation implements MergeSuperSetComputation {
     return destHashes;
   }
 
-  private void markHeadUninteresting(OpenRepo or, BranchNameKey b) throws IOException {
+  private void markHeadUninteresting(OpenRepo or, BranchNameKey b, List<RevCommit> starts)
+      throws IOException {
     Optional<RevCommit> head = heads.get(b);
     if (head == null) {
       Ref ref = or.repo.getRefDatabase().exactRef(b.branch());
@@ -320,7 +324,7 @@ public class LocalMergeSuperSetComputation implements MergeSuperSetComputation {
       heads.put(b, head);
     }
     if (head.isPresent()) {
-      or.rw.markUninteresting(head.get());
+      UninterestingTips.mark(or.rw, starts, ImmutableList.of(head.get()));
     }
   }
 
@@ -46,11 +46,13 @@ import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.entities.ProjectChangeKey;
 import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.extensions.api.changes.NotifyHandling;
 import com.google.gerrit.extensions.config.FactoryModule;
 import com.google.gerrit.extensions.restapi.RestApiException;
 import com.google.gerrit.server.AccessPath;
 import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.FanOutExecutor;
 import com.google.gerrit.server.GerritPersonIdent;
 import com.google.gerrit.server.RefLogIdentityProvider;
 import com.google.gerrit.server.account.AccountCache;
@@ -80,10 +82,14 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.eclipse.jgit.lib.BatchRefUpdate;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectInserter;
@@ -296,6 +302,7 @@ public class BatchUpdate implements AutoCloseable {
   private final GitReferenceUpdated gitRefUpdated;
   private final RefLogIdentityProvider refLogIdentityProvider;
   private final ServiceUserClassifier serviceUserClassifier;
+  private final ExecutorService fanOutExecutor;
 
   private final Project.NameKey project;
   private final CurrentUser user;
@@ -336,6 +343,7 @@ public class BatchUpdate implements AutoCloseable {
       RefLogIdentityProvider refLogIdentityProvider,
       ServiceUserClassifier serviceUserClassifier,
       AttentionSetObserver attentionSetObserver,
+      @FanOutExecutor ExecutorService fanOutExecutor,
       @GerritServerConfig Config gerritConfig,
       @Assisted Project.NameKey project,
       @Assisted CurrentUser user,
@@ -353,6 +361,7 @@ public class BatchUpdate implements AutoCloseable {
     this.refLogIdentityProvider = refLogIdentityProvider;
     this.serviceUserClassifier = serviceUserClassifier;
     this.attentionSetObserver = attentionSetObserver;
+    this.fanOutExecutor = fanOutExecutor;
     this.project = project;
     this.user = user;
     this.when = when;
@@ -710,6 +719,7 @@ public class BatchUpdate implements AutoCloseable {
     getRefLogIdent().ifPresent(handle.manager::setRefLogIdent);
     handle.manager.setRefLogMessage(refLogMessage);
     handle.manager.setPushCertificate(pushCert);
+    Map<Change.Id, ChangeNotes> prefetchedNotes = prefetchChangeNotes();
     for (Map.Entry<Change.Id, Collection<OpData<BatchUpdateOp>>> e : ops.asMap().entrySet()) {
       Change.Id id = e.getKey();
       boolean dirty = false;
@@ -723,7 +733,11 @@ public class BatchUpdate implements AutoCloseable {
           e.getValue().stream().map(op -> op.getClass().getName()).collect(toSet()));
       for (OpData<BatchUpdateOp> opData : e.getValue()) {
         if (ctx == null) {
-          ctx = newChangeContext(opData.user(), id);
+          ChangeNotes notes = prefetchedNotes.remove(id);
+          ctx =
+              notes != null
+                  ? new ChangeContextImpl(opData.user(), notes)
+                  : newChangeContext(opData.user(), id);
         } else if (!ctx.getUser().equals(opData.user())) {
           ctx.defaultUpdates.values().forEach(changeUpdates::add);
           ctx.distinctUpdates.values().forEach(changeUpdates::add);
@@ -802,6 +816,62 @@ public class BatchUpdate implements AutoCloseable {
     return Optional.empty();
   }
 
+  /**
+   * Loads the notes of all existing changes that are updated by this batch in parallel.
+   *
+   * <p>Without prefetching the notes of each change are loaded right before the ops of the change
+   * are applied, so that batches that update many changes (e.g. pushes of a series, topic submits
+   * or bulk abandons) pay for one NoteDb read after the other. The ops are still applied one change
+   * after the other, in the order in which they were added.
+   *
+   * <p>Notes that are not being loaded by the fan-out executor yet are loaded by the calling
+   * thread, so that waiting for the results can't block on a saturated executor.
+   *
+   * @return the loaded notes by change ID, empty if there are not enough changes to make
+   *     prefetching worthwhile
+   */
+  private Map<Change.Id, ChangeNotes> prefetchChangeNotes() throws Exception {
+    ImmutableList<Change.Id> ids =
+        ops.keySet().stream().filter(id -> !newChanges.containsKey(id)).collect(toImmutableList());
+    if (ids.size() < 2) {
+      return new HashMap<>();
+    }
+    try (TraceContext.TraceTimer ignored =
+        TraceContext.newTimer(
+            "BatchUpdate#prefetchChangeNotes",
+            Metadata.builder().projectName(project.get()).resourceCount(ids.size()).build())) {
+      Map<Change.Id, Future<ChangeNotes>> futures = new LinkedHashMap<>();
+      for (Change.Id id : ids) {
+        futures.put(id, fanOutExecutor.submit(() -> loadExistingChangeNotes(id)));
+      }
+      Map<Change.Id, ChangeNotes> notes = new HashMap<>();
+      try {
+        for (Map.Entry<Change.Id, Future<ChangeNotes>> e : futures.entrySet()) {
+          Future<ChangeNotes> f = e.getValue();
+          if (f.cancel(false)) {
+            notes.put(e.getKey(), loadExistingChangeNotes(e.getKey()));
+            continue;
+          }
+          try {
+            notes.put(e.getKey(), f.get());
+          } catch (ExecutionException ex) {
+            Throwables.throwIfUnchecked(ex.getCause());
+            throw new StorageException(ex.getCause());
+          }
+        }
+      } finally {
+        futures.values().forEach(f -> f.cancel(false));
+      }
+      return notes;
+    }
+  }
+
+  private ChangeNotes loadExistingChangeNotes(Change.Id id) {
+    logDebug("Opening change %s for update", id);
+    return changeNotesFactory.createForBatchUpdate(
+        ChangeNotes.Factory.newChange(project, id), /* shouldExist= */ true);
+  }
+
   private ChangeContextImpl newChangeContext(@Nullable CurrentUser contextUser, Change.Id id) {
     logDebug("Opening change %s for update", id);
     Change c = newChanges.get(id);
@@ -119,6 +119,7 @@ public class BatchUpdates {
           for (ChangesHandle h : changesHandles) {
             h.writeIndexIntents(pendingIndexUpdate, threadId);
           }
+          pendingIndexUpdate.sync();
         }
         for (ChangesHandle h : changesHandles) {
           h.execute();
@@ -28,6 +28,9 @@ import org.kohsuke.args4j.Option;
 public class Query extends SshCommand implements DynamicOptions.BeanReceiver {
   @Inject private OutputStreamQuery processor;
 
+  private boolean hasStart;
+  private Integer batchSize;
+
   @Option(name = "--format", metaVar = "FMT", usage = "Output display format")
   void setFormat(OutputFormat format) {
     processor.setOutput(out, format);
@@ -88,6 +91,7 @@ public class Query extends SshCommand implements DynamicOptions.BeanReceiver {
       aliases = {"-S"},
       usage = "Number of changes to skip")
   void setStart(int start) {
+    hasStart = true;
     processor.setStart(start);
   }
 
@@ -96,6 +100,26 @@ public class Query extends SshCommand implements DynamicOptions.BeanReceiver {
     processor.setNoLimit(on);
   }
 
+  @Option(
+      name = "--stream",
+      usage = "Write each change as soon as it is ready, reading the index in pages")
+  void setStream(boolean on) {
+    processor.setStream(on);
+  }
+
+  @Option(name = "--parallel", usage = "Build the output of streamed changes in parallel")
+  void setParallel(boolean on) {
+    processor.setParallel(on);
+  }
+
+  @Option(
+      name = "--batch-size",
+      metaVar = "N",
+      usage = "Number of changes that are read and written at once when streaming")
+  void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
   @Argument(
       index = 0,
       required = true,
@@ -123,6 +147,21 @@ public class Query extends SshCommand implements DynamicOptions.BeanReceiver {
         && !(processor.getIncludePatchSets() || processor.getIncludeCurrentPatchSet())) {
       throw die("--files option needs --patch-sets or --current-patch-set");
     }
+    if (processor.getStream() && hasStart) {
+      throw die("--start cannot be used with --stream");
+    }
+    if (processor.getParallel() && !processor.getStream()) {
+      throw die("--parallel option needs --stream");
+    }
+    if (batchSize != null) {
+      if (!processor.getStream()) {
+        throw die("--batch-size option needs --stream");
+      }
+      if (batchSize <= 0) {
+        throw die("--batch-size must be positive");
+      }
+      processor.setStreamBatchSize(batchSize);
+    }
   }
 
   private static String join(List<String> list, String sep) {
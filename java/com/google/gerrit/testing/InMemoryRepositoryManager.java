@@ -247,10 +247,12 @@ public class InMemoryRepositoryManager implements GitRepositoryManager {
   }
 
   private final Map<String, Repo> repos;
+  private final Map<String, Integer> openCounts;
 
   @Inject
   public InMemoryRepositoryManager() {
     this.repos = new HashMap<>();
+    this.openCounts = new HashMap<>();
   }
 
   @Override
@@ -266,7 +268,14 @@ public class InMemoryRepositoryManager implements GitRepositoryManager {
 
   @Override
   public synchronized Repo openRepository(Project.NameKey name) throws RepositoryNotFoundException {
-    return get(name);
+    Repo repo = get(name);
+    openCounts.merge(normalize(name), 1, Integer::sum);
+    return repo;
+  }
+
+  /** Returns how often the repository of the given project was opened. */
+  public synchronized int getOpenCount(Project.NameKey name) {
+    return openCounts.getOrDefault(normalize(name), 0);
   }
 
   @Override
@@ -16,22 +16,42 @@ package com.google.gerrit.util.concurrent;
 
 import com.google.common.hash.BloomFilter;
 import com.google.common.hash.Funnel;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class ConcurrentBloomFilter<K> {
+  private static final int MAGIC = 0x47424631;
+
   private final Funnel<K> funnel;
   private final Runnable builder;
   private final AtomicLong invalidatedCount = new AtomicLong();
   private final int maxInvalidated;
+  private final boolean counting;
 
   private volatile int estimatedSize;
-  private volatile BloomFilter<K> buildingBloomFilter;
-  private volatile BloomFilter<K> bloomFilter;
+  private volatile KeyFilter<K> buildingBloomFilter;
+  private volatile KeyFilter<K> bloomFilter;
 
   public ConcurrentBloomFilter(Funnel<K> funnel, Runnable builder, int maxInvalidated) {
+    this(funnel, builder, maxInvalidated, false);
+  }
+
+  /**
+   * Creates a filter that is populated by {@code builder}.
+   *
+   * @param counting whether to use a {@link CountingBloomFilter}. Counting filters use four times
+   *     the memory, but remove invalidated keys instead of counting them towards a rebuild.
+   */
+  public ConcurrentBloomFilter(
+      Funnel<K> funnel, Runnable builder, int maxInvalidated, boolean counting) {
     this.funnel = funnel;
     this.builder = builder;
     this.maxInvalidated = maxInvalidated;
+    this.counting = counting;
   }
 
   public int getEstimatedSize() {
@@ -59,7 +79,7 @@ public class ConcurrentBloomFilter<K> {
   }
 
   public boolean mightContain(K key) {
-    BloomFilter<K> b = bloomFilter;
+    KeyFilter<K> b = bloomFilter;
     return b == null || b.mightContain(key);
   }
 
@@ -83,8 +103,8 @@ public class ConcurrentBloomFilter<K> {
   public void put(K key) {
     boolean referencesChanged;
     do {
-      BloomFilter<K> b = putIfFilterNotNull(bloomFilter, key);
-      BloomFilter<K> bb = putIfFilterNotNull(buildingBloomFilter, key);
+      KeyFilter<K> b = putIfFilterNotNull(bloomFilter, key);
+      KeyFilter<K> bb = putIfFilterNotNull(buildingBloomFilter, key);
       // Was there a concurrent update by another thread?
       referencesChanged =
           !suppressReferenceEqualityWarning(b, bloomFilter)
@@ -92,27 +112,111 @@ public class ConcurrentBloomFilter<K> {
     } while (referencesChanged);
   }
 
+  /**
+   * Records that a key which was put into this filter has been removed from the backing store.
+   *
+   * <p>Only the active filter is updated: a filter that is still being built may already contain
+   * the key, and leaving it there only costs a false positive.
+   */
   public void invalidate(K key) {
-    invalidatedCount.incrementAndGet();
+    KeyFilter<K> b = bloomFilter;
+    if (b == null || !b.remove(key)) {
+      invalidatedCount.incrementAndGet();
+    }
   }
 
   public void clear() {
     bloomFilter = newBloomFilter();
   }
 
-  private BloomFilter<K> newBloomFilter() {
+  /**
+   * Writes the active filter, so that it can be restored with {@link #readFrom(InputStream)}
+   * instead of being rebuilt.
+   *
+   * @return false if there is no active filter to write.
+   */
+  public boolean writeTo(OutputStream out) throws IOException {
+    KeyFilter<K> b = bloomFilter;
+    if (b == null) {
+      return false;
+    }
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeInt(MAGIC);
+    dout.writeBoolean(counting);
+    dout.writeInt(estimatedSize);
+    dout.writeLong(invalidatedCount.get());
+    b.writeTo(dout);
+    dout.flush();
+    return true;
+  }
+
+  /**
+   * Restores a filter written by {@link #writeTo(OutputStream)}.
+   *
+   * @return false if the stream holds a filter of a different kind, in which case the filter must
+   *     be built as usual.
+   */
+  public synchronized boolean readFrom(InputStream in) throws IOException {
+    DataInputStream din = new DataInputStream(in);
+    if (din.readInt() != MAGIC || din.readBoolean() != counting) {
+      return false;
+    }
+    int size = din.readInt();
+    long invalidated = din.readLong();
+    KeyFilter<K> b =
+        counting
+            ? CountingBloomFilter.readFrom(din, funnel)
+            : new GuavaKeyFilter<>(BloomFilter.readFrom(din, funnel));
+    estimatedSize = size;
+    bloomFilter = b;
+    invalidatedCount.set(invalidated);
+    return true;
+  }
+
+  private KeyFilter<K> newBloomFilter() {
     invalidatedCount.set(0);
     int cnt = Math.max(64 * 1024, 2 * estimatedSize);
-    return BloomFilter.create(funnel, cnt);
+    if (counting) {
+      return CountingBloomFilter.create(funnel, cnt);
+    }
+    return new GuavaKeyFilter<>(BloomFilter.create(funnel, cnt));
   }
 
-  private static <K> BloomFilter<K> putIfFilterNotNull(BloomFilter<K> b, K key) {
+  private static <K> KeyFilter<K> putIfFilterNotNull(KeyFilter<K> b, K key) {
     if (b != null) {
       b.put(key);
     }
     return b;
   }
 
+  private static class GuavaKeyFilter<K> implements KeyFilter<K> {
+    private final BloomFilter<K> filter;
+
+    GuavaKeyFilter(BloomFilter<K> filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean mightContain(K key) {
+      return filter.mightContain(key);
+    }
+
+    @Override
+    public void put(K key) {
+      filter.put(key);
+    }
+
+    @Override
+    public boolean remove(K key) {
+      return false;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+      filter.writeTo(out);
+    }
+  }
+
   @SuppressWarnings("ReferenceEquality")
   private static <T> boolean suppressReferenceEqualityWarning(T a, T b) {
     return a == b;
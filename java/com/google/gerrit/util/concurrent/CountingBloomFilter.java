@@ -0,0 +1,163 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.util.concurrent;
+
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Hashing;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counting Bloom filter.
+ *
+ * <p>Each bucket is a 4-bit counter instead of a single bit, so keys can be removed again without
+ * rebuilding the filter. Counters that reach their maximum value stick there, trading a few
+ * permanent false positives for never producing a false negative on overflow. Removing a key that
+ * was never put can cause false negatives; callers must only remove keys they know were added.
+ *
+ * <p>Uses the same double hashing scheme as Guava's {@code BloomFilter}.
+ */
+public class CountingBloomFilter<K> implements KeyFilter<K> {
+  private static final double DEFAULT_FPP = 0.03;
+  private static final int COUNTERS_PER_WORD = 16;
+  private static final long MAX_COUNT = 0xF;
+
+  public static <K> CountingBloomFilter<K> create(Funnel<K> funnel, int expectedInsertions) {
+    long n = Math.max(1, expectedInsertions);
+    long numCounters = (long) (-n * Math.log(DEFAULT_FPP) / (Math.log(2) * Math.log(2)));
+    int numHashes = Math.max(1, (int) Math.round((double) numCounters / n * Math.log(2)));
+    int words = (int) ((numCounters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD);
+    return new CountingBloomFilter<>(funnel, numHashes, new AtomicLongArray(words));
+  }
+
+  public static <K> CountingBloomFilter<K> readFrom(InputStream in, Funnel<K> funnel)
+      throws IOException {
+    DataInputStream din = new DataInputStream(in);
+    int numHashes = din.readUnsignedByte();
+    int words = din.readInt();
+    if (numHashes == 0 || words <= 0) {
+      throw new IOException("Invalid counting bloom filter header");
+    }
+    AtomicLongArray counters = new AtomicLongArray(words);
+    for (int i = 0; i < words; i++) {
+      counters.set(i, din.readLong());
+    }
+    return new CountingBloomFilter<>(funnel, numHashes, counters);
+  }
+
+  private final Funnel<K> funnel;
+  private final int numHashes;
+  private final AtomicLongArray counters;
+  private final long numCounters;
+
+  private CountingBloomFilter(Funnel<K> funnel, int numHashes, AtomicLongArray counters) {
+    this.funnel = funnel;
+    this.numHashes = numHashes;
+    this.counters = counters;
+    this.numCounters = (long) counters.length() * COUNTERS_PER_WORD;
+  }
+
+  @Override
+  public boolean mightContain(K key) {
+    long[] h = hash(key);
+    long combined = h[0];
+    for (int i = 0; i < numHashes; i++) {
+      if (count(index(combined)) == 0) {
+        return false;
+      }
+      combined += h[1];
+    }
+    return true;
+  }
+
+  @Override
+  public void put(K key) {
+    long[] h = hash(key);
+    long combined = h[0];
+    for (int i = 0; i < numHashes; i++) {
+      add(index(combined), 1);
+      combined += h[1];
+    }
+  }
+
+  @Override
+  public boolean remove(K key) {
+    if (!mightContain(key)) {
+      return true;
+    }
+    long[] h = hash(key);
+    long combined = h[0];
+    for (int i = 0; i < numHashes; i++) {
+      add(index(combined), -1);
+      combined += h[1];
+    }
+    return true;
+  }
+
+  @Override
+  public void writeTo(OutputStream out) throws IOException {
+    DataOutputStream dout = new DataOutputStream(out);
+    dout.writeByte(numHashes);
+    dout.writeInt(counters.length());
+    for (int i = 0; i < counters.length(); i++) {
+      dout.writeLong(counters.get(i));
+    }
+    dout.flush();
+  }
+
+  private long[] hash(K key) {
+    ByteBuffer b =
+        ByteBuffer.wrap(Hashing.murmur3_128().hashObject(key, funnel).asBytes())
+            .order(ByteOrder.LITTLE_ENDIAN);
+    return new long[] {b.getLong(0), b.getLong(8)};
+  }
+
+  private long index(long combined) {
+    return (combined & Long.MAX_VALUE) % numCounters;
+  }
+
+  private long count(long index) {
+    int shift = shift(index);
+    return (counters.get(word(index)) >>> shift) & MAX_COUNT;
+  }
+
+  private void add(long index, int delta) {
+    int word = word(index);
+    int shift = shift(index);
+    long w;
+    do {
+      w = counters.get(word);
+      long c = (w >>> shift) & MAX_COUNT;
+      if (c == MAX_COUNT || (c == 0 && delta < 0)) {
+        // Saturated counters are sticky; empty counters cannot be decremented.
+        return;
+      }
+    } while (!counters.compareAndSet(word, w, w + ((long) delta << shift)));
+  }
+
+  private static int word(long index) {
+    return (int) (index / COUNTERS_PER_WORD);
+  }
+
+  private static int shift(long index) {
+    return (int) (index % COUNTERS_PER_WORD) * 4;
+  }
+}
@@ -0,0 +1,34 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.util.concurrent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Approximate membership filter backing a {@link ConcurrentBloomFilter}. */
+interface KeyFilter<K> {
+  boolean mightContain(K key);
+
+  void put(K key);
+
+  /**
+   * Removes a key that was previously put into this filter.
+   *
+   * @return false if this filter does not support removals.
+   */
+  boolean remove(K key);
+
+  void writeTo(OutputStream out) throws IOException;
+}
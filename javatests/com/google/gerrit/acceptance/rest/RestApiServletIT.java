@@ -14,11 +14,14 @@
 
 package com.google.gerrit.acceptance.rest;
 
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
 import static com.google.common.net.HttpHeaders.ORIGIN;
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.gerrit.httpd.restapi.RestApiServlet.X_GERRIT_UPDATED_REF;
 import static com.google.gerrit.httpd.restapi.RestApiServlet.X_GERRIT_UPDATED_REF_ENABLED;
 import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
+import static org.apache.http.HttpStatus.SC_NOT_MODIFIED;
 import static org.apache.http.HttpStatus.SC_OK;
 
 import com.google.common.collect.ImmutableList;
@@ -88,6 +91,23 @@ public class RestApiServletIT extends AbstractDaemonTest {
         .containsMatch(ANY_SPACE);
   }
 
+  @Test
+  @GerritConfig(name = "httpd.streamJsonResponses", value = "true")
+  public void streamedRestResponseBodyShouldBeCompactWithoutSpaces() throws Exception {
+    RestResponse response = adminRestSession.getWithHeaders(ANY_REST_API, ACCEPT_STAR_HEADER);
+    assertThat(response.getStatusCode()).isEqualTo(SC_OK);
+
+    String content = contentWithoutMagicJson(response);
+    assertThat(content).doesNotContainMatch(ANY_SPACE);
+    assertThat(content).contains("\"administrateServer\":true");
+  }
+
+  @Test
+  @GerritConfig(name = "httpd.streamJsonResponses", value = "true")
+  public void streamedRestResponseBodyShouldBePrettyfiedWhenPPIsOne() throws Exception {
+    assertThat(contentWithoutMagicJson(prettyJsonRestResponse("pp", 1))).containsMatch(ANY_SPACE);
+  }
+
   @Test
   public void experimentRequestParamIsReserved() throws Exception {
     assertRestResponseWithParameters(SC_OK, ParameterParser.EXPERIMENT_PARAMETER, "exp1");
@@ -510,6 +530,45 @@ public class RestApiServletIT extends AbstractDaemonTest {
         .isEqualTo(String.format("option not recognized: %s", unrecognizedOption));
   }
 
+  @Test
+  public void changeDetailIsNotModifiedIfETagMatches() throws Exception {
+    Result change = createChange();
+    String url = "/changes/" + change.getChangeId() + "/detail";
+    RestResponse response = adminRestSession.get(url);
+    response.assertOK();
+    String eTag = response.getHeader(ETAG);
+    assertThat(eTag).isNotNull();
+
+    adminRestSession
+        .getWithHeaders(url, new BasicHeader(IF_NONE_MATCH, eTag))
+        .assertStatus(SC_NOT_MODIFIED);
+
+    gApi.changes().id(change.getChangeId()).current().review(ReviewInput.approve());
+    response = adminRestSession.getWithHeaders(url, new BasicHeader(IF_NONE_MATCH, eTag));
+    response.assertOK();
+    assertThat(response.getHeader(ETAG)).isNotEqualTo(eTag);
+  }
+
+  @Test
+  public void revisionFilesAreNotModifiedIfETagMatches() throws Exception {
+    Result change = createChange();
+    String url = "/changes/" + change.getChangeId() + "/revisions/current/files";
+    RestResponse response = adminRestSession.get(url);
+    response.assertOK();
+    String eTag = response.getHeader(ETAG);
+    assertThat(eTag).isNotNull();
+
+    adminRestSession
+        .getWithHeaders(url, new BasicHeader(IF_NONE_MATCH, eTag))
+        .assertStatus(SC_NOT_MODIFIED);
+
+    // The reviewed flags are not covered by the ETag.
+    response =
+        adminRestSession.getWithHeaders(url + "?reviewed", new BasicHeader(IF_NONE_MATCH, eTag));
+    response.assertOK();
+    assertThat(response.getHeader(ETAG)).isNull();
+  }
+
   private ObjectId getMetaRefSha1(Result change) {
     return change.getChange().notes().getRevision();
   }
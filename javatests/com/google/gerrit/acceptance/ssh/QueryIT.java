@@ -16,6 +16,7 @@ package com.google.gerrit.acceptance.ssh;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
+import static java.util.stream.Collectors.toList;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.Lists;
@@ -24,6 +25,7 @@ import com.google.gerrit.acceptance.NoHttpd;
 import com.google.gerrit.acceptance.PushOneCommit;
 import com.google.gerrit.acceptance.SshSession;
 import com.google.gerrit.acceptance.UseSsh;
+import com.google.gerrit.acceptance.config.GerritConfig;
 import com.google.gerrit.entities.LabelId;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.extensions.annotations.Exports;
@@ -354,6 +356,86 @@ public class QueryIT extends AbstractDaemonTest {
     assertThat(changes.get(0).patchSets.get(1).approvals.get(0).value).isEqualTo("-2");
   }
 
+  @Test
+  public void streamQueryJSON() throws Exception {
+    List<String> changeIds = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      changeIds.add(createChange().getChangeId());
+    }
+    String query = "project:" + project.get();
+
+    List<String> expected = ids(executeSuccessfulQuery("--current-patch-set " + query));
+    assertThat(expected).containsExactlyElementsIn(Lists.reverse(changeIds)).inOrder();
+    assertThat(ids(executeSuccessfulQuery("--stream --current-patch-set " + query)))
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+    List<ChangeAttribute> changes =
+        executeSuccessfulQuery("--stream --parallel --current-patch-set " + query);
+    assertThat(ids(changes)).containsExactlyElementsIn(expected).inOrder();
+    assertThat(changes.get(0).currentPatchSet).isNotNull();
+    assertThat(ids(executeSuccessfulQuery("--stream " + query + " limit:2")))
+        .containsExactlyElementsIn(expected.subList(0, 2))
+        .inOrder();
+  }
+
+  @Test
+  @GerritConfig(name = "index.paginationType", value = "SEARCH_AFTER")
+  public void streamQueryInPagesWithSearchAfter() throws Exception {
+    assertStreamQueryInPages();
+  }
+
+  @Test
+  @GerritConfig(name = "index.paginationType", value = "OFFSET")
+  public void streamQueryInPagesWithOffset() throws Exception {
+    assertStreamQueryInPages();
+  }
+
+  private void assertStreamQueryInPages() throws Exception {
+    List<String> changeIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      changeIds.add(createChange().getChangeId());
+    }
+    String query = "project:" + project.get();
+    List<String> expected = Lists.reverse(changeIds);
+
+    // Pages and batches of 2 changes: the last page is partially filled.
+    assertThat(ids(executeSuccessfulQuery("--stream --batch-size=2 " + query)))
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+    List<ChangeAttribute> changes =
+        executeSuccessfulQuery("--stream --parallel --batch-size=2 --current-patch-set " + query);
+    assertThat(ids(changes)).containsExactlyElementsIn(expected).inOrder();
+    assertThat(changes.get(4).currentPatchSet).isNotNull();
+
+    // The last page is full, the next one is empty.
+    assertThat(ids(executeSuccessfulQuery("--stream --batch-size=5 " + query)))
+        .containsExactlyElementsIn(expected)
+        .inOrder();
+
+    // The limit ends the results in the middle of the second page.
+    assertThat(ids(executeSuccessfulQuery("--stream --batch-size=2 " + query + " limit:3")))
+        .containsExactlyElementsIn(expected.subList(0, 3))
+        .inOrder();
+  }
+
+  @Test
+  public void streamQueryWithInvalidBatchSizeIsRejected() throws Exception {
+    adminSshSession.exec("gerrit query --batch-size=2 status:open");
+    adminSshSession.assertFailure("--batch-size option needs --stream");
+    adminSshSession.exec("gerrit query --stream --batch-size=0 status:open");
+    adminSshSession.assertFailure("--batch-size must be positive");
+  }
+
+  @Test
+  public void streamQueryWithStartIsRejected() throws Exception {
+    adminSshSession.exec("gerrit query --stream --start=1 status:open");
+    adminSshSession.assertFailure("--start cannot be used with --stream");
+  }
+
+  private static List<String> ids(List<ChangeAttribute> changes) {
+    return changes.stream().map(c -> c.id).collect(toList());
+  }
+
   protected static class SamplePluginModule extends AbstractModule {
     @Override
     public void configure() {
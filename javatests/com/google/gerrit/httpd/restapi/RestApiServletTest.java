@@ -0,0 +1,78 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.httpd.restapi;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.gerrit.util.http.testutil.FakeHttpServletRequest;
+import com.google.gerrit.util.http.testutil.FakeHttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import org.junit.Test;
+
+public class RestApiServletTest {
+  private static final String JSON_PREFIX = ")]}'\n";
+
+  @Test
+  public void streamJsonCompressesLargeReplies() throws Exception {
+    ImmutableList<String> result = ImmutableList.copyOf(Collections.nCopies(1000, "value"));
+    FakeHttpServletResponse res = new FakeHttpServletResponse();
+
+    long len = RestApiServlet.streamJson(acceptingGzip(), res, ImmutableListMultimap.of(), result);
+
+    assertThat(res.getHeader("Content-Encoding")).isEqualTo("gzip");
+    assertThat(len).isEqualTo(res.getActualBody().length);
+    String json =
+        new String(
+            ByteStreams.toByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(res.getActualBody()))),
+            UTF_8);
+    assertThat(json).startsWith(JSON_PREFIX + "[\"value\",\"value\",");
+    assertThat(json).endsWith("\"value\"]\n");
+  }
+
+  @Test
+  public void streamJsonDoesNotCompressSmallReplies() throws Exception {
+    FakeHttpServletResponse res = new FakeHttpServletResponse();
+
+    RestApiServlet.streamJson(
+        acceptingGzip(), res, ImmutableListMultimap.of(), ImmutableMap.of("key", "value"));
+
+    assertThat(res.getHeader("Content-Encoding")).isNull();
+    assertThat(res.getActualBodyString()).isEqualTo(JSON_PREFIX + "{\"key\":\"value\"}\n");
+  }
+
+  @Test
+  public void streamJsonDoesNotCompressIfClientDoesNotAcceptGzip() throws Exception {
+    ImmutableList<String> result = ImmutableList.copyOf(Collections.nCopies(1000, "value"));
+    FakeHttpServletResponse res = new FakeHttpServletResponse();
+
+    RestApiServlet.streamJson(
+        new FakeHttpServletRequest(), res, ImmutableListMultimap.of(), result);
+
+    assertThat(res.getHeader("Content-Encoding")).isNull();
+    assertThat(res.getActualBodyString()).startsWith(JSON_PREFIX + "[\"value\",");
+  }
+
+  private static FakeHttpServletRequest acceptingGzip() {
+    return new FakeHttpServletRequest().addHeader("Accept-Encoding", "gzip, deflate");
+  }
+}
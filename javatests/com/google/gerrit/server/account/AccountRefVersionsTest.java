@@ -0,0 +1,115 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.RefNames;
+import com.google.gerrit.extensions.events.GitBatchRefUpdateListener;
+import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.testing.TestTimeUtil;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccountRefVersionsTest {
+  private static final AllUsersName ALL_USERS = new AllUsersName("All-Users");
+  private static final Account.Id ACCOUNT = Account.id(1000001);
+  private static final ObjectId REV =
+      ObjectId.fromString("0123456789012345678901234567890123456789");
+
+  private AccountRefVersions refVersions;
+
+  @Before
+  public void setUp() {
+    TestTimeUtil.resetWithClockStep(0, TimeUnit.SECONDS);
+    refVersions = new AccountRefVersions(ALL_USERS, TimeUnit.MINUTES.toMillis(1));
+  }
+
+  @After
+  public void tearDown() {
+    TestTimeUtil.useSystemTime();
+  }
+
+  @Test
+  public void disabledByDefault() {
+    AccountRefVersions disabled = new AccountRefVersions(ALL_USERS, 0);
+    disabled.put(ACCOUNT, REV, disabled.generation(ACCOUNT));
+    assertThat(disabled.get(ACCOUNT)).isNull();
+  }
+
+  @Test
+  public void revisionIsRemembered() {
+    refVersions.put(ACCOUNT, REV, refVersions.generation(ACCOUNT));
+    assertThat(refVersions.get(ACCOUNT)).isEqualTo(REV);
+  }
+
+  @Test
+  public void revisionExpires() {
+    refVersions.put(ACCOUNT, REV, refVersions.generation(ACCOUNT));
+    TestTimeUtil.incrementClock(1, TimeUnit.MINUTES);
+    assertThat(refVersions.get(ACCOUNT)).isNull();
+  }
+
+  @Test
+  public void revisionIsDroppedOnUpdateOfUserBranch() {
+    refVersions.put(ACCOUNT, REV, refVersions.generation(ACCOUNT));
+    refVersions.onGitBatchRefUpdate(event(ALL_USERS.get(), RefNames.refsUsers(ACCOUNT)));
+    assertThat(refVersions.get(ACCOUNT)).isNull();
+  }
+
+  @Test
+  public void revisionIsKeptOnUnrelatedUpdates() {
+    refVersions.put(ACCOUNT, REV, refVersions.generation(ACCOUNT));
+    refVersions.onGitBatchRefUpdate(event(ALL_USERS.get(), RefNames.refsUsers(Account.id(2))));
+    refVersions.onGitBatchRefUpdate(event("project", RefNames.refsUsers(ACCOUNT)));
+    assertThat(refVersions.get(ACCOUNT)).isEqualTo(REV);
+  }
+
+  @Test
+  public void revisionReadBeforeUpdateIsNotRemembered() {
+    long generation = refVersions.generation(ACCOUNT);
+    refVersions.onGitBatchRefUpdate(event(ALL_USERS.get(), RefNames.refsUsers(ACCOUNT)));
+    refVersions.put(ACCOUNT, REV, generation);
+    assertThat(refVersions.get(ACCOUNT)).isNull();
+  }
+
+  @Test
+  public void evictionDoesNotAffectConcurrentReadsOfOtherAccounts() {
+    Account.Id other = Account.id(ACCOUNT.get() + 1);
+    long generation = refVersions.generation(ACCOUNT);
+    long otherGeneration = refVersions.generation(other);
+    refVersions.evict(other);
+    refVersions.put(ACCOUNT, REV, generation);
+    refVersions.put(other, REV, otherGeneration);
+    assertThat(refVersions.get(ACCOUNT)).isEqualTo(REV);
+    assertThat(refVersions.get(other)).isNull();
+  }
+
+  private static GitBatchRefUpdateListener.Event event(String project, String refName) {
+    GitBatchRefUpdateListener.UpdatedRef ref = mock(GitBatchRefUpdateListener.UpdatedRef.class);
+    when(ref.getRefName()).thenReturn(refName);
+    GitBatchRefUpdateListener.Event event = mock(GitBatchRefUpdateListener.Event.class);
+    when(event.getProjectName()).thenReturn(project);
+    when(event.getUpdatedRefs()).thenReturn(ImmutableSet.of(ref));
+    return event;
+  }
+}
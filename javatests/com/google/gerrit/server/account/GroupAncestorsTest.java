@@ -0,0 +1,84 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.entities.AccountGroup;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class GroupAncestorsTest {
+  private final GroupUuidInterner interner = new GroupUuidInterner();
+
+  @Test
+  public void internReturnsStableIds() {
+    AccountGroup.UUID a = AccountGroup.uuid("a");
+    AccountGroup.UUID b = AccountGroup.uuid("b");
+    int idA = interner.intern(a);
+    int idB = interner.intern(b);
+    assertThat(idB).isNotEqualTo(idA);
+    assertThat(interner.intern(AccountGroup.uuid("a"))).isEqualTo(idA);
+    assertThat(interner.idOf(b)).isEqualTo(idB);
+    assertThat(interner.uuidOf(idA)).isEqualTo(a);
+    assertThat(interner.idOf(AccountGroup.uuid("unknown"))).isEqualTo(-1);
+  }
+
+  @Test
+  public void internManyGroups() {
+    for (int i = 0; i < 1000; i++) {
+      assertThat(interner.intern(AccountGroup.uuid("g" + i))).isEqualTo(i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertThat(interner.uuidOf(i)).isEqualTo(AccountGroup.uuid("g" + i));
+    }
+  }
+
+  @Test
+  public void contains() {
+    GroupAncestors ancestors = ancestors("a", "c");
+    assertThat(ancestors.contains(AccountGroup.uuid("a"))).isTrue();
+    assertThat(ancestors.contains(AccountGroup.uuid("c"))).isTrue();
+    assertThat(ancestors.contains(AccountGroup.uuid("b"))).isFalse();
+    assertThat(ancestors.contains(AccountGroup.uuid("unknown"))).isFalse();
+  }
+
+  @Test
+  public void union() {
+    GroupAncestors union = ancestors("a", "b", "d").union(ancestors("b", "c", "e"));
+    assertThat(union.size()).isEqualTo(5);
+    assertThat(union.toSet())
+        .containsExactly(
+            AccountGroup.uuid("a"),
+            AccountGroup.uuid("b"),
+            AccountGroup.uuid("c"),
+            AccountGroup.uuid("d"),
+            AccountGroup.uuid("e"));
+  }
+
+  @Test
+  public void unionWithEmpty() {
+    GroupAncestors a = ancestors("a");
+    GroupAncestors empty = ancestors();
+    assertThat(a.union(empty)).isSameInstanceAs(a);
+    assertThat(empty.union(a)).isSameInstanceAs(a);
+  }
+
+  private GroupAncestors ancestors(String... uuids) {
+    return new GroupAncestors(
+        interner,
+        Arrays.stream(uuids).map(AccountGroup::uuid).mapToInt(interner::intern).sorted().toArray());
+  }
+}
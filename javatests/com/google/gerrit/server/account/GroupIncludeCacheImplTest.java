@@ -0,0 +1,157 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.account;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.index.IndexConfig;
+import com.google.gerrit.server.IdentifiedUser;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupIncludeCacheImplTest {
+  private static final Account.Id USER = Account.id(1000);
+
+  private final Map<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parents = new HashMap<>();
+  private final Map<Account.Id, ImmutableSet<AccountGroup.UUID>> groupsWithMember =
+      new HashMap<>();
+
+  private LoadingCache<AccountGroup.UUID, GroupAncestors> ancestors;
+  private GroupIncludeCacheImpl includeCache;
+
+  @Before
+  public void setUp() {
+    GroupUuidInterner interner = new GroupUuidInterner();
+    IndexConfig indexConfig = IndexConfig.createDefault();
+    LoadingCache<AccountGroup.UUID, ImmutableSet<AccountGroup.UUID>> parentGroups =
+        CacheBuilder.newBuilder()
+            .build(CacheLoader.from(g -> parents.getOrDefault(g, ImmutableSet.of())));
+    ancestors =
+        CacheBuilder.newBuilder()
+            .build(new GroupIncludeCacheImpl.AncestorsLoader(parentGroups, interner, indexConfig));
+    includeCache =
+        new GroupIncludeCacheImpl(
+            CacheBuilder.newBuilder()
+                .build(CacheLoader.from(m -> groupsWithMember.getOrDefault(m, ImmutableSet.of()))),
+            parentGroups,
+            ancestors,
+            CacheBuilder.newBuilder().build(CacheLoader.from(k -> ImmutableList.of())),
+            interner,
+            indexConfig);
+  }
+
+  @Test
+  public void ancestorsAreTransitive() {
+    include("a", "b", "d");
+    include("b", "c");
+    include("e", "f");
+
+    assertThat(includeCache.ancestorsOf(uuids("a")).toSet())
+        .containsExactlyElementsIn(uuids("a", "b", "c", "d"));
+    assertThat(includeCache.ancestorsOf(uuids("c")).toSet()).containsExactlyElementsIn(uuids("c"));
+    assertThat(includeCache.ancestorsOf(uuids("a", "e")).toSet())
+        .containsExactlyElementsIn(uuids("a", "b", "c", "d", "e", "f"));
+  }
+
+  @Test
+  public void ancestorsOfCycle() {
+    include("a", "b");
+    include("b", "c");
+    include("c", "a");
+
+    assertThat(includeCache.ancestorsOf(uuids("b")).toSet())
+        .containsExactlyElementsIn(uuids("a", "b", "c"));
+  }
+
+  @Test
+  public void evictParentGroupsOfDropsOnlyAncestorsContainingTheGroup() {
+    include("a", "b");
+    include("b", "c");
+    include("e", "f");
+    includeCache.ancestorsOf(uuids("a", "b", "c", "e"));
+    assertThat(ancestors.asMap().keySet()).containsExactlyElementsIn(uuids("a", "b", "c", "e"));
+
+    // b is removed from c.
+    parents.remove(uuid("b"));
+    includeCache.evictParentGroupsOf(uuid("b"));
+
+    assertThat(ancestors.asMap().keySet()).containsExactlyElementsIn(uuids("c", "e"));
+    assertThat(includeCache.ancestorsOf(uuids("a")).toSet())
+        .containsExactlyElementsIn(uuids("a", "b"));
+  }
+
+  @Test
+  public void membershipThroughAncestorsOfNestedGroups() {
+    groupsWithMember.put(USER, ImmutableSet.of(uuid("a")));
+    include("a", "b", "d");
+    include("b", "c");
+    include("d", "c");
+
+    IncludingGroupMembership membership = membership();
+    assertThat(membership.contains(uuid("b"))).isTrue();
+    assertThat(membership.contains(uuid("c"))).isTrue();
+    assertThat(membership.contains(uuid("e"))).isFalse();
+    assertThat(membership.getKnownGroups()).containsExactlyElementsIn(uuids("a", "b", "c", "d"));
+
+    // a is removed from b, but is still included in c through d.
+    include("a", "d");
+    includeCache.evictParentGroupsOf(uuid("a"));
+
+    membership = membership();
+    assertThat(membership.contains(uuid("b"))).isFalse();
+    assertThat(membership.contains(uuid("c"))).isTrue();
+    assertThat(membership.getKnownGroups()).containsExactlyElementsIn(uuids("a", "c", "d"));
+  }
+
+  private IncludingGroupMembership membership() {
+    // The group cache knows no groups, so memberships can only be found through the ancestors.
+    GroupCache groupCache = mock(GroupCache.class);
+    when(groupCache.get(anyCollection())).thenReturn(ImmutableMap.of());
+    IdentifiedUser user = mock(IdentifiedUser.class);
+    when(user.isIdentifiedUser()).thenReturn(true);
+    when(user.getAccountId()).thenReturn(USER);
+    IncludingGroupMembership membership =
+        new IncludingGroupMembership(groupCache, includeCache, user);
+    when(user.getEffectiveGroups()).thenReturn(membership);
+    return membership;
+  }
+
+  private void include(String group, String... parentGroups) {
+    parents.put(uuid(group), ImmutableSet.copyOf(uuids(parentGroups)));
+  }
+
+  private static AccountGroup.UUID uuid(String name) {
+    return AccountGroup.uuid(name);
+  }
+
+  private static ImmutableList<AccountGroup.UUID> uuids(String... names) {
+    return Arrays.stream(names).map(AccountGroup::uuid).collect(toImmutableList());
+  }
+}
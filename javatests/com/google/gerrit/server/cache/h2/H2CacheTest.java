@@ -27,6 +27,8 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.server.cache.h2.H2CacheImpl.SqlStore;
@@ -34,6 +36,8 @@ import com.google.gerrit.server.cache.h2.H2CacheImpl.ValueHolder;
 import com.google.gerrit.server.cache.serialize.StringCacheSerializer;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.inject.TypeLiteral;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
@@ -77,9 +81,58 @@ public class H2CacheTest {
         true,
         new AtomicBoolean(false),
         false,
+        null,
+        false,
         null);
   }
 
+  private static SqlStore<String, String> newFileStore(Path dir, boolean counting) {
+    return new SqlStore<>(
+        "jdbc:h2:file:" + dir.resolve("test").toAbsolutePath() + ";DB_CLOSE_DELAY=-1",
+        KEY_TYPE,
+        StringCacheSerializer.INSTANCE,
+        StringCacheSerializer.INSTANCE,
+        DEFAULT_VERSION,
+        1 << 20,
+        25,
+        null,
+        null,
+        true,
+        true,
+        new AtomicBoolean(false),
+        false,
+        dir.resolve("test.mv.db"),
+        counting,
+        dir.resolve("test.bloom"));
+  }
+
+  @Test
+  public void bloomFilterIsRestoredAfterCleanShutdown() throws Exception {
+    Path dir = Files.createTempDirectory("h2cache");
+    try {
+      SqlStore<String, String> store = newFileStore(dir, true);
+      store.open();
+      store.put("foo", new ValueHolder<>("bar", Instant.now()));
+      store.put("baz", new ValueHolder<>("qux", Instant.now()));
+      store.invalidate("baz");
+      assertThat(store.mightContain("baz")).isFalse();
+      store.close();
+      assertThat(Files.exists(dir.resolve("test.bloom"))).isTrue();
+
+      store = newFileStore(dir, true);
+      store.open();
+      assertWithMessage("saved filter is deleted once loaded")
+          .that(Files.exists(dir.resolve("test.bloom")))
+          .isFalse();
+      assertThat(store.mightContain("foo")).isTrue();
+      assertThat(store.mightContain("baz")).isFalse();
+      assertThat(store.getIfPresent("foo").value).isEqualTo("bar");
+      store.close();
+    } finally {
+      MoreFiles.deleteRecursively(dir, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
   @Test
   public void get() throws ExecutionException {
     Cache<String, ValueHolder<String>> mem = CacheBuilder.newBuilder().build();
@@ -115,6 +168,26 @@ public class H2CacheTest {
     assertWithMessage("Callable was called").that(called.get()).isFalse();
   }
 
+  @Test
+  public void getFromOffHeapTier() throws ExecutionException {
+    Cache<String, ValueHolder<String>> mem = CacheBuilder.newBuilder().build();
+    SqlStore<String, String> store = newStore(nextDbId(), DEFAULT_VERSION, null, null);
+    OffHeapStore<String, String> offHeap =
+        new OffHeapStore<>(StringCacheSerializer.INSTANCE, 1 << 20, null);
+    H2CacheImpl<String, String> impl =
+        new H2CacheImpl<>(MoreExecutors.directExecutor(), store, offHeap, KEY_TYPE, mem);
+
+    assertThat(impl.get("foo", () -> "bar")).isEqualTo("bar");
+    mem.invalidate("foo");
+    store.invalidate("foo");
+    assertWithMessage("off-heap value").that(impl.getIfPresent("foo")).isEqualTo("bar");
+    assertThat(impl.offHeapStats().hitCount()).isEqualTo(1);
+
+    impl.invalidate("foo");
+    assertThat(impl.getIfPresent("foo")).isNull();
+    assertThat(impl.offHeapStats().size()).isEqualTo(0);
+  }
+
   @Test
   public void getAll_WithLoadingCache_LoaderNotImplementingLoadAll() throws ExecutionException {
     Cache<String, ValueHolder<String>> mem =
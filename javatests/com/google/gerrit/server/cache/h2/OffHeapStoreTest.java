@@ -0,0 +1,137 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.cache.h2;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.server.cache.PersistentCache.OffHeapStats;
+import com.google.gerrit.server.cache.h2.H2CacheImpl.ValueHolder;
+import com.google.gerrit.server.cache.serialize.StringCacheSerializer;
+import com.google.gerrit.server.util.time.TimeUtil;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.Test;
+
+public class OffHeapStoreTest {
+  @Test
+  public void roundTrip() {
+    OffHeapStore<String, String> store = newStore(1024, null);
+    Instant created = Instant.ofEpochMilli(TimeUtil.nowMs());
+    store.put("foo", new ValueHolder<>("bar", created));
+
+    ValueHolder<String> h = store.getIfPresent("foo");
+    assertThat(h.value).isEqualTo("bar");
+    assertThat(h.created).isEqualTo(created);
+    assertThat(h.clean).isTrue();
+    assertThat(store.getIfPresent("baz")).isNull();
+
+    OffHeapStats stats = store.stats();
+    assertThat(stats.size()).isEqualTo(1);
+    assertThat(stats.bytes()).isEqualTo(Long.BYTES + 3);
+    assertThat(stats.hitCount()).isEqualTo(1);
+    assertThat(stats.requestCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void evictLeastRecentlyUsed() {
+    OffHeapStore<String, String> store = newStore(3 * (Long.BYTES + 3), null);
+    store.put("k1", newValue("v_1"));
+    store.put("k2", newValue("v_2"));
+    store.put("k3", newValue("v_3"));
+    assertThat(store.getIfPresent("k1")).isNotNull();
+
+    store.put("k4", newValue("v_4"));
+    assertThat(store.getIfPresent("k2")).isNull();
+    assertThat(store.getIfPresent("k1")).isNotNull();
+    assertThat(store.getIfPresent("k3")).isNotNull();
+    assertThat(store.getIfPresent("k4")).isNotNull();
+    assertThat(store.stats().evictionCount()).isEqualTo(1);
+    assertThat(store.stats().bytes()).isEqualTo(3 * (Long.BYTES + 3));
+  }
+
+  @Test
+  public void valueLargerThanLimitIsNotStored() {
+    OffHeapStore<String, String> store = newStore(Long.BYTES + 2, null);
+    store.put("foo", newValue("bar"));
+    assertThat(store.getIfPresent("foo")).isNull();
+    assertThat(store.stats().bytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void expiredValueIsNotReturned() {
+    OffHeapStore<String, String> store = newStore(1024, Duration.ofMinutes(1));
+    store.put("foo", new ValueHolder<>("bar", TimeUtil.now().minus(Duration.ofMinutes(2))));
+    assertThat(store.getIfPresent("foo")).isNull();
+    assertThat(store.stats().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void storeSerializedValue() {
+    OffHeapStore<String, String> store = newStore(1024, null);
+    Instant created = Instant.ofEpochMilli(TimeUtil.nowMs());
+    store.putIfNotInvalidated(
+        "foo", StringCacheSerializer.INSTANCE.serialize("bar"), created, store.generation("foo"));
+
+    ValueHolder<String> h = store.getIfPresent("foo");
+    assertThat(h.value).isEqualTo("bar");
+    assertThat(h.created).isEqualTo(created);
+  }
+
+  @Test
+  public void valueInvalidatedWhileReadIsNotStored() {
+    OffHeapStore<String, String> store = newStore(1024, null);
+    long generation = store.generation("foo");
+    store.invalidate("foo");
+    store.putIfNotInvalidated(
+        "foo", StringCacheSerializer.INSTANCE.serialize("bar"), TimeUtil.now(), generation);
+    assertThat(store.getIfPresent("foo")).isNull();
+
+    generation = store.generation("foo");
+    store.invalidateAll();
+    store.putIfNotInvalidated(
+        "foo", StringCacheSerializer.INSTANCE.serialize("bar"), TimeUtil.now(), generation);
+    assertThat(store.getIfPresent("foo")).isNull();
+    assertThat(store.stats().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void segmentsShareLimit() {
+    int segments = 4;
+    int valueSize = Long.BYTES + 3;
+    OffHeapStore<String, String> store =
+        new OffHeapStore<>(StringCacheSerializer.INSTANCE, 100 * valueSize, null, segments);
+    for (int i = 0; i < 1000; i++) {
+      store.put(String.format("k%03d", i), newValue("v_1"));
+    }
+
+    OffHeapStats stats = store.stats();
+    assertThat(stats.bytes()).isAtMost(100L * valueSize);
+    assertThat(stats.size()).isAtLeast(100L - segments);
+    assertThat(stats.size() + stats.evictionCount()).isEqualTo(1000);
+    assertThat(store.getIfPresent("k999")).isNotNull();
+
+    store.invalidateAll();
+    assertThat(store.stats().size()).isEqualTo(0);
+    assertThat(store.stats().bytes()).isEqualTo(0);
+  }
+
+  private static OffHeapStore<String, String> newStore(long maxBytes, Duration expireAfterWrite) {
+    return new OffHeapStore<>(StringCacheSerializer.INSTANCE, maxBytes, expireAfterWrite);
+  }
+
+  private static ValueHolder<String> newValue(String value) {
+    return new ValueHolder<>(value, TimeUtil.now());
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.server.config.GcConfig;
+import com.google.gerrit.server.git.RepositoryMaintenance.Action;
+import com.google.gerrit.server.git.RepositoryMaintenance.Statistics;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryMaintenanceTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final GcConfig gcConfig = new GcConfig(new Config());
+
+  @Test
+  public void skipIdleRepository() {
+    assertThat(RepositoryMaintenance.chooseAction(statistics(10, 1, 0, 5), 0, gcConfig))
+        .isEqualTo(Action.SKIP);
+  }
+
+  @Test
+  public void gcIfThresholdIsReached() {
+    assertThat(RepositoryMaintenance.chooseAction(statistics(6700, 1, 0, 0), 0, gcConfig))
+        .isEqualTo(Action.GC);
+    assertThat(RepositoryMaintenance.chooseAction(statistics(0, 50, 0, 0), 0, gcConfig))
+        .isEqualTo(Action.GC);
+    assertThat(RepositoryMaintenance.chooseAction(statistics(0, 1, 100_000, 0), 0, gcConfig))
+        .isEqualTo(Action.GC);
+  }
+
+  @Test
+  public void packRefsIfManyLooseRefsOrRefUpdates() {
+    assertThat(RepositoryMaintenance.chooseAction(statistics(0, 1, 0, 1000), 0, gcConfig))
+        .isEqualTo(Action.PACK_REFS);
+    assertThat(RepositoryMaintenance.chooseAction(statistics(0, 1, 0, 10), 1000, gcConfig))
+        .isEqualTo(Action.PACK_REFS);
+    assertThat(RepositoryMaintenance.chooseAction(statistics(0, 1, 0, 0), 1000, gcConfig))
+        .isEqualTo(Action.SKIP);
+  }
+
+  @Test
+  public void disabledThreshold() {
+    Config cfg = new Config();
+    cfg.setLong("gc", null, "looseObjectsThreshold", 0);
+    GcConfig gcConfig = new GcConfig(cfg);
+    assertThat(RepositoryMaintenance.chooseAction(statistics(100_000, 1, 0, 0), 0, gcConfig))
+        .isEqualTo(Action.SKIP);
+  }
+
+  @Test
+  public void frequentlyUpdatedRepositoryIsMoreUrgent() {
+    Statistics statistics = statistics(7000, 3, 0, 0);
+    assertThat(RepositoryMaintenance.score(statistics, 100, gcConfig))
+        .isGreaterThan(RepositoryMaintenance.score(statistics, 0, gcConfig));
+  }
+
+  @Test
+  public void statisticsOfRepository() throws Exception {
+    Repository repo = new FileRepository(temporaryFolder.newFolder("repo.git"));
+    repo.create(true);
+    try (TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      RevCommit c = tr.commit().create();
+      tr.update("refs/heads/master", c);
+      tr.update("refs/heads/stable", c);
+
+      Statistics statistics = Statistics.fromProperties(Git.wrap(repo).gc().getStatistics());
+      assertThat(statistics.looseObjects()).isGreaterThan(0);
+      assertThat(statistics.packFiles()).isEqualTo(0);
+      assertThat(statistics.looseRefs()).isAtLeast(2);
+    }
+  }
+
+  private static Statistics statistics(
+      long looseObjects, long packFiles, long objectsSinceBitmap, long looseRefs) {
+    return new Statistics(looseObjects, packFiles, objectsSinceBitmap, looseRefs, 0, 0);
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UninterestingTipsTest {
+  private static final int BRANCHES = 200;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void sameResultAsMarkingAllTipsWithBitmaps() throws Exception {
+    Repository repo = new FileRepository(temporaryFolder.newFolder("repo.git"));
+    repo.create(true);
+    try (TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      List<ObjectId> tips = createBranches(tr);
+      // Writes the reachability bitmaps.
+      Git.wrap(repo).gc().call();
+
+      RevCommit base = tr.getRevWalk().parseCommit(tips.get(BRANCHES / 2));
+      RevCommit c1 = tr.commit().parent(base).create();
+      RevCommit c2 = tr.commit().parent(c1).create();
+
+      try (RevWalk rw = new RevWalk(repo)) {
+        assertThat(rw.getObjectReader().getBitmapIndex()).isNotNull();
+        RevCommit start = rw.parseCommit(c2);
+        List<RevCommit> boundary =
+            UninterestingTips.findBoundary(rw, ImmutableList.of(start), tips);
+        assertThat(boundary).containsExactly(base);
+      }
+
+      assertThat(walkWithUninterestingTips(repo, c2, tips)).containsExactly(c1, c2);
+      assertThat(walkWithUninterestingTips(repo, c2, tips))
+          .containsExactlyElementsIn(walkMarkingAllTips(repo, c2, tips));
+    }
+  }
+
+  @Test
+  public void startReachableFromTips() throws Exception {
+    Repository repo = new FileRepository(temporaryFolder.newFolder("repo.git"));
+    repo.create(true);
+    try (TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      List<ObjectId> tips = createBranches(tr);
+      Git.wrap(repo).gc().call();
+
+      RevCommit start = tr.getRevWalk().parseCommit(tips.get(3));
+      assertThat(walkWithUninterestingTips(repo, start, tips)).isEmpty();
+    }
+  }
+
+  @Test
+  public void fallsBackToMarkingAllTipsWithoutBitmaps() throws Exception {
+    Repository repo = new InMemoryRepository(new DfsRepositoryDescription("repo"));
+    try (TestRepository<Repository> tr = new TestRepository<>(repo)) {
+      List<ObjectId> tips = createBranches(tr);
+      RevCommit c1 = tr.commit().parent(tr.getRevWalk().parseCommit(tips.get(7))).create();
+
+      try (RevWalk rw = new RevWalk(repo)) {
+        RevCommit start = rw.parseCommit(c1);
+        assertThat(UninterestingTips.findBoundary(rw, ImmutableList.of(start), tips)).isNull();
+      }
+      assertThat(walkWithUninterestingTips(repo, c1, tips)).containsExactly(c1);
+    }
+  }
+
+  private static List<ObjectId> createBranches(TestRepository<Repository> tr) throws Exception {
+    List<ObjectId> tips = new ArrayList<>();
+    RevCommit c = tr.commit().create();
+    for (int i = 0; i < BRANCHES; i++) {
+      c = tr.commit().parent(c).create();
+      tr.update("refs/heads/branch-" + i, c);
+      tips.add(c);
+    }
+    return tips;
+  }
+
+  private static Set<RevCommit> walkWithUninterestingTips(
+      Repository repo, ObjectId start, List<ObjectId> tips) throws Exception {
+    try (RevWalk rw = new RevWalk(repo)) {
+      RevCommit s = rw.parseCommit(start);
+      rw.markStart(s);
+      UninterestingTips.mark(rw, ImmutableList.of(s), tips);
+      return walk(rw);
+    }
+  }
+
+  private static Set<RevCommit> walkMarkingAllTips(
+      Repository repo, ObjectId start, List<ObjectId> tips) throws Exception {
+    try (RevWalk rw = new RevWalk(repo)) {
+      rw.markStart(rw.parseCommit(start));
+      for (ObjectId tip : tips) {
+        rw.markUninteresting(rw.parseCommit(tip));
+      }
+      return walk(rw);
+    }
+  }
+
+  private static Set<RevCommit> walk(RevWalk rw) {
+    Set<RevCommit> result = new HashSet<>();
+    for (RevCommit c : rw) {
+      result.add(c);
+    }
+    return result;
+  }
+}
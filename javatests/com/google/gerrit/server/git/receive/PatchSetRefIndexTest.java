@@ -0,0 +1,104 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.git.receive;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.PatchSet;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+/** Tests for {@link PatchSetRefIndex} and {@link PatchSetRefIndexCache.ProjectIndex}. */
+public class PatchSetRefIndexTest {
+  private static final ObjectId ID1 =
+      ObjectId.fromString("badc0feebadc0feebadc0feebadc0feebadc0fee");
+  private static final ObjectId ID2 =
+      ObjectId.fromString("deadbeefdeadbeefdeadbeefdeadbeefdeadbeef");
+  private static final ObjectId ID3 =
+      ObjectId.fromString("0123456789012345678901234567890123456789");
+
+  @Test
+  public void emptyIndex() {
+    assertThat(PatchSetRefIndex.EMPTY.size()).isEqualTo(0);
+    assertThat(PatchSetRefIndex.EMPTY.get(ID1)).isEmpty();
+    assertThat(PatchSetRefIndex.EMPTY.get(Change.id(1))).isEmpty();
+  }
+
+  @Test
+  public void lookupByObjectId() {
+    PatchSetRefIndex index =
+        new PatchSetRefIndex.Builder()
+            .add(psId(2, 1), ID2)
+            .add(psId(1, 1), ID1)
+            .add(psId(3, 2), ID1)
+            .add(psId(1, 2), ID3)
+            .build();
+
+    assertThat(index.size()).isEqualTo(4);
+    assertThat(index.get(ID1)).containsExactly(psId(1, 1), psId(3, 2)).inOrder();
+    assertThat(index.get(ID2)).containsExactly(psId(2, 1));
+    assertThat(index.get(ID3)).containsExactly(psId(1, 2));
+    assertThat(index.get(ObjectId.zeroId())).isEmpty();
+  }
+
+  @Test
+  public void lookupByChange() {
+    PatchSetRefIndex index =
+        new PatchSetRefIndex.Builder()
+            .add(psId(2, 1), ID2)
+            .add(psId(1, 2), ID3)
+            .add(psId(1, 1), ID1)
+            .build();
+
+    assertThat(index.get(Change.id(1))).containsExactly(psId(1, 1), psId(1, 2)).inOrder();
+    assertThat(index.get(Change.id(2))).containsExactly(psId(2, 1));
+    assertThat(index.get(Change.id(3))).isEmpty();
+  }
+
+  @Test
+  public void forEachVisitsAllEntries() {
+    PatchSetRefIndex index =
+        new PatchSetRefIndex.Builder().add(psId(1, 1), ID1).add(psId(2, 1), ID2).build();
+
+    Map<PatchSet.Id, ObjectId> entries = new HashMap<>();
+    index.forEach(entries::put);
+    assertThat(entries).containsExactly(psId(1, 1), ID1, psId(2, 1), ID2);
+  }
+
+  @Test
+  public void projectIndexAppliesUpdates() {
+    PatchSetRefIndexCache.ProjectIndex index = new PatchSetRefIndexCache.ProjectIndex();
+    index.update(psId(1, 1), ID1);
+    index.update(psId(1, 2), ID2);
+    index.update(psId(2, 1), ID1);
+
+    assertThat(index.byObjectId(ID1)).containsExactly(psId(1, 1), psId(2, 1));
+    assertThat(index.byChange(Change.id(1))).containsExactly(psId(1, 1), psId(1, 2));
+
+    index.update(psId(1, 1), null);
+    index.update(psId(2, 1), ID3);
+
+    assertThat(index.byObjectId(ID1)).isEmpty();
+    assertThat(index.byObjectId(ID3)).containsExactly(psId(2, 1));
+    assertThat(index.byChange(Change.id(1))).containsExactly(psId(1, 2));
+  }
+
+  private static PatchSet.Id psId(int changeId, int patchSetId) {
+    return PatchSet.id(Change.id(changeId), patchSetId);
+  }
+}
@@ -118,6 +118,22 @@ public class ReceivePackRefCacheTest {
         .containsExactly(PatchSet.Id.fromRef("refs/changes/01/1/1"));
   }
 
+  @Test
+  public void advertisedRefs_patchSetLookupIsCheckedAgainstAdvertisedRefs() throws Exception {
+    ImmutableMap<String, Ref> refs = setupTwoChanges();
+    ObjectId id = ObjectId.fromString("badc0feebadc0feebadc0feebadc0feebadc0fee");
+    PatchSet.Id ps1 = PatchSet.Id.fromRef("refs/changes/01/1/1");
+    PatchSet.Id ps2 = PatchSet.Id.fromRef("refs/changes/02/2/1");
+    PatchSet.Id stale = PatchSet.Id.fromRef("refs/changes/01/1/2");
+    ReceivePackRefCache.PatchSetLookup lookup = mock(ReceivePackRefCache.PatchSetLookup.class);
+    when(lookup.byObjectId(id)).thenReturn(ImmutableList.of(ps1, ps2, stale));
+    when(lookup.byChange(Change.id(1))).thenReturn(ImmutableList.of(ps1, stale));
+    ReceivePackRefCache cache = ReceivePackRefCache.withAdvertisedRefs(() -> refs, () -> lookup);
+
+    assertThat(cache.patchSetIdsFromObjectId(id)).containsExactly(ps1);
+    assertThat(cache.patchSetRefs(Change.id(1))).containsExactly(refs.get("refs/changes/01/1/1"));
+  }
+
   private static Ref newRef(String name, String sha1) {
     return new ObjectIdRef.Unpeeled(Ref.Storage.NEW, name, ObjectId.fromString(sha1), 1);
   }
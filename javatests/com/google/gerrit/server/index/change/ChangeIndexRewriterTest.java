@@ -27,6 +27,7 @@ import static org.junit.Assert.assertEquals;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
 import com.google.gerrit.index.IndexConfig;
 import com.google.gerrit.index.QueryOptions;
 import com.google.gerrit.index.query.AndCardinalPredicate;
@@ -43,6 +44,7 @@ import com.google.gerrit.server.query.change.ChangeStatusPredicate;
 import com.google.gerrit.server.query.change.OrSource;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.Optional;
 import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
@@ -309,6 +311,21 @@ public class ChangeIndexRewriterTest {
     assertThat(status("(is:new) (is:merged)")).isEmpty();
   }
 
+  @Test
+  public void getPossibleProjects() throws Exception {
+    Project.NameKey foo = Project.nameKey("foo");
+    Project.NameKey bar = Project.nameKey("bar");
+    assertThat(projects("file:a")).isEmpty();
+    assertThat(projects("-project:foo")).isEmpty();
+    assertThat(projects("project:foo OR file:a")).isEmpty();
+    assertThat(projects("project:foo")).hasValue(ImmutableSet.of(foo));
+    assertThat(projects("project:foo file:a")).hasValue(ImmutableSet.of(foo));
+    assertThat(projects("project:foo OR project:bar")).hasValue(ImmutableSet.of(foo, bar));
+    assertThat(projects("(project:foo OR project:bar) project:bar"))
+        .hasValue(ImmutableSet.of(bar));
+    assertThat(projects("project:foo project:bar")).hasValue(ImmutableSet.of());
+  }
+
   @Test
   public void unsupportedIndexOperator() throws Exception {
     Predicate<ChangeData> in = parse("status:merged file:a");
@@ -331,6 +348,23 @@ public class ChangeIndexRewriterTest {
     assertThat(thrown).hasMessageThat().contains("too many terms in query");
   }
 
+  @Test
+  public void exactTermsOnSameFieldInDisjunctionCountAsOneTermWithTermSetQueries()
+      throws Exception {
+    index = new FakeChangeIndex(FakeChangeIndex.V2, true);
+    indexes.setSearchIndex(index);
+
+    Predicate<ChangeData> in =
+        parse("file:a OR file:b OR file:c OR file:d OR file:e OR file:f OR file:g");
+    assertEquals(query(in), rewrite(in));
+
+    QueryParseException thrown =
+        assertThrows(
+            QueryParseException.class,
+            () -> rewrite(parse("(file:a OR file:b) file:c file:d file:e file:f")));
+    assertThat(thrown).hasMessageThat().contains("too many terms in query");
+  }
+
   @Test
   public void testConvertOptions() throws Exception {
     assertEquals(options(0, 3), convertOptions(options(0, 3)));
@@ -390,4 +424,8 @@ public class ChangeIndexRewriterTest {
   private Set<Change.Status> status(String query) throws QueryParseException {
     return ChangeIndexRewriter.getPossibleStatus(parse(query));
   }
+
+  private Optional<Set<Project.NameKey>> projects(String query) throws QueryParseException {
+    return ChangeIndexRewriter.getPossibleProjects(parse(query));
+  }
 }
@@ -80,9 +80,15 @@ public class FakeChangeIndex implements ChangeIndex {
   }
 
   private final Schema<ChangeData> schema;
+  private final boolean supportsTermSetQueries;
 
   FakeChangeIndex(Schema<ChangeData> schema) {
+    this(schema, false);
+  }
+
+  FakeChangeIndex(Schema<ChangeData> schema, boolean supportsTermSetQueries) {
     this.schema = schema;
+    this.supportsTermSetQueries = supportsTermSetQueries;
   }
 
   @Override
@@ -131,6 +137,11 @@ public class FakeChangeIndex implements ChangeIndex {
     return schema;
   }
 
+  @Override
+  public boolean supportsTermSetQueries() {
+    return supportsTermSetQueries;
+  }
+
   @Override
   public void close() {}
 
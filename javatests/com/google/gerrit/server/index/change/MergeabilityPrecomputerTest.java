@@ -0,0 +1,206 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.Change;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.query.change.ChangeData;
+import com.google.gerrit.server.util.ManualRequestContext;
+import com.google.gerrit.server.util.OneOffRequestContext;
+import com.google.gerrit.testing.TestChanges;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MergeabilityPrecomputerTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final Account.Id OWNER = Account.id(1000000);
+
+  private QueueingExecutor executor;
+  private ChangeData.Factory changeDataFactory;
+  private MergeabilityPrecomputer precomputer;
+  private List<Change.Id> computed;
+  private List<Change.Id> reindexed;
+
+  @Before
+  public void setUp() {
+    executor = new QueueingExecutor();
+    OneOffRequestContext requestContext = mock(OneOffRequestContext.class);
+    when(requestContext.open()).thenReturn(mock(ManualRequestContext.class));
+    changeDataFactory = mock(ChangeData.Factory.class);
+    computed = new ArrayList<>();
+    reindexed = new ArrayList<>();
+    when(changeDataFactory.create(any(Change.class)))
+        .thenAnswer(
+            invocation -> {
+              Change change = invocation.getArgument(0);
+              ChangeData cd = mock(ChangeData.class);
+              when(cd.isMergeable())
+                  .thenAnswer(
+                      i -> {
+                        computed.add(change.getId());
+                        return true;
+                      });
+              return cd;
+            });
+    precomputer = new MergeabilityPrecomputer(requestContext, changeDataFactory, executor);
+  }
+
+  @Test
+  public void disabledWithoutExecutor() {
+    assertThat(precomputer.isEnabled()).isTrue();
+    assertThat(
+            new MergeabilityPrecomputer(
+                    mock(OneOffRequestContext.class), changeDataFactory, /* executor= */ null)
+                .isEnabled())
+        .isFalse();
+  }
+
+  @Test
+  public void reindexEachChangeAfterItsMergeabilityWasComputed() {
+    Change older = newChange(1, Instant.ofEpochSecond(100));
+    Change newer = newChange(2, Instant.ofEpochSecond(200));
+
+    precomputer.precompute(ImmutableList.of(older, newer), c -> reindexed.add(c.getId()));
+    assertThat(computed).isEmpty();
+    assertThat(reindexed).isEmpty();
+
+    executor.runNext();
+    // Most recently updated change first.
+    assertThat(computed).containsExactly(newer.getId());
+    assertThat(reindexed).containsExactly(newer.getId());
+
+    executor.runNext();
+    assertThat(computed).containsExactly(newer.getId(), older.getId()).inOrder();
+    assertThat(reindexed).containsExactly(newer.getId(), older.getId()).inOrder();
+  }
+
+  @Test
+  public void reindexAlsoIfComputationFails() {
+    Change change = newChange(1, Instant.ofEpochSecond(100));
+    ChangeData cd = mock(ChangeData.class);
+    when(cd.isMergeable()).thenThrow(new IllegalStateException("test merge failed"));
+    when(changeDataFactory.create(change)).thenReturn(cd);
+
+    precomputer.precompute(ImmutableList.of(change), c -> reindexed.add(c.getId()));
+    executor.runAll();
+    assertThat(reindexed).containsExactly(change.getId());
+  }
+
+  @Test
+  public void queuedChangeIsNotQueuedAgain() {
+    Change change = newChange(1, Instant.ofEpochSecond(100));
+    Change other = newChange(2, Instant.ofEpochSecond(200));
+
+    precomputer.precompute(ImmutableList.of(change), c -> reindexed.add(c.getId()));
+    precomputer.precompute(ImmutableList.of(change, other), c -> reindexed.add(c.getId()));
+    assertThat(executor.size()).isEqualTo(2);
+
+    executor.runAll();
+    assertThat(computed).containsExactly(change.getId(), other.getId());
+    assertThat(reindexed).containsExactly(change.getId(), other.getId());
+  }
+
+  @Test
+  public void changeIsQueuedAgainOnceItsComputationStarted() {
+    Change change = newChange(1, Instant.ofEpochSecond(100));
+    ChangeData cd = mock(ChangeData.class);
+    // The branch is updated again while the mergeability is computed.
+    when(cd.isMergeable())
+        .thenAnswer(
+            i -> {
+              precomputer.precompute(ImmutableList.of(change), c -> reindexed.add(c.getId()));
+              return true;
+            })
+        .thenReturn(true);
+    when(changeDataFactory.create(change)).thenReturn(cd);
+
+    precomputer.precompute(ImmutableList.of(change), c -> reindexed.add(c.getId()));
+    executor.runNext();
+    assertThat(executor.size()).isEqualTo(1);
+
+    executor.runAll();
+    assertThat(reindexed).containsExactly(change.getId(), change.getId());
+    verify(cd, times(2)).isMergeable();
+  }
+
+  private static Change newChange(int id, Instant lastUpdatedOn) {
+    Change change = TestChanges.newChange(PROJECT, OWNER, id);
+    change.setLastUpdatedOn(lastUpdatedOn);
+    return change;
+  }
+
+  /** Executor that runs the submitted tasks only when asked to. */
+  private static class QueueingExecutor extends AbstractExecutorService {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    int size() {
+      return tasks.size();
+    }
+
+    void runNext() {
+      tasks.remove().run();
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        runNext();
+      }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.index.change;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gerrit.server.index.change.PendingIndexUpdate.Intent;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PendingIndexLogTest {
+  @Rule public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private Path file;
+  private PendingIndexLog log;
+
+  @Before
+  public void setUp() throws Exception {
+    file = tempDir.getRoot().toPath().resolve("pending-index").resolve("1_2.log");
+    log = new PendingIndexLog(file);
+  }
+
+  @Test
+  public void completedIntentsAreNotOutstanding() throws Exception {
+    log.append(1, intent(1));
+    log.append(1, intent(2));
+    log.append(2, intent(2));
+    log.complete(1, "p", 2);
+    log.sync();
+
+    assertThat(log.outstandingCount()).isEqualTo(2);
+    assertThat(PendingIndexLog.readOutstanding(file)).containsExactly(intent(1), intent(2));
+  }
+
+  @Test
+  public void takeIntentsOfDeadThreads() throws Exception {
+    log.append(1, intent(1));
+    log.append(2, intent(2));
+
+    assertThat(log.takeIntentsOfDeadThreads(threadId -> threadId == 2)).containsExactly(intent(2));
+    assertThat(log.outstandingCount()).isEqualTo(1);
+    assertThat(PendingIndexLog.readOutstanding(file)).containsExactly(intent(1));
+  }
+
+  @Test
+  public void readOutstandingSkipsPartialLastLine() throws Exception {
+    log.append(1, intent(1));
+    log.sync();
+    log.close();
+    Files.writeString(file, Files.readString(file) + "{\"threadId\":1,\"proj");
+
+    assertThat(PendingIndexLog.readOutstanding(file)).containsExactly(intent(1));
+  }
+
+  @Test
+  public void concurrentWritersShareSyncs() throws Exception {
+    int threads = 8;
+    int intentsPerThread = 100;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        long threadId = t;
+        futures.add(
+            pool.submit(
+                () -> {
+                  for (int i = 1; i <= intentsPerThread; i++) {
+                    log.append(threadId, intent(i));
+                    log.sync();
+                    if (i % 2 == 0) {
+                      log.complete(threadId, "p", i);
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> f : futures) {
+        f.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertThat(log.outstandingCount()).isEqualTo(threads * intentsPerThread / 2);
+    assertThat(PendingIndexLog.readOutstanding(file)).hasSize(threads * intentsPerThread / 2);
+  }
+
+  private static Intent intent(int changeId) {
+    return new Intent("p", changeId, "index");
+  }
+}
@@ -154,6 +154,71 @@ public class PendingIndexUpdateScannerTest {
     assertThat(orphan.toFile().exists()).isFalse();
   }
 
+  @Test
+  public void logScannerIndexesIntentOfDeadThread() throws Exception {
+    useLog();
+    pendingIndexUpdate.write(DEAD_THREAD_ID, PROJECT, CHANGE_ID, /* delete= */ false);
+    pendingIndexUpdate.sync();
+
+    scanner.run();
+
+    verify(indexer).index(PROJECT, CHANGE_ID);
+
+    // The intent was completed by the recovery.
+    scanner.run();
+    verify(indexer).index(PROJECT, CHANGE_ID);
+  }
+
+  @Test
+  public void logScannerSkipsCompletedIntents() throws Exception {
+    useLog();
+    pendingIndexUpdate.write(DEAD_THREAD_ID, PROJECT, CHANGE_ID, /* delete= */ true);
+    pendingIndexUpdate.delete(DEAD_THREAD_ID, PROJECT, CHANGE_ID);
+
+    scanner.run();
+
+    verify(indexer, never()).delete(any(), any());
+  }
+
+  @Test
+  public void logScannerSkipsIntentsForLiveThread() throws Exception {
+    useLog();
+    long liveThreadId = Thread.currentThread().threadId();
+    pendingIndexUpdate.write(liveThreadId, PROJECT, CHANGE_ID, /* delete= */ false);
+
+    scanner.run();
+
+    verify(indexer, never()).index(any(), any());
+  }
+
+  @Test
+  public void startRecoversPreviousProcessLog() throws Exception {
+    useLog();
+    Path log = sitePaths.data_dir.resolve("pending-index").resolve("99999_1234567890000.log");
+    Files.createDirectories(log.getParent());
+    Files.writeString(
+        log,
+        "{\"threadId\":1,\"project\":\"test-project\",\"changeId\":42,\"operation\":\"index\"}\n"
+            + "{\"threadId\":1,\"project\":\"test-project\",\"changeId\":43,"
+            + "\"operation\":\"index\"}\n"
+            + "{\"threadId\":1,\"project\":\"test-project\",\"changeId\":43,"
+            + "\"operation\":\"completed\"}\n"
+            + "{\"threadId\":2,\"project\":\"test-pro");
+
+    scanner.start();
+
+    verify(indexer).index(PROJECT, CHANGE_ID);
+    verify(indexer, never()).index(PROJECT, Change.id(43));
+    assertThat(log.toFile().exists()).isFalse();
+  }
+
+  private void useLog() {
+    Config cfg = recoveryConfig();
+    cfg.setEnum("index", null, "staleChangeRecoveryStorage", PendingIndexUpdate.Storage.LOG);
+    pendingIndexUpdate = new PendingIndexUpdate(sitePaths, indexer, cfg);
+    scanner = new PendingIndexUpdateScanner(pendingIndexUpdate, workQueue, cfg);
+  }
+
   private static Config recoveryConfig() {
     Config cfg = new Config();
     cfg.setBoolean("index", null, "staleChangeRecovery", true);
@@ -35,6 +35,10 @@ import com.google.gerrit.exceptions.StorageException;
 import com.google.gerrit.server.extensions.events.GitReferenceUpdated;
 import com.google.gerrit.testing.InMemoryRepositoryManager;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -48,6 +52,7 @@ import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -61,12 +66,19 @@ public class RepoSequenceTest {
 
   private InMemoryRepositoryManager repoManager;
   private Project.NameKey project;
+  private ExecutorService prefetchExecutor;
 
   @Before
   public void setUp() throws Exception {
     repoManager = new InMemoryRepositoryManager();
     project = Project.nameKey("project");
     repoManager.createRepository(project).close();
+    prefetchExecutor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    prefetchExecutor.shutdownNow();
   }
 
   @Test
@@ -83,7 +95,7 @@ public class RepoSequenceTest {
         }
       }
       assertWithMessage("acquireCount for " + name)
-          .that(s.acquireCount)
+          .that(s.acquireCount.get())
           .isEqualTo(divCeil(max, batchSize));
     }
   }
@@ -91,41 +103,41 @@ public class RepoSequenceTest {
   @Test
   public void oneCallerNoLoop() throws Exception {
     RepoSequence s = newSequence("id", 1, 3);
-    assertThat(s.acquireCount).isEqualTo(0);
+    assertThat(s.acquireCount.get()).isEqualTo(0);
 
     assertThat(s.next()).isEqualTo(1);
     assertThat(s.last()).isEqualTo(1);
-    assertThat(s.acquireCount).isEqualTo(1);
+    assertThat(s.acquireCount.get()).isEqualTo(1);
     assertThat(s.next()).isEqualTo(2);
     assertThat(s.last()).isEqualTo(2);
-    assertThat(s.acquireCount).isEqualTo(1);
+    assertThat(s.acquireCount.get()).isEqualTo(1);
     assertThat(s.next()).isEqualTo(3);
     assertThat(s.last()).isEqualTo(3);
-    assertThat(s.acquireCount).isEqualTo(1);
+    assertThat(s.acquireCount.get()).isEqualTo(1);
 
     assertThat(s.next()).isEqualTo(4);
     assertThat(s.last()).isEqualTo(4);
-    assertThat(s.acquireCount).isEqualTo(2);
+    assertThat(s.acquireCount.get()).isEqualTo(2);
     assertThat(s.next()).isEqualTo(5);
     assertThat(s.last()).isEqualTo(5);
-    assertThat(s.acquireCount).isEqualTo(2);
+    assertThat(s.acquireCount.get()).isEqualTo(2);
     assertThat(s.next()).isEqualTo(6);
     assertThat(s.last()).isEqualTo(6);
-    assertThat(s.acquireCount).isEqualTo(2);
+    assertThat(s.acquireCount.get()).isEqualTo(2);
 
     assertThat(s.next()).isEqualTo(7);
     assertThat(s.last()).isEqualTo(7);
-    assertThat(s.acquireCount).isEqualTo(3);
+    assertThat(s.acquireCount.get()).isEqualTo(3);
     assertThat(s.next()).isEqualTo(8);
     assertThat(s.last()).isEqualTo(8);
-    assertThat(s.acquireCount).isEqualTo(3);
+    assertThat(s.acquireCount.get()).isEqualTo(3);
     assertThat(s.next()).isEqualTo(9);
     assertThat(s.last()).isEqualTo(9);
-    assertThat(s.acquireCount).isEqualTo(3);
+    assertThat(s.acquireCount.get()).isEqualTo(3);
 
     assertThat(s.next()).isEqualTo(10);
     assertThat(s.last()).isEqualTo(10);
-    assertThat(s.acquireCount).isEqualTo(4);
+    assertThat(s.acquireCount.get()).isEqualTo(4);
   }
 
   @Test
@@ -199,7 +211,7 @@ public class RepoSequenceTest {
     assertThat(doneBgUpdate.get()).isFalse();
     assertThat(s.next()).isEqualTo(1234);
     // Two acquire calls, but only one successful.
-    assertThat(s.acquireCount).isEqualTo(1);
+    assertThat(s.acquireCount.get()).isEqualTo(1);
     assertThat(doneBgUpdate.get()).isTrue();
   }
 
@@ -310,7 +322,7 @@ public class RepoSequenceTest {
       future.get();
 
       // Two successful acquire calls (because batch size == 1).
-      assertThat(s.acquireCount).isEqualTo(2);
+      assertThat(s.acquireCount.get()).isEqualTo(2);
     }
   }
 
@@ -318,33 +330,33 @@ public class RepoSequenceTest {
   public void nextWithCountAndLastByOneCaller() throws Exception {
     RepoSequence s = newSequence("id", 1, 3);
     assertThat(s.next(2)).containsExactly(1, 2).inOrder();
-    assertThat(s.acquireCount).isEqualTo(1);
+    assertThat(s.acquireCount.get()).isEqualTo(1);
     assertThat(s.last()).isEqualTo(2);
     assertThat(s.next(2)).containsExactly(3, 4).inOrder();
-    assertThat(s.acquireCount).isEqualTo(2);
+    assertThat(s.acquireCount.get()).isEqualTo(2);
     assertThat(s.last()).isEqualTo(4);
     assertThat(s.next(2)).containsExactly(5, 6).inOrder();
-    assertThat(s.acquireCount).isEqualTo(2);
+    assertThat(s.acquireCount.get()).isEqualTo(2);
     assertThat(s.last()).isEqualTo(6);
 
     assertThat(s.next(3)).containsExactly(7, 8, 9).inOrder();
-    assertThat(s.acquireCount).isEqualTo(3);
+    assertThat(s.acquireCount.get()).isEqualTo(3);
     assertThat(s.last()).isEqualTo(9);
     assertThat(s.next(3)).containsExactly(10, 11, 12).inOrder();
-    assertThat(s.acquireCount).isEqualTo(4);
+    assertThat(s.acquireCount.get()).isEqualTo(4);
     assertThat(s.last()).isEqualTo(12);
     assertThat(s.next(3)).containsExactly(13, 14, 15).inOrder();
-    assertThat(s.acquireCount).isEqualTo(5);
+    assertThat(s.acquireCount.get()).isEqualTo(5);
     assertThat(s.last()).isEqualTo(15);
 
     assertThat(s.next(7)).containsExactly(16, 17, 18, 19, 20, 21, 22).inOrder();
-    assertThat(s.acquireCount).isEqualTo(6);
+    assertThat(s.acquireCount.get()).isEqualTo(6);
     assertThat(s.last()).isEqualTo(22);
     assertThat(s.next(7)).containsExactly(23, 24, 25, 26, 27, 28, 29).inOrder();
-    assertThat(s.acquireCount).isEqualTo(7);
+    assertThat(s.acquireCount.get()).isEqualTo(7);
     assertThat(s.last()).isEqualTo(29);
     assertThat(s.next(7)).containsExactly(30, 31, 32, 33, 34, 35, 36).inOrder();
-    assertThat(s.acquireCount).isEqualTo(8);
+    assertThat(s.acquireCount.get()).isEqualTo(8);
     assertThat(s.last()).isEqualTo(36);
   }
 
@@ -355,22 +367,89 @@ public class RepoSequenceTest {
 
     assertThat(s1.next(2)).containsExactly(1, 2).inOrder();
     assertThat(s1.last()).isEqualTo(2);
-    assertThat(s1.acquireCount).isEqualTo(1);
+    assertThat(s1.acquireCount.get()).isEqualTo(1);
 
     // s1 hasn't exhausted its last batch.
     assertThat(s2.next(2)).containsExactly(4, 5).inOrder();
     assertThat(s2.last()).isEqualTo(5);
-    assertThat(s2.acquireCount).isEqualTo(1);
+    assertThat(s2.acquireCount.get()).isEqualTo(1);
 
     // s1 acquires again to cover this request, plus a whole new batch.
     assertThat(s1.next(3)).containsExactly(3, 8, 9);
     assertThat(s1.last()).isEqualTo(9);
-    assertThat(s1.acquireCount).isEqualTo(2);
+    assertThat(s1.acquireCount.get()).isEqualTo(2);
 
     // s2 hasn't exhausted its last batch, do so now.
     assertThat(s2.next(2)).containsExactly(6, 7);
     assertThat(s2.last()).isEqualTo(7);
-    assertThat(s2.acquireCount).isEqualTo(1);
+    assertThat(s2.acquireCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void prefetchReservesNextBatchInBackground() throws Exception {
+    RepoSequence s = newPrefetchingSequence("id", 1, 10, 3);
+
+    for (int i = 1; i <= 6; i++) {
+      assertThat(s.next()).isEqualTo(i);
+    }
+    assertThat(readBlob("id")).isEqualTo("11");
+
+    // Only 3 IDs are left in the current batch, the next batch is reserved in the background.
+    assertThat(s.next()).isEqualTo(7);
+    awaitBlob("id", "21");
+
+    for (int i = 8; i <= 15; i++) {
+      assertThat(s.next()).isEqualTo(i);
+    }
+    assertThat(s.last()).isEqualTo(15);
+    assertThat(readBlob("id")).isEqualTo("21");
+  }
+
+  @Test
+  public void prefetchWithCount() throws Exception {
+    RepoSequence s = newPrefetchingSequence("id", 1, 10, 2);
+
+    assertThat(s.next(4)).containsExactly(1, 2, 3, 4).inOrder();
+    assertThat(s.last()).isEqualTo(4);
+
+    // More IDs than a batch holds are reserved at once.
+    ImmutableList<Integer> ids = s.next(25);
+    assertThat(ids).hasSize(25);
+    for (int i = 1; i < ids.size(); i++) {
+      assertThat(ids.get(i)).isEqualTo(ids.get(i - 1) + 1);
+    }
+    assertThat(s.last()).isEqualTo(ids.get(24));
+  }
+
+  @Test
+  public void prefetchHandsOutUniqueIdsToConcurrentCallers() throws Exception {
+    RepoSequence s = newPrefetchingSequence("id", 1, 20, 5);
+    int threads = 8;
+    int idsPerThread = 100;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<List<Integer>>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  List<Integer> ids = new ArrayList<>();
+                  for (int i = 0; i < idsPerThread; i++) {
+                    ids.add(s.next());
+                  }
+                  return ids;
+                }));
+      }
+      Set<Integer> all = new HashSet<>();
+      for (Future<List<Integer>> f : futures) {
+        for (int id : f.get()) {
+          assertWithMessage("duplicate id %s", id).that(all.add(id)).isTrue();
+        }
+      }
+      assertThat(all).hasSize(threads * idsPerThread);
+    } finally {
+      executor.shutdown();
+    }
   }
 
   @Test
@@ -455,6 +534,30 @@ public class RepoSequenceTest {
         repoManager, GitReferenceUpdated.DISABLED, project, name, batchSize, afterReadRef, retryer);
   }
 
+  private RepoSequence newPrefetchingSequence(
+      String name, int start, int batchSize, int prefetchThreshold) {
+    RepoSequence seq =
+        new RepoSequence(
+            repoManager,
+            GitReferenceUpdated.DISABLED,
+            project,
+            name,
+            batchSize,
+            Runnables.doNothing(),
+            RETRYER,
+            prefetchThreshold,
+            prefetchExecutor);
+    seq.init(start);
+    return seq;
+  }
+
+  private void awaitBlob(String sequenceName, String expected) throws Exception {
+    for (int i = 0; i < 500 && !readBlob(sequenceName).equals(expected); i++) {
+      Thread.sleep(10);
+    }
+    assertThat(readBlob(sequenceName)).isEqualTo(expected);
+  }
+
   @CanIgnoreReturnValue
   private ObjectId writeBlob(String sequenceName, String value) {
     String refName = RefNames.REFS_SEQUENCES + sequenceName;
@@ -0,0 +1,124 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.patch;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
+import com.google.gerrit.server.patch.GitPositionTransformer.FileMapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Mapping;
+import com.google.gerrit.server.patch.GitPositionTransformer.Range;
+import com.google.gerrit.server.patch.GitPositionTransformer.RangeMapping;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class CommitMappingsCacheTest {
+  @Test
+  public void keyRoundTrip() {
+    CommitMappingsCache.Key key =
+        CommitMappingsCache.Key.create(
+            Project.nameKey("project"),
+            ObjectId.fromString("0123456789012345678901234567890123456789"),
+            ObjectId.fromString("9876543210987654321098765432109876543210"));
+    assertThat(
+            CommitMappingsCache.Key.Serializer.INSTANCE.deserialize(
+                CommitMappingsCache.Key.Serializer.INSTANCE.serialize(key)))
+        .isEqualTo(key);
+  }
+
+  @Test
+  public void keyWithDiffSettingsRoundTrip() {
+    CommitMappingsCache.Key key =
+        CommitMappingsCache.Key.create(
+            Project.nameKey("project"),
+            ObjectId.fromString("0123456789012345678901234567890123456789"),
+            ObjectId.fromString("9876543210987654321098765432109876543210"),
+            DiffOptions.builder()
+                .skipFilesWithAllEditsDueToRebase(true)
+                .skipRebaseFiltering(true)
+                .build(),
+            DiffAlgorithm.HISTOGRAM_NO_FALLBACK,
+            Whitespace.IGNORE_ALL);
+    assertThat(
+            CommitMappingsCache.Key.Serializer.INSTANCE.deserialize(
+                CommitMappingsCache.Key.Serializer.INSTANCE.serialize(key)))
+        .isEqualTo(key);
+  }
+
+  @Test
+  public void keysWithDifferentDiffSettingsDiffer() {
+    Project.NameKey project = Project.nameKey("project");
+    ObjectId original = ObjectId.fromString("0123456789012345678901234567890123456789");
+    ObjectId target = ObjectId.fromString("9876543210987654321098765432109876543210");
+    CommitMappingsCache.Key key = CommitMappingsCache.Key.create(project, original, target);
+
+    assertThat(
+            CommitMappingsCache.Key.create(
+                project,
+                original,
+                target,
+                key.diffOptions(),
+                DiffAlgorithm.HISTOGRAM_NO_FALLBACK,
+                key.whitespace()))
+        .isNotEqualTo(key);
+    assertThat(
+            CommitMappingsCache.Key.create(
+                project,
+                original,
+                target,
+                key.diffOptions(),
+                key.diffAlgorithm(),
+                Whitespace.IGNORE_TRAILING))
+        .isNotEqualTo(key);
+    assertThat(
+            CommitMappingsCache.Key.create(
+                project,
+                original,
+                target,
+                DiffOptions.builder().skipFilesWithAllEditsDueToRebase(true).build(),
+                key.diffAlgorithm(),
+                key.whitespace()))
+        .isNotEqualTo(key);
+  }
+
+  @Test
+  public void mappingsRoundTrip() {
+    ImmutableSet<Mapping> mappings =
+        ImmutableSet.of(
+            Mapping.create(
+                FileMapping.forModifiedFile("modified.txt"),
+                ImmutableSet.of(
+                    RangeMapping.create(Range.create(0, 3), Range.create(0, 5)),
+                    RangeMapping.create(Range.create(10, 10), Range.create(12, 14)))),
+            Mapping.create(FileMapping.forRenamedFile("old.txt", "new.txt"), ImmutableSet.of()),
+            Mapping.create(FileMapping.forAddedFile("added.txt"), ImmutableSet.of()),
+            Mapping.create(FileMapping.forDeletedFile("deleted.txt"), ImmutableSet.of()));
+    assertThat(
+            CommitMappingsCache.ValueSerializer.INSTANCE.deserialize(
+                CommitMappingsCache.ValueSerializer.INSTANCE.serialize(mappings)))
+        .isEqualTo(mappings);
+  }
+
+  @Test
+  public void emptyMappingsRoundTrip() {
+    assertThat(
+            CommitMappingsCache.ValueSerializer.INSTANCE.deserialize(
+                CommitMappingsCache.ValueSerializer.INSTANCE.serialize(ImmutableSet.of())))
+        .isEmpty();
+  }
+}
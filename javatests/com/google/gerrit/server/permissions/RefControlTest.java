@@ -69,6 +69,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Optional;
 import org.eclipse.jgit.junit.TestRepository;
+import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Repository;
 import org.junit.After;
 import org.junit.Before;
@@ -207,9 +208,13 @@ public class RefControlTest {
   @Inject private SingleVersionListener singleVersionListener;
   @Inject private ThreadLocalRequestContext requestContext;
 
+  protected Config config() {
+    return InMemoryModule.newDefaultConfig();
+  }
+
   @Before
   public void setUp() throws Exception {
-    Injector injector = Guice.createInjector(new InMemoryModule());
+    Injector injector = Guice.createInjector(new InMemoryModule(config()));
     injector.injectMembers(this);
 
     // Tests previously used ProjectConfig.Factory to create ProjectConfigs without going through
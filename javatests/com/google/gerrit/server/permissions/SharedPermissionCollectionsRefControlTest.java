@@ -0,0 +1,27 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.permissions;
+
+import org.eclipse.jgit.lib.Config;
+
+/** Runs {@link RefControlTest} with permission collections shared across requests. */
+public class SharedPermissionCollectionsRefControlTest extends RefControlTest {
+  @Override
+  protected Config config() {
+    Config cfg = super.config();
+    cfg.setInt("permissions", null, "sharedCollectionsPerProject", 100);
+    return cfg;
+  }
+}
@@ -0,0 +1,249 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.permissions;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gerrit.entities.Account;
+import com.google.gerrit.entities.AccountGroup;
+import com.google.gerrit.entities.CachedProjectConfig;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.AnonymousUser;
+import com.google.gerrit.server.CurrentUser;
+import com.google.gerrit.server.IdentifiedUser;
+import com.google.gerrit.server.InternalUser;
+import com.google.gerrit.server.account.ListGroupMembership;
+import com.google.gerrit.server.permissions.PermissionBackend.RefFilterOptions;
+import com.google.gerrit.server.project.ProjectState;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VisibleRefsCacheTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+  private static final AccountGroup.UUID GROUP_1 = AccountGroup.uuid("group-1");
+  private static final AccountGroup.UUID GROUP_2 = AccountGroup.uuid("group-2");
+  private static final ObjectId CONFIG_1 =
+      ObjectId.fromString("1111111111111111111111111111111111111111");
+  private static final ObjectId CONFIG_2 =
+      ObjectId.fromString("2222222222222222222222222222222222222222");
+  private static final ObjectId COMMIT_1 =
+      ObjectId.fromString("3333333333333333333333333333333333333333");
+  private static final ObjectId COMMIT_2 =
+      ObjectId.fromString("4444444444444444444444444444444444444444");
+
+  private final RefFilterOptions opts = RefFilterOptions.defaults();
+
+  private VisibleRefsCache visibleRefsCache;
+  private AtomicInteger filterCalls;
+
+  @Before
+  public void setUp() {
+    visibleRefsCache = new VisibleRefsCache(CacheBuilder.newBuilder().build());
+    filterCalls = new AtomicInteger();
+  }
+
+  @Test
+  public void resultIsSharedBetweenIdenticalRequests() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    CurrentUser user = user(1, GROUP_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    ImmutableList<Ref> visible = get(projectState, user, refs);
+    assertThat(get(projectState, user, refs)).isSameInstanceAs(visible);
+    assertThat(get(projectState, user(1, GROUP_1), refs(VisibleRefsCache.MIN_REFS, COMMIT_1)))
+        .isSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void resultIsNotSharedBetweenUsers() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    ImmutableList<Ref> visible = get(projectState, user(1, GROUP_1), refs);
+    assertThat(get(projectState, user(2, GROUP_1), refs)).isNotSameInstanceAs(visible);
+    assertThat(get(projectState, new AnonymousUser(), refs)).isNotSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(3);
+
+    assertThat(VisibleRefsCache.key(projectState, user(1, GROUP_1), refs, opts))
+        .isNotEqualTo(VisibleRefsCache.key(projectState, user(2, GROUP_1), refs, opts));
+    assertThat(VisibleRefsCache.key(projectState, user(1, GROUP_1), refs, opts))
+        .isNotEqualTo(VisibleRefsCache.key(projectState, new AnonymousUser(), refs, opts));
+  }
+
+  @Test
+  public void anonymousUsersShareResults() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    ImmutableList<Ref> visible = get(projectState, new AnonymousUser(), refs);
+    assertThat(get(projectState, new AnonymousUser(), refs)).isSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void internalUserIsNotCached() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+    CurrentUser user = new InternalUser();
+
+    assertThat(VisibleRefsCache.key(projectState, user, refs, opts)).isNull();
+    get(projectState, user, refs);
+    get(projectState, user, refs);
+    assertThat(filterCalls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void groupMembershipChangeInvalidates() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    ImmutableList<Ref> visible = get(projectState, user(1, GROUP_1), refs);
+    assertThat(get(projectState, user(1, GROUP_1, GROUP_2), refs)).isNotSameInstanceAs(visible);
+    assertThat(get(projectState, user(1), refs)).isNotSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void groupOrderDoesNotMatter() {
+    ProjectState projectState = projectState(CONFIG_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    assertThat(VisibleRefsCache.key(projectState, user(1, GROUP_1, GROUP_2), refs, opts))
+        .isEqualTo(VisibleRefsCache.key(projectState, user(1, GROUP_2, GROUP_1), refs, opts));
+  }
+
+  @Test
+  public void refStateChangeInvalidates() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    CurrentUser user = user(1, GROUP_1);
+
+    ImmutableList<Ref> visible = get(projectState, user, refs(VisibleRefsCache.MIN_REFS, COMMIT_1));
+    // A ref was updated.
+    List<Ref> updated = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+    updated.set(0, ref(updated.get(0).getName(), COMMIT_2));
+    assertThat(get(projectState, user, updated)).isNotSameInstanceAs(visible);
+    // A ref was created.
+    assertThat(get(projectState, user, refs(VisibleRefsCache.MIN_REFS + 1, COMMIT_1)))
+        .isNotSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void projectConfigChangeInvalidates() throws Exception {
+    CurrentUser user = user(1, GROUP_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    ImmutableList<Ref> visible = get(projectState(CONFIG_1), user, refs);
+    assertThat(get(projectState(CONFIG_2), user, refs)).isNotSameInstanceAs(visible);
+    // The config of a parent project changed.
+    assertThat(get(projectState(CONFIG_1, CONFIG_2), user, refs)).isNotSameInstanceAs(visible);
+    assertThat(filterCalls.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void filterOptionsChangeInvalidates() {
+    ProjectState projectState = projectState(CONFIG_1);
+    CurrentUser user = user(1, GROUP_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS, COMMIT_1);
+
+    VisibleRefsCache.Key key = VisibleRefsCache.key(projectState, user, refs, opts);
+    assertThat(
+            VisibleRefsCache.key(
+                projectState, user, refs, opts.toBuilder().setFilterMeta(true).build()))
+        .isNotEqualTo(key);
+    assertThat(
+            VisibleRefsCache.key(
+                projectState,
+                user,
+                refs,
+                opts.toBuilder().setPrefixes(ImmutableList.of("refs/heads/")).build()))
+        .isNotEqualTo(key);
+  }
+
+  @Test
+  public void fewRefsAreNotCached() throws Exception {
+    ProjectState projectState = projectState(CONFIG_1);
+    CurrentUser user = user(1, GROUP_1);
+    List<Ref> refs = refs(VisibleRefsCache.MIN_REFS - 1, COMMIT_1);
+
+    assertThat(VisibleRefsCache.key(projectState, user, refs, opts)).isNull();
+    get(projectState, user, refs);
+    get(projectState, user, refs);
+    assertThat(filterCalls.get()).isEqualTo(2);
+  }
+
+  private ImmutableList<Ref> get(ProjectState projectState, CurrentUser user, List<Ref> refs)
+      throws Exception {
+    return visibleRefsCache.get(
+        projectState,
+        user,
+        refs,
+        opts,
+        () -> {
+          filterCalls.incrementAndGet();
+          return ImmutableList.copyOf(refs);
+        });
+  }
+
+  private static CurrentUser user(int accountId, AccountGroup.UUID... groups) {
+    IdentifiedUser user = mock(IdentifiedUser.class);
+    when(user.isIdentifiedUser()).thenReturn(true);
+    when(user.getAccountId()).thenReturn(Account.id(accountId));
+    when(user.getEffectiveGroups())
+        .thenReturn(new ListGroupMembership(ImmutableSet.copyOf(groups)));
+    return user;
+  }
+
+  /** Returns the state of a project whose config and parents' configs have the given revisions. */
+  private static ProjectState projectState(ObjectId... configRevisions) {
+    List<ProjectState> tree = new ArrayList<>();
+    for (ObjectId revision : configRevisions) {
+      CachedProjectConfig config = mock(CachedProjectConfig.class);
+      when(config.getRevision()).thenReturn(Optional.of(revision));
+      ProjectState state = mock(ProjectState.class);
+      when(state.getConfig()).thenReturn(config);
+      tree.add(state);
+    }
+    ProjectState projectState = tree.get(0);
+    when(projectState.getNameKey()).thenReturn(PROJECT);
+    when(projectState.tree()).thenReturn(tree);
+    return projectState;
+  }
+
+  private static List<Ref> refs(int count, ObjectId id) {
+    List<Ref> refs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      refs.add(ref("refs/heads/branch-" + i, id));
+    }
+    return refs;
+  }
+
+  private static Ref ref(String name, ObjectId id) {
+    return new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, name, id);
+  }
+}
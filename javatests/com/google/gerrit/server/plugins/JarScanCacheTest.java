@@ -0,0 +1,136 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.plugins;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.extensions.annotations.Listen;
+import com.google.gerrit.server.plugins.JarScanCache.ScannedClass;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarScanCacheTest {
+  private static final String LISTEN = descriptor(Listen.class);
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private JarScanCache jarScanCache;
+  private AtomicInteger scans;
+
+  @Listen
+  public static class TestListener {}
+
+  @Before
+  public void setUp() {
+    jarScanCache = new JarScanCache(CacheBuilder.newBuilder().build());
+    scans = new AtomicInteger();
+  }
+
+  @Test
+  public void serializerRoundTrip() {
+    ImmutableList<ScannedClass> classes =
+        ImmutableList.of(
+            new ScannedClass(LISTEN, "com.example.Listener", null),
+            new ScannedClass("Lcom/example/Export;", "com.example.Command", "command"));
+    assertThat(
+            JarScanCache.Serializer.INSTANCE.deserialize(
+                JarScanCache.Serializer.INSTANCE.serialize(classes)))
+        .isEqualTo(classes);
+    assertThat(
+            JarScanCache.Serializer.INSTANCE.deserialize(
+                JarScanCache.Serializer.INSTANCE.serialize(ImmutableList.of())))
+        .isEmpty();
+  }
+
+  @Test
+  public void jarWithSameContentIsNotScannedAgain() throws Exception {
+    Path jar = createJar("plugin.jar");
+    ImmutableList<ScannedClass> classes = get(jar);
+    assertThat(get(jar)).isEqualTo(classes);
+    assertThat(get(createJar("copy.jar"))).isEqualTo(classes);
+    assertThat(scans.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void modifiedJarIsScannedAgain() throws Exception {
+    Path jar = createJar("plugin.jar");
+    get(jar);
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out)) {
+      jarOut.putNextEntry(new JarEntry("README"));
+      jarOut.write(1);
+    }
+    get(jar);
+    assertThat(scans.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void prefetchScansJar() throws Exception {
+    Path jar = createJar("plugin.jar");
+    jarScanCache.prefetch("plugin", jar);
+
+    ImmutableList<ScannedClass> classes =
+        jarScanCache.get(
+            jar,
+            AutoRegisterModules.ANNOTATIONS.stream()
+                .map(JarScanCacheTest::descriptor)
+                .collect(toImmutableList()),
+            () -> {
+              throw new AssertionError("jar was scanned again");
+            });
+    assertThat(classes)
+        .containsExactly(new ScannedClass(LISTEN, TestListener.class.getName(), null));
+  }
+
+  private ImmutableList<ScannedClass> get(Path jar) throws Exception {
+    return jarScanCache.get(
+        jar,
+        ImmutableList.of(LISTEN),
+        () -> {
+          scans.incrementAndGet();
+          return ImmutableList.of(new ScannedClass(LISTEN, TestListener.class.getName(), null));
+        });
+  }
+
+  /** Creates a jar that contains {@link TestListener}. */
+  private Path createJar(String name) throws Exception {
+    Path jar = temporaryFolder.getRoot().toPath().resolve(name);
+    String classFile = TestListener.class.getName().replace('.', '/') + ".class";
+    try (OutputStream out = Files.newOutputStream(jar);
+        JarOutputStream jarOut = new JarOutputStream(out);
+        InputStream in = TestListener.class.getClassLoader().getResourceAsStream(classFile)) {
+      jarOut.putNextEntry(new JarEntry(classFile));
+      in.transferTo(jarOut);
+    }
+    return jar;
+  }
+
+  private static String descriptor(Class<? extends Annotation> annotation) {
+    return "L" + annotation.getName().replace('.', '/') + ";";
+  }
+}
@@ -0,0 +1,126 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.project;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gerrit.entities.AccessSection;
+import com.google.gerrit.entities.Project;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class CompiledSectionMatchersTest {
+  private static final Project.NameKey PROJECT = Project.nameKey("project");
+
+  @Test
+  public void literalPrefix() {
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/.*")).isEqualTo("refs/heads/");
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/stable-[0-9]+"))
+        .isEqualTo("refs/heads/stable-");
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/ab?")).isEqualTo("refs/heads/a");
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/a{2}")).isEqualTo("refs/heads/");
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/\\d+")).isEqualTo("refs/heads/");
+    assertThat(RefPatternMatcher.literalPrefix("^refs/heads/a|refs/tags/b")).isEmpty();
+    assertThat(RefPatternMatcher.literalPrefix("^.*")).isEmpty();
+  }
+
+  @Test
+  public void candidatesKeepInputOrder() {
+    CompiledSectionMatchers compiled =
+        compile(
+            "refs/heads/master",
+            "refs/*",
+            "^refs/heads/stable-[0-9]+",
+            "refs/heads/*",
+            "refs/tags/*",
+            "refs/heads/users/${username}/*",
+            "^.*/foo");
+
+    assertThat(candidates(compiled, "refs/heads/master"))
+        .containsExactly(
+            "refs/heads/master",
+            "refs/*",
+            "refs/heads/*",
+            "refs/heads/users/${username}/*",
+            "^.*/foo")
+        .inOrder();
+    assertThat(candidates(compiled, "refs/heads/stable-2"))
+        .containsExactly(
+            "refs/*",
+            "^refs/heads/stable-[0-9]+",
+            "refs/heads/*",
+            "refs/heads/users/${username}/*",
+            "^.*/foo")
+        .inOrder();
+    assertThat(candidates(compiled, "refs/tags/v1"))
+        .containsExactly("refs/*", "refs/tags/*", "refs/heads/users/${username}/*", "^.*/foo")
+        .inOrder();
+    assertThat(candidates(compiled, "^refs/heads/users/${username}/.*"))
+        .containsExactlyElementsIn(
+            compiled.getMatchers().stream().map(CompiledSectionMatchersTest::name).toList())
+        .inOrder();
+  }
+
+  @Test
+  public void candidatesIncludeAllMatches() {
+    ImmutableList<String> refs =
+        ImmutableList.of(
+            "refs/heads/master",
+            "refs/heads/master2",
+            "refs/heads/stable-12",
+            "refs/heads/stable-x",
+            "refs/tags/v1",
+            "refs/meta/config",
+            "refs/changes/01/1/1",
+            "refs/foo");
+    CompiledSectionMatchers compiled =
+        compile(
+            "refs/heads/master",
+            "refs/*",
+            "^refs/heads/stable-[0-9]+",
+            "^refs/(heads|tags)/.*",
+            "refs/heads/*",
+            "refs/meta/config",
+            "^refs/changes/\\d+/.*",
+            "^.*/foo");
+
+    for (String ref : refs) {
+      List<SectionMatcher> candidates = compiled.candidates(ref);
+      for (SectionMatcher sm : compiled.getMatchers()) {
+        if (sm.match(ref, null)) {
+          assertThat(candidates).contains(sm);
+        }
+      }
+    }
+  }
+
+  private static CompiledSectionMatchers compile(String... patterns) {
+    return CompiledSectionMatchers.compile(
+        Stream.of(patterns)
+            .map(p -> SectionMatcher.wrap(PROJECT, AccessSection.create(p)))
+            .collect(toImmutableList()));
+  }
+
+  private static List<String> candidates(CompiledSectionMatchers compiled, String ref) {
+    return compiled.candidates(ref).stream().map(CompiledSectionMatchersTest::name).toList();
+  }
+
+  private static String name(SectionMatcher m) {
+    return m.getSection().getName();
+  }
+}
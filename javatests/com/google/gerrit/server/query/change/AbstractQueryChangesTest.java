@@ -148,6 +148,7 @@ import com.google.gerrit.server.util.RequestContext;
 import com.google.gerrit.server.util.ThreadLocalRequestContext;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.gerrit.testing.GerritServerTests;
+import com.google.gerrit.testing.InMemoryRepositoryManager;
 import com.google.gerrit.testing.TestChanges;
 import com.google.gerrit.testing.TestTimeUtil;
 import com.google.inject.Inject;
@@ -192,6 +193,7 @@ public abstract class AbstractQueryChangesTest extends GerritServerTests {
   @Inject protected BatchUpdate.Factory updateFactory;
   @Inject protected AllProjectsName allProjectsName;
   @Inject protected ChangeInserter.Factory changeFactory;
+  @Inject protected ChangeData.Factory changeDataFactory;
   @Inject protected Provider<ChangeQueryBuilder> queryBuilderProvider;
   @Inject protected GerritApi gApi;
   @Inject protected IdentifiedUser.GenericFactory userFactory;
@@ -952,6 +954,71 @@ public abstract class AbstractQueryChangesTest extends GerritServerTests {
     assertQuery("project:repo2", change2);
   }
 
+  @Test
+  public void ensureLoadedForChangesOfSeveralProjects() throws Exception {
+    Project.NameKey project1 = Project.nameKey("repo1");
+    repo = createAndOpenProject(project1);
+    Project.NameKey project2 = Project.nameKey("repo2");
+    repo = createAndOpenProject(project2);
+    List<Change> changes =
+        ImmutableList.of(
+            insert(project1, newChange(project1)),
+            insert(project1, newChange(project1)),
+            insert(project2, newChange(project2)),
+            insert(project2, newChange(project2)),
+            insert(project2, newChange(project2)));
+
+    List<ChangeData> cds =
+        changes.stream()
+            .map(c -> changeDataFactory.create(c.getProject(), c.getId()))
+            .collect(toImmutableList());
+    ChangeData.ensureChangeLoaded(cds);
+    ChangeData.ensureAllPatchSetsLoaded(cds);
+    ChangeData.ensureCurrentApprovalsLoaded(cds);
+
+    for (int i = 0; i < changes.size(); i++) {
+      ChangeData cd = cds.get(i);
+      assertThat(cd.change().getKey()).isEqualTo(changes.get(i).getKey());
+      assertThat(cd.notes().getChangeId()).isEqualTo(changes.get(i).getId());
+      assertThat(cd.patchSets()).hasSize(1);
+      assertThat(cd.currentApprovals()).isEmpty();
+    }
+  }
+
+  @Test
+  public void ensureChangeLoadedOpensEachRepositoryOnce() throws Exception {
+    assume().that(repoManager).isInstanceOf(InMemoryRepositoryManager.class);
+    InMemoryRepositoryManager inMemoryRepoManager = (InMemoryRepositoryManager) repoManager;
+    Project.NameKey project1 = Project.nameKey("repo1");
+    repo = createAndOpenProject(project1);
+    Project.NameKey project2 = Project.nameKey("repo2");
+    repo = createAndOpenProject(project2);
+    List<Change> changes =
+        ImmutableList.of(
+            insert(project1, newChange(project1)),
+            insert(project2, newChange(project2)),
+            insert(project1, newChange(project1)),
+            insert(project2, newChange(project2)),
+            insert(project2, newChange(project2)));
+    List<ChangeData> cds =
+        changes.stream()
+            .map(c -> changeDataFactory.create(c.getProject(), c.getId()))
+            .collect(toImmutableList());
+
+    int opens1 = inMemoryRepoManager.getOpenCount(project1);
+    int opens2 = inMemoryRepoManager.getOpenCount(project2);
+    ChangeData.ensureChangeLoaded(cds);
+
+    // Loading the notes of each change on its own would open the repository once per change.
+    assertThat(inMemoryRepoManager.getOpenCount(project1) - opens1).isEqualTo(1);
+    assertThat(inMemoryRepoManager.getOpenCount(project2) - opens2).isEqualTo(1);
+    for (int i = 0; i < changes.size(); i++) {
+      assertThat(cds.get(i).change().getKey()).isEqualTo(changes.get(i).getKey());
+    }
+    assertThat(inMemoryRepoManager.getOpenCount(project1) - opens1).isEqualTo(1);
+    assertThat(inMemoryRepoManager.getOpenCount(project2) - opens2).isEqualTo(1);
+  }
+
   @Test
   public void byProjectWithHidden() throws Exception {
     Project.NameKey hiddenProject = Project.nameKey("hiddenProject");
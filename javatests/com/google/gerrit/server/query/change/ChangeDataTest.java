@@ -28,6 +28,7 @@ import com.google.gerrit.server.notedb.ChangeNotes;
 import com.google.gerrit.server.util.time.TimeUtil;
 import com.google.gerrit.testing.TestChanges;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -52,6 +53,39 @@ public class ChangeDataTest {
     assertThat(curr2).isNotSameInstanceAs(curr1);
   }
 
+  @Test
+  public void deferredStoredDataIsDecodedOnFirstAccess() throws Exception {
+    Project.NameKey project = Project.nameKey("project");
+    ChangeData cd = ChangeData.createForTest(project, Change.id(1), 1, ObjectId.zeroId());
+    PatchSet ps1 = newPatchSet(cd.getId(), 1);
+    AtomicInteger decoded = new AtomicInteger();
+    cd.deferStoredData(
+        ChangeData.StoredData.PATCH_SETS,
+        () -> {
+          decoded.incrementAndGet();
+          cd.setPatchSets(ImmutableList.of(ps1));
+        });
+    assertThat(decoded.get()).isEqualTo(0);
+
+    assertThat(cd.patchSets()).containsExactly(ps1);
+    assertThat(cd.patchSets()).containsExactly(ps1);
+    assertThat(decoded.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void setterDiscardsDeferredStoredData() throws Exception {
+    Project.NameKey project = Project.nameKey("project");
+    ChangeData cd = ChangeData.createForTest(project, Change.id(1), 1, ObjectId.zeroId());
+    PatchSet ps1 = newPatchSet(cd.getId(), 1);
+    PatchSet ps2 = newPatchSet(cd.getId(), 2);
+    cd.deferStoredData(
+        ChangeData.StoredData.PATCH_SETS, () -> cd.setPatchSets(ImmutableList.of(ps1)));
+
+    cd.setPatchSets(ImmutableList.of(ps2));
+
+    assertThat(cd.patchSets()).containsExactly(ps2);
+  }
+
   @Test
   public void getChangeVirtualIdUsingAlgorithmAndServerId() throws Exception {
     Project.NameKey project = Project.nameKey("project");
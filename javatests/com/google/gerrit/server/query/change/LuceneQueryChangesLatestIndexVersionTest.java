@@ -37,4 +37,11 @@ public class LuceneQueryChangesLatestIndexVersionTest extends LuceneQueryChanges
     config.setString("index", null, "paginationType", "NONE");
     return config;
   }
+
+  @ConfigSuite.Config
+  public static Config shardedChanges() {
+    Config config = defaultConfig();
+    config.setInt("index", null, "changeShards", 3);
+    return config;
+  }
 }
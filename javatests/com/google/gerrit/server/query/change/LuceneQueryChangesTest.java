@@ -40,6 +40,8 @@ public abstract class LuceneQueryChangesTest extends AbstractQueryChangesTest {
   protected Injector createInjector() {
     Config luceneConfig = new Config(config);
     InMemoryModule.setDefaults(luceneConfig);
+    luceneConfig.setInt("index", "changes_open", "searchResultCacheSize", 100);
+    luceneConfig.setInt("index", "changes_closed", "searchResultCacheSize", 100);
     return Guice.createInjector(new InMemoryModule(luceneConfig));
   }
 
@@ -78,6 +80,41 @@ public abstract class LuceneQueryChangesTest extends AbstractQueryChangesTest {
         change1);
   }
 
+  @Test
+  public void byManyChangeNumbers() throws Exception {
+    Project.NameKey project = Project.nameKey("repo");
+    repo = createAndOpenProject(project);
+    Change change1 = insert(project, newChange(repo));
+    Change change2 = insert(project, newChange(repo));
+    insert(project, newChange(repo));
+
+    // More terms than index.maxTerms, which is fine since they are on the same field.
+    StringBuilder query = new StringBuilder();
+    for (int i = 1; i <= 2000; i++) {
+      query.append("change:").append(change1.getId().get() + 1000 * i).append(" OR ");
+    }
+    query.append("change:").append(change1.getId()).append(" OR change:").append(change2.getId());
+
+    assertQuery(query.toString(), change2, change1);
+  }
+
+  @Test
+  public void repeatedQueryReflectsIndexUpdates() throws Exception {
+    Project.NameKey project = Project.nameKey("repo");
+    repo = createAndOpenProject(project);
+    Change change1 = insert(project, newChange(repo));
+
+    assertQuery("status:new", change1);
+    assertQuery("status:new", change1);
+
+    Change change2 = insert(project, newChange(repo));
+    assertQuery("status:new", change2, change1);
+
+    gApi.changes().id(change1.getChangeId()).abandon();
+    assertQuery("status:new", change2);
+    assertQuery("status:abandoned", change1);
+  }
+
   @Test
   public void invalidQuery() throws Exception {
     BadRequestException thrown =
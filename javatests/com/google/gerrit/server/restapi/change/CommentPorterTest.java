@@ -21,10 +21,12 @@ import static org.mockito.ArgumentMatchers.anyShort;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.truth.Correspondence;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.BranchNameKey;
 import com.google.gerrit.entities.Change;
@@ -33,12 +35,15 @@ import com.google.gerrit.entities.HumanComment;
 import com.google.gerrit.entities.Patch;
 import com.google.gerrit.entities.PatchSet;
 import com.google.gerrit.entities.Project;
+import com.google.gerrit.extensions.client.DiffPreferencesInfo.Whitespace;
 import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.server.CommentsUtil;
 import com.google.gerrit.server.notedb.ChangeNotes;
+import com.google.gerrit.server.patch.CommitMappingsCache;
 import com.google.gerrit.server.patch.DiffNotAvailableException;
 import com.google.gerrit.server.patch.DiffOperations;
 import com.google.gerrit.server.patch.DiffOptions;
+import com.google.gerrit.server.patch.gitfilediff.GitFileDiffCacheImpl.DiffAlgorithm;
 import com.google.gerrit.server.restapi.change.CommentPorter.Metrics;
 import com.google.gerrit.truth.NullAwareCorrespondence;
 import java.time.Instant;
@@ -74,7 +79,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -82,7 +87,9 @@ public class CommentPorterTest {
             any(Project.NameKey.class),
             any(ObjectId.class),
             any(ObjectId.class),
-            any(DiffOptions.class)))
+            any(DiffOptions.class),
+            any(DiffAlgorithm.class),
+            any(Whitespace.class)))
         .thenThrow(DiffNotAvailableException.class);
     ImmutableList<HumanComment> portedComments =
         commentPorter.portComments(
@@ -100,7 +107,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -108,7 +115,9 @@ public class CommentPorterTest {
             any(Project.NameKey.class),
             any(ObjectId.class),
             any(ObjectId.class),
-            any(DiffOptions.class)))
+            any(DiffOptions.class),
+            any(DiffAlgorithm.class),
+            any(Whitespace.class)))
         .thenThrow(IllegalStateException.class);
     ImmutableList<HumanComment> portedComments =
         commentPorter.portComments(
@@ -126,7 +135,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenThrow(IllegalStateException.class);
@@ -146,7 +155,7 @@ public class CommentPorterTest {
     PatchSet patchset2 = createPatchset(PatchSet.id(changeId, 2));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -154,7 +163,9 @@ public class CommentPorterTest {
             any(Project.NameKey.class),
             any(ObjectId.class),
             any(ObjectId.class),
-            any(DiffOptions.class)))
+            any(DiffOptions.class),
+            any(DiffAlgorithm.class),
+            any(Whitespace.class)))
         .thenThrow(IllegalStateException.class);
     ImmutableList<HumanComment> portedComments =
         commentPorter.portComments(
@@ -175,7 +186,7 @@ public class CommentPorterTest {
     PatchSet patchset3 = createPatchset(PatchSet.id(changeId, 3));
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset1, patchset2, patchset3);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     // Place the comments on different patchsets to have two different diff requests.
     HumanComment comment1 = createComment(patchset1.id(), "myFile");
     HumanComment comment2 = createComment(patchset2.id(), "myFile");
@@ -186,7 +197,9 @@ public class CommentPorterTest {
             any(Project.NameKey.class),
             any(ObjectId.class),
             any(ObjectId.class),
-            any(DiffOptions.class)))
+            any(DiffOptions.class),
+            any(DiffAlgorithm.class),
+            any(Whitespace.class)))
         .thenThrow(IllegalStateException.class)
         .thenReturn(ImmutableMap.of());
     ImmutableList<HumanComment> portedComments =
@@ -208,7 +221,7 @@ public class CommentPorterTest {
     // Leave out patchset 1 (e.g. reserved for draft patchsets in the past).
     ChangeNotes changeNotes = mockChangeNotes(project, change, patchset2);
 
-    CommentPorter commentPorter = new CommentPorter(diffOperations, commentsUtil, metrics);
+    CommentPorter commentPorter = newCommentPorter();
     HumanComment comment = createComment(patchset1.id(), "myFile");
     when(commentsUtil.determineCommitId(any(), any(), anyShort()))
         .thenReturn(Optional.of(dummyObjectId));
@@ -216,7 +229,9 @@ public class CommentPorterTest {
             any(Project.NameKey.class),
             any(ObjectId.class),
             any(ObjectId.class),
-            any(DiffOptions.class)))
+            any(DiffOptions.class),
+            any(DiffAlgorithm.class),
+            any(Whitespace.class)))
         .thenReturn(ImmutableMap.of());
     ImmutableList<HumanComment> portedComments =
         commentPorter.portComments(
@@ -225,6 +240,15 @@ public class CommentPorterTest {
     assertThat(portedComments).isEmpty();
   }
 
+  private CommentPorter newCommentPorter() {
+    return new CommentPorter(
+        new CommitMappingsCache(
+            CacheBuilder.newBuilder().build(new CommitMappingsCache.Loader(diffOperations))),
+        commentsUtil,
+        metrics,
+        MoreExecutors.newDirectExecutorService());
+  }
+
   private Change createChange(Project.NameKey project, Change.Id changeId) {
     return new Change(
         Change.key("changeKey"),
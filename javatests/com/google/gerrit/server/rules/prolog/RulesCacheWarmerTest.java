@@ -0,0 +1,94 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.server.rules.prolog;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.gerrit.entities.CachedProjectConfig;
+import com.google.gerrit.entities.Project;
+import com.google.gerrit.server.project.ProjectCache;
+import com.google.gerrit.server.project.ProjectState;
+import java.util.Optional;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RulesCacheWarmerTest {
+  private static final Project.NameKey WITH_RULES = Project.nameKey("with-rules");
+  private static final Project.NameKey WITHOUT_RULES = Project.nameKey("without-rules");
+  private static final ObjectId RULES_ID =
+      ObjectId.fromString("badc0feebadc0feebadc0feebadc0feebadc0fee");
+
+  private final ProjectCache projectCache = mock(ProjectCache.class);
+  private final RulesCache rulesCache = mock(RulesCache.class);
+
+  @Before
+  public void setUp() {
+    when(rulesCache.isProjectRulesEnabled()).thenReturn(true);
+    when(projectCache.all()).thenReturn(ImmutableSortedSet.of(WITH_RULES, WITHOUT_RULES));
+    stubProject(WITH_RULES, Optional.of(RULES_ID));
+    stubProject(WITHOUT_RULES, Optional.empty());
+  }
+
+  @Test
+  public void loadsRulesOfProjectsThatHaveRules() throws Exception {
+    newWarmer(true).start();
+
+    verify(rulesCache, timeout(10_000)).loadMachine(WITH_RULES, RULES_ID);
+    verify(projectCache, timeout(10_000)).get(WITHOUT_RULES);
+    verify(rulesCache, never()).loadMachine(eq(WITHOUT_RULES), any(ObjectId.class));
+  }
+
+  @Test
+  public void noOpIfNotEnabled() throws Exception {
+    newWarmer(false).start();
+
+    verifyNoInteractions(projectCache);
+    verify(rulesCache, never()).loadMachine(any(Project.NameKey.class), any(ObjectId.class));
+  }
+
+  @Test
+  public void noOpIfProjectRulesAreDisabled() throws Exception {
+    when(rulesCache.isProjectRulesEnabled()).thenReturn(false);
+
+    newWarmer(true).start();
+
+    verifyNoInteractions(projectCache);
+    verify(rulesCache, never()).loadMachine(any(Project.NameKey.class), any(ObjectId.class));
+  }
+
+  private RulesCacheWarmer newWarmer(boolean loadOnStartup) {
+    Config cfg = new Config();
+    cfg.setBoolean("cache", RulesCache.CACHE_NAME, "loadOnStartup", loadOnStartup);
+    return new RulesCacheWarmer(cfg, projectCache, rulesCache);
+  }
+
+  private void stubProject(Project.NameKey name, Optional<ObjectId> rulesId) {
+    CachedProjectConfig config = mock(CachedProjectConfig.class);
+    when(config.getRulesId()).thenReturn(rulesId);
+    ProjectState state = mock(ProjectState.class);
+    when(state.getConfig()).thenReturn(config);
+    when(projectCache.get(name)).thenReturn(Optional.of(state));
+  }
+}
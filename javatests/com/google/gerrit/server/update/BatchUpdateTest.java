@@ -28,6 +28,7 @@ import com.github.rholder.retry.RetryListener;
 import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.gerrit.common.Nullable;
 import com.google.gerrit.entities.Account;
 import com.google.gerrit.entities.Change;
@@ -268,6 +269,36 @@ public class BatchUpdateTest {
     assertThat(event2.usersRemoved()).isEmpty();
   }
 
+  @Test
+  public void updateManyChangesInSingleBatch() throws Exception {
+    List<Change.Id> ids = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ids.add(createChangeWithUpdates(1));
+    }
+
+    List<Change.Id> updated = new ArrayList<>();
+    try (BatchUpdate bu = batchUpdateFactory.create(project, user.get(), TimeUtil.now())) {
+      for (Change.Id id : Lists.reverse(ids)) {
+        bu.addOp(
+            id,
+            new AddMessageOp("Batch update") {
+              @Override
+              public boolean updateChange(ChangeContext ctx) throws Exception {
+                assertThat(ctx.getChange().getId()).isEqualTo(id);
+                updated.add(id);
+                return super.updateChange(ctx);
+              }
+            });
+      }
+      bu.execute();
+    }
+
+    assertThat(updated).containsExactlyElementsIn(Lists.reverse(ids)).inOrder();
+    for (Change.Id id : ids) {
+      assertThat(getUpdateCount(id)).isEqualTo(2);
+    }
+  }
+
   @Test
   public void exceedingMaxUpdatesAllowedWithCompleteNoOp() throws Exception {
     Change.Id id = createChangeWithUpdates(MAX_UPDATES);
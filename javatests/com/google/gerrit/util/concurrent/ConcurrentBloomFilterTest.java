@@ -17,6 +17,8 @@ package com.google.gerrit.util.concurrent;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.hash.Funnels;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -300,6 +302,42 @@ public class ConcurrentBloomFilterTest {
     }
   }
 
+  @Test
+  public void countingInvalidateRemovesKey() {
+    ConcurrentBloomFilter<Integer> filter =
+        new ConcurrentBloomFilter<>(Funnels.integerFunnel(), () -> {}, MAX_INVALIDATED, true);
+    filter.clear();
+    filter.put(1);
+    filter.put(2);
+    filter.invalidate(1);
+    assertThat(filter.mightContain(1)).isFalse();
+    assertThat(filter.mightContain(2)).isTrue();
+    assertThat(filter.getInvalidatedCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void writeToAndReadFrom() throws Exception {
+    for (boolean counting : new boolean[] {false, true}) {
+      ConcurrentBloomFilter<Integer> filter =
+          new ConcurrentBloomFilter<>(Funnels.integerFunnel(), () -> {}, 0, counting);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertThat(filter.writeTo(out)).isFalse();
+      filter.clear();
+      filter.put(1);
+      assertThat(filter.writeTo(out)).isTrue();
+
+      ConcurrentBloomFilter<Integer> restored =
+          new ConcurrentBloomFilter<>(Funnels.integerFunnel(), () -> {}, 0, counting);
+      assertThat(restored.readFrom(new ByteArrayInputStream(out.toByteArray()))).isTrue();
+      assertThat(restored.mightContain(1)).isTrue();
+      assertThat(restored.mightContain(2)).isFalse();
+
+      ConcurrentBloomFilter<Integer> otherType =
+          new ConcurrentBloomFilter<>(Funnels.integerFunnel(), () -> {}, 0, !counting);
+      assertThat(otherType.readFrom(new ByteArrayInputStream(out.toByteArray()))).isFalse();
+    }
+  }
+
   private static ConcurrentBloomFilter<Integer> create(
       Consumer<ConcurrentBloomFilter<Integer>> builder) {
     AtomicReference<Runnable> buiderRef = new AtomicReference<>();
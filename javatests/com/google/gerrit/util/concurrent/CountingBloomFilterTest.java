@@ -0,0 +1,96 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.gerrit.util.concurrent;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.hash.Funnels;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+
+public class CountingBloomFilterTest {
+  @Test
+  public void putAndRemove() {
+    CountingBloomFilter<Integer> filter = CountingBloomFilter.create(Funnels.integerFunnel(), 100);
+    for (int i = 0; i < 100; i++) {
+      filter.put(i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertThat(filter.mightContain(i)).isTrue();
+    }
+    for (int i = 0; i < 100; i += 2) {
+      assertThat(filter.remove(i)).isTrue();
+    }
+    for (int i = 1; i < 100; i += 2) {
+      assertThat(filter.mightContain(i)).isTrue();
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 100; i += 2) {
+      if (filter.mightContain(i)) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(10);
+  }
+
+  @Test
+  public void keyPutTwiceSurvivesOneRemove() {
+    CountingBloomFilter<Integer> filter = CountingBloomFilter.create(Funnels.integerFunnel(), 10);
+    filter.put(1);
+    filter.put(1);
+    filter.remove(1);
+    assertThat(filter.mightContain(1)).isTrue();
+    filter.remove(1);
+    assertThat(filter.mightContain(1)).isFalse();
+  }
+
+  @Test
+  public void removeOfAbsentKeyDoesNotAffectOthers() {
+    CountingBloomFilter<Integer> filter = CountingBloomFilter.create(Funnels.integerFunnel(), 10);
+    filter.put(1);
+    for (int i = 2; i < 100; i++) {
+      filter.remove(i);
+    }
+    assertThat(filter.mightContain(1)).isTrue();
+  }
+
+  @Test
+  public void saturatedCountersAreSticky() {
+    CountingBloomFilter<Integer> filter = CountingBloomFilter.create(Funnels.integerFunnel(), 10);
+    for (int i = 0; i < 20; i++) {
+      filter.put(1);
+    }
+    for (int i = 0; i < 20; i++) {
+      filter.remove(1);
+    }
+    assertThat(filter.mightContain(1)).isTrue();
+  }
+
+  @Test
+  public void writeToAndReadFrom() throws Exception {
+    CountingBloomFilter<Integer> filter = CountingBloomFilter.create(Funnels.integerFunnel(), 10);
+    filter.put(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    filter.writeTo(out);
+
+    CountingBloomFilter<Integer> restored =
+        CountingBloomFilter.readFrom(
+            new ByteArrayInputStream(out.toByteArray()), Funnels.integerFunnel());
+    assertThat(restored.mightContain(1)).isTrue();
+    restored.remove(1);
+    assertThat(restored.mightContain(1)).isFalse();
+  }
+}